@@ -6,6 +6,7 @@ plugins {
     id("java")
     id("jacoco")
     id("io.spring.dependency-management") version "1.1.6"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 val versionFromProperty = "${project.property("version")}"
@@ -41,16 +42,21 @@ dependencies {
     implementation("org.springframework:spring-context")
     implementation("org.springframework:spring-core")
     implementation("org.springframework.data:spring-data-jpa")
+    implementation("org.springframework:spring-jdbc")
     implementation("org.springframework.boot:spring-boot-autoconfigure")
 
     implementation("org.flywaydb:flyway-core")
 
     implementation("com.fasterxml.jackson.core:jackson-databind")
+    implementation("com.github.ben-manes.caffeine:caffeine")
 
     implementation("com.fasterxml.jackson.module:jackson-module-parameter-names")
     implementation("com.fasterxml.jackson.datatype:jackson-datatype-jdk8")
     implementation("com.fasterxml.jackson.datatype:jackson-datatype-jsr310")
     implementation("org.apache.commons:commons-lang3")
+    implementation("org.slf4j:slf4j-api")
+
+    compileOnly("io.micrometer:micrometer-core")
 
     implementation("jakarta.annotation:jakarta.annotation-api")
     implementation("jakarta.persistence:jakarta.persistence-api")
@@ -63,6 +69,7 @@ dependencies {
     testImplementation("org.springframework.boot:spring-boot-starter-test")
 
     testImplementation("com.h2database:h2")
+    testImplementation("io.micrometer:micrometer-core")
 
     testImplementation("org.junit.jupiter:junit-jupiter-api")
     testImplementation("org.junit.jupiter:junit-jupiter-params")
@@ -73,6 +80,13 @@ dependencies {
     testAnnotationProcessor("org.projectlombok:lombok")
 
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine")
+
+    jmhImplementation("org.springframework.boot:spring-boot-starter-data-jpa")
+    jmhImplementation("com.h2database:h2")
+    jmhImplementation("com.github.sibdevtools:api-session:${project.property("lib_api_session_version")}")
+
+    jmhCompileOnly("org.projectlombok:lombok")
+    jmhAnnotationProcessor("org.projectlombok:lombok")
 }
 
 tasks.withType<JavaCompile>().configureEach {
@@ -103,6 +117,18 @@ tasks.jacocoTestReport {
     dependsOn(tasks.test)
 }
 
+jmh {
+    jmhVersion = "${project.property("lib_jmh_version")}"
+    benchmarkMode = listOf("thrpt", "sample")
+    timeUnit = "us"
+    profilers = listOf("gc")
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    resultFormat = "JSON"
+    includes = listOfNotNull(project.findProperty("jmh_includes")?.toString())
+}
+
 tasks.jar {
     from("LICENSE") {
         rename { "${it}_${project.property("project_name")}" }
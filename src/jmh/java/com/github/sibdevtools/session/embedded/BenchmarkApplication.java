@@ -0,0 +1,13 @@
+package com.github.sibdevtools.session.embedded;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * Application used by end-to-end benchmarks
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@SpringBootApplication
+public class BenchmarkApplication {
+}
@@ -0,0 +1,102 @@
+package com.github.sibdevtools.session.embedded.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedConfig;
+import com.github.sibdevtools.session.embedded.entity.SnapshotCodecType;
+import com.github.sibdevtools.session.embedded.service.SnapshotCodec;
+import com.github.sibdevtools.session.embedded.service.impl.SnapshotBinaryCodec;
+import com.github.sibdevtools.session.embedded.service.impl.SnapshotDeflateCodec;
+import com.github.sibdevtools.session.embedded.service.impl.SnapshotJsonCodec;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Session shapes and codecs, shared by benchmarks
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class BenchmarkSessions {
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    /**
+     * Build session attributes with mixed value types: strings of passed size, numbers and flags
+     *
+     * @param sections   count of sections
+     * @param attributes count of attributes per section
+     * @param valueSize  size of string values
+     * @return session attributes
+     */
+    public static Map<String, Map<String, Serializable>> attributes(int sections, int attributes, int valueSize) {
+        var random = new Random(42);
+        var snapshot = new HashMap<String, Map<String, Serializable>>(sections);
+        for (int s = 0; s < sections; s++) {
+            var section = new HashMap<String, Serializable>(attributes);
+            for (int a = 0; a < attributes; a++) {
+                var value = switch (a % 4) {
+                    case 0, 1 -> randomString(random, valueSize);
+                    case 2 -> random.nextLong();
+                    default -> random.nextBoolean();
+                };
+                section.put(attributeName(a), value);
+            }
+            snapshot.put(sectionName(s), section);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Get section name by index
+     *
+     * @param index section index
+     * @return section name
+     */
+    public static String sectionName(int index) {
+        return "section-" + index;
+    }
+
+    /**
+     * Get attribute name by index
+     *
+     * @param index attribute index
+     * @return attribute name
+     */
+    public static String attributeName(int index) {
+        return "attribute-" + index;
+    }
+
+    /**
+     * Create snapshot codec, configured as in service configuration
+     *
+     * @param codecType codec type
+     * @return snapshot codec
+     */
+    public static SnapshotCodec codec(SnapshotCodecType codecType) {
+        return switch (codecType) {
+            case JSON -> new SnapshotJsonCodec(objectMapper());
+            case BINARY -> new SnapshotBinaryCodec();
+            case JSON_DEFLATE -> new SnapshotDeflateCodec(codecType, new SnapshotJsonCodec(objectMapper()));
+            case BINARY_DEFLATE -> new SnapshotDeflateCodec(codecType, new SnapshotBinaryCodec());
+            // section split layout stores content in section snapshots, it has no codec of its own
+            case SECTIONS -> throw new IllegalArgumentException("Snapshot codec type %s has no codec".formatted(codecType));
+        };
+    }
+
+    private static ObjectMapper objectMapper() {
+        return new SessionServiceEmbeddedConfig().sessionServiceObjectMapper();
+    }
+
+    private static String randomString(Random random, int size) {
+        var chars = new char[size];
+        for (int i = 0; i < size; i++) {
+            chars[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+        }
+        return new String(chars);
+    }
+}
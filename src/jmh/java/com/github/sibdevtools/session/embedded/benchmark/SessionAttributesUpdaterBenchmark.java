@@ -0,0 +1,71 @@
+package com.github.sibdevtools.session.embedded.benchmark;
+
+import com.github.sibdevtools.session.api.ModificationQueryBuilder;
+import com.github.sibdevtools.session.api.dto.query.ModificationQuery;
+import com.github.sibdevtools.session.api.dto.query.action.Action;
+import com.github.sibdevtools.session.embedded.service.SessionAttributesUpdater;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Modification query application to session attributes
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@State(Scope.Benchmark)
+public class SessionAttributesUpdaterBenchmark {
+    @Param({"1", "8"})
+    public int sections;
+    @Param({"8", "64"})
+    public int attributes;
+    @Param({"1", "16"})
+    public int actions;
+
+    private Map<String, Map<String, Serializable>> sessionAttributes;
+    private ModificationQuery modificationQuery;
+    private Action action;
+    private HashMap<String, Serializable> sectionAttributes;
+
+    @Setup
+    public void setUp() {
+        sessionAttributes = BenchmarkSessions.attributes(sections, attributes, 64);
+
+        var builder = ModificationQueryBuilder.builder();
+        for (int i = 0; i < actions; i++) {
+            var section = BenchmarkSessions.sectionName(i % sections);
+            var attribute = BenchmarkSessions.attributeName(i % attributes);
+            switch (i % 3) {
+                case 0 -> builder.change(section, attribute, "value-" + i);
+                case 1 -> builder.create(section, "new-" + attribute, "value-" + i);
+                default -> builder.remove(section, attribute);
+            }
+        }
+        modificationQuery = builder.build();
+
+        var singleActionQuery = ModificationQueryBuilder.builder()
+                .change(BenchmarkSessions.sectionName(0), BenchmarkSessions.attributeName(0), "value")
+                .build();
+        action = singleActionQuery.actions().iterator().next();
+        sectionAttributes = new HashMap<>(sessionAttributes.get(BenchmarkSessions.sectionName(0)));
+    }
+
+    @Benchmark
+    public Map<String, Map<String, Serializable>> updateAttributes() {
+        return SessionAttributesUpdater.updateAttributes(modificationQuery, sessionAttributes);
+    }
+
+    @Benchmark
+    public Map<String, Serializable> proceedAction() {
+        SessionAttributesUpdater.proceedAction(
+                action,
+                sectionAttributes,
+                action.getAttributeName(),
+                action.getSection()
+        );
+        return sectionAttributes;
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.sibdevtools.session.embedded.benchmark;
+
+import com.github.sibdevtools.session.api.ModificationQueryBuilder;
+import com.github.sibdevtools.session.api.dto.Session;
+import com.github.sibdevtools.session.api.dto.SessionId;
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.api.rq.CreateSessionRq;
+import com.github.sibdevtools.session.api.rq.UpdateSessionRq;
+import com.github.sibdevtools.session.api.service.SessionService;
+import com.github.sibdevtools.session.embedded.BenchmarkApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * End-to-end create, get and update of embedded session service against in-memory H2
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public class SessionServiceEmbeddedBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ServiceState {
+        @Param({"JSON", "BINARY"})
+        public String codec;
+        @Param({"false", "true"})
+        public String cacheEnabled;
+        @Param({"false", "true"})
+        public String deltaEnabled;
+
+        private ConfigurableApplicationContext context;
+        private SessionService sessionService;
+        private Map<String, Map<String, Serializable>> sections;
+        private SessionId sessionId;
+
+        @Setup
+        public void setUp() {
+            context = new SpringApplicationBuilder(BenchmarkApplication.class)
+                    .web(WebApplicationType.NONE)
+                    .properties(
+                            "spring.datasource.url=jdbc:h2:mem:session_service_benchmark;DB_CLOSE_DELAY=-1",
+                            "spring.datasource.driver-class-name=org.h2.Driver",
+                            "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                            "service.session.mode=EMBEDDED",
+                            "service.session.embedded.snapshot.codec=" + codec,
+                            "service.session.embedded.cache.enabled=" + cacheEnabled,
+                            "service.session.embedded.snapshot.delta-enabled=" + deltaEnabled
+                    )
+                    .run();
+            sessionService = context.getBean(SessionService.class);
+            sections = BenchmarkSessions.attributes(4, 16, 64);
+            sessionId = create();
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+
+        private SessionId create() {
+            return sessionService.create(
+                    CreateSessionRq.builder()
+                            .ownerId(UUID.randomUUID().toString())
+                            .ownerType(SessionOwnerType.USER)
+                            .permissions(List.of("read", "write"))
+                            .sections(sections)
+                            .build()
+            ).getBody();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class UpdateState {
+        private SessionId sessionId;
+        private long counter;
+
+        @Setup
+        public void setUp(ServiceState serviceState) {
+            sessionId = serviceState.create();
+        }
+    }
+
+    @Benchmark
+    public SessionId create(ServiceState serviceState) {
+        return serviceState.create();
+    }
+
+    @Benchmark
+    public Session get(ServiceState serviceState) {
+        return serviceState.sessionService.get(serviceState.sessionId).getBody();
+    }
+
+    @Benchmark
+    public SessionId update(ServiceState serviceState, UpdateState updateState) {
+        updateState.sessionId = serviceState.sessionService.update(
+                UpdateSessionRq.builder()
+                        .sessionId(updateState.sessionId)
+                        .modificationQuery(
+                                ModificationQueryBuilder.builder()
+                                        .change(
+                                                BenchmarkSessions.sectionName(0),
+                                                BenchmarkSessions.attributeName(0),
+                                                updateState.counter++
+                                        )
+                                        .build()
+                        )
+                        .build()
+        ).getBody();
+        return updateState.sessionId;
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.sibdevtools.session.embedded.benchmark;
+
+import com.github.sibdevtools.session.embedded.entity.SnapshotCodecType;
+import com.github.sibdevtools.session.embedded.service.SnapshotCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Snapshot codecs over different session shapes: sections × attributes × value sizes
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@State(Scope.Benchmark)
+public class SnapshotCodecBenchmark {
+    @Param({"JSON", "BINARY", "JSON_DEFLATE", "BINARY_DEFLATE"})
+    public SnapshotCodecType codecType;
+    @Param({"1", "8"})
+    public int sections;
+    @Param({"8", "64"})
+    public int attributes;
+    @Param({"16", "1024"})
+    public int valueSize;
+
+    private SnapshotCodec codec;
+    private Map<String, Map<String, Serializable>> snapshot;
+    private byte[] encoded;
+    private String section;
+    private String attribute;
+
+    @Setup
+    public void setUp() {
+        codec = BenchmarkSessions.codec(codecType);
+        snapshot = BenchmarkSessions.attributes(sections, attributes, valueSize);
+        encoded = codec.serialize(snapshot);
+        section = BenchmarkSessions.sectionName(sections - 1);
+        attribute = BenchmarkSessions.attributeName(attributes - 1);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return codec.serialize(snapshot);
+    }
+
+    @Benchmark
+    public Map<String, Map<String, Serializable>> deserialize() {
+        return codec.deserialize(encoded);
+    }
+
+    @Benchmark
+    public Serializable getAttribute() {
+        return codec.getAttribute(encoded, section, attribute);
+    }
+}
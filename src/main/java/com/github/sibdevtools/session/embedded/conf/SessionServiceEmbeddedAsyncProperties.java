@@ -0,0 +1,51 @@
+package com.github.sibdevtools.session.embedded.conf;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Setter
+@Getter
+@Configuration
+@NoArgsConstructor
+@AllArgsConstructor
+@ConfigurationProperties("service.session.embedded.async")
+public class SessionServiceEmbeddedAsyncProperties {
+    /**
+     * Register asynchronous session service
+     */
+    private boolean enabled;
+    /**
+     * Run each operation in its own virtual thread, otherwise a fixed pool of platform threads is used
+     */
+    private boolean virtualThreads;
+    /**
+     * Count of platform threads, used if virtual threads are disabled
+     */
+    private int poolSize;
+    /**
+     * Max count of operations, waiting for a platform thread
+     */
+    private int queueCapacity;
+    /**
+     * Max count of concurrently executed operations, should not exceed size of connection pool much
+     */
+    private int maxConcurrency;
+    /**
+     * Max time to wait for execution permit, before operation is rejected
+     */
+    private Duration acquireTimeout;
+    /**
+     * Max time to wait for running operations on shutdown
+     */
+    private Duration shutdownTimeout;
+}
@@ -0,0 +1,29 @@
+package com.github.sibdevtools.session.embedded.conf;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Setter
+@Getter
+@Configuration
+@NoArgsConstructor
+@AllArgsConstructor
+@ConfigurationProperties("service.session.embedded.batch")
+public class SessionServiceEmbeddedBatchProperties {
+    /**
+     * Max count of rows in a single JDBC batch insert
+     */
+    private int jdbcBatchSize;
+    /**
+     * Max count of parameters in a single {@code IN (...)} lookup
+     */
+    private int lookupSize;
+}
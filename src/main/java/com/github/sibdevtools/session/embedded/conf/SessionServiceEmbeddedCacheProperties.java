@@ -0,0 +1,29 @@
+package com.github.sibdevtools.session.embedded.conf;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Setter
+@Getter
+@Configuration
+@NoArgsConstructor
+@AllArgsConstructor
+@ConfigurationProperties("service.session.embedded.cache")
+public class SessionServiceEmbeddedCacheProperties {
+    /**
+     * Cache decoded session snapshots in memory
+     */
+    private boolean enabled;
+    /**
+     * Max estimated size of cached sessions in bytes
+     */
+    private long maxWeight;
+}
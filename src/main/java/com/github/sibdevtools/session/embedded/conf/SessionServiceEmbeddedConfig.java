@@ -8,14 +8,27 @@ import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
 import com.github.sibdevtools.error.mutable.api.source.ErrorLocalizationsJsonSource;
-import com.github.sibdevtools.session.embedded.service.impl.SnapshotJsonCodec;
+import com.github.sibdevtools.session.embedded.entity.SnapshotCodecType;
+import com.github.sibdevtools.session.embedded.repository.PermissionEntityRepository;
+import com.github.sibdevtools.session.embedded.repository.SessionBatchJdbcRepository;
+import com.github.sibdevtools.session.embedded.repository.SessionEntityRepository;
+import com.github.sibdevtools.session.embedded.repository.SessionSectionSnapshotEntityRepository;
+import com.github.sibdevtools.session.embedded.repository.SessionSnapshotEntityRepository;
+import com.github.sibdevtools.session.embedded.service.*;
+import com.github.sibdevtools.session.embedded.service.impl.*;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.flywaydb.core.Flyway;
 import org.flywaydb.core.api.output.MigrateResult;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import javax.sql.DataSource;
 import java.util.Map;
@@ -36,7 +49,7 @@ import java.util.Map;
 )
 @Configuration
 @PropertySource("classpath:/embedded/session/application.properties")
-@ConditionalOnProperty(name = "service.session.mode", havingValue = "EMBEDDED")
+@Conditional(SessionServiceEmbeddedModeCondition.class)
 public class SessionServiceEmbeddedConfig {
 
     @Bean("sessionServiceObjectMapper")
@@ -59,26 +72,263 @@ public class SessionServiceEmbeddedConfig {
     }
 
     @Bean
-    public Flyway embeddedSessionFlyway(SessionServiceEmbeddedFlywayProperties configuration,
-                                      DataSource dataSource) {
-        return Flyway.configure()
-                .dataSource(dataSource)
-                .encoding(configuration.getEncoding())
-                .locations(configuration.getLocations())
-                .defaultSchema(configuration.getSchema())
-                .schemas(configuration.getSchema())
-                .placeholders(
-                        Map.of(
-                                "schema", configuration.getSchema()
-                        )
-                )
-                .load();
+    public SnapshotBinaryCodec snapshotBinaryCodec(SessionServiceEmbeddedSnapshotProperties snapshotProperties) {
+        return new SnapshotBinaryCodec(snapshotProperties.getSerialFilter());
     }
 
     @Bean
-    public MigrateResult embeddedSessionFlywayMigrateResult(
-            @Qualifier("embeddedSessionFlyway") Flyway flyway
+    public SnapshotDeflateCodec snapshotJsonDeflateCodec(SnapshotJsonCodec snapshotJsonCodec) {
+        return new SnapshotDeflateCodec(SnapshotCodecType.JSON_DEFLATE, snapshotJsonCodec);
+    }
+
+    @Bean
+    public SnapshotDeflateCodec snapshotBinaryDeflateCodec(SnapshotBinaryCodec snapshotBinaryCodec) {
+        return new SnapshotDeflateCodec(SnapshotCodecType.BINARY_DEFLATE, snapshotBinaryCodec);
+    }
+
+    @Bean
+    public SessionSnapshotCache sessionSnapshotCache(SessionServiceEmbeddedCacheProperties cacheProperties) {
+        return new SessionSnapshotCache(cacheProperties);
+    }
+
+    @Bean
+    public SessionExpiryPolicy sessionExpiryPolicy(SessionServiceEmbeddedExpiryProperties expiryProperties) {
+        return new SessionExpiryPolicy(expiryProperties);
+    }
+
+    @Bean
+    public PermissionRegistry permissionRegistry(SessionStorage sessionStorage) {
+        return new PermissionRegistry(sessionStorage);
+    }
+
+    @Bean
+    public SessionUpdateCombiner sessionUpdateCombiner(SessionServiceEmbeddedUpdateProperties updateProperties,
+                                                       PlatformTransactionManager transactionManager) {
+        return new SessionUpdateCombiner(updateProperties, transactionManager);
+    }
+
+    @Bean
+    public SessionWriteBehindBuffer sessionWriteBehindBuffer(
+            SessionStorage sessionStorage,
+            SessionHeaderStorage sessionHeaderStorage,
+            SessionSnapshotCache sessionSnapshotCache,
+            SessionServiceEmbeddedWriteBehindProperties writeBehindProperties,
+            PlatformTransactionManager transactionManager
     ) {
-        return flyway.migrate();
+        return new SessionWriteBehindBuffer(
+                sessionStorage,
+                sessionHeaderStorage,
+                sessionSnapshotCache,
+                writeBehindProperties,
+                transactionManager
+        );
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "service.session.embedded.async.enabled", havingValue = "true")
+    public AsyncSessionService asyncSessionService(BatchSessionService sessionService,
+                                                   SessionServiceEmbeddedAsyncProperties asyncProperties) {
+        return new AsyncSessionServiceEmbedded(sessionService, asyncProperties);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(SessionMetrics.class)
+    public SessionMetrics noopSessionMetrics() {
+        return new NoopSessionMetrics();
+    }
+
+    /**
+     * Session storage and maintenance, backed by database or local files
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(name = "service.session.mode", havingValue = "EMBEDDED")
+    static class EmbeddedModeConfig {
+
+        @Bean
+        @Conditional(SessionServiceEmbeddedDatabaseStorageCondition.class)
+        @ConditionalOnProperty(name = "service.session.embedded.retention.enabled", havingValue = "true")
+        public SessionSnapshotCompactor sessionSnapshotCompactor(
+                SessionEntityRepository sessionEntityRepository,
+                SessionSnapshotEntityRepository sessionSnapshotEntityRepository,
+                SessionSectionSnapshotEntityRepository sectionSnapshotEntityRepository,
+                SessionServiceEmbeddedRetentionProperties retentionProperties,
+                SessionSnapshotCache sessionSnapshotCache,
+                PlatformTransactionManager transactionManager
+        ) {
+            return new SessionSnapshotCompactor(
+                    sessionEntityRepository,
+                    sessionSnapshotEntityRepository,
+                    sectionSnapshotEntityRepository,
+                    retentionProperties,
+                    sessionSnapshotCache,
+                    transactionManager
+            );
+        }
+
+        @Bean
+        @Conditional(SessionServiceEmbeddedDatabaseStorageCondition.class)
+        @ConditionalOnProperty(name = "service.session.embedded.expiry.purge-enabled", havingValue = "true")
+        public SessionExpiryPurger sessionExpiryPurger(
+                SessionEntityRepository sessionEntityRepository,
+                SessionSnapshotEntityRepository sessionSnapshotEntityRepository,
+                SessionSectionSnapshotEntityRepository sectionSnapshotEntityRepository,
+                SessionServiceEmbeddedExpiryProperties expiryProperties,
+                PlatformTransactionManager transactionManager
+        ) {
+            return new SessionExpiryPurger(
+                    sessionEntityRepository,
+                    sessionSnapshotEntityRepository,
+                    sectionSnapshotEntityRepository,
+                    expiryProperties,
+                    transactionManager
+            );
+        }
+
+        @Bean
+        public SessionBatchJdbcRepository sessionBatchJdbcRepository(SessionServiceEmbeddedBatchProperties batchProperties,
+                                                                     DataSource dataSource) {
+            return new SessionBatchJdbcRepository(dataSource, batchProperties.getJdbcBatchSize());
+        }
+
+        @Bean
+        @ConditionalOnProperty(name = "service.session.embedded.storage.type", havingValue = "JPA", matchIfMissing = true)
+        public JpaSessionStorage jpaSessionStorage(SessionEntityRepository sessionEntityRepository,
+                                                   SessionSnapshotEntityRepository sessionSnapshotEntityRepository,
+                                                   SessionSectionSnapshotEntityRepository sectionSnapshotEntityRepository,
+                                                   PermissionEntityRepository permissionEntityRepository,
+                                                   SessionBatchJdbcRepository sessionBatchJdbcRepository,
+                                                   PlatformTransactionManager transactionManager) {
+            return new JpaSessionStorage(
+                    sessionEntityRepository,
+                    sessionSnapshotEntityRepository,
+                    sectionSnapshotEntityRepository,
+                    permissionEntityRepository,
+                    sessionBatchJdbcRepository,
+                    transactionManager
+            );
+        }
+
+        @Bean
+        @ConditionalOnProperty(name = "service.session.embedded.storage.type", havingValue = "JDBC")
+        public JdbcSessionStorage jdbcSessionStorage(DataSource dataSource,
+                                                     SessionBatchJdbcRepository sessionBatchJdbcRepository,
+                                                     PlatformTransactionManager transactionManager) {
+            return new JdbcSessionStorage(dataSource, sessionBatchJdbcRepository, transactionManager);
+        }
+
+        @Bean
+        @ConditionalOnProperty(name = "service.session.embedded.storage.type", havingValue = "MAPPED")
+        public MappedSessionStorage mappedSessionStorage(SessionServiceEmbeddedMappedStorageProperties storageProperties,
+                                                         SessionServiceEmbeddedRetentionProperties retentionProperties,
+                                                         SessionServiceEmbeddedExpiryProperties expiryProperties) {
+            // snapshot compactor and expiry purger work with database tables, mapped storage drops expired sessions itself
+            if (retentionProperties.isEnabled()) {
+                throw new IllegalStateException(
+                        "Snapshot retention is not supported by MAPPED storage, disable service.session.embedded.retention.enabled"
+                );
+            }
+            if (expiryProperties.isPurgeEnabled()) {
+                throw new IllegalStateException(
+                        "Expiry purge is not supported by MAPPED storage, disable service.session.embedded.expiry.purge-enabled"
+                );
+            }
+            return new MappedSessionStorage(storageProperties);
+        }
+
+        @Bean
+        @Conditional(SessionServiceEmbeddedDatabaseStorageCondition.class)
+        public SessionStoreExporter sessionStoreExporter(DataSource dataSource,
+                                                         PlatformTransactionManager transactionManager,
+                                                         SessionServiceEmbeddedTransferProperties transferProperties) {
+            return new SessionStoreExporter(dataSource, transactionManager, transferProperties);
+        }
+
+        @Bean
+        @Conditional(SessionServiceEmbeddedDatabaseStorageCondition.class)
+        public SessionStoreImporter sessionStoreImporter(SessionBatchJdbcRepository sessionBatchJdbcRepository,
+                                                         PermissionRegistry permissionRegistry,
+                                                         DataSource dataSource,
+                                                         PlatformTransactionManager transactionManager,
+                                                         SessionServiceEmbeddedTransferProperties transferProperties) {
+            return new SessionStoreImporter(
+                    sessionBatchJdbcRepository,
+                    permissionRegistry,
+                    dataSource,
+                    transactionManager,
+                    transferProperties
+            );
+        }
+
+        @Bean
+        public Flyway embeddedSessionFlyway(SessionServiceEmbeddedFlywayProperties configuration,
+                                          DataSource dataSource) {
+            return Flyway.configure()
+                    .dataSource(dataSource)
+                    .encoding(configuration.getEncoding())
+                    .locations(configuration.getLocations())
+                    .defaultSchema(configuration.getSchema())
+                    .schemas(configuration.getSchema())
+                    .placeholders(
+                            Map.of(
+                                    "schema", configuration.getSchema()
+                            )
+                    )
+                    .load();
+        }
+
+        @Bean
+        public MigrateResult embeddedSessionFlywayMigrateResult(
+                @Qualifier("embeddedSessionFlyway") Flyway flyway
+        ) {
+            return flyway.migrate();
+        }
+    }
+
+    /**
+     * Session storage in process memory, without database
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(name = "service.session.mode", havingValue = "IN_MEMORY")
+    static class InMemoryModeConfig {
+
+        @Bean
+        public InMemorySessionStorage inMemorySessionStorage(
+                SessionServiceEmbeddedMemoryStorageProperties storageProperties
+        ) {
+            return new InMemorySessionStorage(storageProperties);
+        }
+
+        @Bean
+        @ConditionalOnMissingBean(PlatformTransactionManager.class)
+        public InMemoryTransactionManager sessionServiceTransactionManager() {
+            return new InMemoryTransactionManager();
+        }
+    }
+
+    /**
+     * Micrometer metrics, loaded only if Micrometer is on the classpath
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnProperty(name = "service.session.embedded.metrics.enabled", havingValue = "true")
+    static class MicrometerMetricsConfig {
+
+        @Bean
+        public SessionMetrics sessionMetrics(ObjectProvider<MeterRegistry> meterRegistry,
+                                             SessionSnapshotCache sessionSnapshotCache,
+                                             SessionWriteBehindBuffer sessionWriteBehindBuffer,
+                                             ObjectProvider<SessionSnapshotCompactor> sessionSnapshotCompactor,
+                                             ObjectProvider<SessionExpiryPurger> sessionExpiryPurger) {
+            var registry = meterRegistry.getIfAvailable();
+            if (registry == null) {
+                return new NoopSessionMetrics();
+            }
+            var sessionMetrics = new MicrometerSessionMetrics(registry);
+            sessionMetrics.bindCache(sessionSnapshotCache);
+            sessionMetrics.bindWriteBehindBuffer(sessionWriteBehindBuffer);
+            sessionSnapshotCompactor.ifAvailable(sessionMetrics::bindCompactor);
+            sessionExpiryPurger.ifAvailable(sessionMetrics::bindPurger);
+            return sessionMetrics;
+        }
     }
 }
@@ -0,0 +1,29 @@
+package com.github.sibdevtools.session.embedded.conf;
+
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+/**
+ * Condition of database backed session storage, matches JPA and JDBC storage types.
+ * Maintenance jobs, export and import work with database tables directly, so they require one of them.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public class SessionServiceEmbeddedDatabaseStorageCondition extends AnyNestedCondition {
+
+    /**
+     * Construct database storage condition
+     */
+    public SessionServiceEmbeddedDatabaseStorageCondition() {
+        super(ConfigurationPhase.REGISTER_BEAN);
+    }
+
+    @ConditionalOnProperty(name = "service.session.embedded.storage.type", havingValue = "JPA", matchIfMissing = true)
+    static class JpaStorage {
+    }
+
+    @ConditionalOnProperty(name = "service.session.embedded.storage.type", havingValue = "JDBC")
+    static class JdbcStorage {
+    }
+}
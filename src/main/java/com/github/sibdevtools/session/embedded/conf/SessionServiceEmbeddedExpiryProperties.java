@@ -0,0 +1,50 @@
+package com.github.sibdevtools.session.embedded.conf;
+
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Setter
+@Getter
+@Configuration
+@NoArgsConstructor
+@AllArgsConstructor
+@ConfigurationProperties("service.session.embedded.expiry")
+public class SessionServiceEmbeddedExpiryProperties {
+    /**
+     * Session time to live, empty - sessions never expire
+     */
+    private Duration ttl;
+    /**
+     * Session time to live overrides by owner type
+     */
+    private Map<SessionOwnerType, Duration> ownerTypeTtl = new EnumMap<>(SessionOwnerType.class);
+    /**
+     * Prolong session expiration on access
+     */
+    private boolean sliding;
+    /**
+     * Run background purge of expired sessions
+     */
+    private boolean purgeEnabled;
+    /**
+     * Delay between purge runs
+     */
+    private Duration purgeInterval;
+    /**
+     * Max count of sessions purged in a single transaction
+     */
+    private int purgeBatchSize;
+}
@@ -0,0 +1,48 @@
+package com.github.sibdevtools.session.embedded.conf;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Setter
+@Getter
+@Configuration
+@NoArgsConstructor
+@AllArgsConstructor
+@ConfigurationProperties("service.session.embedded.storage.mapped")
+public class SessionServiceEmbeddedMappedStorageProperties {
+    /**
+     * Directory of log segment files
+     */
+    private String directory;
+    /**
+     * Size of a log segment file in bytes
+     */
+    private int segmentSize;
+    /**
+     * Initial count of slots in off-heap snapshot index
+     */
+    private int indexCapacity;
+    /**
+     * Flush written records to disk on each commit. Without it, records are flushed by OS
+     * and the latest commits may be lost on OS crash, but not on process crash.
+     */
+    private boolean syncOnCommit;
+    /**
+     * Delay between segment compactions
+     */
+    private Duration compactionInterval;
+    /**
+     * Max ratio of live bytes in sealed segment, which is rewritten by compaction
+     */
+    private double compactionThreshold;
+}
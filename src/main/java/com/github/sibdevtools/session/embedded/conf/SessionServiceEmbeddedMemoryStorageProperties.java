@@ -0,0 +1,37 @@
+package com.github.sibdevtools.session.embedded.conf;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Setter
+@Getter
+@Configuration
+@NoArgsConstructor
+@AllArgsConstructor
+@ConfigurationProperties("service.session.embedded.storage.memory")
+public class SessionServiceEmbeddedMemoryStorageProperties {
+    /**
+     * Count of independently locked session stripes, rounded up to power of 2
+     */
+    private int stripes;
+    /**
+     * Max count of stored sessions, the least recently used sessions are evicted above it
+     */
+    private int maxSessions;
+    /**
+     * Max size of stored snapshots in bytes, the least recently used sessions are evicted above it
+     */
+    private long maxBytes;
+    /**
+     * Count of the newest snapshot versions, kept for each session. Base snapshots of kept delta versions are kept too.
+     */
+    private int maxVersions;
+}
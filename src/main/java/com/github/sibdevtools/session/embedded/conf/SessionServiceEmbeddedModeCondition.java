@@ -0,0 +1,28 @@
+package com.github.sibdevtools.session.embedded.conf;
+
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+/**
+ * Condition of embedded session service, matches database backed and in-memory modes
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public class SessionServiceEmbeddedModeCondition extends AnyNestedCondition {
+
+    /**
+     * Construct embedded session service mode condition
+     */
+    public SessionServiceEmbeddedModeCondition() {
+        super(ConfigurationPhase.PARSE_CONFIGURATION);
+    }
+
+    @ConditionalOnProperty(name = "service.session.mode", havingValue = "EMBEDDED")
+    static class EmbeddedMode {
+    }
+
+    @ConditionalOnProperty(name = "service.session.mode", havingValue = "IN_MEMORY")
+    static class InMemoryMode {
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.sibdevtools.session.embedded.conf;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Setter
+@Getter
+@Configuration
+@NoArgsConstructor
+@AllArgsConstructor
+@ConfigurationProperties("service.session.embedded.retention")
+public class SessionServiceEmbeddedRetentionProperties {
+    /**
+     * Run background compaction of obsolete session snapshots
+     */
+    private boolean enabled;
+    /**
+     * Count of the newest session versions to keep, the newest version is kept always
+     */
+    private int keepLast;
+    /**
+     * Versions younger than ttl are kept, empty - not limited by age
+     */
+    private Duration ttl;
+    /**
+     * Delay between compaction runs
+     */
+    private Duration interval;
+    /**
+     * Max count of sessions compacted in a single transaction
+     */
+    private int batchSize;
+}
@@ -0,0 +1,51 @@
+package com.github.sibdevtools.session.embedded.conf;
+
+import com.github.sibdevtools.session.embedded.entity.SnapshotCodecType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Setter
+@Getter
+@Configuration
+@NoArgsConstructor
+@AllArgsConstructor
+@ConfigurationProperties("service.session.embedded.snapshot")
+public class SessionServiceEmbeddedSnapshotProperties {
+    /**
+     * Codec used to write new snapshots, existing snapshots are read by codec stored with them
+     */
+    private SnapshotCodecType codec;
+    /**
+     * Compress written snapshots, which size exceeds compression threshold
+     */
+    private boolean compressionEnabled;
+    /**
+     * Min size of encoded snapshot in bytes to be compressed
+     */
+    private int compressionThreshold;
+    /**
+     * Store updates as attribute deltas over the nearest full (base) snapshot
+     */
+    private boolean deltaEnabled;
+    /**
+     * Max distance in versions between base snapshots, when delta mode is enabled
+     */
+    private int deltaBaseInterval;
+    /**
+     * Store new versions in the section split layout: each section in a separate row, written only when changed.
+     * Existing single snapshot versions are still readable, delta mode is not used for split versions
+     */
+    private boolean sectionSplitEnabled;
+    /**
+     * {@link java.io.ObjectInputFilter} pattern, applied to java serialized attribute values of binary codec
+     */
+    private String serialFilter;
+}
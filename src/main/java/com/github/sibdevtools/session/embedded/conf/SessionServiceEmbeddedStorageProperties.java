@@ -0,0 +1,26 @@
+package com.github.sibdevtools.session.embedded.conf;
+
+import com.github.sibdevtools.session.embedded.dto.SessionStorageType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Setter
+@Getter
+@Configuration
+@NoArgsConstructor
+@AllArgsConstructor
+@ConfigurationProperties("service.session.embedded.storage")
+public class SessionServiceEmbeddedStorageProperties {
+    /**
+     * Backend of sessions, snapshots and permissions
+     */
+    private SessionStorageType type;
+}
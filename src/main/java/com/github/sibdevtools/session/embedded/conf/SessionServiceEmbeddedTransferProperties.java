@@ -0,0 +1,43 @@
+package com.github.sibdevtools.session.embedded.conf;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Setter
+@Getter
+@Configuration
+@NoArgsConstructor
+@AllArgsConstructor
+@ConfigurationProperties("service.session.embedded.transfer")
+public class SessionServiceEmbeddedTransferProperties {
+    /**
+     * Count of rows, fetched from database by one round trip on export
+     */
+    private int fetchSize;
+    /**
+     * Count of records, inserted by one transaction on import
+     */
+    private int batchSize;
+    /**
+     * Size of file read and write buffer in bytes
+     */
+    private int bufferSize;
+    /**
+     * Count of records between progress reports
+     */
+    private long progressInterval;
+    /**
+     * Drop secondary session indexes before import and build them after it.
+     * Indexes are dropped only if target store has no sessions, import into not empty store keeps indexes.
+     * Disabled by default: while import runs, other store users work without dropped indexes.
+     */
+    private boolean deferIndexes;
+}
@@ -0,0 +1,38 @@
+package com.github.sibdevtools.session.embedded.conf;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Setter
+@Getter
+@Configuration
+@NoArgsConstructor
+@AllArgsConstructor
+@ConfigurationProperties("service.session.embedded.update")
+public class SessionServiceEmbeddedUpdateProperties {
+    /**
+     * Re-apply modification to the latest session version, if passed version is outdated
+     */
+    private boolean rebaseEnabled;
+    /**
+     * Max count of rebase attempts per update
+     */
+    private int rebaseMaxAttempts;
+    /**
+     * Merge concurrently queued updates of the same session into a single new version.
+     * Not applied in write-behind mode.
+     */
+    private boolean coalescingEnabled;
+    /**
+     * Max count of updates merged into a single version
+     */
+    private int coalescingMaxBatchSize;
+}
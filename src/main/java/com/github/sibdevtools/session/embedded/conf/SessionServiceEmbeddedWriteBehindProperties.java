@@ -0,0 +1,52 @@
+package com.github.sibdevtools.session.embedded.conf;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Setter
+@Getter
+@Configuration
+@NoArgsConstructor
+@AllArgsConstructor
+@ConfigurationProperties("service.session.embedded.write-behind")
+public class SessionServiceEmbeddedWriteBehindProperties {
+    /**
+     * Acknowledge session updates from memory and persist them by background writer.
+     * Acknowledged, but not flushed versions are lost on crash. Suitable for single instance deployments only.
+     */
+    private boolean enabled;
+    /**
+     * Delay between background flushes
+     */
+    private Duration flushInterval;
+    /**
+     * Max count of not flushed session versions
+     */
+    private int maxQueueSize;
+    /**
+     * Max time to wait for a free place in full queue, before update is rejected
+     */
+    private Duration offerTimeout;
+    /**
+     * Max count of session versions flushed in a single transaction
+     */
+    private int batchSize;
+    /**
+     * Delay before the first retry of versions, which couldn't be persisted. Doubled after each failed retry
+     */
+    private Duration retryBackoff;
+    /**
+     * Max delay between retries of versions, which couldn't be persisted
+     */
+    private Duration maxRetryBackoff;
+}
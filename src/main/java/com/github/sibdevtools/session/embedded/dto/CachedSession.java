@@ -0,0 +1,40 @@
+package com.github.sibdevtools.session.embedded.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Cached session snapshot with known session expiration time
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class CachedSession {
+    private final LocalSession session;
+    /**
+     * Session expiration time, known at the moment of caching, null if session never expires
+     */
+    private final ZonedDateTime expiresAt;
+    /**
+     * Not compressed full snapshot of session attributes, null if unknown.
+     * Used to reuse encoded bytes of unchanged sections on the next version write.
+     */
+    @ToString.Exclude
+    private final EncodedSnapshot snapshot;
+
+    /**
+     * Construct cached session without encoded snapshot
+     *
+     * @param session   session
+     * @param expiresAt session expiration time
+     */
+    public CachedSession(LocalSession session, ZonedDateTime expiresAt) {
+        this(session, expiresAt, null);
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.sibdevtools.session.embedded.dto;
+
+import com.github.sibdevtools.session.embedded.entity.SnapshotCodecType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Encoded session snapshot content with codec type, required to decode it
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Getter
+@AllArgsConstructor
+public class EncodedSnapshot {
+    private final SnapshotCodecType type;
+    private final byte[] snapshot;
+}
@@ -0,0 +1,26 @@
+package com.github.sibdevtools.session.embedded.dto;
+
+import com.github.sibdevtools.session.embedded.entity.SessionSnapshotEntity;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Session snapshot version, acknowledged to client but not persisted yet
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class PendingSnapshot {
+    /**
+     * Snapshot to persist
+     */
+    private final SessionSnapshotEntity snapshot;
+    /**
+     * Decoded session of the snapshot version, served to readers till snapshot is flushed
+     */
+    private final CachedSession session;
+}
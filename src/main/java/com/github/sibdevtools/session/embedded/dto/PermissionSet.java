@@ -0,0 +1,125 @@
+package com.github.sibdevtools.session.embedded.dto;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Immutable set of session permission codes, backed by a sorted array of interned permission ids.
+ * <p>
+ * Codes are resolved through the shared canonical code strings, so the set holds only the ids itself.
+ * Membership check is a code to id lookup, a binary search and an exact comparison with the canonical code,
+ * so codes are matched the same way as by a plain set of permission codes.
+ * <p>
+ * In storage form ids are written as varint deltas between sorted ids, so the size depends on permission count,
+ * not on the highest permission id.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public final class PermissionSet extends AbstractSet<String> {
+    private final long[] ids;
+    private final ToLongFunction<String> idResolver;
+    private final LongFunction<String> codeResolver;
+
+    /**
+     * Construct permission set
+     *
+     * @param ids          sorted distinct permission ids, array is not copied and must not be modified after
+     * @param idResolver   permission code to id resolver, returns negative value for unknown code
+     * @param codeResolver permission id to canonical code resolver
+     */
+    public PermissionSet(long[] ids,
+                         ToLongFunction<String> idResolver,
+                         LongFunction<String> codeResolver) {
+        this.ids = ids;
+        this.idResolver = idResolver;
+        this.codeResolver = codeResolver;
+    }
+
+    /**
+     * Encode permission ids into compact storage form
+     *
+     * @param ids sorted distinct permission ids
+     * @return encoded permission ids
+     */
+    public static byte[] encode(long[] ids) {
+        var encoded = new byte[ids.length * 10];
+        var size = 0;
+        var previous = 0L;
+        for (var id : ids) {
+            var delta = id - previous;
+            previous = id;
+            while ((delta & ~0x7FL) != 0) {
+                encoded[size++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            encoded[size++] = (byte) delta;
+        }
+        return Arrays.copyOf(encoded, size);
+    }
+
+    /**
+     * Decode permission ids from compact storage form
+     *
+     * @param encoded encoded permission ids
+     * @return sorted distinct permission ids
+     */
+    public static long[] decode(byte[] encoded) {
+        var ids = new long[encoded.length];
+        var count = 0;
+        var previous = 0L;
+        var delta = 0L;
+        var shift = 0;
+        for (var b : encoded) {
+            if (shift >= Long.SIZE) {
+                throw new IllegalArgumentException("Malformed permission ids");
+            }
+            delta |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) != 0) {
+                shift += 7;
+                continue;
+            }
+            previous += delta;
+            ids[count++] = previous;
+            delta = 0;
+            shift = 0;
+        }
+        if (shift != 0) {
+            throw new IllegalArgumentException("Malformed permission ids");
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * Get permission ids in compact storage form
+     *
+     * @return encoded permission ids
+     */
+    public byte[] encode() {
+        return encode(ids);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof String code)) {
+            return false;
+        }
+        var id = idResolver.applyAsLong(code);
+        return id >= 0 && Arrays.binarySearch(ids, id) >= 0 && code.equals(codeResolver.apply(id));
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return Arrays.stream(ids)
+                .mapToObj(codeResolver)
+                .iterator();
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+}
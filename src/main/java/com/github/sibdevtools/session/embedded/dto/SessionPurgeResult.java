@@ -0,0 +1,44 @@
+package com.github.sibdevtools.session.embedded.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+/**
+ * Result of expired sessions purge
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class SessionPurgeResult {
+    /**
+     * Count of removed sessions
+     */
+    private final long sessions;
+    /**
+     * Count of removed snapshot rows
+     */
+    private final long snapshots;
+    /**
+     * Purge duration
+     */
+    private final Duration duration;
+
+    /**
+     * Get purge throughput
+     *
+     * @return removed sessions per second
+     */
+    public double getSessionsPerSecond() {
+        var millis = duration.toMillis();
+        if (millis == 0) {
+            return sessions;
+        }
+        return sessions * 1000.0 / millis;
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.sibdevtools.session.embedded.dto;
+
+/**
+ * Backend of session storage
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public enum SessionStorageType {
+    /**
+     * Database, accessed by Spring Data JPA
+     */
+    JPA,
+    /**
+     * Database, accessed by plain JDBC without entity hydration
+     */
+    JDBC,
+    /**
+     * Append-only log in local memory-mapped files, for single instance deployments.
+     * Database is still required: data source and Flyway migrations are configured as for other storage types,
+     * but sessions are neither read from nor written to it.
+     */
+    MAPPED
+}
@@ -0,0 +1,43 @@
+package com.github.sibdevtools.session.embedded.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+/**
+ * Progress or result of session store export and import
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class SessionTransferResult {
+    /**
+     * Count of transferred permissions
+     */
+    private final long permissions;
+    /**
+     * Count of transferred sessions
+     */
+    private final long sessions;
+    /**
+     * Count of transferred snapshot rows
+     */
+    private final long snapshots;
+    /**
+     * Count of transferred section snapshot rows
+     */
+    private final long sectionSnapshots;
+    /**
+     * Count of written or read file bytes
+     */
+    private final long bytes;
+    /**
+     * Time elapsed since transfer start
+     */
+    private final Duration duration;
+}
@@ -0,0 +1,24 @@
+package com.github.sibdevtools.session.embedded.dto;
+
+/**
+ * Session snapshot versions projection
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public interface SessionVersions {
+
+    /**
+     * Get session uid
+     *
+     * @return session uid
+     */
+    String getUid();
+
+    /**
+     * Get the newest snapshot version
+     *
+     * @return snapshot version
+     */
+    long getLatestVersion();
+}
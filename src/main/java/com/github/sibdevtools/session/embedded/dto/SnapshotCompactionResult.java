@@ -0,0 +1,29 @@
+package com.github.sibdevtools.session.embedded.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Result of session snapshots compaction
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class SnapshotCompactionResult {
+    /**
+     * Count of compacted sessions
+     */
+    private final long sessions;
+    /**
+     * Count of removed snapshot rows
+     */
+    private final long rows;
+    /**
+     * Size of removed snapshots in bytes
+     */
+    private final long bytes;
+}
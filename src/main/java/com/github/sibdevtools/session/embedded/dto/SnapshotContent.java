@@ -0,0 +1,27 @@
+package com.github.sibdevtools.session.embedded.dto;
+
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.embedded.entity.SnapshotCodecType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Snapshot columns with session columns, required to check session expiration.
+ * Used by attribute reads, which don't need the whole session.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Getter
+@AllArgsConstructor
+public class SnapshotContent implements StoredSnapshot {
+    private final String uid;
+    private final long version;
+    private final byte[] snapshot;
+    private final SnapshotCodecType snapshotType;
+    private final Long baseVersion;
+    private final SessionOwnerType ownerType;
+    private final ZonedDateTime expiresAt;
+}
@@ -0,0 +1,140 @@
+package com.github.sibdevtools.session.embedded.dto;
+
+import com.github.sibdevtools.session.api.dto.query.ModificationQuery;
+import com.github.sibdevtools.session.api.dto.query.action.Action;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Attribute level difference between two sequential session snapshot versions.
+ * <p>
+ * Delta contains new values of changed attributes and names of removed attributes, grouped by section.
+ * Every section touched by modification is present in {@link #getChanges()}, even if it has no changed attributes,
+ * so sections created by modification are restored on apply.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class SnapshotDelta {
+    /**
+     * Reserved snapshot section used to store removed attributes.
+     * Section name starts from zero char, so it can't clash with a regular section name.
+     */
+    private static final String REMOVALS_SECTION = "\u0000removals";
+
+    private final Map<String, Map<String, Serializable>> changes;
+    private final Map<String, Set<String>> removals;
+
+    /**
+     * Build delta from modified session attributes and applied modification query
+     *
+     * @param attributes        session attributes after modification
+     * @param modificationQuery applied modification query
+     * @return snapshot delta
+     */
+    public static SnapshotDelta of(Map<String, Map<String, Serializable>> attributes,
+                                   ModificationQuery modificationQuery) {
+        return of(attributes, modificationQuery.actions());
+    }
+
+    /**
+     * Build delta from modified session attributes and applied actions
+     *
+     * @param attributes session attributes after modification
+     * @param actions    applied actions, in order of application
+     * @return snapshot delta
+     */
+    public static SnapshotDelta of(Map<String, Map<String, Serializable>> attributes,
+                                   Collection<? extends Action> actions) {
+        var changes = new HashMap<String, Map<String, Serializable>>();
+        var removals = new HashMap<String, Set<String>>();
+
+        for (var action : actions) {
+            var section = action.getSection();
+            var attributeName = action.getAttributeName();
+
+            var sectionChanges = changes.computeIfAbsent(section, k -> new HashMap<>());
+            var sectionAttributes = attributes.getOrDefault(section, Collections.emptyMap());
+            if (sectionAttributes.containsKey(attributeName)) {
+                sectionChanges.put(attributeName, sectionAttributes.get(attributeName));
+                var sectionRemovals = removals.get(section);
+                if (sectionRemovals != null) {
+                    sectionRemovals.remove(attributeName);
+                }
+            } else {
+                sectionChanges.remove(attributeName);
+                removals.computeIfAbsent(section, k -> new HashSet<>())
+                        .add(attributeName);
+            }
+        }
+
+        return new SnapshotDelta(changes, removals);
+    }
+
+    /**
+     * Restore delta from snapshot content, built by {@link #toSnapshot()}
+     *
+     * @param snapshot delta snapshot content
+     * @return snapshot delta
+     */
+    public static SnapshotDelta fromSnapshot(Map<String, Map<String, Serializable>> snapshot) {
+        var changes = new HashMap<>(snapshot);
+        var removalsSnapshot = changes.remove(REMOVALS_SECTION);
+
+        var removals = new HashMap<String, Set<String>>();
+        if (removalsSnapshot != null) {
+            for (var entry : removalsSnapshot.entrySet()) {
+                var attributeNames = (Collection<?>) entry.getValue();
+                var sectionRemovals = new HashSet<String>(attributeNames.size());
+                for (var attributeName : attributeNames) {
+                    sectionRemovals.add((String) attributeName);
+                }
+                removals.put(entry.getKey(), sectionRemovals);
+            }
+        }
+
+        return new SnapshotDelta(changes, removals);
+    }
+
+    /**
+     * Convert delta into snapshot content, suitable for {@link com.github.sibdevtools.session.embedded.service.SnapshotCodec}
+     *
+     * @return delta snapshot content
+     */
+    public Map<String, Map<String, Serializable>> toSnapshot() {
+        var snapshot = new HashMap<String, Map<String, Serializable>>(changes);
+        if (!removals.isEmpty()) {
+            var removalsSnapshot = new HashMap<String, Serializable>(removals.size());
+            for (var entry : removals.entrySet()) {
+                removalsSnapshot.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+            snapshot.put(REMOVALS_SECTION, removalsSnapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Apply delta to mutable session attributes
+     *
+     * @param attributes mutable session attributes
+     */
+    public void applyTo(Map<String, Map<String, Serializable>> attributes) {
+        for (var entry : changes.entrySet()) {
+            attributes.computeIfAbsent(entry.getKey(), k -> new HashMap<>())
+                    .putAll(entry.getValue());
+        }
+        for (var entry : removals.entrySet()) {
+            var sectionAttributes = attributes.get(entry.getKey());
+            if (sectionAttributes != null) {
+                sectionAttributes.keySet().removeAll(entry.getValue());
+            }
+        }
+    }
+}
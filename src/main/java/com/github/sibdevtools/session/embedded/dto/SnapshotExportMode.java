@@ -0,0 +1,18 @@
+package com.github.sibdevtools.session.embedded.dto;
+
+/**
+ * Session snapshot versions, written by export
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public enum SnapshotExportMode {
+    /**
+     * Only the latest version of each session, with snapshots it is restored from
+     */
+    LATEST,
+    /**
+     * All stored versions
+     */
+    ALL
+}
@@ -0,0 +1,47 @@
+package com.github.sibdevtools.session.embedded.dto;
+
+import com.github.sibdevtools.session.embedded.entity.SnapshotCodecType;
+
+/**
+ * Stored session snapshot content, enough to decode session attributes
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public interface StoredSnapshot {
+
+    /**
+     * Get session uid
+     *
+     * @return session uid
+     */
+    String getUid();
+
+    /**
+     * Get snapshot version
+     *
+     * @return snapshot version
+     */
+    long getVersion();
+
+    /**
+     * Get encoded snapshot
+     *
+     * @return encoded snapshot
+     */
+    byte[] getSnapshot();
+
+    /**
+     * Get snapshot codec type
+     *
+     * @return codec type
+     */
+    SnapshotCodecType getSnapshotType();
+
+    /**
+     * Get base version of delta snapshot
+     *
+     * @return base version or null for full snapshot
+     */
+    Long getBaseVersion();
+}
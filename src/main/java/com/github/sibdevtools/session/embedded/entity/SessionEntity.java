@@ -30,6 +30,12 @@ public class SessionEntity {
     private String ownerId;
     @Column(name = "created_at", nullable = false)
     private ZonedDateTime createdAt;
+    @Column(name = "expires_at")
+    private ZonedDateTime expiresAt;
+    @Column(name = "latest_version", nullable = false)
+    private long latestVersion;
+    @Column(name = "permission_ids")
+    private byte[] permissionIds;
     @ManyToMany(
             cascade = {
                     CascadeType.PERSIST,
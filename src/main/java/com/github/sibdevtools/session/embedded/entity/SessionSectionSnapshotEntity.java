@@ -0,0 +1,48 @@
+package com.github.sibdevtools.session.embedded.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Snapshot of a single session section, written in the session version, section is changed in.
+ * <p>
+ * Section content at some session version is the section snapshot with the greatest version, not greater than it.
+ * Removed section is stored as a snapshot without content.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Entity(name = "session_service_session_section_snapshot")
+@Getter
+@Setter
+@Builder
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(schema = "session_service", name = "session_section_snapshot")
+public class SessionSectionSnapshotEntity {
+    @EmbeddedId
+    private SessionSectionSnapshotEntityId entityId;
+    /**
+     * Encoded snapshot of the section, null if section is removed
+     */
+    @ToString.Exclude
+    @Column(name = "snapshot")
+    private byte[] snapshot;
+    @Enumerated(value = EnumType.STRING)
+    @Column(name = "snapshot_ser_type")
+    private SnapshotCodecType snapshotType;
+    @Column(name = "created_at", nullable = false)
+    private ZonedDateTime createdAt;
+
+    /**
+     * Check section is removed in the snapshot version
+     *
+     * @return true if section is removed
+     */
+    public boolean isRemoved() {
+        return snapshot == null;
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.sibdevtools.session.embedded.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Getter
+@Setter
+@Builder
+@ToString
+@EqualsAndHashCode
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class SessionSectionSnapshotEntityId implements Serializable {
+    /**
+     * Session uid
+     */
+    @Column(name = "uid")
+    private String uid;
+    /**
+     * Section name
+     */
+    @Column(name = "section")
+    private String section;
+    /**
+     * Session version, section is changed in
+     */
+    @Column(name = "version")
+    private long version;
+}
@@ -1,7 +1,9 @@
 package com.github.sibdevtools.session.embedded.entity;
 
 import jakarta.persistence.*;
+import com.github.sibdevtools.session.embedded.dto.StoredSnapshot;
 import lombok.*;
+import org.springframework.data.domain.Persistable;
 
 import java.time.ZonedDateTime;
 
@@ -17,10 +19,11 @@ import java.time.ZonedDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(schema = "session_service", name = "session_snapshot")
-public class SessionSnapshotEntity {
+public class SessionSnapshotEntity implements Persistable<SessionSnapshotEntityId>, StoredSnapshot {
     @EmbeddedId
     private SessionSnapshotEntityId entityId;
-    @ManyToOne(optional = false, fetch = FetchType.EAGER)
+    @ToString.Exclude
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "uid", nullable = false, insertable = false, updatable = false)
     private SessionEntity session;
     @Column(name = "snapshot", nullable = false)
@@ -28,6 +31,45 @@ public class SessionSnapshotEntity {
     @Enumerated(value = EnumType.STRING)
     @Column(name = "snapshot_ser_type", nullable = false)
     private SnapshotCodecType snapshotType;
+    @Column(name = "base_version")
+    private Long baseVersion;
     @Column(name = "created_at", nullable = false)
     private ZonedDateTime createdAt;
+    @Transient
+    @ToString.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean stored;
+
+    @Override
+    public String getUid() {
+        return entityId.getUid();
+    }
+
+    @Override
+    public long getVersion() {
+        return entityId.getVersion();
+    }
+
+    @Override
+    public SessionSnapshotEntityId getId() {
+        return entityId;
+    }
+
+    /**
+     * Snapshot version is immutable, so not stored snapshot is always inserted.
+     * Insert of already existing version fails instead of silent overwrite by merge.
+     *
+     * @return true if snapshot is not stored yet
+     */
+    @Override
+    public boolean isNew() {
+        return !stored;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markStored() {
+        this.stored = true;
+    }
 }
@@ -8,5 +8,21 @@ public enum SnapshotCodecType {
     /**
      * Simple JSON codec
      */
-    JSON
+    JSON,
+    /**
+     * Compact binary codec, keeps attribute value types
+     */
+    BINARY,
+    /**
+     * JSON codec, compressed with Deflate
+     */
+    JSON_DEFLATE,
+    /**
+     * Compact binary codec, compressed with Deflate
+     */
+    BINARY_DEFLATE,
+    /**
+     * Snapshot content is stored per section in section snapshots, session snapshot itself is empty
+     */
+    SECTIONS
 }
@@ -0,0 +1,25 @@
+package com.github.sibdevtools.session.embedded.exception;
+
+import com.github.sibdevtools.error.exception.ServiceException;
+import com.github.sibdevtools.session.embedded.constant.Constants;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public class AttributeTypeNotAllowedException extends ServiceException {
+    private static final String ATTRIBUTE_TYPE_NOT_ALLOWED_TEMPLATE = "Attribute value type %s is not allowed by serial filter";
+
+    /**
+     * Construct attribute type not allowed exception.
+     *
+     * @param type rejected type name
+     */
+    public AttributeTypeNotAllowedException(String type) {
+        super(
+                Constants.ERROR_SOURCE,
+                "ATTRIBUTE_TYPE_NOT_ALLOWED",
+                ATTRIBUTE_TYPE_NOT_ALLOWED_TEMPLATE.formatted(type)
+        );
+    }
+}
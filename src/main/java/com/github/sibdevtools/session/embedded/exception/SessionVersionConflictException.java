@@ -0,0 +1,27 @@
+package com.github.sibdevtools.session.embedded.exception;
+
+import com.github.sibdevtools.error.exception.ServiceException;
+import com.github.sibdevtools.session.embedded.constant.Constants;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public class SessionVersionConflictException extends ServiceException {
+    private static final String SESSION_VERSION_CONFLICT_TEMPLATE = "Session %s version %d is outdated, latest version %d";
+
+    /**
+     * Construct session version conflict exception.
+     *
+     * @param uid           session uid
+     * @param version       modified session version
+     * @param latestVersion latest session version
+     */
+    public SessionVersionConflictException(String uid, long version, long latestVersion) {
+        super(
+                Constants.ERROR_SOURCE,
+                "SESSION_VERSION_CONFLICT",
+                SESSION_VERSION_CONFLICT_TEMPLATE.formatted(uid, version, latestVersion)
+        );
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.sibdevtools.session.embedded.exception;
+
+import com.github.sibdevtools.error.exception.ServiceException;
+import com.github.sibdevtools.session.embedded.constant.Constants;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public class SessionWriteBufferOverflowException extends ServiceException {
+    private static final String SESSION_WRITE_BUFFER_OVERFLOW_TEMPLATE = "Session %s update rejected, write buffer is full";
+
+    /**
+     * Construct session write buffer overflow exception.
+     *
+     * @param uid session uid
+     */
+    public SessionWriteBufferOverflowException(String uid) {
+        super(
+                Constants.ERROR_SOURCE,
+                "SESSION_WRITE_BUFFER_OVERFLOW",
+                SESSION_WRITE_BUFFER_OVERFLOW_TEMPLATE.formatted(uid)
+        );
+    }
+}
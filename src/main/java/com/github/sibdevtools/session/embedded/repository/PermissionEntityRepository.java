@@ -2,7 +2,11 @@ package com.github.sibdevtools.session.embedded.repository;
 
 import com.github.sibdevtools.session.embedded.entity.PermissionEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -18,4 +22,13 @@ public interface PermissionEntityRepository extends JpaRepository<PermissionEnti
      * @return permission entity or empty
      */
     Optional<PermissionEntity> findByCodeIgnoreCase(String code);
+
+    /**
+     * Looking for permissions by lower case codes
+     *
+     * @param codes lower case permission codes
+     * @return found permission entities
+     */
+    @Query("select p from session_service_permission p where lower(p.code) in (:codes)")
+    List<PermissionEntity> findAllByLowerCodeIn(@Param("codes") Collection<String> codes);
 }
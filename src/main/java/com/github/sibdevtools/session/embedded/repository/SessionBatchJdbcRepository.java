@@ -0,0 +1,164 @@
+package com.github.sibdevtools.session.embedded.repository;
+
+import com.github.sibdevtools.session.embedded.entity.PermissionEntity;
+import com.github.sibdevtools.session.embedded.entity.SessionEntity;
+import com.github.sibdevtools.session.embedded.entity.SessionSectionSnapshotEntity;
+import com.github.sibdevtools.session.embedded.entity.SessionSnapshotEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch inserts of sessions, snapshots, section snapshots and permissions by plain JDBC.
+ * <p>
+ * Statements are executed on the connection of current transaction, so inserted rows are committed or rolled back
+ * together with the rest of transaction. Inserted rows are not attached to JPA persistence context.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public class SessionBatchJdbcRepository {
+    private static final String INSERT_PERMISSION = "INSERT INTO session_service.permission (code) " +
+            "SELECT CAST(? AS VARCHAR(512)) WHERE NOT EXISTS " +
+            "(SELECT 1 FROM session_service.permission WHERE code = CAST(? AS VARCHAR(512)))";
+    private static final String INSERT_SESSION = "INSERT INTO session_service.session " +
+            "(uid, owner_type, owner_id, created_at, expires_at, latest_version, permission_ids) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SESSION_PERMISSION = "INSERT INTO session_service.session_permission " +
+            "(session_uid, permission_id) VALUES (?, ?)";
+    private static final String INSERT_SESSION_SNAPSHOT = "INSERT INTO session_service.session_snapshot " +
+            "(uid, version, snapshot, snapshot_ser_type, base_version, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SESSION_SECTION_SNAPSHOT = "INSERT INTO session_service.session_section_snapshot " +
+            "(uid, section, version, snapshot, snapshot_ser_type, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SESSION_LATEST_VERSION = "UPDATE session_service.session " +
+            "SET latest_version = ? WHERE uid = ? AND latest_version < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    /**
+     * Construct session batch repository
+     *
+     * @param dataSource data source
+     * @param batchSize  max count of rows in a single batch
+     */
+    public SessionBatchJdbcRepository(DataSource dataSource, int batchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.batchSize = Math.max(batchSize, 1);
+    }
+
+    /**
+     * Insert permissions, which are not exist yet
+     *
+     * @param codes permission codes
+     */
+    public void insertMissingPermissions(Collection<String> codes) {
+        jdbcTemplate.batchUpdate(INSERT_PERMISSION, codes, batchSize, (ps, code) -> {
+            ps.setString(1, code);
+            ps.setString(2, code);
+        });
+    }
+
+    /**
+     * Insert sessions with their permission links
+     *
+     * @param sessions sessions to insert
+     */
+    public void insertSessions(Collection<SessionEntity> sessions) {
+        jdbcTemplate.batchUpdate(INSERT_SESSION, sessions, batchSize, (ps, session) -> {
+            ps.setString(1, session.getUid());
+            ps.setString(2, session.getOwnerType().name());
+            ps.setString(3, session.getOwnerId());
+            ps.setTimestamp(4, toTimestamp(session.getCreatedAt()));
+            ps.setTimestamp(5, toTimestamp(session.getExpiresAt()));
+            ps.setLong(6, session.getLatestVersion());
+            ps.setBytes(7, session.getPermissionIds());
+        });
+
+        var links = new ArrayList<PermissionLink>();
+        for (var session : sessions) {
+            var permissions = session.getPermissions();
+            if (permissions == null) {
+                continue;
+            }
+            for (var permission : permissions) {
+                links.add(new PermissionLink(session.getUid(), permission));
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_SESSION_PERMISSION, links, batchSize, (ps, link) -> {
+            ps.setString(1, link.sessionUid());
+            ps.setLong(2, link.permission().getId());
+        });
+    }
+
+    /**
+     * Insert session snapshots
+     *
+     * @param snapshots snapshots to insert
+     */
+    public void insertSnapshots(List<SessionSnapshotEntity> snapshots) {
+        jdbcTemplate.batchUpdate(INSERT_SESSION_SNAPSHOT, snapshots, batchSize, (ps, snapshot) -> {
+            var snapshotId = snapshot.getEntityId();
+            ps.setString(1, snapshotId.getUid());
+            ps.setLong(2, snapshotId.getVersion());
+            ps.setBytes(3, snapshot.getSnapshot());
+            ps.setString(4, snapshot.getSnapshotType().name());
+            if (snapshot.getBaseVersion() == null) {
+                ps.setNull(5, Types.INTEGER);
+            } else {
+                ps.setLong(5, snapshot.getBaseVersion());
+            }
+            ps.setTimestamp(6, toTimestamp(snapshot.getCreatedAt()));
+        });
+    }
+
+    /**
+     * Insert session section snapshots
+     *
+     * @param snapshots section snapshots to insert
+     */
+    public void insertSectionSnapshots(List<SessionSectionSnapshotEntity> snapshots) {
+        jdbcTemplate.batchUpdate(INSERT_SESSION_SECTION_SNAPSHOT, snapshots, batchSize, (ps, snapshot) -> {
+            var snapshotId = snapshot.getEntityId();
+            ps.setString(1, snapshotId.getUid());
+            ps.setString(2, snapshotId.getSection());
+            ps.setLong(3, snapshotId.getVersion());
+            ps.setBytes(4, snapshot.getSnapshot());
+            var snapshotType = snapshot.getSnapshotType();
+            ps.setString(5, snapshotType == null ? null : snapshotType.name());
+            ps.setTimestamp(6, toTimestamp(snapshot.getCreatedAt()));
+        });
+    }
+
+    /**
+     * Move latest versions of sessions forward, version is not changed if it is already greater or equal
+     *
+     * @param latestVersions latest versions by session uid
+     */
+    public void updateLatestVersions(Map<String, Long> latestVersions) {
+        jdbcTemplate.batchUpdate(
+                UPDATE_SESSION_LATEST_VERSION,
+                latestVersions.entrySet(),
+                batchSize,
+                (ps, entry) -> {
+                    ps.setLong(1, entry.getValue());
+                    ps.setString(2, entry.getKey());
+                    ps.setLong(3, entry.getValue());
+                }
+        );
+    }
+
+    private static Timestamp toTimestamp(ZonedDateTime dateTime) {
+        return dateTime == null ? null : Timestamp.from(dateTime.toInstant());
+    }
+
+    private record PermissionLink(String sessionUid, PermissionEntity permission) {
+    }
+}
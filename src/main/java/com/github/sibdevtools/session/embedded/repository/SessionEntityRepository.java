@@ -1,7 +1,18 @@
 package com.github.sibdevtools.session.embedded.repository;
 
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.embedded.dto.SessionVersions;
 import com.github.sibdevtools.session.embedded.entity.SessionEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * @author sibmaks
@@ -9,4 +20,146 @@ import org.springframework.data.jpa.repository.JpaRepository;
  */
 public interface SessionEntityRepository extends JpaRepository<SessionEntity, String> {
 
+    /**
+     * Find session latest version.
+     *
+     * @param uid session uid
+     * @return latest version or empty
+     */
+    @Query("select s.latestVersion from session_service_session s where s.uid = :uid")
+    Optional<Long> findLatestVersion(@Param("uid") String uid);
+
+    /**
+     * Set session latest version, if current latest version is equal to expected one.
+     * Updated session row stays locked till the end of transaction.
+     *
+     * @param uid             session uid
+     * @param expectedVersion expected latest version
+     * @param version         new latest version
+     * @return count of updated sessions
+     */
+    @Modifying
+    @Query("update session_service_session s set s.latestVersion = :version " +
+            "where s.uid = :uid and s.latestVersion = :expectedVersion")
+    int compareAndSetLatestVersion(@Param("uid") String uid,
+                                   @Param("expectedVersion") long expectedVersion,
+                                   @Param("version") long version);
+
+    /**
+     * Prolong expiration time of not expired session. Expiration time is never shortened.
+     *
+     * @param uid       session uid
+     * @param expiresAt new expiration time
+     * @param now       current time
+     * @return count of updated sessions
+     */
+    @Modifying
+    @Query("update session_service_session s set s.expiresAt = :expiresAt " +
+            "where s.uid = :uid and s.expiresAt < :expiresAt and s.expiresAt > :now")
+    int prolongExpiresAt(@Param("uid") String uid,
+                         @Param("expiresAt") ZonedDateTime expiresAt,
+                         @Param("now") ZonedDateTime now);
+
+    /**
+     * Find sessions, which have more snapshot versions than passed count, ordered by session uid.
+     * Sessions are walked by primary key after passed uid, snapshots are checked by primary key probe of
+     * the version, which is the oldest one to keep.
+     *
+     * @param fromUid  session uid to start after, exclusive
+     * @param keepLast count of the newest versions to keep
+     * @param pageable page request, used to limit result size
+     * @return session uid and the newest version
+     */
+    @Query("select s.uid as uid, s.latestVersion as latestVersion from session_service_session s " +
+            "where s.uid > :fromUid and exists (" +
+            "select 1 from session_service_session_snapshot ss " +
+            "where ss.entityId.uid = s.uid and ss.entityId.version <= s.latestVersion - :keepLast" +
+            ") order by s.uid")
+    List<SessionVersions> findAllWithVersionsMoreThan(@Param("fromUid") String fromUid,
+                                                      @Param("keepLast") long keepLast,
+                                                      Pageable pageable);
+
+    /**
+     * Find uids of sessions expired before passed time, ordered by expiration time.
+     *
+     * @param expiresAt expiration time, exclusive
+     * @param pageable  page request, used to limit result size
+     * @return expired session uids
+     */
+    @Query("select s.uid from session_service_session s where s.expiresAt < :expiresAt order by s.expiresAt")
+    List<String> findAllUidsExpiredBefore(@Param("expiresAt") ZonedDateTime expiresAt, Pageable pageable);
+
+    /**
+     * Find latest versions of owner sessions, not expired at passed time, ordered by session uid.
+     *
+     * @param ownerType session owner type
+     * @param ownerId   session owner identifier
+     * @param afterUid  session uid to start after, exclusive
+     * @param now       current time
+     * @param pageable  page request, used to limit result size
+     * @return session uids and latest versions
+     */
+    @Query("select s.uid as uid, s.latestVersion as latestVersion from session_service_session s " +
+            "where s.ownerType = :ownerType and s.ownerId = :ownerId and s.uid > :afterUid " +
+            "and (s.expiresAt is null or s.expiresAt > :now) " +
+            "order by s.uid")
+    List<SessionVersions> findAllVersionsByOwner(@Param("ownerType") SessionOwnerType ownerType,
+                                                 @Param("ownerId") String ownerId,
+                                                 @Param("afterUid") String afterUid,
+                                                 @Param("now") ZonedDateTime now,
+                                                 Pageable pageable);
+
+    /**
+     * Count owner sessions, not expired at passed time.
+     *
+     * @param ownerType session owner type
+     * @param ownerId   session owner identifier
+     * @param now       current time
+     * @return count of sessions
+     */
+    @Query("select count(s) from session_service_session s " +
+            "where s.ownerType = :ownerType and s.ownerId = :ownerId " +
+            "and (s.expiresAt is null or s.expiresAt > :now)")
+    long countByOwner(@Param("ownerType") SessionOwnerType ownerType,
+                      @Param("ownerId") String ownerId,
+                      @Param("now") ZonedDateTime now);
+
+    /**
+     * Expire owner sessions, not expired at passed time.
+     *
+     * @param ownerType session owner type
+     * @param ownerId   session owner identifier
+     * @param now       current time, used as new expiration time
+     * @return count of expired sessions
+     */
+    @Modifying
+    @Query("update session_service_session s set s.expiresAt = :now " +
+            "where s.ownerType = :ownerType and s.ownerId = :ownerId " +
+            "and (s.expiresAt is null or s.expiresAt > :now)")
+    int expireAllByOwner(@Param("ownerType") SessionOwnerType ownerType,
+                         @Param("ownerId") String ownerId,
+                         @Param("now") ZonedDateTime now);
+
+    /**
+     * Delete session permission links of passed sessions.
+     *
+     * @param uids session uids
+     * @return count of deleted links
+     */
+    @Modifying
+    @Query(
+            value = "delete from session_service.session_permission where session_uid in (:uids)",
+            nativeQuery = true
+    )
+    int deleteAllPermissionLinksByUidIn(@Param("uids") Collection<String> uids);
+
+    /**
+     * Delete passed sessions.
+     *
+     * @param uids session uids
+     * @return count of deleted sessions
+     */
+    @Modifying
+    @Query("delete from session_service_session s where s.uid in (:uids)")
+    int deleteAllByUidIn(@Param("uids") Collection<String> uids);
 }
@@ -0,0 +1,146 @@
+package com.github.sibdevtools.session.embedded.repository;
+
+import com.github.sibdevtools.session.embedded.entity.SessionSectionSnapshotEntity;
+import com.github.sibdevtools.session.embedded.entity.SessionSectionSnapshotEntityId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Section snapshots of sessions, stored in the section split layout.
+ * Section content at session version is the section snapshot with the greatest version, not greater than it.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public interface SessionSectionSnapshotEntityRepository
+        extends JpaRepository<SessionSectionSnapshotEntity, SessionSectionSnapshotEntityId> {
+
+    /**
+     * Find actual snapshots of all session sections at passed session version, including removed sections.
+     *
+     * @param uid     session uid
+     * @param version session version
+     * @return found section snapshots
+     */
+    @Query("select ss from session_service_session_section_snapshot ss " +
+            "where ss.entityId.uid = :uid and ss.entityId.version = (" +
+            "select max(ls.entityId.version) from session_service_session_section_snapshot ls " +
+            "where ls.entityId.uid = ss.entityId.uid and ls.entityId.section = ss.entityId.section " +
+            "and ls.entityId.version <= :version)")
+    List<SessionSectionSnapshotEntity> findAllActual(@Param("uid") String uid,
+                                                     @Param("version") long version);
+
+    /**
+     * Find actual snapshots of passed session sections at passed session version, including removed sections.
+     *
+     * @param uid      session uid
+     * @param sections section names
+     * @param version  session version
+     * @return found section snapshots
+     */
+    @Query("select ss from session_service_session_section_snapshot ss " +
+            "where ss.entityId.uid = :uid and ss.entityId.section in (:sections) and ss.entityId.version = (" +
+            "select max(ls.entityId.version) from session_service_session_section_snapshot ls " +
+            "where ls.entityId.uid = ss.entityId.uid and ls.entityId.section = ss.entityId.section " +
+            "and ls.entityId.version <= :version)")
+    List<SessionSectionSnapshotEntity> findAllActualBySectionIn(@Param("uid") String uid,
+                                                                @Param("sections") Collection<String> sections,
+                                                                @Param("version") long version);
+
+    /**
+     * Find actual snapshot of session section at passed session version.
+     *
+     * @param uid     session uid
+     * @param section section name
+     * @param version session version
+     * @return found section snapshot, which may be removed, or empty if section was never stored
+     */
+    @Query("select ss from session_service_session_section_snapshot ss " +
+            "where ss.entityId.uid = :uid and ss.entityId.section = :section and ss.entityId.version = (" +
+            "select max(ls.entityId.version) from session_service_session_section_snapshot ls " +
+            "where ls.entityId.uid = :uid and ls.entityId.section = :section " +
+            "and ls.entityId.version <= :version)")
+    Optional<SessionSectionSnapshotEntity> findActual(@Param("uid") String uid,
+                                                      @Param("section") String section,
+                                                      @Param("version") long version);
+
+    /**
+     * Find names of sections, which are not removed at passed session version.
+     *
+     * @param uid     session uid
+     * @param version session version
+     * @return section names
+     */
+    @Query("select ss.entityId.section from session_service_session_section_snapshot ss " +
+            "where ss.entityId.uid = :uid and ss.snapshot is not null and ss.entityId.version = (" +
+            "select max(ls.entityId.version) from session_service_session_section_snapshot ls " +
+            "where ls.entityId.uid = ss.entityId.uid and ls.entityId.section = ss.entityId.section " +
+            "and ls.entityId.version <= :version)")
+    List<String> findAllActualSections(@Param("uid") String uid,
+                                       @Param("version") long version);
+
+    /**
+     * Calculate size of section snapshots, overridden by newer snapshots of the same section
+     * not later than passed version.
+     *
+     * @param uid     session uid
+     * @param version session version, exclusive for overridden snapshots
+     * @return snapshots size in bytes
+     */
+    @Query(
+            value = "select coalesce(sum(octet_length(ss.snapshot)), 0) " +
+                    "from session_service.session_section_snapshot ss " +
+                    "where ss.uid = :uid and ss.version < :version and exists(" +
+                    "select 1 from session_service.session_section_snapshot ls " +
+                    "where ls.uid = ss.uid and ls.section = ss.section " +
+                    "and ls.version > ss.version and ls.version <= :version)",
+            nativeQuery = true
+    )
+    long sumOverriddenSnapshotSizeBeforeVersion(@Param("uid") String uid, @Param("version") long version);
+
+    /**
+     * Delete section snapshots, overridden by newer snapshots of the same section not later than passed version.
+     * Such snapshots are not visible from passed and newer session versions.
+     *
+     * @param uid     session uid
+     * @param version session version, exclusive for overridden snapshots
+     * @return count of deleted snapshots
+     */
+    @Modifying
+    @Query("delete from session_service_session_section_snapshot ss " +
+            "where ss.entityId.uid = :uid and ss.entityId.version < :version and exists(" +
+            "select ls from session_service_session_section_snapshot ls " +
+            "where ls.entityId.uid = ss.entityId.uid and ls.entityId.section = ss.entityId.section " +
+            "and ls.entityId.version > ss.entityId.version and ls.entityId.version <= :version)")
+    int deleteAllOverriddenBeforeVersion(@Param("uid") String uid, @Param("version") long version);
+
+    /**
+     * Delete snapshots of removed sections older than passed version.
+     * Should be called after overridden snapshots removal, so removed section has no older snapshots.
+     *
+     * @param uid     session uid
+     * @param version session version, exclusive
+     * @return count of deleted snapshots
+     */
+    @Modifying
+    @Query("delete from session_service_session_section_snapshot ss " +
+            "where ss.entityId.uid = :uid and ss.entityId.version < :version and ss.snapshot is null")
+    int deleteAllRemovedBeforeVersion(@Param("uid") String uid, @Param("version") long version);
+
+    /**
+     * Delete all section snapshots of passed sessions.
+     *
+     * @param uids session uids
+     * @return count of deleted snapshots
+     */
+    @Modifying
+    @Query("delete from session_service_session_section_snapshot ss where ss.entityId.uid in (:uids)")
+    int deleteAllByUidIn(@Param("uids") Collection<String> uids);
+
+}
@@ -1,32 +1,181 @@
 package com.github.sibdevtools.session.embedded.repository;
 
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.embedded.dto.SnapshotContent;
 import com.github.sibdevtools.session.embedded.entity.SessionSnapshotEntity;
 import com.github.sibdevtools.session.embedded.entity.SessionSnapshotEntityId;
+import com.github.sibdevtools.session.embedded.entity.SnapshotCodecType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * @author sibmaks
  * @since 0.0.1
  */
-public interface SessionSnapshotEntityRepository extends JpaRepository<SessionSnapshotEntity, SessionSnapshotEntityId> {
+public interface SessionSnapshotEntityRepository extends JpaRepository<SessionSnapshotEntity, SessionSnapshotEntityId>,
+        JpaSpecificationExecutor<SessionSnapshotEntity> {
 
     /**
-     * Looking for session snapshot by session id uid and version.
+     * Looking for session snapshot by session id uid and version, session is fetched by the same query.
      *
      * @param uid     session uid
      * @param version snapshot version
      * @return found session snapshot or empty
      */
-    Optional<SessionSnapshotEntity> findByEntityIdUidAndEntityIdVersion(String uid, long version);
+    @Query("select ss from session_service_session_snapshot ss join fetch ss.session " +
+            "where ss.entityId.uid = :uid and ss.entityId.version = :version")
+    Optional<SessionSnapshotEntity> findByEntityIdUidAndEntityIdVersion(@Param("uid") String uid,
+                                                                        @Param("version") long version);
 
     /**
-     * Find last session snapshot by entity id uid.
+     * Looking for snapshot content by session id uid and version.
+     * Only snapshot columns and session columns, required for expiration check, are read.
+     *
+     * @param uid     session uid
+     * @param version snapshot version
+     * @return found snapshot content or empty
+     */
+    @Query("select new com.github.sibdevtools.session.embedded.dto.SnapshotContent(" +
+            "ss.entityId.uid, ss.entityId.version, ss.snapshot, ss.snapshotType, ss.baseVersion, s.ownerType, s.expiresAt" +
+            ") from session_service_session_snapshot ss join ss.session s " +
+            "where ss.entityId.uid = :uid and ss.entityId.version = :version")
+    Optional<SnapshotContent> findContentByUidAndVersion(@Param("uid") String uid,
+                                                         @Param("version") long version);
+
+    /**
+     * Find latest session snapshot by session uid.
+     * Snapshot is joined by primary key on the latest version, stored in session.
      *
      * @param uid session uid
      * @return found session snapshot or empty
      */
-    Optional<SessionSnapshotEntity> findTopByEntityIdUidOrderByEntityIdVersionAsc(String uid);
+    @Query("select ss from session_service_session_snapshot ss join fetch ss.session s " +
+            "where s.uid = :uid and ss.entityId.uid = :uid and ss.entityId.version = s.latestVersion")
+    Optional<SessionSnapshotEntity> findLatestByUid(@Param("uid") String uid);
+
+    /**
+     * Find latest snapshots of owner sessions, not expired at passed time, with sessions, ordered by session uid.
+     * Snapshots are joined by primary key on the latest version, stored in session.
+     *
+     * @param ownerType session owner type
+     * @param ownerId   session owner identifier
+     * @param afterUid  session uid to start after, exclusive
+     * @param now       current time
+     * @param pageable  page request, used to limit result size
+     * @return found session snapshots
+     */
+    @Query("select ss from session_service_session_snapshot ss join fetch ss.session s " +
+            "where s.ownerType = :ownerType and s.ownerId = :ownerId and s.uid > :afterUid " +
+            "and (s.expiresAt is null or s.expiresAt > :now) " +
+            "and ss.entityId.version = s.latestVersion " +
+            "order by s.uid")
+    List<SessionSnapshotEntity> findAllLatestByOwner(@Param("ownerType") SessionOwnerType ownerType,
+                                                     @Param("ownerId") String ownerId,
+                                                     @Param("afterUid") String afterUid,
+                                                     @Param("now") ZonedDateTime now,
+                                                     Pageable pageable);
+
+    /**
+     * Find session snapshots in versions range, ordered by version.
+     *
+     * @param uid         session uid
+     * @param fromVersion start version, inclusive
+     * @param toVersion   end version, inclusive
+     * @return found session snapshots
+     */
+    List<SessionSnapshotEntity> findAllByEntityIdUidAndEntityIdVersionBetweenOrderByEntityIdVersionAsc(
+            String uid,
+            long fromVersion,
+            long toVersion
+    );
+
+    /**
+     * Find version of full snapshot, which session snapshot is based on.
+     * For full snapshot its own version is returned.
+     *
+     * @param uid     session uid
+     * @param version snapshot version
+     * @return base snapshot version or empty if snapshot not exists
+     */
+    @Query("select coalesce(s.baseVersion, s.entityId.version) from session_service_session_snapshot s " +
+            "where s.entityId.uid = :uid and s.entityId.version = :version")
+    Optional<Long> findChainBaseVersion(@Param("uid") String uid, @Param("version") long version);
+
+    /**
+     * Find codec type of session snapshot.
+     *
+     * @param uid     session uid
+     * @param version snapshot version
+     * @return snapshot codec type or empty if snapshot not exists
+     */
+    @Query("select s.snapshotType from session_service_session_snapshot s " +
+            "where s.entityId.uid = :uid and s.entityId.version = :version")
+    Optional<SnapshotCodecType> findSnapshotType(@Param("uid") String uid, @Param("version") long version);
+
+    /**
+     * Find the oldest stored session snapshot version.
+     *
+     * @param uid session uid
+     * @return snapshot version or empty
+     */
+    @Query("select min(s.entityId.version) from session_service_session_snapshot s where s.entityId.uid = :uid")
+    Optional<Long> findFirstVersion(@Param("uid") String uid);
+
+    /**
+     * Find the oldest session snapshot version, created at or after passed time.
+     *
+     * @param uid       session uid
+     * @param createdAt min creation time, inclusive
+     * @return snapshot version or empty
+     */
+    @Query("select min(s.entityId.version) from session_service_session_snapshot s " +
+            "where s.entityId.uid = :uid and s.createdAt >= :createdAt")
+    Optional<Long> findFirstVersionCreatedSince(@Param("uid") String uid,
+                                                @Param("createdAt") ZonedDateTime createdAt);
+
+    /**
+     * Calculate size of session snapshots older than passed version.
+     *
+     * @param uid     session uid
+     * @param version snapshot version, exclusive
+     * @return snapshots size in bytes
+     */
+    @Query(
+            value = "select coalesce(sum(octet_length(snapshot)), 0) from session_service.session_snapshot " +
+                    "where uid = :uid and version < :version",
+            nativeQuery = true
+    )
+    long sumSnapshotSizeBeforeVersion(@Param("uid") String uid, @Param("version") long version);
+
+    /**
+     * Delete session snapshots older than passed version.
+     *
+     * @param uid     session uid
+     * @param version snapshot version, exclusive
+     * @return count of deleted snapshots
+     */
+    @Modifying
+    @Query("delete from session_service_session_snapshot s " +
+            "where s.entityId.uid = :uid and s.entityId.version < :version")
+    int deleteAllBeforeVersion(@Param("uid") String uid, @Param("version") long version);
+
+    /**
+     * Delete all snapshots of passed sessions.
+     *
+     * @param uids session uids
+     * @return count of deleted snapshots
+     */
+    @Modifying
+    @Query("delete from session_service_session_snapshot s where s.entityId.uid in (:uids)")
+    int deleteAllByUidIn(@Param("uids") Collection<String> uids);
 
 }
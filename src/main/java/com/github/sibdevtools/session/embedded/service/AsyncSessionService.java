@@ -0,0 +1,115 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.api.dto.Session;
+import com.github.sibdevtools.session.api.dto.SessionId;
+import com.github.sibdevtools.session.api.rq.CreateSessionRq;
+import com.github.sibdevtools.session.api.rq.GetSessionAttributeNamesRq;
+import com.github.sibdevtools.session.api.rq.GetSessionAttributeRq;
+import com.github.sibdevtools.session.api.rq.UpdateSessionRq;
+import com.github.sibdevtools.session.api.rs.*;
+import jakarta.annotation.Nonnull;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link BatchSessionService}.
+ * <p>
+ * Every operation is executed on a dedicated executor, returned future is completed with operation result
+ * or with operation exception. If executor is overloaded, future is completed
+ * with {@link java.util.concurrent.RejectedExecutionException}.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public interface AsyncSessionService {
+
+    /**
+     * Get session
+     *
+     * @param sessionId session identifier
+     * @return session
+     */
+    @Nonnull
+    CompletableFuture<GetSessionRs> get(@Nonnull SessionId sessionId);
+
+    /**
+     * Get the latest version of session
+     *
+     * @param uid session uid
+     * @return session
+     */
+    @Nonnull
+    CompletableFuture<GetSessionRs> get(@Nonnull String uid);
+
+    /**
+     * Get attribute names of session section
+     *
+     * @param rq get attribute names request
+     * @return attribute names
+     */
+    @Nonnull
+    CompletableFuture<GetAttributeNamesRs> getAttributeNames(@Nonnull GetSessionAttributeNamesRq rq);
+
+    /**
+     * Get session attribute
+     *
+     * @param rq  get attribute request
+     * @param <T> attribute type
+     * @return attribute value
+     */
+    @Nonnull
+    <T extends Serializable> CompletableFuture<GetSessionAttributeRs<T>> getAttribute(@Nonnull GetSessionAttributeRq rq);
+
+    /**
+     * Create session
+     *
+     * @param rq create session request
+     * @return created session identifier
+     */
+    @Nonnull
+    CompletableFuture<CreateSessionRs> create(@Nonnull CreateSessionRq rq);
+
+    /**
+     * Update session
+     *
+     * @param rq update session request
+     * @return identifier of the new session version
+     */
+    @Nonnull
+    CompletableFuture<UpdateSessionRs> update(@Nonnull UpdateSessionRq rq);
+
+    /**
+     * Create sessions
+     *
+     * @param rqs create session requests
+     * @return identifiers of created sessions, in order of requests
+     */
+    @Nonnull
+    CompletableFuture<List<SessionId>> createAll(@Nonnull List<CreateSessionRq> rqs);
+
+    /**
+     * Get sessions
+     *
+     * @param sessionIds session identifiers
+     * @return sessions, in order of identifiers
+     */
+    @Nonnull
+    CompletableFuture<List<Session>> getAll(@Nonnull Collection<SessionId> sessionIds);
+
+    /**
+     * Get attributes of session from multiple sections
+     *
+     * @param sessionId      session identifier
+     * @param attributeNames attribute names, grouped by section
+     * @return attribute values, grouped by section, not existing attributes are absent
+     */
+    @Nonnull
+    CompletableFuture<Map<String, Map<String, Serializable>>> getAttributes(
+            @Nonnull SessionId sessionId,
+            @Nonnull Map<String, ? extends Collection<String>> attributeNames
+    );
+}
@@ -0,0 +1,176 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.api.dto.Session;
+import com.github.sibdevtools.session.api.dto.SessionId;
+import com.github.sibdevtools.session.api.rq.CreateSessionRq;
+import com.github.sibdevtools.session.api.rq.GetSessionAttributeNamesRq;
+import com.github.sibdevtools.session.api.rq.GetSessionAttributeRq;
+import com.github.sibdevtools.session.api.rq.UpdateSessionRq;
+import com.github.sibdevtools.session.api.rs.*;
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedAsyncProperties;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous facade of embedded session service.
+ * <p>
+ * With virtual threads each operation gets its own virtual thread, so waiting for database doesn't hold
+ * a platform thread. Otherwise, operations are executed by a fixed pool of platform threads with a bounded queue.
+ * In both modes count of concurrently executed operations is limited by {@code max-concurrency},
+ * operation, which doesn't get an execution permit within {@code acquire-timeout}, is rejected.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Slf4j
+public class AsyncSessionServiceEmbedded implements AsyncSessionService {
+    private final BatchSessionService sessionService;
+    private final SessionServiceEmbeddedAsyncProperties asyncProperties;
+    private final ExecutorService executorService;
+    private final Semaphore permits;
+
+    /**
+     * Construct asynchronous session service
+     *
+     * @param sessionService  blocking session service
+     * @param asyncProperties asynchronous service properties
+     */
+    public AsyncSessionServiceEmbedded(BatchSessionService sessionService,
+                                       SessionServiceEmbeddedAsyncProperties asyncProperties) {
+        this.sessionService = sessionService;
+        this.asyncProperties = asyncProperties;
+        this.executorService = asyncProperties.isVirtualThreads() ?
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("session-async-", 0).factory()) :
+                newPlatformExecutor(asyncProperties);
+        this.permits = new Semaphore(Math.max(asyncProperties.getMaxConcurrency(), 1));
+    }
+
+    /**
+     * Stop accepting operations and wait for running ones
+     */
+    @PreDestroy
+    public void stop() {
+        executorService.shutdown();
+        try {
+            var shutdownTimeout = asyncProperties.getShutdownTimeout().toMillis();
+            if (!executorService.awaitTermination(shutdownTimeout, TimeUnit.MILLISECONDS)) {
+                log.warn("Async session operations are not completed in {} ms", shutdownTimeout);
+                executorService.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executorService.shutdownNow();
+        }
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<GetSessionRs> get(@Nonnull SessionId sessionId) {
+        return submit(() -> sessionService.get(sessionId));
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<GetSessionRs> get(@Nonnull String uid) {
+        return submit(() -> sessionService.get(uid));
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<GetAttributeNamesRs> getAttributeNames(@Nonnull GetSessionAttributeNamesRq rq) {
+        return submit(() -> sessionService.getAttributeNames(rq));
+    }
+
+    @Nonnull
+    @Override
+    public <T extends Serializable> CompletableFuture<GetSessionAttributeRs<T>> getAttribute(
+            @Nonnull GetSessionAttributeRq rq
+    ) {
+        return submit(() -> sessionService.getAttribute(rq));
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<CreateSessionRs> create(@Nonnull CreateSessionRq rq) {
+        return submit(() -> sessionService.create(rq));
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<UpdateSessionRs> update(@Nonnull UpdateSessionRq rq) {
+        return submit(() -> sessionService.update(rq));
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<List<SessionId>> createAll(@Nonnull List<CreateSessionRq> rqs) {
+        return submit(() -> sessionService.createAll(rqs));
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<List<Session>> getAll(@Nonnull Collection<SessionId> sessionIds) {
+        return submit(() -> sessionService.getAll(sessionIds));
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<Map<String, Map<String, Serializable>>> getAttributes(
+            @Nonnull SessionId sessionId,
+            @Nonnull Map<String, ? extends Collection<String>> attributeNames
+    ) {
+        return submit(() -> sessionService.getAttributes(sessionId, attributeNames));
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        try {
+            return CompletableFuture.supplyAsync(() -> execute(operation), executorService);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private <T> T execute(Supplier<T> operation) {
+        try {
+            var acquireTimeout = asyncProperties.getAcquireTimeout().toNanos();
+            if (!permits.tryAcquire(acquireTimeout, TimeUnit.NANOSECONDS)) {
+                throw new RejectedExecutionException("Session operation is rejected, concurrency limit is reached");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Session operation is interrupted", e);
+        }
+        try {
+            return operation.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static ExecutorService newPlatformExecutor(SessionServiceEmbeddedAsyncProperties asyncProperties) {
+        var poolSize = Math.max(asyncProperties.getPoolSize(), 1);
+        var threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(asyncProperties.getQueueCapacity(), 1)),
+                runnable -> {
+                    var thread = new Thread(runnable, "session-async-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+}
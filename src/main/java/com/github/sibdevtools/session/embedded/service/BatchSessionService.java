@@ -0,0 +1,51 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.api.dto.Session;
+import com.github.sibdevtools.session.api.dto.SessionId;
+import com.github.sibdevtools.session.api.rq.CreateSessionRq;
+import com.github.sibdevtools.session.api.service.SessionService;
+import jakarta.annotation.Nonnull;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Session service with batch operations.
+ * Each batch operation is executed in a single transaction.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public interface BatchSessionService extends SessionService {
+
+    /**
+     * Create sessions
+     *
+     * @param rqs create session requests
+     * @return identifiers of created sessions, in order of requests
+     */
+    @Nonnull
+    List<SessionId> createAll(@Nonnull List<CreateSessionRq> rqs);
+
+    /**
+     * Get sessions
+     *
+     * @param sessionIds session identifiers
+     * @return sessions, in order of identifiers
+     */
+    @Nonnull
+    List<Session> getAll(@Nonnull Collection<SessionId> sessionIds);
+
+    /**
+     * Get attributes of session from multiple sections
+     *
+     * @param sessionId      session identifier
+     * @param attributeNames attribute names, grouped by section
+     * @return attribute values, grouped by section, not existing attributes are absent
+     */
+    @Nonnull
+    Map<String, Map<String, Serializable>> getAttributes(@Nonnull SessionId sessionId,
+                                                         @Nonnull Map<String, ? extends Collection<String>> attributeNames);
+}
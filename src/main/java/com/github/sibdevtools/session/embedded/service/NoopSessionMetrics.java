@@ -0,0 +1,47 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.embedded.entity.SnapshotCodecType;
+
+/**
+ * Session metrics, which record nothing. Used when Micrometer is not available or metrics are disabled.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public final class NoopSessionMetrics implements SessionMetrics {
+
+    @Override
+    public long startTime() {
+        return 0;
+    }
+
+    @Override
+    public void recordOperation(String operation, long startTime) {
+        // nothing to record
+    }
+
+    @Override
+    public void recordPhase(String phase, long startTime) {
+        // nothing to record
+    }
+
+    @Override
+    public void recordEncoded(SnapshotCodecType codecType, int size) {
+        // nothing to record
+    }
+
+    @Override
+    public void recordDecoded(SnapshotCodecType codecType, int size) {
+        // nothing to record
+    }
+
+    @Override
+    public void recordChainDepth(int depth) {
+        // nothing to record
+    }
+
+    @Override
+    public void recordVersion(long version) {
+        // nothing to record
+    }
+}
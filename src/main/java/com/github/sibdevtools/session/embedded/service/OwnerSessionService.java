@@ -0,0 +1,82 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.api.dto.Session;
+import com.github.sibdevtools.session.api.dto.SessionId;
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Owner scoped session operations.
+ * <p>
+ * Only not expired sessions are visible. Sessions are ordered by uid and paged by the last seen uid,
+ * so pages stay consistent while sessions are created or removed. Reads don't prolong sessions.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public interface OwnerSessionService {
+
+    /**
+     * Get identifiers of the latest versions of owner sessions
+     *
+     * @param ownerType session owner type
+     * @param ownerId   session owner identifier
+     * @param afterUid  session uid to start after, exclusive, null to start from the first session
+     * @param limit     max count of identifiers
+     * @return session identifiers, ordered by session uid
+     */
+    @Nonnull
+    List<SessionId> getOwnerSessionIds(@Nonnull SessionOwnerType ownerType,
+                                       @Nonnull String ownerId,
+                                       @Nullable String afterUid,
+                                       int limit);
+
+    /**
+     * Stream identifiers of the latest versions of owner sessions.
+     * Identifiers are fetched lazily by pages of the configured lookup size.
+     *
+     * @param ownerType session owner type
+     * @param ownerId   session owner identifier
+     * @return session identifiers, ordered by session uid
+     */
+    @Nonnull
+    Stream<SessionId> streamOwnerSessionIds(@Nonnull SessionOwnerType ownerType, @Nonnull String ownerId);
+
+    /**
+     * Get the latest versions of owner sessions
+     *
+     * @param ownerType session owner type
+     * @param ownerId   session owner identifier
+     * @param afterUid  session uid to start after, exclusive, null to start from the first session
+     * @param limit     max count of sessions
+     * @return sessions, ordered by session uid
+     */
+    @Nonnull
+    List<Session> getOwnerSessions(@Nonnull SessionOwnerType ownerType,
+                                   @Nonnull String ownerId,
+                                   @Nullable String afterUid,
+                                   int limit);
+
+    /**
+     * Count owner sessions
+     *
+     * @param ownerType session owner type
+     * @param ownerId   session owner identifier
+     * @return count of sessions
+     */
+    long countOwnerSessions(@Nonnull SessionOwnerType ownerType, @Nonnull String ownerId);
+
+    /**
+     * Invalidate all owner sessions by a single update, invalidated sessions are expired immediately
+     * and removed by expired sessions purge.
+     *
+     * @param ownerType session owner type
+     * @param ownerId   session owner identifier
+     * @return count of invalidated sessions
+     */
+    int invalidateOwnerSessions(@Nonnull SessionOwnerType ownerType, @Nonnull String ownerId);
+}
@@ -0,0 +1,128 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.embedded.dto.PermissionSet;
+import com.github.sibdevtools.session.embedded.entity.PermissionEntity;
+import com.github.sibdevtools.session.embedded.exception.UnexpectedErrorException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Case-insensitive in-memory registry of permission codes.
+ * <p>
+ * All stored permissions are loaded on startup, unknown codes are created by session storage by one call,
+ * independently of the current transaction, so only committed permissions are ever registered.
+ * <p>
+ * Registry also provides canonical code strings by permission id, which are shared by all {@link PermissionSet}.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public class PermissionRegistry implements SmartInitializingSingleton {
+    private final SessionStorage sessionStorage;
+    private final Map<String, PermissionEntity> permissions = new ConcurrentHashMap<>();
+    private final Map<Long, String> codes = new ConcurrentHashMap<>();
+
+    /**
+     * Construct permission registry
+     *
+     * @param sessionStorage session storage
+     */
+    public PermissionRegistry(SessionStorage sessionStorage) {
+        this.sessionStorage = sessionStorage;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        sessionStorage.findAllPermissions()
+                .forEach(this::register);
+    }
+
+    /**
+     * Resolve permissions by codes, unknown permissions are created
+     *
+     * @param codes permission codes
+     * @return permissions by code, map is case-insensitive
+     */
+    public Map<String, PermissionEntity> resolve(Collection<String> codes) {
+        var resolved = new TreeMap<String, PermissionEntity>(String.CASE_INSENSITIVE_ORDER);
+        var missed = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (var code : codes) {
+            var permission = permissions.get(toKey(code));
+            if (permission == null) {
+                missed.add(code);
+            } else {
+                resolved.put(code, permission);
+            }
+        }
+        if (missed.isEmpty()) {
+            return resolved;
+        }
+
+        for (var permission : sessionStorage.createPermissions(missed)) {
+            register(permission);
+            resolved.put(permission.getCode(), permission);
+        }
+        for (var code : missed) {
+            if (!resolved.containsKey(code)) {
+                throw new UnexpectedErrorException("Permission '%s' can't be registered".formatted(code));
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Build sorted distinct permission ids
+     *
+     * @param permissions permissions
+     * @return permission ids
+     */
+    public long[] toIds(Collection<PermissionEntity> permissions) {
+        return permissions.stream()
+                .mapToLong(PermissionEntity::getId)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    /**
+     * Build immutable permission set by permission ids. Not registered permissions are loaded by one query.
+     *
+     * @param ids permission ids
+     * @return permission set
+     */
+    public Set<String> toPermissionSet(long[] ids) {
+        var missedIds = Arrays.stream(ids)
+                .boxed()
+                .filter(id -> !codes.containsKey(id))
+                .toList();
+        if (!missedIds.isEmpty()) {
+            sessionStorage.findAllPermissionsById(missedIds)
+                    .forEach(this::register);
+        }
+        return new PermissionSet(ids, this::findId, this::getCode);
+    }
+
+    private long findId(String code) {
+        var permission = permissions.get(toKey(code));
+        return permission == null ? -1 : permission.getId();
+    }
+
+    private String getCode(long id) {
+        var code = codes.get(id);
+        if (code == null) {
+            throw new UnexpectedErrorException("Permission %d not found".formatted(id));
+        }
+        return code;
+    }
+
+    private void register(PermissionEntity permission) {
+        var registered = permissions.computeIfAbsent(toKey(permission.getCode()), key -> permission);
+        codes.putIfAbsent(registered.getId(), registered.getCode());
+    }
+
+    private static String toKey(String code) {
+        return code.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,211 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.api.dto.query.ModificationQuery;
+import com.github.sibdevtools.session.api.dto.query.action.Action;
+import com.github.sibdevtools.session.api.dto.query.action.AddAction;
+import com.github.sibdevtools.session.api.dto.query.action.DeleteAction;
+import com.github.sibdevtools.session.api.dto.query.action.SetAction;
+import com.github.sibdevtools.session.embedded.exception.AttributeAlreadyExistsException;
+import com.github.sibdevtools.session.embedded.exception.AttributeNotExistsException;
+import com.github.sibdevtools.session.embedded.exception.UnexpectedErrorException;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies modification query actions to session attributes.
+ * <p>
+ * Sections are copied on touch: only sections, modified by actions, are copied,
+ * other sections are shared with source attributes and must not be modified.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class SessionAttributesUpdater {
+
+    /**
+     * Apply modification query to a copy of session attributes.
+     * Sections, not touched by query, are shared with source attributes.
+     *
+     * @param modificationQuery modification query
+     * @param sourceAttributes  session attributes, not modified
+     * @return modified session attributes
+     */
+    public static HashMap<String, Map<String, Serializable>> updateAttributes(
+            ModificationQuery modificationQuery,
+            Map<String, Map<String, Serializable>> sourceAttributes
+    ) {
+        var attributes = new HashMap<>(sourceAttributes);
+        var copiedSections = new HashSet<String>();
+
+        var actions = modificationQuery.actions();
+        for (var action : actions) {
+            var section = action.getSection();
+            var attributeName = action.getAttributeName();
+
+            var sectionAttributes = touchSection(attributes, copiedSections, section);
+            proceedAction(action, sectionAttributes, attributeName, section);
+        }
+        return attributes;
+    }
+
+    /**
+     * Apply modification query to mutable session attributes in place.
+     * <p>
+     * Query is applied atomically: if any action fails, attributes are restored to the state before the query.
+     *
+     * @param modificationQuery modification query
+     * @param attributes        mutable session attributes, sections should be mutable too
+     */
+    public static void applyAttributes(ModificationQuery modificationQuery,
+                                       Map<String, Map<String, Serializable>> attributes) {
+        applyAttributes(modificationQuery, attributes, new HashSet<>(attributes.keySet()));
+    }
+
+    /**
+     * Apply modification query to session attributes in place, copying touched sections.
+     * <p>
+     * Query is applied atomically: if any action fails, attributes are restored to the state before the query.
+     *
+     * @param modificationQuery modification query
+     * @param attributes        mutable session attributes, sections may be shared
+     * @param copiedSections    names of sections, which are already copied and may be modified,
+     *                          updated with sections copied by this query
+     */
+    public static void applyAttributes(ModificationQuery modificationQuery,
+                                       Map<String, Map<String, Serializable>> attributes,
+                                       Set<String> copiedSections) {
+        var undoLog = new ArrayList<UndoEntry>();
+        try {
+            for (var action : modificationQuery.actions()) {
+                var section = action.getSection();
+                var attributeName = action.getAttributeName();
+
+                var sectionCreated = !attributes.containsKey(section);
+                var sectionAttributes = touchSection(attributes, copiedSections, section);
+                undoLog.add(
+                        new UndoEntry(
+                                section,
+                                attributeName,
+                                sectionCreated,
+                                sectionAttributes.containsKey(attributeName),
+                                sectionAttributes.get(attributeName)
+                        )
+                );
+                proceedAction(action, sectionAttributes, attributeName, section);
+            }
+        } catch (RuntimeException e) {
+            for (var undoEntry : undoLog.reversed()) {
+                undoEntry.undo(attributes, copiedSections);
+            }
+            throw e;
+        }
+    }
+
+    private static Map<String, Serializable> touchSection(Map<String, Map<String, Serializable>> attributes,
+                                                          Set<String> copiedSections,
+                                                          String section) {
+        if (!copiedSections.add(section)) {
+            return attributes.get(section);
+        }
+        var sourceSection = attributes.get(section);
+        var sectionAttributes = sourceSection == null ?
+                new HashMap<String, Serializable>() :
+                new HashMap<>(sourceSection);
+        attributes.put(section, sectionAttributes);
+        return sectionAttributes;
+    }
+
+    /**
+     * Apply single action to mutable section attributes
+     *
+     * @param action            action
+     * @param sectionAttributes mutable section attributes
+     * @param attributeName     action attribute name
+     * @param section           action section
+     */
+    public static void proceedAction(Action action,
+                                     Map<String, Serializable> sectionAttributes,
+                                     String attributeName,
+                                     String section) {
+        switch (action) {
+            case AddAction addAction -> {
+                var attributeValue = addAction.getAttributeValue();
+
+                if (sectionAttributes.put(attributeName, attributeValue) != null) {
+                    throw new AttributeAlreadyExistsException(
+                            "Attribute %s already exists in section %s".formatted(attributeName, section)
+                    );
+                }
+            }
+            case SetAction setAction -> {
+                if (!sectionAttributes.containsKey(attributeName)) {
+                    var addIfNotExists = setAction.isAddIfNotExists();
+                    if (!addIfNotExists) {
+                        throw new AttributeNotExistsException(
+                                "Attribute '%s' not found in section %s".formatted(attributeName, section)
+                        );
+                    }
+                }
+                var attributeValue = setAction.getAttributeValue();
+                sectionAttributes.put(attributeName, attributeValue);
+            }
+            case DeleteAction ignored -> {
+                if (sectionAttributes.remove(attributeName) != null) {
+                    return;
+                }
+                throw new AttributeNotExistsException(
+                        "Attribute '%s' not found in section %s".formatted(attributeName, section)
+                );
+            }
+            default -> throw new UnexpectedErrorException("Unsupported action '%s'".formatted(action));
+        }
+    }
+
+    /**
+     * Make mutable copy of session attributes
+     *
+     * @param sourceAttributes session attributes
+     * @return mutable session attributes
+     */
+    public static HashMap<String, Map<String, Serializable>> makeMutableAttributes(
+            Map<String, Map<String, Serializable>> sourceAttributes
+    ) {
+        var attributes = new HashMap<String, Map<String, Serializable>>(sourceAttributes.size(), 1);
+
+        for (var entry : sourceAttributes.entrySet()) {
+            var sectionId = entry.getKey();
+            var sectionData = entry.getValue();
+            attributes.put(sectionId, new HashMap<>(sectionData));
+        }
+        return attributes;
+    }
+
+    private record UndoEntry(String section,
+                             String attributeName,
+                             boolean sectionCreated,
+                             boolean existed,
+                             Serializable value) {
+
+        void undo(Map<String, Map<String, Serializable>> attributes, Set<String> copiedSections) {
+            if (sectionCreated) {
+                attributes.remove(section);
+                copiedSections.remove(section);
+                return;
+            }
+            var sectionAttributes = attributes.get(section);
+            if (existed) {
+                sectionAttributes.put(attributeName, value);
+            } else {
+                sectionAttributes.remove(attributeName);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.embedded.entity.SessionSnapshotEntity;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Session storage capability of delta snapshot chains, required to read and write delta snapshots.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public interface SessionChainStorage {
+
+    /**
+     * Find session snapshots in range of versions, session is not filled
+     *
+     * @param uid         session uid
+     * @param fromVersion first version, inclusive
+     * @param toVersion   last version, inclusive
+     * @return found snapshots, ordered by version
+     */
+    List<SessionSnapshotEntity> findSnapshotChain(String uid, long fromVersion, long toVersion);
+
+    /**
+     * Find version of full snapshot, passed version is restored from
+     *
+     * @param uid     session uid
+     * @param version snapshot version
+     * @return base version for delta snapshot, passed version for full snapshot or empty if version not found
+     */
+    Optional<Long> findChainBaseVersion(String uid, long version);
+}
@@ -0,0 +1,75 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedExpiryProperties;
+import lombok.AllArgsConstructor;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+/**
+ * Session expiration rules.
+ * <p>
+ * With sliding expiration session is prolonged on access, when less than a half of its time to live remains,
+ * so frequently accessed session is not written on every read.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@AllArgsConstructor
+public class SessionExpiryPolicy {
+    private final SessionServiceEmbeddedExpiryProperties expiryProperties;
+
+    /**
+     * Calculate session expiration time
+     *
+     * @param ownerType session owner type
+     * @param now       current time
+     * @return expiration time or null if session never expires
+     */
+    public ZonedDateTime getExpiresAt(SessionOwnerType ownerType, ZonedDateTime now) {
+        var ttl = getTtl(ownerType);
+        if (ttl == null) {
+            return null;
+        }
+        return now.plus(ttl);
+    }
+
+    /**
+     * Check is session expired
+     *
+     * @param expiresAt session expiration time
+     * @param now       current time
+     * @return true - session is expired, false - otherwise
+     */
+    public boolean isExpired(ZonedDateTime expiresAt, ZonedDateTime now) {
+        return expiresAt != null && !expiresAt.isAfter(now);
+    }
+
+    /**
+     * Check is session expiration should be prolonged on access
+     *
+     * @param ownerType session owner type
+     * @param expiresAt session expiration time
+     * @param now       current time
+     * @return true - session expiration should be prolonged, false - otherwise
+     */
+    public boolean isProlongRequired(SessionOwnerType ownerType, ZonedDateTime expiresAt, ZonedDateTime now) {
+        if (!expiryProperties.isSliding() || expiresAt == null) {
+            return false;
+        }
+        var ttl = getTtl(ownerType);
+        if (ttl == null) {
+            return false;
+        }
+        return Duration.between(now, expiresAt).compareTo(ttl.dividedBy(2)) < 0;
+    }
+
+    private Duration getTtl(SessionOwnerType ownerType) {
+        var ownerTypeTtl = expiryProperties.getOwnerTypeTtl();
+        if (ownerTypeTtl != null && ownerTypeTtl.containsKey(ownerType)) {
+            return ownerTypeTtl.get(ownerType);
+        }
+        return expiryProperties.getTtl();
+    }
+}
@@ -0,0 +1,167 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedExpiryProperties;
+import com.github.sibdevtools.session.embedded.dto.SessionPurgeResult;
+import com.github.sibdevtools.session.embedded.repository.SessionEntityRepository;
+import com.github.sibdevtools.session.embedded.repository.SessionSectionSnapshotEntityRepository;
+import com.github.sibdevtools.session.embedded.repository.SessionSnapshotEntityRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background purge of expired sessions with their snapshots and permission links.
+ * <p>
+ * Expired sessions are found by {@code expires_at} index and removed in batches, each batch in a separate transaction.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Slf4j
+public class SessionExpiryPurger {
+    private final SessionEntityRepository sessionEntityRepository;
+    private final SessionSnapshotEntityRepository sessionSnapshotEntityRepository;
+    private final SessionSectionSnapshotEntityRepository sectionSnapshotEntityRepository;
+    private final SessionServiceEmbeddedExpiryProperties expiryProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong totalSessions = new AtomicLong();
+    private final AtomicLong totalSnapshots = new AtomicLong();
+    private final AtomicLong totalDurationNanos = new AtomicLong();
+
+    private ScheduledExecutorService executorService;
+
+    /**
+     * Construct expired sessions purger
+     *
+     * @param sessionEntityRepository         session entity repository
+     * @param sessionSnapshotEntityRepository session snapshot entity repository
+     * @param sectionSnapshotEntityRepository session section snapshot entity repository
+     * @param expiryProperties                session expiry properties
+     * @param transactionManager              transaction manager
+     */
+    public SessionExpiryPurger(SessionEntityRepository sessionEntityRepository,
+                               SessionSnapshotEntityRepository sessionSnapshotEntityRepository,
+                               SessionSectionSnapshotEntityRepository sectionSnapshotEntityRepository,
+                               SessionServiceEmbeddedExpiryProperties expiryProperties,
+                               PlatformTransactionManager transactionManager) {
+        this.sessionEntityRepository = sessionEntityRepository;
+        this.sessionSnapshotEntityRepository = sessionSnapshotEntityRepository;
+        this.sectionSnapshotEntityRepository = sectionSnapshotEntityRepository;
+        this.expiryProperties = expiryProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Start scheduled purge
+     */
+    @PostConstruct
+    public void start() {
+        var interval = expiryProperties.getPurgeInterval().toMillis();
+        executorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "session-expiry-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executorService.scheduleWithFixedDelay(this::purgeSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop scheduled purge
+     */
+    @PreDestroy
+    public void stop() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Remove all sessions expired at the moment of call
+     *
+     * @return purge result
+     */
+    public SessionPurgeResult purge() {
+        var startedAt = System.nanoTime();
+        var now = ZonedDateTime.now();
+        var batchSize = expiryProperties.getPurgeBatchSize();
+
+        long sessions = 0;
+        long snapshots = 0;
+        while (true) {
+            var batch = transactionTemplate.execute(status -> purgeBatch(now, batchSize));
+            if (batch == null || batch.sessions() == 0) {
+                break;
+            }
+            sessions += batch.sessions();
+            snapshots += batch.snapshots();
+        }
+
+        var duration = System.nanoTime() - startedAt;
+        totalSessions.addAndGet(sessions);
+        totalSnapshots.addAndGet(snapshots);
+        totalDurationNanos.addAndGet(duration);
+        return new SessionPurgeResult(sessions, snapshots, Duration.ofNanos(duration));
+    }
+
+    /**
+     * Get count of sessions, removed since start
+     *
+     * @return count of sessions
+     */
+    public long getTotalSessions() {
+        return totalSessions.get();
+    }
+
+    /**
+     * Get count of snapshots, removed since start
+     *
+     * @return count of snapshots
+     */
+    public long getTotalSnapshots() {
+        return totalSnapshots.get();
+    }
+
+    /**
+     * Get total time, spent on purge since start
+     *
+     * @return purge duration
+     */
+    public Duration getTotalDuration() {
+        return Duration.ofNanos(totalDurationNanos.get());
+    }
+
+    private void purgeSafely() {
+        try {
+            var result = purge();
+            if (result.getSessions() > 0) {
+                log.info("Expired sessions purged: {}, {} sessions/s", result, result.getSessionsPerSecond());
+            }
+        } catch (Exception e) {
+            log.error("Expired sessions purge failed", e);
+        }
+    }
+
+    private BatchResult purgeBatch(ZonedDateTime now, int batchSize) {
+        var uids = sessionEntityRepository.findAllUidsExpiredBefore(now, PageRequest.of(0, batchSize));
+        if (uids.isEmpty()) {
+            return new BatchResult(0, 0);
+        }
+        sectionSnapshotEntityRepository.deleteAllByUidIn(uids);
+        var snapshots = sessionSnapshotEntityRepository.deleteAllByUidIn(uids);
+        sessionEntityRepository.deleteAllPermissionLinksByUidIn(uids);
+        var sessions = sessionEntityRepository.deleteAllByUidIn(uids);
+        return new BatchResult(sessions, snapshots);
+    }
+
+    private record BatchResult(long sessions, long snapshots) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import java.time.ZonedDateTime;
+import java.util.Map;
+
+/**
+ * Session storage capability of concurrent changes of session header: latest version and expiration time.
+ * Required for session updates and expiration prolongation.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public interface SessionHeaderStorage {
+
+    /**
+     * Set session latest version, if current latest version is equal to expected one.
+     * Session stays locked for concurrent version changes till the end of transaction.
+     *
+     * @param uid             session uid
+     * @param expectedVersion expected latest version
+     * @param version         new latest version
+     * @return true if version is changed
+     */
+    boolean compareAndSetLatestVersion(String uid, long expectedVersion, long version);
+
+    /**
+     * Move latest versions of sessions forward, version is not changed if it is already greater or equal
+     *
+     * @param latestVersions latest versions by session uid
+     */
+    void updateLatestVersions(Map<String, Long> latestVersions);
+
+    /**
+     * Prolong expiration time of not expired session. Expiration time is never shortened,
+     * expired or invalidated session is never prolonged.
+     *
+     * @param uid       session uid
+     * @param expiresAt new expiration time
+     * @param now       current time
+     */
+    void prolongExpiresAt(String uid, ZonedDateTime expiresAt, ZonedDateTime now);
+}
@@ -0,0 +1,88 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.embedded.entity.SnapshotCodecType;
+
+/**
+ * Session service instrumentation.
+ * <p>
+ * Durations are measured from the value returned by {@link #startTime()},
+ * so implementation without metrics backend doesn't read the clock at all.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public interface SessionMetrics {
+    String OPERATION_GET = "get";
+    String OPERATION_GET_BY_UID = "get-by-uid";
+    String OPERATION_GET_ALL = "get-all";
+    String OPERATION_GET_ATTRIBUTE = "get-attribute";
+    String OPERATION_GET_ATTRIBUTE_NAMES = "get-attribute-names";
+    String OPERATION_GET_ATTRIBUTES = "get-attributes";
+    String OPERATION_CREATE = "create";
+    String OPERATION_CREATE_ALL = "create-all";
+    String OPERATION_UPDATE = "update";
+    String OPERATION_GET_OWNER_SESSION_IDS = "get-owner-session-ids";
+    String OPERATION_GET_OWNER_SESSIONS = "get-owner-sessions";
+    String OPERATION_COUNT_OWNER_SESSIONS = "count-owner-sessions";
+    String OPERATION_INVALIDATE_OWNER_SESSIONS = "invalidate-owner-sessions";
+
+    String PHASE_FETCH = "fetch";
+    String PHASE_DECODE = "decode";
+    String PHASE_PERMISSIONS = "permissions";
+    String PHASE_APPLY = "apply";
+    String PHASE_ENCODE = "encode";
+    String PHASE_INSERT = "insert";
+
+    /**
+     * Get start time of measured operation
+     *
+     * @return start time in nanoseconds
+     */
+    long startTime();
+
+    /**
+     * Record public operation duration
+     *
+     * @param operation operation name
+     * @param startTime operation start time
+     */
+    void recordOperation(String operation, long startTime);
+
+    /**
+     * Record operation phase duration
+     *
+     * @param phase     phase name
+     * @param startTime phase start time
+     */
+    void recordPhase(String phase, long startTime);
+
+    /**
+     * Record encoded snapshot size
+     *
+     * @param codecType codec type
+     * @param size      snapshot size in bytes
+     */
+    void recordEncoded(SnapshotCodecType codecType, int size);
+
+    /**
+     * Record decoded snapshot size
+     *
+     * @param codecType codec type
+     * @param size      snapshot size in bytes
+     */
+    void recordDecoded(SnapshotCodecType codecType, int size);
+
+    /**
+     * Record count of snapshots, decoded to restore a delta version
+     *
+     * @param depth snapshot chain size
+     */
+    void recordChainDepth(int depth);
+
+    /**
+     * Record written session version
+     *
+     * @param version session version
+     */
+    void recordVersion(long version);
+}
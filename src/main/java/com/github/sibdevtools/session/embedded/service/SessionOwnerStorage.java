@@ -0,0 +1,69 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.embedded.dto.SessionVersions;
+import com.github.sibdevtools.session.embedded.entity.SessionSnapshotEntity;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Session storage capability of owner session queries, required by {@link OwnerSessionService}.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public interface SessionOwnerStorage {
+
+    /**
+     * Find latest versions of not expired owner sessions, ordered by uid
+     *
+     * @param ownerType owner type
+     * @param ownerId   owner identifier
+     * @param afterUid  exclusive lower bound of uid, empty string to start from the first session
+     * @param now       current time
+     * @param limit     max count of sessions
+     * @return session versions
+     */
+    List<SessionVersions> findAllVersionsByOwner(SessionOwnerType ownerType,
+                                                 String ownerId,
+                                                 String afterUid,
+                                                 ZonedDateTime now,
+                                                 int limit);
+
+    /**
+     * Count not expired owner sessions
+     *
+     * @param ownerType owner type
+     * @param ownerId   owner identifier
+     * @param now       current time
+     * @return count of sessions
+     */
+    long countByOwner(SessionOwnerType ownerType, String ownerId, ZonedDateTime now);
+
+    /**
+     * Expire all not expired owner sessions
+     *
+     * @param ownerType owner type
+     * @param ownerId   owner identifier
+     * @param now       expiration time
+     * @return count of expired sessions
+     */
+    int expireAllByOwner(SessionOwnerType ownerType, String ownerId, ZonedDateTime now);
+
+    /**
+     * Find the latest snapshots of not expired owner sessions with sessions, ordered by uid
+     *
+     * @param ownerType owner type
+     * @param ownerId   owner identifier
+     * @param afterUid  exclusive lower bound of uid, empty string to start from the first session
+     * @param now       current time
+     * @param limit     max count of sessions
+     * @return session snapshots
+     */
+    List<SessionSnapshotEntity> findAllLatestSnapshotsByOwner(SessionOwnerType ownerType,
+                                                              String ownerId,
+                                                              String afterUid,
+                                                              ZonedDateTime now,
+                                                              int limit);
+}
@@ -0,0 +1,66 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.embedded.entity.SessionSectionSnapshotEntity;
+import com.github.sibdevtools.session.embedded.entity.SnapshotCodecType;
+import jakarta.annotation.Nullable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Session storage capability of section split layout, where each changed section of version is stored separately.
+ * Required to read and write split versions.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public interface SessionSectionStorage {
+
+    /**
+     * Find codec type of session snapshot
+     *
+     * @param uid     session uid
+     * @param version snapshot version
+     * @return codec type or empty if version not found
+     */
+    Optional<SnapshotCodecType> findSnapshotType(String uid, long version);
+
+    /**
+     * Find actual snapshots of session sections at passed session version, including removed sections
+     *
+     * @param uid      session uid
+     * @param sections section names, null to find all sections
+     * @param version  session version
+     * @return found section snapshots
+     */
+    List<SessionSectionSnapshotEntity> findActualSectionSnapshots(String uid,
+                                                                  @Nullable Collection<String> sections,
+                                                                  long version);
+
+    /**
+     * Find actual snapshot of session section at passed session version
+     *
+     * @param uid     session uid
+     * @param section section name
+     * @param version session version
+     * @return found section snapshot, which may be removed, or empty if section was never stored
+     */
+    Optional<SessionSectionSnapshotEntity> findActualSectionSnapshot(String uid, String section, long version);
+
+    /**
+     * Find names of sections, which are not removed at passed session version
+     *
+     * @param uid     session uid
+     * @param version session version
+     * @return section names
+     */
+    List<String> findActualSectionNames(String uid, long version);
+
+    /**
+     * Store session section snapshots
+     *
+     * @param sectionSnapshots section snapshots
+     */
+    void appendSectionSnapshots(List<SessionSectionSnapshotEntity> sectionSnapshots);
+}
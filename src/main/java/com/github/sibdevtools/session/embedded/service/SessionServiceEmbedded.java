@@ -1,129 +1,606 @@
 package com.github.sibdevtools.session.embedded.service;
 
+import com.github.sibdevtools.session.api.dto.Session;
 import com.github.sibdevtools.session.api.dto.SessionId;
-import com.github.sibdevtools.session.api.dto.query.ModificationQuery;
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
 import com.github.sibdevtools.session.api.dto.query.action.Action;
-import com.github.sibdevtools.session.api.dto.query.action.AddAction;
-import com.github.sibdevtools.session.api.dto.query.action.DeleteAction;
-import com.github.sibdevtools.session.api.dto.query.action.SetAction;
 import com.github.sibdevtools.session.api.rq.CreateSessionRq;
 import com.github.sibdevtools.session.api.rq.GetSessionAttributeNamesRq;
 import com.github.sibdevtools.session.api.rq.GetSessionAttributeRq;
 import com.github.sibdevtools.session.api.rq.UpdateSessionRq;
 import com.github.sibdevtools.session.api.rs.*;
-import com.github.sibdevtools.session.api.service.SessionService;
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedBatchProperties;
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedModeCondition;
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedSnapshotProperties;
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedUpdateProperties;
+import com.github.sibdevtools.session.embedded.dto.CachedSession;
+import com.github.sibdevtools.session.embedded.dto.EncodedSnapshot;
 import com.github.sibdevtools.session.embedded.dto.LocalSession;
+import com.github.sibdevtools.session.embedded.dto.PendingSnapshot;
+import com.github.sibdevtools.session.embedded.dto.PermissionSet;
+import com.github.sibdevtools.session.embedded.dto.SnapshotContent;
+import com.github.sibdevtools.session.embedded.dto.SnapshotDelta;
+import com.github.sibdevtools.session.embedded.dto.StoredSnapshot;
 import com.github.sibdevtools.session.embedded.entity.*;
-import com.github.sibdevtools.session.embedded.exception.AttributeAlreadyExistsException;
-import com.github.sibdevtools.session.embedded.exception.AttributeNotExistsException;
 import com.github.sibdevtools.session.embedded.exception.SessionNotFoundException;
+import com.github.sibdevtools.session.embedded.exception.SessionVersionConflictException;
 import com.github.sibdevtools.session.embedded.exception.UnexpectedErrorException;
-import com.github.sibdevtools.session.embedded.repository.PermissionEntityRepository;
-import com.github.sibdevtools.session.embedded.repository.SessionEntityRepository;
-import com.github.sibdevtools.session.embedded.repository.SessionSnapshotEntityRepository;
+import com.github.sibdevtools.session.embedded.service.impl.SnapshotDeflateCodec;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.Serializable;
 import java.time.ZonedDateTime;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author sibmaks
  * @since 0.0.1
  */
 @Service
-@ConditionalOnProperty(name = "service.session.mode", havingValue = "EMBEDDED")
-public class SessionServiceEmbedded implements SessionService {
-    private static final SnapshotCodecType DEFAULT_CODEC_TYPE = SnapshotCodecType.JSON;
+@Conditional(SessionServiceEmbeddedModeCondition.class)
+public class SessionServiceEmbedded implements BatchSessionService, OwnerSessionService {
+    private static final byte[] EMPTY_SNAPSHOT = new byte[0];
 
-    private final SessionEntityRepository sessionEntityRepository;
-    private final SessionSnapshotEntityRepository sessionSnapshotEntityRepository;
-    private final PermissionEntityRepository permissionEntityRepository;
+    private final SessionStorage sessionStorage;
+    private final SessionHeaderStorage sessionHeaderStorage;
+    private final SessionOwnerStorage sessionOwnerStorage;
+    private final SessionChainStorage sessionChainStorage;
+    private final SessionSectionStorage sessionSectionStorage;
+    private final PermissionRegistry permissionRegistry;
     private final Map<SnapshotCodecType, SnapshotCodec> snapshotCodecs;
+    private final Map<SnapshotCodecType, SnapshotDeflateCodec> compressionCodecs;
+    private final SessionServiceEmbeddedSnapshotProperties snapshotProperties;
+    private final SessionSnapshotCache sessionSnapshotCache;
+    private final SessionExpiryPolicy sessionExpiryPolicy;
+    private final SessionServiceEmbeddedUpdateProperties updateProperties;
+    private final SessionServiceEmbeddedBatchProperties batchProperties;
+    private final SessionMetrics sessionMetrics;
+    private final SessionWriteBehindBuffer writeBehindBuffer;
+    private final SessionUpdateCombiner sessionUpdateCombiner;
+    private final TransactionTemplate updateTransactionTemplate;
 
     /**
      * Construct embedded session service
      *
-     * @param sessionEntityRepository         session entity repository
-     * @param sessionSnapshotEntityRepository session snapshot entity repository
-     * @param permissionEntityRepository      permission entity repository
-     * @param snapshotCodecs                  supported snapshot codecs
+     * @param sessionStorage        session storage
+     * @param sessionHeaderStorage  session header storage
+     * @param sessionOwnerStorage   owner sessions storage
+     * @param sessionChainStorage   delta snapshot chains storage
+     * @param sessionSectionStorage section snapshots storage
+     * @param permissionRegistry    permission codes registry
+     * @param snapshotCodecs        supported snapshot codecs
+     * @param snapshotProperties    snapshot storage properties
+     * @param sessionSnapshotCache  decoded session snapshots cache
+     * @param sessionExpiryPolicy   session expiration policy
+     * @param updateProperties      session update properties
+     * @param batchProperties       batch operations properties
+     * @param sessionMetrics        session service instrumentation
+     * @param writeBehindBuffer     write-behind buffer of session versions
+     * @param sessionUpdateCombiner combiner of concurrent updates of the same session
+     * @param transactionManager    transaction manager
      */
     @Autowired
-    public SessionServiceEmbedded(SessionEntityRepository sessionEntityRepository,
-                                  SessionSnapshotEntityRepository sessionSnapshotEntityRepository,
-                                  PermissionEntityRepository permissionEntityRepository,
-                                  List<SnapshotCodec> snapshotCodecs) {
-        this.sessionEntityRepository = sessionEntityRepository;
-        this.sessionSnapshotEntityRepository = sessionSnapshotEntityRepository;
-        this.permissionEntityRepository = permissionEntityRepository;
+    public SessionServiceEmbedded(SessionStorage sessionStorage,
+                                  SessionHeaderStorage sessionHeaderStorage,
+                                  SessionOwnerStorage sessionOwnerStorage,
+                                  SessionChainStorage sessionChainStorage,
+                                  SessionSectionStorage sessionSectionStorage,
+                                  PermissionRegistry permissionRegistry,
+                                  List<SnapshotCodec> snapshotCodecs,
+                                  SessionServiceEmbeddedSnapshotProperties snapshotProperties,
+                                  SessionSnapshotCache sessionSnapshotCache,
+                                  SessionExpiryPolicy sessionExpiryPolicy,
+                                  SessionServiceEmbeddedUpdateProperties updateProperties,
+                                  SessionServiceEmbeddedBatchProperties batchProperties,
+                                  SessionMetrics sessionMetrics,
+                                  SessionWriteBehindBuffer writeBehindBuffer,
+                                  SessionUpdateCombiner sessionUpdateCombiner,
+                                  PlatformTransactionManager transactionManager) {
+        this.sessionStorage = sessionStorage;
+        this.sessionHeaderStorage = sessionHeaderStorage;
+        this.sessionOwnerStorage = sessionOwnerStorage;
+        this.sessionChainStorage = sessionChainStorage;
+        this.sessionSectionStorage = sessionSectionStorage;
+        this.permissionRegistry = permissionRegistry;
         this.snapshotCodecs = snapshotCodecs.stream()
                 .collect(Collectors.toMap(SnapshotCodec::getType, Function.identity()));
+        this.compressionCodecs = snapshotCodecs.stream()
+                .filter(SnapshotDeflateCodec.class::isInstance)
+                .map(SnapshotDeflateCodec.class::cast)
+                .collect(Collectors.toMap(it -> it.getDelegate().getType(), Function.identity()));
+        this.snapshotProperties = snapshotProperties;
+        this.sessionSnapshotCache = sessionSnapshotCache;
+        this.sessionExpiryPolicy = sessionExpiryPolicy;
+        this.updateProperties = updateProperties;
+        this.batchProperties = batchProperties;
+        this.sessionMetrics = sessionMetrics;
+        this.writeBehindBuffer = writeBehindBuffer;
+        this.sessionUpdateCombiner = sessionUpdateCombiner;
+        this.updateTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.updateTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
     @Nonnull
     @Override
     @Transactional
     public GetSessionRs get(@Nonnull SessionId sessionId) {
-        var sessionSnapshot = getSessionSnapshotEntity(sessionId);
-
-        var session = buildLocalSession(sessionId, sessionSnapshot);
-        return new GetSessionRs(session);
+        var startTime = sessionMetrics.startTime();
+        try {
+            var session = getCachedSession(sessionId).getSession();
+            return new GetSessionRs(session);
+        } finally {
+            sessionMetrics.recordOperation(SessionMetrics.OPERATION_GET, startTime);
+        }
     }
 
     @Nonnull
     @Override
     @Transactional
     public GetSessionRs get(@Nonnull String uid) {
-        var sessionSnapshot = sessionSnapshotEntityRepository.findTopByEntityIdUidOrderByEntityIdVersionAsc(uid)
-                .orElseThrow(() -> new SessionNotFoundException(uid));
+        var startTime = sessionMetrics.startTime();
+        try {
+            sessionSnapshotCache.startRead();
+            var bufferedVersion = writeBehindBuffer.findLatestVersion(uid);
+            if (bufferedVersion.isPresent()) {
+                var session = getCachedSession(SessionId.of(uid, bufferedVersion.get())).getSession();
+                return new GetSessionRs(session);
+            }
 
-        var snapshotId = sessionSnapshot.getEntityId();
-        var sessionId = SessionId.of(snapshotId.getUid(), snapshotId.getVersion());
+            var fetchStartTime = sessionMetrics.startTime();
+            var sessionSnapshot = sessionStorage.findLatestSnapshot(uid)
+                    .orElseThrow(() -> new SessionNotFoundException(uid));
+            sessionMetrics.recordPhase(SessionMetrics.PHASE_FETCH, fetchStartTime);
 
-        var session = buildLocalSession(sessionId, sessionSnapshot);
-        return new GetSessionRs(session);
+            var expiresAt = touchSession(sessionSnapshot.getSession());
+
+            var snapshotId = sessionSnapshot.getEntityId();
+            var sessionId = SessionId.of(snapshotId.getUid(), snapshotId.getVersion());
+
+            var session = sessionSnapshotCache.find(snapshotId)
+                    .map(CachedSession::getSession)
+                    .orElseGet(() -> cacheSession(sessionId, sessionSnapshot, expiresAt).getSession());
+            return new GetSessionRs(session);
+        } finally {
+            sessionMetrics.recordOperation(SessionMetrics.OPERATION_GET_BY_UID, startTime);
+        }
     }
 
     @Nonnull
     @Override
+    @Transactional
     public GetAttributeNamesRs getAttributeNames(@Nonnull GetSessionAttributeNamesRq rq) {
-        var sessionId = rq.sessionId();
-        var section = rq.section();
+        var startTime = sessionMetrics.startTime();
+        try {
+            var sessionId = rq.sessionId();
+            var section = rq.section();
 
-        var sessionSnapshot = getSessionSnapshotEntity(sessionId);
-
-        var attributes = getSnapshotAttributes(sessionSnapshot);
+            var cachedSession = findCachedSession(sessionId);
+            if (cachedSession.isPresent()) {
+                var attributeNames = Optional.ofNullable(cachedSession.get().getSession().getAttributes())
+                        .map(it -> it.get(section))
+                        .map(Map::keySet)
+                        .orElseGet(Collections::emptySet);
+                return new GetAttributeNamesRs(attributeNames);
+            }
 
-        var attributeNames = Optional.ofNullable(attributes)
-                .map(it -> it.get(section))
-                .map(Map::keySet)
-                .orElseGet(Collections::emptySet);
-        return new GetAttributeNamesRs(attributeNames);
+            var sessionSnapshot = getSnapshotContent(sessionId);
+            var attributeNames = getSnapshotAttributeNames(sessionSnapshot, section);
+            return new GetAttributeNamesRs(attributeNames);
+        } finally {
+            sessionMetrics.recordOperation(SessionMetrics.OPERATION_GET_ATTRIBUTE_NAMES, startTime);
+        }
     }
 
     @Nonnull
     @Override
+    @Transactional
     public <T extends Serializable> GetSessionAttributeRs<T> getAttribute(@Nonnull GetSessionAttributeRq rq) {
-        var sessionSnapshot = getSessionSnapshotEntity(rq.sessionId());
+        var startTime = sessionMetrics.startTime();
+        try {
+            var sessionId = rq.sessionId();
+            var section = rq.section();
+            var attributeName = rq.attribute();
+
+            var cachedSession = findCachedSession(sessionId);
+            if (cachedSession.isPresent()) {
+                var attribute = Optional.ofNullable(cachedSession.get().getSession().getAttributes())
+                        .map(it -> it.get(section))
+                        .map(it -> (T) it.get(attributeName))
+                        .orElse(null);
+                return new GetSessionAttributeRs<>(attribute);
+            }
+
+            var sessionSnapshot = getSnapshotContent(sessionId);
+            var attribute = (T) getSnapshotAttribute(sessionSnapshot, section, attributeName);
+            return new GetSessionAttributeRs<>(attribute);
+        } finally {
+            sessionMetrics.recordOperation(SessionMetrics.OPERATION_GET_ATTRIBUTE, startTime);
+        }
+    }
+
+    @Nonnull
+    @Override
+    @Transactional
+    public List<Session> getAll(@Nonnull Collection<SessionId> sessionIds) {
+        var startTime = sessionMetrics.startTime();
+        try {
+            var sessions = new HashMap<SessionSnapshotEntityId, Session>(sessionIds.size());
+            var missedIds = new LinkedHashSet<SessionSnapshotEntityId>();
+            for (var sessionId : sessionIds) {
+                var snapshotId = toSnapshotId(sessionId);
+                if (sessions.containsKey(snapshotId) || missedIds.contains(snapshotId)) {
+                    continue;
+                }
+                findCachedSession(sessionId).ifPresentOrElse(
+                        it -> sessions.put(snapshotId, it.getSession()),
+                        () -> missedIds.add(snapshotId)
+                );
+            }
+
+            var lookupSize = Math.max(batchProperties.getLookupSize(), 1);
+            var missedIdList = new ArrayList<>(missedIds);
+            for (int from = 0; from < missedIdList.size(); from += lookupSize) {
+                var lookupIds = missedIdList.subList(from, Math.min(from + lookupSize, missedIdList.size()));
+                var fetchStartTime = sessionMetrics.startTime();
+                var sessionSnapshots = sessionStorage.findAllSnapshots(lookupIds);
+                sessionMetrics.recordPhase(SessionMetrics.PHASE_FETCH, fetchStartTime);
+                for (var sessionSnapshot : sessionSnapshots) {
+                    var snapshotId = sessionSnapshot.getEntityId();
+                    var expiresAt = touchSession(sessionSnapshot.getSession());
+                    var sessionId = SessionId.of(snapshotId.getUid(), snapshotId.getVersion());
+                    sessions.put(snapshotId, cacheSession(sessionId, sessionSnapshot, expiresAt).getSession());
+                }
+            }
+
+            var result = new ArrayList<Session>(sessionIds.size());
+            for (var sessionId : sessionIds) {
+                var session = sessions.get(toSnapshotId(sessionId));
+                if (session == null) {
+                    throw new SessionNotFoundException(sessionId.getUID());
+                }
+                result.add(session);
+            }
+            return result;
+        } finally {
+            sessionMetrics.recordOperation(SessionMetrics.OPERATION_GET_ALL, startTime);
+        }
+    }
+
+    @Nonnull
+    @Override
+    @Transactional
+    public Map<String, Map<String, Serializable>> getAttributes(
+            @Nonnull SessionId sessionId,
+            @Nonnull Map<String, ? extends Collection<String>> attributeNames
+    ) {
+        var startTime = sessionMetrics.startTime();
+        try {
+            var cachedSession = findCachedSession(sessionId);
+            if (cachedSession.isPresent()) {
+                return SnapshotCodec.selectAttributes(cachedSession.get().getSession().getAttributes(), attributeNames);
+            }
+
+            var sessionSnapshot = getSnapshotContent(sessionId);
+            return getSnapshotAttributes(sessionSnapshot, attributeNames);
+        } finally {
+            sessionMetrics.recordOperation(SessionMetrics.OPERATION_GET_ATTRIBUTES, startTime);
+        }
+    }
+
+    @Nonnull
+    @Override
+    @Transactional
+    public List<SessionId> getOwnerSessionIds(@Nonnull SessionOwnerType ownerType,
+                                              @Nonnull String ownerId,
+                                              @Nullable String afterUid,
+                                              int limit) {
+        var startTime = sessionMetrics.startTime();
+        try {
+            var fetchStartTime = sessionMetrics.startTime();
+            var sessionVersions = sessionOwnerStorage.findAllVersionsByOwner(
+                    ownerType,
+                    ownerId,
+                    afterUid == null ? "" : afterUid,
+                    ZonedDateTime.now(),
+                    limit
+            );
+            sessionMetrics.recordPhase(SessionMetrics.PHASE_FETCH, fetchStartTime);
+
+            var sessionIds = new ArrayList<SessionId>(sessionVersions.size());
+            for (var sessionVersion : sessionVersions) {
+                var uid = sessionVersion.getUid();
+                var latestVersion = writeBehindBuffer.findLatestVersion(uid)
+                        .orElse(sessionVersion.getLatestVersion());
+                sessionIds.add(SessionId.of(uid, latestVersion));
+            }
+            return sessionIds;
+        } finally {
+            sessionMetrics.recordOperation(SessionMetrics.OPERATION_GET_OWNER_SESSION_IDS, startTime);
+        }
+    }
+
+    @Nonnull
+    @Override
+    public Stream<SessionId> streamOwnerSessionIds(@Nonnull SessionOwnerType ownerType, @Nonnull String ownerId) {
+        var pageSize = Math.max(batchProperties.getLookupSize(), 1);
+        return Stream.iterate(
+                        getOwnerSessionIds(ownerType, ownerId, null, pageSize),
+                        page -> !page.isEmpty(),
+                        page -> page.size() < pageSize ?
+                                List.of() :
+                                getOwnerSessionIds(ownerType, ownerId, page.getLast().getUID(), pageSize)
+                )
+                .flatMap(List::stream);
+    }
+
+    @Nonnull
+    @Override
+    @Transactional
+    public List<Session> getOwnerSessions(@Nonnull SessionOwnerType ownerType,
+                                          @Nonnull String ownerId,
+                                          @Nullable String afterUid,
+                                          int limit) {
+        var startTime = sessionMetrics.startTime();
+        try {
+            sessionSnapshotCache.startRead();
+            var fetchStartTime = sessionMetrics.startTime();
+            var sessionSnapshots = sessionOwnerStorage.findAllLatestSnapshotsByOwner(
+                    ownerType,
+                    ownerId,
+                    afterUid == null ? "" : afterUid,
+                    ZonedDateTime.now(),
+                    limit
+            );
+            sessionMetrics.recordPhase(SessionMetrics.PHASE_FETCH, fetchStartTime);
+
+            var sessions = new ArrayList<Session>(sessionSnapshots.size());
+            for (var sessionSnapshot : sessionSnapshots) {
+                var snapshotId = sessionSnapshot.getEntityId();
+                var uid = snapshotId.getUid();
+                var bufferedSession = writeBehindBuffer.findLatestVersion(uid)
+                        .flatMap(it -> writeBehindBuffer.find(toSnapshotId(SessionId.of(uid, it))));
+                if (bufferedSession.isPresent()) {
+                    sessions.add(bufferedSession.get().getSession());
+                    continue;
+                }
+                var sessionId = SessionId.of(uid, snapshotId.getVersion());
+                var expiresAt = sessionSnapshot.getSession().getExpiresAt();
+                var session = sessionSnapshotCache.find(snapshotId)
+                        .map(CachedSession::getSession)
+                        .orElseGet(() -> cacheSession(sessionId, sessionSnapshot, expiresAt).getSession());
+                sessions.add(session);
+            }
+            return sessions;
+        } finally {
+            sessionMetrics.recordOperation(SessionMetrics.OPERATION_GET_OWNER_SESSIONS, startTime);
+        }
+    }
+
+    @Override
+    @Transactional
+    public long countOwnerSessions(@Nonnull SessionOwnerType ownerType, @Nonnull String ownerId) {
+        var startTime = sessionMetrics.startTime();
+        try {
+            return sessionOwnerStorage.countByOwner(ownerType, ownerId, ZonedDateTime.now());
+        } finally {
+            sessionMetrics.recordOperation(SessionMetrics.OPERATION_COUNT_OWNER_SESSIONS, startTime);
+        }
+    }
+
+    @Override
+    public int invalidateOwnerSessions(@Nonnull SessionOwnerType ownerType, @Nonnull String ownerId) {
+        var startTime = sessionMetrics.startTime();
+        try {
+            if (writeBehindBuffer.isEnabled()) {
+                // buffered versions are served with expiration time, known at update, so they are persisted first
+                writeBehindBuffer.flush();
+            }
+            var invalidated = updateTransactionTemplate.execute(status -> {
+                sessionSnapshotCache.evictOwnerAfterCommit(ownerType, ownerId);
+                return sessionOwnerStorage.expireAllByOwner(ownerType, ownerId, ZonedDateTime.now());
+            });
+            return invalidated == null ? 0 : invalidated;
+        } finally {
+            sessionMetrics.recordOperation(SessionMetrics.OPERATION_INVALIDATE_OWNER_SESSIONS, startTime);
+        }
+    }
+
+    private Map<String, Map<String, Serializable>> getSnapshotAttributes(
+            StoredSnapshot sessionSnapshot,
+            Map<String, ? extends Collection<String>> attributeNames
+    ) {
+        if (sessionSnapshot.getSnapshotType() == SnapshotCodecType.SECTIONS) {
+            var attributes = getSectionAttributes(sessionSnapshot, attributeNames.keySet());
+            return SnapshotCodec.selectAttributes(attributes, attributeNames);
+        }
+        if (sessionSnapshot.getBaseVersion() == null) {
+            var decodeStartTime = sessionMetrics.startTime();
+            var attributes = getSnapshotCodec(sessionSnapshot.getSnapshotType())
+                    .getAttributes(sessionSnapshot.getSnapshot(), attributeNames);
+            sessionMetrics.recordPhase(SessionMetrics.PHASE_DECODE, decodeStartTime);
+            sessionMetrics.recordDecoded(sessionSnapshot.getSnapshotType(), sessionSnapshot.getSnapshot().length);
+            return attributes;
+        }
+        var snapshotChain = getSnapshotChain(sessionSnapshot);
+
+        // only requested attributes are read from base snapshot, deltas are applied to them
+        var attributes = SessionAttributesUpdater.makeMutableAttributes(
+                getSnapshotAttributes(snapshotChain.getFirst(), attributeNames)
+        );
+        for (var deltaSnapshot : snapshotChain.subList(1, snapshotChain.size())) {
+            var delta = SnapshotDelta.fromSnapshot(decodeSnapshot(deltaSnapshot));
+            delta.applyTo(attributes);
+        }
+        return SnapshotCodec.selectAttributes(attributes, attributeNames);
+    }
+
+    private Map<String, Map<String, Serializable>> getSnapshotAttributes(StoredSnapshot sessionSnapshot) {
+        if (sessionSnapshot.getSnapshotType() == SnapshotCodecType.SECTIONS) {
+            return getSectionAttributes(sessionSnapshot, null);
+        }
+        if (sessionSnapshot.getBaseVersion() == null) {
+            return decodeSnapshot(sessionSnapshot);
+        }
+        var snapshotChain = getSnapshotChain(sessionSnapshot);
+
+        // base snapshot is a full snapshot, but it may be stored in the section split layout
+        var attributes = SessionAttributesUpdater.makeMutableAttributes(getSnapshotAttributes(snapshotChain.getFirst()));
+        for (var deltaSnapshot : snapshotChain.subList(1, snapshotChain.size())) {
+            var delta = SnapshotDelta.fromSnapshot(decodeSnapshot(deltaSnapshot));
+            delta.applyTo(attributes);
+        }
+        return attributes;
+    }
+
+    private Set<String> getSnapshotAttributeNames(StoredSnapshot sessionSnapshot, String section) {
+        if (sessionSnapshot.getSnapshotType() == SnapshotCodecType.SECTIONS) {
+            return findSectionSnapshot(sessionSnapshot, section)
+                    .map(it -> getSnapshotCodec(it.getSnapshotType()).getAttributeNames(it.getSnapshot(), section))
+                    .orElseGet(Collections::emptySet);
+        }
+        if (sessionSnapshot.getBaseVersion() == null) {
+            return getSnapshotCodec(sessionSnapshot.getSnapshotType())
+                    .getAttributeNames(sessionSnapshot.getSnapshot(), section);
+        }
+        var snapshotChain = getSnapshotChain(sessionSnapshot);
+
+        var attributeNames = new HashSet<>(getSnapshotAttributeNames(snapshotChain.getFirst(), section));
+        for (var deltaSnapshot : snapshotChain.subList(1, snapshotChain.size())) {
+            var delta = SnapshotDelta.fromSnapshot(decodeSnapshot(deltaSnapshot));
+            var changes = delta.getChanges().get(section);
+            if (changes != null) {
+                attributeNames.addAll(changes.keySet());
+            }
+            var removals = delta.getRemovals().get(section);
+            if (removals != null) {
+                attributeNames.removeAll(removals);
+            }
+        }
+        return attributeNames;
+    }
+
+    private Serializable getSnapshotAttribute(StoredSnapshot sessionSnapshot,
+                                              String section,
+                                              String attributeName) {
+        if (sessionSnapshot.getSnapshotType() == SnapshotCodecType.SECTIONS) {
+            return findSectionSnapshot(sessionSnapshot, section)
+                    .map(it -> getSnapshotCodec(it.getSnapshotType()).getAttribute(it.getSnapshot(), section, attributeName))
+                    .orElse(null);
+        }
+        if (sessionSnapshot.getBaseVersion() == null) {
+            return getSnapshotCodec(sessionSnapshot.getSnapshotType())
+                    .getAttribute(sessionSnapshot.getSnapshot(), section, attributeName);
+        }
+        var snapshotChain = getSnapshotChain(sessionSnapshot);
+
+        for (var deltaSnapshot : snapshotChain.subList(1, snapshotChain.size()).reversed()) {
+            var delta = SnapshotDelta.fromSnapshot(decodeSnapshot(deltaSnapshot));
+            var changes = delta.getChanges().get(section);
+            if (changes != null && changes.containsKey(attributeName)) {
+                return changes.get(attributeName);
+            }
+            var removals = delta.getRemovals().get(section);
+            if (removals != null && removals.contains(attributeName)) {
+                return null;
+            }
+        }
+        return getSnapshotAttribute(snapshotChain.getFirst(), section, attributeName);
+    }
+
+    /**
+     * Read session attributes, stored in the section split layout
+     *
+     * @param sessionSnapshot session snapshot of the split version
+     * @param sections        names of sections to read, null to read all sections
+     * @return session attributes
+     */
+    private Map<String, Map<String, Serializable>> getSectionAttributes(StoredSnapshot sessionSnapshot,
+                                                                       Collection<String> sections) {
+        var uid = sessionSnapshot.getUid();
+        var version = sessionSnapshot.getVersion();
+        var fetchStartTime = sessionMetrics.startTime();
+        var sectionSnapshots = sessionSectionStorage.findActualSectionSnapshots(uid, sections, version);
+        sessionMetrics.recordPhase(SessionMetrics.PHASE_FETCH, fetchStartTime);
+
+        var attributes = new HashMap<String, Map<String, Serializable>>(sectionSnapshots.size());
+        for (var sectionSnapshot : sectionSnapshots) {
+            if (sectionSnapshot.isRemoved()) {
+                continue;
+            }
+            var section = sectionSnapshot.getEntityId().getSection();
+            attributes.put(section, decodeSectionSnapshot(sectionSnapshot));
+        }
+        return attributes;
+    }
 
-        var attribute = Optional.ofNullable(getSnapshotAttributes(sessionSnapshot))
-                .map(it -> it.get(rq.section()))
-                .map(it -> (T) it.get(rq.attribute()))
-                .orElse(null);
-        return new GetSessionAttributeRs<>(attribute);
+    private Optional<SessionSectionSnapshotEntity> findSectionSnapshot(StoredSnapshot sessionSnapshot, String section) {
+        var fetchStartTime = sessionMetrics.startTime();
+        var sectionSnapshot = sessionSectionStorage.findActualSectionSnapshot(
+                sessionSnapshot.getUid(),
+                section,
+                sessionSnapshot.getVersion()
+        );
+        sessionMetrics.recordPhase(SessionMetrics.PHASE_FETCH, fetchStartTime);
+        return sectionSnapshot.filter(it -> !it.isRemoved());
     }
 
-    private Map<String, Map<String, Serializable>> getSnapshotAttributes(SessionSnapshotEntity sessionSnapshot) {
-        var snapshotCodec = getSnapshotCodec(sessionSnapshot.getSnapshotType());
-        return snapshotCodec.deserialize(sessionSnapshot.getSnapshot());
+    private Map<String, Serializable> decodeSectionSnapshot(SessionSectionSnapshotEntity sectionSnapshot) {
+        var startTime = sessionMetrics.startTime();
+        var snapshotType = sectionSnapshot.getSnapshotType();
+        var snapshot = sectionSnapshot.getSnapshot();
+        var attributes = getSnapshotCodec(snapshotType).deserialize(snapshot)
+                .get(sectionSnapshot.getEntityId().getSection());
+        sessionMetrics.recordPhase(SessionMetrics.PHASE_DECODE, startTime);
+        sessionMetrics.recordDecoded(snapshotType, snapshot.length);
+        return attributes == null ? new HashMap<>() : attributes;
+    }
+
+    /**
+     * Load snapshots from the base snapshot up to the passed delta snapshot
+     *
+     * @param sessionSnapshot delta snapshot
+     * @return ordered snapshot chain, starts from the base snapshot and ends with the passed snapshot
+     */
+    private List<StoredSnapshot> getSnapshotChain(StoredSnapshot sessionSnapshot) {
+        var baseVersion = sessionSnapshot.getBaseVersion();
+        var uid = sessionSnapshot.getUid();
+        var version = sessionSnapshot.getVersion();
+
+        var fetchStartTime = sessionMetrics.startTime();
+        var previousSnapshots = sessionChainStorage.findSnapshotChain(uid, baseVersion, version - 1);
+        sessionMetrics.recordPhase(SessionMetrics.PHASE_FETCH, fetchStartTime);
+        if (previousSnapshots.size() != version - baseVersion) {
+            throw new UnexpectedErrorException(
+                    "Snapshot chain %d..%d of session %s is broken".formatted(baseVersion, version, uid)
+            );
+        }
+        var snapshotChain = new ArrayList<StoredSnapshot>(previousSnapshots.size() + 1);
+        snapshotChain.addAll(previousSnapshots);
+        snapshotChain.add(sessionSnapshot);
+        sessionMetrics.recordChainDepth(snapshotChain.size());
+        return snapshotChain;
+    }
+
+    private Map<String, Map<String, Serializable>> decodeSnapshot(StoredSnapshot sessionSnapshot) {
+        var startTime = sessionMetrics.startTime();
+        var snapshotType = sessionSnapshot.getSnapshotType();
+        var snapshot = sessionSnapshot.getSnapshot();
+        var attributes = getSnapshotCodec(snapshotType).deserialize(snapshot);
+        sessionMetrics.recordPhase(SessionMetrics.PHASE_DECODE, startTime);
+        sessionMetrics.recordDecoded(snapshotType, snapshot.length);
+        return attributes;
     }
 
     @Nonnull
@@ -132,42 +609,162 @@ public class SessionServiceEmbedded implements SessionService {
             propagation = Propagation.REQUIRES_NEW
     )
     public CreateSessionRs create(@Nonnull CreateSessionRq rq) {
-        var snapshotCodec = getSnapshotCodec(DEFAULT_CODEC_TYPE);
-        var snapshot = snapshotCodec.serialize(rq.sections());
+        var startTime = sessionMetrics.startTime();
+        try {
+            var sessionIds = createSessions(List.of(rq));
+            return new CreateSessionRs(sessionIds.getFirst());
+        } finally {
+            sessionMetrics.recordOperation(SessionMetrics.OPERATION_CREATE, startTime);
+        }
+    }
 
-        var sessionUid = UUID.randomUUID().toString();
+    @Nonnull
+    @Override
+    @Transactional(
+            propagation = Propagation.REQUIRES_NEW
+    )
+    public List<SessionId> createAll(@Nonnull List<CreateSessionRq> rqs) {
+        var startTime = sessionMetrics.startTime();
+        try {
+            return createSessions(rqs);
+        } finally {
+            sessionMetrics.recordOperation(SessionMetrics.OPERATION_CREATE_ALL, startTime);
+        }
+    }
 
-        var permissionsEntities = rq.permissions()
-                .stream()
-                .map(this::getOrCreatePermission)
-                .toList();
+    /**
+     * Create sessions by batch inserts in current transaction
+     *
+     * @param rqs create session requests
+     * @return identifiers of created sessions, in order of requests
+     */
+    private List<SessionId> createSessions(List<CreateSessionRq> rqs) {
+        var codes = new ArrayList<String>();
+        for (var rq : rqs) {
+            codes.addAll(rq.permissions());
+        }
+        var permissionsStartTime = sessionMetrics.startTime();
+        var permissionsByCode = permissionRegistry.resolve(codes);
+        sessionMetrics.recordPhase(SessionMetrics.PHASE_PERMISSIONS, permissionsStartTime);
 
-        var sessionEntity = SessionEntity.builder()
-                .uid(sessionUid)
-                .ownerType(rq.ownerType())
-                .ownerId(rq.ownerId())
-                .createdAt(ZonedDateTime.now())
-                .permissions(permissionsEntities)
-                .build();
+        var createdAt = ZonedDateTime.now();
+        var sessionEntities = new ArrayList<SessionEntity>(rqs.size());
+        var sessionSnapshots = new ArrayList<SessionSnapshotEntity>(rqs.size());
+        var sectionSnapshots = new ArrayList<SessionSectionSnapshotEntity>();
+        var cachedSessions = new ArrayList<CachedSession>(rqs.size());
+        var sectionSplitEnabled = snapshotProperties.isSectionSplitEnabled();
+        for (var rq : rqs) {
+            var sessionUid = UUID.randomUUID().toString();
+            SnapshotEncoding encoding;
+            if (sectionSplitEnabled) {
+                var sections = rq.sections();
+                for (var section : sections.entrySet()) {
+                    sectionSnapshots.add(buildSectionSnapshot(sessionUid, 0, section.getKey(), section.getValue(), createdAt));
+                }
+                encoding = new SnapshotEncoding(null, new EncodedSnapshot(SnapshotCodecType.SECTIONS, EMPTY_SNAPSHOT));
+            } else {
+                encoding = encodeSnapshot(rq.sections(), null, Collections.emptySet());
+            }
+            var snapshot = encoding.stored();
 
-        sessionEntity = sessionEntityRepository.save(sessionEntity);
+            var permissionsEntities = rq.permissions()
+                    .stream()
+                    .map(permissionsByCode::get)
+                    .distinct()
+                    .toList();
+            var permissionIds = permissionRegistry.toIds(permissionsEntities);
 
-        var sessionSnapshot = SessionSnapshotEntity.builder()
-                .entityId(
-                        SessionSnapshotEntityId.builder()
-                                .uid(sessionUid)
-                                .version(0)
-                                .build()
-                )
-                .session(sessionEntity)
-                .snapshot(snapshot)
-                .snapshotType(DEFAULT_CODEC_TYPE)
-                .createdAt(ZonedDateTime.now())
-                .build();
+            var sessionEntity = SessionEntity.builder()
+                    .uid(sessionUid)
+                    .ownerType(rq.ownerType())
+                    .ownerId(rq.ownerId())
+                    .createdAt(createdAt)
+                    .expiresAt(sessionExpiryPolicy.getExpiresAt(rq.ownerType(), createdAt))
+                    .latestVersion(0)
+                    .permissions(permissionsEntities)
+                    .permissionIds(PermissionSet.encode(permissionIds))
+                    .build();
+            sessionEntities.add(sessionEntity);
+
+            sessionSnapshots.add(
+                    SessionSnapshotEntity.builder()
+                            .entityId(
+                                    SessionSnapshotEntityId.builder()
+                                            .uid(sessionUid)
+                                            .version(0)
+                                            .build()
+                            )
+                            .snapshot(snapshot.getSnapshot())
+                            .snapshotType(snapshot.getType())
+                            .createdAt(createdAt)
+                            .build()
+            );
 
-        sessionSnapshotEntityRepository.save(sessionSnapshot);
+            var session = LocalSession.builder()
+                    .id(SessionId.of(sessionUid, 0))
+                    .ownerType(rq.ownerType())
+                    .ownerId(rq.ownerId())
+                    .attributes(rq.sections())
+                    .permissions(permissionRegistry.toPermissionSet(permissionIds))
+                    .build();
+            cachedSessions.add(new CachedSession(session, sessionEntity.getExpiresAt(), encoding.reusable()));
+        }
 
-        return new CreateSessionRs(SessionId.of(sessionUid, 0));
+        var insertStartTime = sessionMetrics.startTime();
+        sessionStorage.createSessions(sessionEntities, sessionSnapshots, sectionSnapshots);
+        sessionMetrics.recordPhase(SessionMetrics.PHASE_INSERT, insertStartTime);
+
+        var sessionIds = new ArrayList<SessionId>(rqs.size());
+        for (int i = 0; i < sessionSnapshots.size(); i++) {
+            var cachedSession = cachedSessions.get(i);
+            sessionSnapshotCache.putAfterCommit(sessionSnapshots.get(i).getEntityId(), cachedSession);
+            sessionIds.add(cachedSession.getSession().getId());
+        }
+        return sessionIds;
+    }
+
+    private EncodedSnapshot encodeSnapshot(Map<String, Map<String, Serializable>> snapshotContent) {
+        return encodeSnapshot(snapshotContent, null, Collections.emptySet()).stored();
+    }
+
+    /**
+     * Serialize snapshot content by configured codec and compress it, if required
+     *
+     * @param snapshotContent snapshot content
+     * @param sourceSnapshot  not compressed snapshot, content is derived from, may be null
+     * @param changedSections names of sections, changed comparing to source snapshot
+     * @return encoded snapshot
+     */
+    private SnapshotEncoding encodeSnapshot(Map<String, Map<String, Serializable>> snapshotContent,
+                                            EncodedSnapshot sourceSnapshot,
+                                            Set<String> changedSections) {
+        var startTime = sessionMetrics.startTime();
+        var snapshotCodec = getSnapshotCodec(snapshotProperties.getCodec());
+        var source = sourceSnapshot != null && sourceSnapshot.getType() == snapshotCodec.getType() ?
+                sourceSnapshot.getSnapshot() :
+                null;
+        var serialized = new EncodedSnapshot(
+                snapshotCodec.getType(),
+                snapshotCodec.serialize(snapshotContent, source, changedSections)
+        );
+        var snapshot = compressSnapshot(serialized);
+        sessionMetrics.recordPhase(SessionMetrics.PHASE_ENCODE, startTime);
+        sessionMetrics.recordEncoded(snapshot.getType(), snapshot.getSnapshot().length);
+        return new SnapshotEncoding(snapshotCodec.isSectionReuseSupported() ? serialized : null, snapshot);
+    }
+
+    private EncodedSnapshot compressSnapshot(EncodedSnapshot serialized) {
+        var snapshot = serialized.getSnapshot();
+        if (snapshotProperties.isCompressionEnabled() && snapshot.length >= snapshotProperties.getCompressionThreshold()) {
+            var compressionCodec = compressionCodecs.get(serialized.getType());
+            if (compressionCodec != null) {
+                var compressed = compressionCodec.compress(snapshot);
+                if (compressed.length < snapshot.length) {
+                    return new EncodedSnapshot(compressionCodec.getType(), compressed);
+                }
+            }
+        }
+        return serialized;
     }
 
     private SnapshotCodec getSnapshotCodec(SnapshotCodecType snapshotCodecType) {
@@ -178,38 +775,133 @@ public class SessionServiceEmbedded implements SessionService {
         return snapshotCodec;
     }
 
-    private PermissionEntity getOrCreatePermission(String code) {
-        return permissionEntityRepository.findByCodeIgnoreCase(code)
-                .orElseGet(() -> {
-                            var permissionEntity = PermissionEntity.builder()
-                                    .code(code)
-                                    .build();
-                            return permissionEntityRepository.save(permissionEntity);
-                        }
-                );
-    }
-
     @Nonnull
     @Override
-    @Transactional(
-            propagation = Propagation.REQUIRES_NEW
-    )
     public UpdateSessionRs update(@Nonnull UpdateSessionRq rq) {
-        var sessionId = rq.sessionId();
+        var startTime = sessionMetrics.startTime();
+        try {
+            // transaction is opened per path, so queued coalesced and buffered updates don't hold a connection
+            if (writeBehindBuffer.isEnabled()) {
+                return new UpdateSessionRs(updateBuffered(rq));
+            }
+            if (sessionUpdateCombiner.isEnabled()) {
+                return new UpdateSessionRs(sessionUpdateCombiner.update(rq, this::updateCoalesced));
+            }
+            return new UpdateSessionRs(updateTransactionTemplate.execute(status -> updateSession(rq)));
+        } finally {
+            sessionMetrics.recordOperation(SessionMetrics.OPERATION_UPDATE, startTime);
+        }
+    }
 
-        var sessionEntity = getSessionSnapshotEntity(sessionId);
-        var session = buildLocalSession(sessionId, sessionEntity);
+    private SessionId updateSession(UpdateSessionRq rq) {
+        var requestedSessionId = rq.sessionId();
+        var uid = requestedSessionId.getUID();
+        var sourceVersion = acquireNextVersion(uid, requestedSessionId.getVersion());
+        var sessionId = sourceVersion == requestedSessionId.getVersion() ?
+                requestedSessionId :
+                SessionId.of(uid, sourceVersion);
+
+        var cachedSession = getCachedSession(sessionId);
+        var session = cachedSession.getSession();
 
         var modificationQuery = rq.modificationQuery();
-        var attributes = updateAttributes(modificationQuery, session);
+        var applyStartTime = sessionMetrics.startTime();
+        var attributes = SessionAttributesUpdater.updateAttributes(modificationQuery, session.getAttributes());
+        sessionMetrics.recordPhase(SessionMetrics.PHASE_APPLY, applyStartTime);
+
+        return writeNextVersion(sessionId, cachedSession, attributes, modificationQuery.actions());
+    }
 
-        var snapshotCodec = getSnapshotCodec(DEFAULT_CODEC_TYPE);
-        var snapshot = snapshotCodec.serialize(attributes);
+    /**
+     * Merge queued updates of the same session into a single new version.
+     * <p>
+     * Updates are applied one by one to the latest session version, as if each one was rebased onto the previous.
+     * Update, which fails on apply, doesn't affect others. Update of outdated version is rejected,
+     * if rebase is disabled or max rebase attempts is less than one, the same as without coalescing.
+     *
+     * @param uid     session uid
+     * @param updates queued updates, in order of arrival
+     */
+    private void updateCoalesced(String uid, List<SessionUpdateCombiner.Update> updates) {
+        var latestVersion = sessionStorage.findLatestVersion(uid)
+                .orElseThrow(() -> new SessionNotFoundException(uid));
+        var sourceSessionId = SessionId.of(uid, latestVersion);
+        var cachedSession = getCachedSession(sourceSessionId);
 
-        var uid = sessionId.getUID();
-        var newVersion = sessionId.getVersion() + 1;
+        var applyStartTime = sessionMetrics.startTime();
+        var attributes = new HashMap<>(cachedSession.getSession().getAttributes());
+        var copiedSections = new HashSet<String>();
+        var actions = new ArrayList<Action>();
+        var applied = new ArrayList<SessionUpdateCombiner.Update>(updates.size());
+        for (var update : updates) {
+            var requestedVersion = update.getRq().sessionId().getVersion();
+            if (requestedVersion > latestVersion) {
+                update.fail(new SessionNotFoundException(uid));
+                continue;
+            }
+            if (requestedVersion < latestVersion &&
+                    (!updateProperties.isRebaseEnabled() || updateProperties.getRebaseMaxAttempts() < 1)) {
+                update.fail(new SessionVersionConflictException(uid, requestedVersion, latestVersion));
+                continue;
+            }
+            var modificationQuery = update.getRq().modificationQuery();
+            try {
+                SessionAttributesUpdater.applyAttributes(modificationQuery, attributes, copiedSections);
+            } catch (RuntimeException e) {
+                update.fail(e);
+                continue;
+            }
+            actions.addAll(modificationQuery.actions());
+            applied.add(update);
+        }
+        sessionMetrics.recordPhase(SessionMetrics.PHASE_APPLY, applyStartTime);
+        if (applied.isEmpty()) {
+            return;
+        }
+
+        if (!sessionHeaderStorage.compareAndSetLatestVersion(uid, latestVersion, latestVersion + 1)) {
+            var actualVersion = sessionStorage.findLatestVersion(uid)
+                    .orElseThrow(() -> new SessionNotFoundException(uid));
+            throw new SessionVersionConflictException(uid, latestVersion, actualVersion);
+        }
+        var newSessionId = writeNextVersion(sourceSessionId, cachedSession, attributes, actions);
+        for (var update : applied) {
+            update.complete(newSessionId);
+        }
+    }
+
+    /**
+     * Store the next session version in current transaction. Latest version should be already acquired.
+     *
+     * @param sourceSessionId source session identifier
+     * @param cachedSession   source session
+     * @param attributes      modified session attributes
+     * @param actions         applied actions
+     * @return identifier of the new version
+     */
+    private SessionId writeNextVersion(SessionId sourceSessionId,
+                                       CachedSession cachedSession,
+                                       Map<String, Map<String, Serializable>> attributes,
+                                       Collection<? extends Action> actions) {
+        var uid = sourceSessionId.getUID();
+        var newVersion = sourceSessionId.getVersion() + 1;
         var newSnapshotId = SessionId.of(uid, newVersion);
 
+        var createdAt = ZonedDateTime.now();
+        Long baseVersion = null;
+        SnapshotEncoding encoding;
+        if (snapshotProperties.isSectionSplitEnabled()) {
+            writeSectionSnapshots(sourceSessionId, attributes, actions, createdAt);
+            encoding = new SnapshotEncoding(null, new EncodedSnapshot(SnapshotCodecType.SECTIONS, EMPTY_SNAPSHOT));
+        } else {
+            baseVersion = getDeltaBaseVersion(sourceSessionId, newVersion);
+            // full snapshot reuses encoded unchanged sections of the source, delta is small and encoded as is
+            encoding = baseVersion == null ?
+                    encodeSnapshot(attributes, cachedSession.getSnapshot(), getChangedSections(actions)) :
+                    encodeSnapshot(SnapshotDelta.of(attributes, actions).toSnapshot(), null, Collections.emptySet());
+        }
+        var snapshot = encoding.stored();
+
         var sessionSnapshot = SessionSnapshotEntity.builder()
                 .entityId(
                         SessionSnapshotEntityId.builder()
@@ -217,99 +909,359 @@ public class SessionServiceEmbedded implements SessionService {
                                 .version(newVersion)
                                 .build()
                 )
-                .session(sessionEntity.getSession())
-                .snapshot(snapshot)
-                .snapshotType(DEFAULT_CODEC_TYPE)
+                .snapshot(snapshot.getSnapshot())
+                .snapshotType(snapshot.getType())
+                .baseVersion(baseVersion)
+                .createdAt(createdAt)
+                .build();
+
+        var insertStartTime = sessionMetrics.startTime();
+        sessionStorage.appendSnapshot(sessionSnapshot);
+        sessionMetrics.recordPhase(SessionMetrics.PHASE_INSERT, insertStartTime);
+        sessionMetrics.recordVersion(newVersion);
+
+        var updatedSession = buildUpdatedSession(newSnapshotId, cachedSession.getSession(), attributes);
+        sessionSnapshotCache.putAfterCommit(
+                sessionSnapshot.getEntityId(),
+                new CachedSession(
+                        updatedSession,
+                        cachedSession.getExpiresAt(),
+                        baseVersion == null ? encoding.reusable() : null
+                )
+        );
+        return newSnapshotId;
+    }
+
+    /**
+     * Build the next session version and hand it over to write-behind buffer.
+     * <p>
+     * Buffered version is always stored as a full snapshot, so its flush doesn't depend on other buffered versions.
+     * Versions of the same session are built sequentially, so outdated source version is rebased at most once.
+     * Version is built in a transaction, opened after a free place in buffer is acquired.
+     *
+     * @param rq update session request
+     * @return identifier of buffered version
+     */
+    private SessionId updateBuffered(UpdateSessionRq rq) {
+        var uid = rq.sessionId().getUID();
+        return writeBehindBuffer.write(
+                uid,
+                bufferedLatestVersion -> updateTransactionTemplate.execute(
+                        status -> buildBufferedVersion(rq, bufferedLatestVersion)
+                )
+        );
+    }
+
+    private PendingSnapshot buildBufferedVersion(UpdateSessionRq rq, Long bufferedLatestVersion) {
+        var requestedSessionId = rq.sessionId();
+        var uid = requestedSessionId.getUID();
+        var latestVersion = bufferedLatestVersion != null ?
+                bufferedLatestVersion :
+                sessionStorage.findLatestVersion(uid)
+                        .orElseThrow(() -> new SessionNotFoundException(uid));
+        var sourceVersion = requestedSessionId.getVersion();
+        if (sourceVersion > latestVersion) {
+            throw new SessionNotFoundException(uid);
+        }
+        if (sourceVersion < latestVersion) {
+            if (!updateProperties.isRebaseEnabled() || updateProperties.getRebaseMaxAttempts() < 1) {
+                throw new SessionVersionConflictException(uid, sourceVersion, latestVersion);
+            }
+            sourceVersion = latestVersion;
+        }
+
+        var cachedSession = getCachedSession(SessionId.of(uid, sourceVersion));
+        var session = cachedSession.getSession();
+
+        var applyStartTime = sessionMetrics.startTime();
+        var attributes = SessionAttributesUpdater.updateAttributes(rq.modificationQuery(), session.getAttributes());
+        sessionMetrics.recordPhase(SessionMetrics.PHASE_APPLY, applyStartTime);
+
+        var newVersion = sourceVersion + 1;
+        var encoding = encodeSnapshot(
+                attributes,
+                cachedSession.getSnapshot(),
+                getChangedSections(rq.modificationQuery().actions())
+        );
+        var snapshot = encoding.stored();
+
+        var sessionSnapshot = SessionSnapshotEntity.builder()
+                .entityId(
+                        SessionSnapshotEntityId.builder()
+                                .uid(uid)
+                                .version(newVersion)
+                                .build()
+                )
+                .snapshot(snapshot.getSnapshot())
+                .snapshotType(snapshot.getType())
                 .createdAt(ZonedDateTime.now())
                 .build();
+        sessionMetrics.recordVersion(newVersion);
 
-        sessionSnapshotEntityRepository.save(sessionSnapshot);
+        var updatedSession = buildUpdatedSession(SessionId.of(uid, newVersion), session, attributes);
+        return new PendingSnapshot(
+                sessionSnapshot,
+                new CachedSession(updatedSession, cachedSession.getExpiresAt(), encoding.reusable())
+        );
+    }
 
-        return new UpdateSessionRs(newSnapshotId);
+    /**
+     * Write snapshots of sections, changed in the next session version.
+     * <p>
+     * If source version is not stored in the section split layout, all sections are written,
+     * and sections left from older split versions are stored as removed.
+     *
+     * @param sourceSessionId source session identifier
+     * @param attributes      modified session attributes
+     * @param actions         applied actions
+     * @param createdAt       version creation time
+     */
+    private void writeSectionSnapshots(SessionId sourceSessionId,
+                                       Map<String, Map<String, Serializable>> attributes,
+                                       Collection<? extends Action> actions,
+                                       ZonedDateTime createdAt) {
+        var uid = sourceSessionId.getUID();
+        var sourceVersion = sourceSessionId.getVersion();
+        var sourceSnapshotType = sessionSectionStorage.findSnapshotType(uid, sourceVersion)
+                .orElseThrow(() -> new SessionNotFoundException(uid));
+
+        Set<String> changedSections;
+        if (sourceSnapshotType == SnapshotCodecType.SECTIONS) {
+            changedSections = getChangedSections(actions);
+        } else {
+            changedSections = new HashSet<>(attributes.keySet());
+            changedSections.addAll(sessionSectionStorage.findActualSectionNames(uid, sourceVersion));
+        }
+
+        var sectionSnapshots = new ArrayList<SessionSectionSnapshotEntity>(changedSections.size());
+        for (var section : changedSections) {
+            sectionSnapshots.add(buildSectionSnapshot(uid, sourceVersion + 1, section, attributes.get(section), createdAt));
+        }
+        var insertStartTime = sessionMetrics.startTime();
+        sessionSectionStorage.appendSectionSnapshots(sectionSnapshots);
+        sessionMetrics.recordPhase(SessionMetrics.PHASE_INSERT, insertStartTime);
     }
 
-    private static HashMap<String, Map<String, Serializable>> updateAttributes(
-            ModificationQuery modificationQuery,
-            LocalSession session
-    ) {
-        var attributes = makeMutableAttributes(session);
+    private SessionSectionSnapshotEntity buildSectionSnapshot(String uid,
+                                                              long version,
+                                                              String section,
+                                                              Map<String, Serializable> sectionAttributes,
+                                                              ZonedDateTime createdAt) {
+        var sectionSnapshot = SessionSectionSnapshotEntity.builder()
+                .entityId(
+                        SessionSectionSnapshotEntityId.builder()
+                                .uid(uid)
+                                .section(section)
+                                .version(version)
+                                .build()
+                )
+                .createdAt(createdAt);
+        if (sectionAttributes != null) {
+            var snapshot = encodeSnapshot(Map.of(section, sectionAttributes));
+            sectionSnapshot.snapshot(snapshot.getSnapshot())
+                    .snapshotType(snapshot.getType());
+        }
+        return sectionSnapshot.build();
+    }
 
-        var actions = modificationQuery.actions();
+    private static Set<String> getChangedSections(Collection<? extends Action> actions) {
+        var changedSections = new HashSet<String>();
         for (var action : actions) {
-            var section = action.getSection();
-            var attributeName = action.getAttributeName();
-
-            var sectionAttributes = attributes.computeIfAbsent(section, k -> new HashMap<>());
-            proceedAction(action, sectionAttributes, attributeName, section);
+            changedSections.add(action.getSection());
         }
-        return attributes;
+        return changedSections;
     }
 
-    private static void proceedAction(Action action,
-                                      Map<String, Serializable> sectionAttributes,
-                                      String attributeName,
-                                      String section) {
-        switch (action) {
-            case AddAction addAction -> {
-                var attributeValue = addAction.getAttributeValue();
+    private static LocalSession buildUpdatedSession(SessionId sessionId,
+                                                    LocalSession session,
+                                                    Map<String, Map<String, Serializable>> attributes) {
+        return LocalSession.builder()
+                .id(sessionId)
+                .ownerType(session.getOwnerType())
+                .ownerId(session.getOwnerId())
+                .attributes(attributes)
+                .permissions(session.getPermissions())
+                .build();
+    }
 
-                if (sectionAttributes.put(attributeName, attributeValue) != null) {
-                    throw new AttributeAlreadyExistsException(
-                            "Attribute %s already exists in section %s".formatted(attributeName, section)
-                    );
-                }
+    /**
+     * Move session latest version from the source version to the next one.
+     * <p>
+     * Source version is checked against the latest version before any snapshot work is done.
+     * If rebase is enabled, outdated source version is replaced by the latest version
+     * up to configured count of attempts, otherwise conflict is reported.
+     * Session row stays locked till the end of transaction, so concurrent update of the same version fails fast.
+     *
+     * @param uid           session uid
+     * @param sourceVersion requested source version
+     * @return actual source version
+     */
+    private long acquireNextVersion(String uid, long sourceVersion) {
+        var expectedVersion = sourceVersion;
+        var rebaseAttempts = 0;
+        while (true) {
+            var latestVersion = sessionStorage.findLatestVersion(uid)
+                    .orElseThrow(() -> new SessionNotFoundException(uid));
+            if (expectedVersion > latestVersion) {
+                throw new SessionNotFoundException(uid);
             }
-            case SetAction setAction -> {
-                if (!sectionAttributes.containsKey(attributeName)) {
-                    var addIfNotExists = setAction.isAddIfNotExists();
-                    if (!addIfNotExists) {
-                        throw new AttributeNotExistsException(
-                                "Attribute '%s' not found in section %s".formatted(attributeName, section)
-                        );
-                    }
-                }
-                var attributeValue = setAction.getAttributeValue();
-                sectionAttributes.put(attributeName, attributeValue);
+            if (expectedVersion == latestVersion &&
+                    sessionHeaderStorage.compareAndSetLatestVersion(uid, expectedVersion, expectedVersion + 1)) {
+                return expectedVersion;
             }
-            case DeleteAction ignored -> {
-                if (sectionAttributes.remove(attributeName) != null) {
-                    return;
-                }
-                throw new AttributeNotExistsException(
-                        "Attribute '%s' not found in section %s".formatted(attributeName, section)
-                );
+            if (!updateProperties.isRebaseEnabled() || rebaseAttempts >= updateProperties.getRebaseMaxAttempts()) {
+                throw new SessionVersionConflictException(uid, sourceVersion, latestVersion);
             }
-            default -> throw new UnexpectedErrorException("Unsupported action '%s'".formatted(action));
+            rebaseAttempts++;
+            expectedVersion = latestVersion;
         }
     }
 
-    private static HashMap<String, Map<String, Serializable>> makeMutableAttributes(LocalSession session) {
-        var sourceAttributes = session.getAttributes();
-        var attributes = new HashMap<String, Map<String, Serializable>>(sourceAttributes.size(), 1);
+    /**
+     * Resolve base version for a new snapshot version.
+     *
+     * @param sourceSessionId session identifier, which is modified
+     * @param newVersion      new snapshot version
+     * @return base version or null if full snapshot should be stored
+     */
+    private Long getDeltaBaseVersion(SessionId sourceSessionId, long newVersion) {
+        if (!snapshotProperties.isDeltaEnabled()) {
+            return null;
+        }
+        var uid = sourceSessionId.getUID();
+        var sourceBaseVersion = sessionChainStorage.findChainBaseVersion(uid, sourceSessionId.getVersion())
+                .orElseThrow(() -> new SessionNotFoundException(uid));
+        if (newVersion - sourceBaseVersion >= snapshotProperties.getDeltaBaseInterval()) {
+            return null;
+        }
+        return sourceBaseVersion;
+    }
 
-        for (var entry : sourceAttributes.entrySet()) {
-            var sectionId = entry.getKey();
-            var sectionData = entry.getValue();
-            attributes.put(sectionId, new HashMap<>(sectionData));
+    private CachedSession getCachedSession(SessionId sessionId) {
+        var cachedSession = findCachedSession(sessionId);
+        if (cachedSession.isPresent()) {
+            return cachedSession.get();
         }
-        return attributes;
+        var sessionSnapshot = findSessionSnapshotEntity(sessionId);
+        var expiresAt = touchSession(sessionSnapshot.getSession());
+        return cacheSession(sessionId, sessionSnapshot, expiresAt);
+    }
+
+    /**
+     * Find not expired session in cache and prolong its expiration, if required
+     *
+     * @param sessionId session identifier
+     * @return cached session or empty
+     */
+    private Optional<CachedSession> findCachedSession(SessionId sessionId) {
+        sessionSnapshotCache.startRead();
+        var snapshotId = toSnapshotId(sessionId);
+        var now = ZonedDateTime.now();
+        return writeBehindBuffer.find(snapshotId)
+                .or(() -> sessionSnapshotCache.find(snapshotId))
+                .filter(it -> !sessionExpiryPolicy.isExpired(it.getExpiresAt(), now))
+                .map(it -> {
+                    var session = it.getSession();
+                    var expiresAt = it.getExpiresAt();
+                    var actualExpiresAt = touchSession(snapshotId.getUid(), session.getOwnerType(), expiresAt);
+                    if (Objects.equals(expiresAt, actualExpiresAt)) {
+                        return it;
+                    }
+                    var touchedSession = new CachedSession(session, actualExpiresAt, it.getSnapshot());
+                    sessionSnapshotCache.putAfterCommit(snapshotId, touchedSession);
+                    return touchedSession;
+                });
+    }
+
+    private CachedSession cacheSession(SessionId sessionId,
+                                       SessionSnapshotEntity sessionSnapshot,
+                                       ZonedDateTime expiresAt) {
+        var session = buildLocalSession(sessionId, sessionSnapshot);
+        var cachedSession = new CachedSession(session, expiresAt, getReusableSnapshot(sessionSnapshot));
+        sessionSnapshotCache.putAfterCommit(sessionSnapshot.getEntityId(), cachedSession);
+        return cachedSession;
+    }
+
+    /**
+     * Get stored snapshot bytes, if they can be reused on the next version write
+     *
+     * @param sessionSnapshot stored snapshot
+     * @return not compressed full snapshot of configured codec or null
+     */
+    private EncodedSnapshot getReusableSnapshot(StoredSnapshot sessionSnapshot) {
+        var snapshotType = sessionSnapshot.getSnapshotType();
+        if (sessionSnapshot.getBaseVersion() != null || snapshotType != snapshotProperties.getCodec()) {
+            return null;
+        }
+        if (!getSnapshotCodec(snapshotType).isSectionReuseSupported()) {
+            return null;
+        }
+        return new EncodedSnapshot(snapshotType, sessionSnapshot.getSnapshot());
+    }
+
+    private ZonedDateTime touchSession(SessionEntity session) {
+        return touchSession(session.getUid(), session.getOwnerType(), session.getExpiresAt());
+    }
+
+    /**
+     * Check session is not expired and prolong its expiration, if required
+     *
+     * @param uid       session uid
+     * @param ownerType session owner type
+     * @param expiresAt known session expiration time
+     * @return actual session expiration time
+     */
+    private ZonedDateTime touchSession(String uid, SessionOwnerType ownerType, ZonedDateTime expiresAt) {
+        var now = ZonedDateTime.now();
+        if (sessionExpiryPolicy.isExpired(expiresAt, now)) {
+            throw new SessionNotFoundException(uid);
+        }
+        if (!sessionExpiryPolicy.isProlongRequired(ownerType, expiresAt, now)) {
+            return expiresAt;
+        }
+        var prolongedExpiresAt = sessionExpiryPolicy.getExpiresAt(ownerType, now);
+        sessionHeaderStorage.prolongExpiresAt(uid, prolongedExpiresAt, now);
+        return prolongedExpiresAt;
     }
 
-    private SessionSnapshotEntity getSessionSnapshotEntity(SessionId sessionId) {
+    private static SessionSnapshotEntityId toSnapshotId(SessionId sessionId) {
+        return SessionSnapshotEntityId.builder()
+                .uid(sessionId.getUID())
+                .version(sessionId.getVersion())
+                .build();
+    }
+
+    /**
+     * Get snapshot content, without loading the whole session, and check session is not expired
+     *
+     * @param sessionId session identifier
+     * @return snapshot content
+     */
+    private SnapshotContent getSnapshotContent(SessionId sessionId) {
+        var uid = sessionId.getUID();
+        var fetchStartTime = sessionMetrics.startTime();
+        var snapshotContent = sessionStorage.findSnapshotContent(uid, sessionId.getVersion())
+                .orElseThrow(() -> new SessionNotFoundException(uid));
+        sessionMetrics.recordPhase(SessionMetrics.PHASE_FETCH, fetchStartTime);
+        touchSession(uid, snapshotContent.getOwnerType(), snapshotContent.getExpiresAt());
+        return snapshotContent;
+    }
+
+    private SessionSnapshotEntity findSessionSnapshotEntity(SessionId sessionId) {
         var uid = sessionId.getUID();
         var version = sessionId.getVersion();
-        return sessionSnapshotEntityRepository.findByEntityIdUidAndEntityIdVersion(uid, version)
+        var startTime = sessionMetrics.startTime();
+        var sessionSnapshot = sessionStorage.findSnapshot(uid, version)
                 .orElseThrow(() -> new SessionNotFoundException(uid));
+        sessionMetrics.recordPhase(SessionMetrics.PHASE_FETCH, startTime);
+        return sessionSnapshot;
     }
 
     private LocalSession buildLocalSession(SessionId sessionId, SessionSnapshotEntity sessionSnapshot) {
         var attributes = getSnapshotAttributes(sessionSnapshot);
 
         var session = sessionSnapshot.getSession();
-        var permissions = session.getPermissions()
-                .stream()
-                .map(PermissionEntity::getCode)
-                .collect(Collectors.toSet());
+        var permissions = getPermissions(session);
 
         return LocalSession.builder()
                 .id(sessionId)
@@ -319,4 +1271,25 @@ public class SessionServiceEmbedded implements SessionService {
                 .permissions(permissions)
                 .build();
     }
+
+    private Set<String> getPermissions(SessionEntity session) {
+        var permissionIds = session.getPermissionIds();
+        if (permissionIds != null) {
+            return permissionRegistry.toPermissionSet(PermissionSet.decode(permissionIds));
+        }
+        // sessions created before compact permissions were introduced
+        return session.getPermissions()
+                .stream()
+                .map(PermissionEntity::getCode)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Encoded snapshot
+     *
+     * @param reusable not compressed snapshot, which may be reused by codec on the next version write, or null
+     * @param stored   snapshot to store
+     */
+    private record SnapshotEncoding(EncodedSnapshot reusable, EncodedSnapshot stored) {
+    }
 }
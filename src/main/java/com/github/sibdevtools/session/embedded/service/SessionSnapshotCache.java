@@ -0,0 +1,328 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedCacheProperties;
+import com.github.sibdevtools.session.embedded.dto.CachedSession;
+import com.github.sibdevtools.session.embedded.dto.LocalSession;
+import com.github.sibdevtools.session.embedded.dto.PermissionSet;
+import com.github.sibdevtools.session.embedded.entity.SessionSnapshotEntityId;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded cache of decoded session snapshots.
+ * <p>
+ * Snapshot version is immutable after write, so cached value never becomes stale, it only can be evicted.
+ * Session expiration time is cached along with snapshot, callers should treat expired entries as missed.
+ * Eviction is done by Caffeine W-TinyLFU policy within configured max weight,
+ * weight of entry is an estimated size of session content in bytes.
+ * <p>
+ * Sections, already frozen by previous versions, are shared between cached versions as is,
+ * so a version, produced by update, copies only modified sections.
+ * <p>
+ * Owner invalidation changes expiration time of already cached sessions. Every owner invalidation advances
+ * invalidation epoch of owner stripe, and session, read in a transaction started before invalidation was completed,
+ * is not cached, so a reader, racing with invalidation, can't put back session with outdated expiration time.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public class SessionSnapshotCache {
+    private static final int ENTRY_OVERHEAD = 48;
+    private static final int DEFAULT_VALUE_SIZE = 16;
+    private static final int INVALIDATION_STRIPES = 64;
+
+    private final Cache<SessionSnapshotEntityId, CachedSession> cache;
+    private final AtomicLong epoch = new AtomicLong();
+    private final AtomicLongArray invalidationEpochs = new AtomicLongArray(INVALIDATION_STRIPES);
+    private final AtomicIntegerArray runningInvalidations = new AtomicIntegerArray(INVALIDATION_STRIPES);
+    private final Object readEpochKey = new Object();
+
+    /**
+     * Construct session snapshot cache
+     *
+     * @param cacheProperties cache properties
+     */
+    public SessionSnapshotCache(SessionServiceEmbeddedCacheProperties cacheProperties) {
+        if (cacheProperties.isEnabled()) {
+            this.cache = Caffeine.newBuilder()
+                    .maximumWeight(cacheProperties.getMaxWeight())
+                    .weigher(SessionSnapshotCache::weigh)
+                    .recordStats()
+                    .build();
+        } else {
+            this.cache = null;
+        }
+    }
+
+    /**
+     * Get cached session
+     *
+     * @param snapshotId snapshot identifier
+     * @return cached session or empty
+     */
+    public Optional<CachedSession> find(SessionSnapshotEntityId snapshotId) {
+        if (cache == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(cache.getIfPresent(snapshotId));
+    }
+
+    /**
+     * Put session into cache
+     *
+     * @param snapshotId snapshot identifier
+     * @param session    session
+     */
+    public void put(SessionSnapshotEntityId snapshotId, CachedSession session) {
+        if (cache == null) {
+            return;
+        }
+        cache.put(snapshotId, freeze(session));
+    }
+
+    /**
+     * Remember invalidation epoch for the current transaction, if it is not remembered yet.
+     * Should be called before session is read from storage,
+     * so session, read before concurrent owner invalidation is completed, is not cached on commit.
+     */
+    public void startRead() {
+        if (cache == null || !TransactionSynchronizationManager.isSynchronizationActive() ||
+                TransactionSynchronizationManager.hasResource(readEpochKey)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(readEpochKey, epoch.get());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(readEpochKey);
+            }
+        });
+    }
+
+    /**
+     * Put session into cache after current transaction commit.
+     * Session is not cached if transaction is rolled back, so not persisted version never becomes visible.
+     * Session is not cached as well, if its owner was invalidated after the current transaction read start.
+     *
+     * @param snapshotId snapshot identifier
+     * @param session    session
+     */
+    public void putAfterCommit(SessionSnapshotEntityId snapshotId, CachedSession session) {
+        if (cache == null) {
+            return;
+        }
+        var readEpoch = TransactionSynchronizationManager.getResource(readEpochKey) instanceof Long it ?
+                it :
+                epoch.get();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            put(snapshotId, session, readEpoch);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                put(snapshotId, session, readEpoch);
+            }
+        });
+    }
+
+    /**
+     * Remove sessions from cache after current transaction commit.
+     *
+     * @param snapshotIds snapshot identifiers
+     */
+    public void evictAllAfterCommit(Collection<SessionSnapshotEntityId> snapshotIds) {
+        if (cache == null || snapshotIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.invalidateAll(snapshotIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.invalidateAll(snapshotIds);
+            }
+        });
+    }
+
+    /**
+     * Remove owner sessions from cache after current transaction commit.
+     * Until current transaction is completed, owner sessions are not cached,
+     * after that sessions, read by transactions started before completion, are not cached as well.
+     * Sessions are removed by full scan of cache, so method is intended for rare bulk operations.
+     *
+     * @param ownerType session owner type
+     * @param ownerId   session owner identifier
+     */
+    public void evictOwnerAfterCommit(SessionOwnerType ownerType, String ownerId) {
+        if (cache == null) {
+            return;
+        }
+        var stripe = getStripe(ownerType, ownerId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictOwner(ownerType, ownerId, stripe);
+            return;
+        }
+        runningInvalidations.incrementAndGet(stripe);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        evictOwner(ownerType, ownerId, stripe);
+                    }
+                } finally {
+                    runningInvalidations.decrementAndGet(stripe);
+                }
+            }
+        });
+    }
+
+    /**
+     * Get cache statistics: hits, misses and evictions
+     *
+     * @return cache statistics
+     */
+    public CacheStats getStats() {
+        if (cache == null) {
+            return CacheStats.empty();
+        }
+        return cache.stats();
+    }
+
+    private void put(SessionSnapshotEntityId snapshotId, CachedSession session, long readEpoch) {
+        var owner = session.getSession();
+        var stripe = getStripe(owner.getOwnerType(), owner.getOwnerId());
+        if (isInvalidatedAfter(stripe, readEpoch)) {
+            return;
+        }
+        var frozenSession = freeze(session);
+        cache.put(snapshotId, frozenSession);
+        // invalidation could be completed between check and put
+        if (isInvalidatedAfter(stripe, readEpoch)) {
+            cache.asMap().remove(snapshotId, frozenSession);
+        }
+    }
+
+    private void evictOwner(SessionOwnerType ownerType, String ownerId, int stripe) {
+        cache.asMap().values().removeIf(
+                it -> it.getSession().getOwnerType() == ownerType && ownerId.equals(it.getSession().getOwnerId())
+        );
+        invalidationEpochs.accumulateAndGet(stripe, epoch.incrementAndGet(), Math::max);
+    }
+
+    private boolean isInvalidatedAfter(int stripe, long readEpoch) {
+        return runningInvalidations.get(stripe) > 0 || invalidationEpochs.get(stripe) > readEpoch;
+    }
+
+    private static int getStripe(SessionOwnerType ownerType, String ownerId) {
+        return Math.floorMod(Objects.hash(ownerType, ownerId), INVALIDATION_STRIPES);
+    }
+
+    private static CachedSession freeze(CachedSession cachedSession) {
+        var session = cachedSession.getSession();
+        var sourceAttributes = session.getAttributes();
+        var attributes = new HashMap<String, Map<String, Serializable>>(sourceAttributes.size(), 1);
+        for (var entry : sourceAttributes.entrySet()) {
+            attributes.put(entry.getKey(), freezeSection(entry.getValue()));
+        }
+        var frozenSession = LocalSession.builder()
+                .id(session.getId())
+                .ownerType(session.getOwnerType())
+                .ownerId(session.getOwnerId())
+                .attributes(Collections.unmodifiableMap(attributes))
+                .permissions(freeze(session.getPermissions()))
+                .build();
+        return new CachedSession(frozenSession, cachedSession.getExpiresAt(), cachedSession.getSnapshot());
+    }
+
+    private static Map<String, Serializable> freezeSection(Map<String, Serializable> section) {
+        if (section instanceof FrozenSection) {
+            return section;
+        }
+        return new FrozenSection(new HashMap<>(section));
+    }
+
+    private static Set<String> freeze(Set<String> permissions) {
+        if (permissions instanceof PermissionSet) {
+            return permissions;
+        }
+        return Set.copyOf(permissions);
+    }
+
+    private static int weigh(SessionSnapshotEntityId snapshotId, CachedSession cachedSession) {
+        var session = cachedSession.getSession();
+        long weight = ENTRY_OVERHEAD + snapshotId.getUid().length() * 2L;
+        for (var section : session.getAttributes().entrySet()) {
+            weight += ENTRY_OVERHEAD + section.getKey().length() * 2L;
+            for (var attribute : section.getValue().entrySet()) {
+                weight += ENTRY_OVERHEAD + attribute.getKey().length() * 2L + weigh(attribute.getValue());
+            }
+        }
+        for (var permission : session.getPermissions()) {
+            weight += ENTRY_OVERHEAD + permission.length() * 2L;
+        }
+        var snapshot = cachedSession.getSnapshot();
+        if (snapshot != null) {
+            weight += snapshot.getSnapshot().length;
+        }
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    private static long weigh(Serializable value) {
+        return switch (value) {
+            case null -> 0;
+            case String string -> string.length() * 2L;
+            case byte[] bytes -> bytes.length;
+            case Collection<?> collection -> (long) collection.size() * DEFAULT_VALUE_SIZE;
+            case Map<?, ?> map -> (long) map.size() * DEFAULT_VALUE_SIZE * 2;
+            default -> DEFAULT_VALUE_SIZE;
+        };
+    }
+
+    /**
+     * Unmodifiable section of cached session.
+     * Own type marks section as already frozen, so it is shared by next versions without copy.
+     */
+    private static final class FrozenSection extends AbstractMap<String, Serializable> {
+        private final Map<String, Serializable> attributes;
+        private final Set<Entry<String, Serializable>> entrySet;
+
+        private FrozenSection(Map<String, Serializable> attributes) {
+            this.attributes = attributes;
+            this.entrySet = Collections.unmodifiableMap(attributes).entrySet();
+        }
+
+        @Override
+        public Set<Entry<String, Serializable>> entrySet() {
+            return entrySet;
+        }
+
+        @Override
+        public Serializable get(Object key) {
+            return attributes.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return attributes.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return attributes.size();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedRetentionProperties;
+import com.github.sibdevtools.session.embedded.dto.SnapshotCompactionResult;
+import com.github.sibdevtools.session.embedded.entity.SessionSnapshotEntityId;
+import com.github.sibdevtools.session.embedded.repository.SessionEntityRepository;
+import com.github.sibdevtools.session.embedded.repository.SessionSectionSnapshotEntityRepository;
+import com.github.sibdevtools.session.embedded.repository.SessionSnapshotEntityRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background compactor of obsolete session snapshot versions.
+ * <p>
+ * Version is retained if it is one of {@code keep-last} newest versions or it is younger than {@code ttl}.
+ * The newest version and base snapshots of retained delta versions are never removed.
+ * Section snapshots, which are overridden before the oldest retained version, are removed as well.
+ * Sessions are walked by uid and compacted in batches, each batch in a separate transaction.
+ * Removed versions are evicted from snapshot cache after commit, so they are not served by cache either.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Slf4j
+public class SessionSnapshotCompactor {
+    private final SessionEntityRepository sessionEntityRepository;
+    private final SessionSnapshotEntityRepository sessionSnapshotEntityRepository;
+    private final SessionSectionSnapshotEntityRepository sectionSnapshotEntityRepository;
+    private final SessionServiceEmbeddedRetentionProperties retentionProperties;
+    private final SessionSnapshotCache sessionSnapshotCache;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong totalRows = new AtomicLong();
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    private ScheduledExecutorService executorService;
+
+    /**
+     * Construct session snapshot compactor
+     *
+     * @param sessionEntityRepository         session entity repository
+     * @param sessionSnapshotEntityRepository session snapshot entity repository
+     * @param sectionSnapshotEntityRepository session section snapshot entity repository
+     * @param retentionProperties             snapshot retention properties
+     * @param sessionSnapshotCache            session snapshot cache
+     * @param transactionManager              transaction manager
+     */
+    public SessionSnapshotCompactor(SessionEntityRepository sessionEntityRepository,
+                                    SessionSnapshotEntityRepository sessionSnapshotEntityRepository,
+                                    SessionSectionSnapshotEntityRepository sectionSnapshotEntityRepository,
+                                    SessionServiceEmbeddedRetentionProperties retentionProperties,
+                                    SessionSnapshotCache sessionSnapshotCache,
+                                    PlatformTransactionManager transactionManager) {
+        this.sessionEntityRepository = sessionEntityRepository;
+        this.sessionSnapshotEntityRepository = sessionSnapshotEntityRepository;
+        this.sectionSnapshotEntityRepository = sectionSnapshotEntityRepository;
+        this.retentionProperties = retentionProperties;
+        this.sessionSnapshotCache = sessionSnapshotCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Start scheduled compaction
+     */
+    @PostConstruct
+    public void start() {
+        var interval = retentionProperties.getInterval().toMillis();
+        executorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "session-snapshot-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executorService.scheduleWithFixedDelay(this::compactSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop scheduled compaction
+     */
+    @PreDestroy
+    public void stop() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Remove obsolete snapshot versions of all sessions
+     *
+     * @return compaction result
+     */
+    public SnapshotCompactionResult compact() {
+        var keepLast = Math.max(retentionProperties.getKeepLast(), 1);
+        var ttl = retentionProperties.getTtl();
+        var createdSince = ttl == null ? null : ZonedDateTime.now().minus(ttl);
+        var batchSize = retentionProperties.getBatchSize();
+
+        long sessions = 0;
+        long rows = 0;
+        long bytes = 0;
+        var fromUid = "";
+        while (true) {
+            var lastUid = fromUid;
+            var batch = transactionTemplate.execute(status -> compactBatch(lastUid, keepLast, createdSince, batchSize));
+            if (batch == null || batch.result.getSessions() == 0) {
+                break;
+            }
+            sessions += batch.result.getSessions();
+            rows += batch.result.getRows();
+            bytes += batch.result.getBytes();
+            fromUid = batch.lastUid;
+        }
+
+        totalRows.addAndGet(rows);
+        totalBytes.addAndGet(bytes);
+        return new SnapshotCompactionResult(sessions, rows, bytes);
+    }
+
+    /**
+     * Get count of snapshot rows, removed since start
+     *
+     * @return count of rows
+     */
+    public long getTotalRows() {
+        return totalRows.get();
+    }
+
+    /**
+     * Get size of snapshots, removed since start
+     *
+     * @return size in bytes
+     */
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    private void compactSafely() {
+        try {
+            var result = compact();
+            if (result.getRows() > 0) {
+                log.info("Session snapshots compacted: {}", result);
+            }
+        } catch (Exception e) {
+            log.error("Session snapshots compaction failed", e);
+        }
+    }
+
+    private BatchResult compactBatch(String fromUid, int keepLast, ZonedDateTime createdSince, int batchSize) {
+        var candidates = sessionEntityRepository.findAllWithVersionsMoreThan(
+                fromUid,
+                keepLast,
+                PageRequest.of(0, batchSize)
+        );
+
+        long rows = 0;
+        long bytes = 0;
+        var lastUid = fromUid;
+        var removedIds = new ArrayList<SessionSnapshotEntityId>();
+        for (var candidate : candidates) {
+            var uid = candidate.getUid();
+            lastUid = uid;
+
+            var retainFrom = candidate.getLatestVersion() - keepLast + 1;
+            if (createdSince != null) {
+                var firstRecentVersion = sessionSnapshotEntityRepository.findFirstVersionCreatedSince(uid, createdSince)
+                        .orElse(retainFrom);
+                retainFrom = Math.min(retainFrom, firstRecentVersion);
+            }
+            // delta versions need their base snapshot, so retained range is extended to it
+            retainFrom = sessionSnapshotEntityRepository.findChainBaseVersion(uid, retainFrom)
+                    .orElse(retainFrom);
+            long firstVersion = sessionSnapshotEntityRepository.findFirstVersion(uid)
+                    .orElse(retainFrom);
+            if (firstVersion >= retainFrom) {
+                continue;
+            }
+            for (var version = firstVersion; version < retainFrom; version++) {
+                removedIds.add(
+                        SessionSnapshotEntityId.builder()
+                                .uid(uid)
+                                .version(version)
+                                .build()
+                );
+            }
+
+            bytes += sessionSnapshotEntityRepository.sumSnapshotSizeBeforeVersion(uid, retainFrom);
+            rows += sessionSnapshotEntityRepository.deleteAllBeforeVersion(uid, retainFrom);
+
+            // section snapshot stays, while it is the actual one at the oldest retained version
+            bytes += sectionSnapshotEntityRepository.sumOverriddenSnapshotSizeBeforeVersion(uid, retainFrom);
+            rows += sectionSnapshotEntityRepository.deleteAllOverriddenBeforeVersion(uid, retainFrom);
+            rows += sectionSnapshotEntityRepository.deleteAllRemovedBeforeVersion(uid, retainFrom);
+        }
+        sessionSnapshotCache.evictAllAfterCommit(removedIds);
+        return new BatchResult(new SnapshotCompactionResult(candidates.size(), rows, bytes), lastUid);
+    }
+
+    private record BatchResult(SnapshotCompactionResult result, String lastUid) {
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.embedded.dto.SnapshotContent;
+import com.github.sibdevtools.session.embedded.entity.*;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Core session storage SPI, used by {@link SessionServiceEmbedded} to create sessions, load and append snapshot versions
+ * and resolve permissions.
+ * <p>
+ * Optional capabilities are declared by separate interfaces: {@link SessionHeaderStorage},
+ * {@link SessionOwnerStorage}, {@link SessionChainStorage} and {@link SessionSectionStorage}.
+ * Each bundled storage implements all of them, {@link SessionServiceEmbedded} requires them to be available as beans.
+ * <p>
+ * Entities are used as plain data carriers, implementation is not required to attach them to any persistence context.
+ * Snapshots, returned by session lookups, have {@link SessionSnapshotEntity#getSession()} filled.
+ * Writes are done in the current transaction, if implementation is transactional,
+ * otherwise they should become visible to other callers not earlier than the current transaction commit.
+ * <p>
+ * Database maintenance jobs: snapshot compactor, expiry purger, store exporter and importer,
+ * work with database tables directly and are available for database storages only.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public interface SessionStorage {
+
+    /**
+     * Find all stored permissions
+     *
+     * @return permissions
+     */
+    List<PermissionEntity> findAllPermissions();
+
+    /**
+     * Find permissions by ids
+     *
+     * @param ids permission ids
+     * @return found permissions
+     */
+    List<PermissionEntity> findAllPermissionsById(Collection<Long> ids);
+
+    /**
+     * Create permissions, which are not exist yet, and load all permissions with passed codes.
+     * Created permissions are committed independently of the current transaction.
+     *
+     * @param codes permission codes, compared case-insensitively
+     * @return permissions with passed codes
+     */
+    List<PermissionEntity> createPermissions(Collection<String> codes);
+
+    /**
+     * Create sessions with their first snapshots
+     *
+     * @param sessions         sessions with permissions
+     * @param snapshots        snapshots of sessions
+     * @param sectionSnapshots section snapshots of sessions, stored in the section split layout
+     */
+    void createSessions(List<SessionEntity> sessions,
+                        List<SessionSnapshotEntity> snapshots,
+                        List<SessionSectionSnapshotEntity> sectionSnapshots);
+
+    /**
+     * Find session latest version
+     *
+     * @param uid session uid
+     * @return latest version or empty
+     */
+    Optional<Long> findLatestVersion(String uid);
+
+    /**
+     * Find session snapshot with session
+     *
+     * @param uid     session uid
+     * @param version snapshot version
+     * @return found session snapshot or empty
+     */
+    Optional<SessionSnapshotEntity> findSnapshot(String uid, long version);
+
+    /**
+     * Find snapshot content with session columns, required for expiration check
+     *
+     * @param uid     session uid
+     * @param version snapshot version
+     * @return found snapshot content or empty
+     */
+    Optional<SnapshotContent> findSnapshotContent(String uid, long version);
+
+    /**
+     * Find the latest session snapshot with session
+     *
+     * @param uid session uid
+     * @return found session snapshot or empty
+     */
+    Optional<SessionSnapshotEntity> findLatestSnapshot(String uid);
+
+    /**
+     * Find session snapshots with sessions by identifiers
+     *
+     * @param snapshotIds snapshot identifiers
+     * @return found session snapshots, not found identifiers are skipped
+     */
+    List<SessionSnapshotEntity> findAllSnapshots(Collection<SessionSnapshotEntityId> snapshotIds);
+
+    /**
+     * Store the next session snapshot. Snapshot version is immutable, existing version is never overwritten.
+     *
+     * @param snapshot session snapshot
+     */
+    void appendSnapshot(SessionSnapshotEntity snapshot);
+
+    /**
+     * Store session snapshots by one batch
+     *
+     * @param snapshots session snapshots
+     */
+    void appendSnapshots(List<SessionSnapshotEntity> snapshots);
+}
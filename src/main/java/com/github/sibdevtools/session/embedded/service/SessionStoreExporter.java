@@ -0,0 +1,261 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedTransferProperties;
+import com.github.sibdevtools.session.embedded.dto.SessionTransferResult;
+import com.github.sibdevtools.session.embedded.dto.SnapshotExportMode;
+import com.github.sibdevtools.session.embedded.exception.UnexpectedErrorException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streaming export of session store into a file of {@link SessionStoreFile} format.
+ * <p>
+ * Rows are read by forward-only queries with configured fetch size and written to the file as they arrive,
+ * so memory usage does not depend on count of sessions. All queries are executed in one read-only transaction,
+ * so the file contains a consistent state of the store.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Slf4j
+public class SessionStoreExporter {
+    private static final String SELECT_PERMISSIONS = "SELECT id, code FROM session_service.permission ORDER BY id";
+    private static final String SELECT_SESSIONS = "SELECT s.uid, s.owner_type, s.owner_id, s.created_at, " +
+            "s.expires_at, s.latest_version, sp.permission_id " +
+            "FROM session_service.session s " +
+            "LEFT JOIN session_service.session_permission sp ON sp.session_uid = s.uid " +
+            "ORDER BY s.uid, sp.permission_id";
+    private static final String SELECT_ALL_SNAPSHOTS = "SELECT ss.uid, ss.version, ss.snapshot, " +
+            "ss.snapshot_ser_type, ss.base_version, ss.created_at " +
+            "FROM session_service.session_snapshot ss " +
+            "ORDER BY ss.uid, ss.version";
+    private static final String SELECT_LATEST_SNAPSHOTS = "SELECT ss.uid, ss.version, ss.snapshot, " +
+            "ss.snapshot_ser_type, ss.base_version, ss.created_at " +
+            "FROM session_service.session s " +
+            "JOIN session_service.session_snapshot ls ON ls.uid = s.uid AND ls.version = s.latest_version " +
+            "JOIN session_service.session_snapshot ss ON ss.uid = s.uid " +
+            "AND ss.version BETWEEN COALESCE(ls.base_version, ls.version) AND ls.version " +
+            "ORDER BY ss.uid, ss.version";
+    private static final String SELECT_ALL_SECTION_SNAPSHOTS = "SELECT ss.uid, ss.section, ss.version, " +
+            "ss.snapshot, ss.snapshot_ser_type, ss.created_at " +
+            "FROM session_service.session_section_snapshot ss " +
+            "ORDER BY ss.uid, ss.section, ss.version";
+    private static final String SELECT_LATEST_SECTION_SNAPSHOTS = "SELECT ss.uid, ss.section, ss.version, " +
+            "ss.snapshot, ss.snapshot_ser_type, ss.created_at " +
+            "FROM session_service.session s " +
+            "JOIN session_service.session_snapshot ls ON ls.uid = s.uid AND ls.version = s.latest_version " +
+            "JOIN session_service.session_snapshot bs ON bs.uid = s.uid " +
+            "AND bs.version = COALESCE(ls.base_version, ls.version) " +
+            "JOIN session_service.session_section_snapshot ss ON ss.uid = s.uid " +
+            "WHERE bs.snapshot_ser_type = 'SECTIONS' AND ss.snapshot IS NOT NULL " +
+            "AND ss.version = (SELECT MAX(vs.version) FROM session_service.session_section_snapshot vs " +
+            "WHERE vs.uid = ss.uid AND vs.section = ss.section AND vs.version <= bs.version) " +
+            "ORDER BY ss.uid, ss.section";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SessionServiceEmbeddedTransferProperties transferProperties;
+
+    /**
+     * Construct session store exporter
+     *
+     * @param dataSource         data source
+     * @param transactionManager transaction manager
+     * @param transferProperties transfer properties
+     */
+    public SessionStoreExporter(DataSource dataSource,
+                                PlatformTransactionManager transactionManager,
+                                SessionServiceEmbeddedTransferProperties transferProperties) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(transferProperties.getFetchSize());
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.transferProperties = transferProperties;
+    }
+
+    /**
+     * Export session store into file, existing file is overwritten
+     *
+     * @param path file path
+     * @param mode exported snapshot versions
+     * @return export result
+     */
+    public SessionTransferResult exportStore(Path path, SnapshotExportMode mode) {
+        return exportStore(path, mode, progress -> {
+        });
+    }
+
+    /**
+     * Export session store into file, existing file is overwritten
+     *
+     * @param path             file path
+     * @param mode             exported snapshot versions
+     * @param progressListener listener of export progress, called every {@code progress-interval} records
+     * @return export result
+     */
+    public SessionTransferResult exportStore(Path path,
+                                             SnapshotExportMode mode,
+                                             Consumer<SessionTransferResult> progressListener) {
+        try (var writer = SessionStoreFile.Writer.open(path, transferProperties.getBufferSize())) {
+            var progress = new SessionTransferProgress(
+                    "export",
+                    transferProperties.getProgressInterval(),
+                    progressListener,
+                    writer::getBytes
+            );
+            transactionTemplate.executeWithoutResult(status -> {
+                exportPermissions(writer, progress);
+                exportSessions(writer, progress);
+                exportSnapshots(writer, progress, mode);
+                exportSectionSnapshots(writer, progress, mode);
+            });
+
+            writer.beginRecord(SessionStoreFile.RECORD_END);
+            writer.writeLong(progress.getPermissions());
+            writer.writeLong(progress.getSessions());
+            writer.writeLong(progress.getSnapshots());
+            writer.writeLong(progress.getSectionSnapshots());
+            writer.endRecord();
+
+            var result = progress.toResult();
+            log.info("Session store exported: {}", result);
+            return result;
+        } catch (IOException e) {
+            throw new UnexpectedErrorException("Can't export session store to '%s'".formatted(path), e);
+        } catch (UncheckedIOException e) {
+            throw new UnexpectedErrorException("Can't export session store to '%s'".formatted(path), e.getCause());
+        }
+    }
+
+    private void exportPermissions(SessionStoreFile.Writer writer, SessionTransferProgress progress) {
+        jdbcTemplate.query(SELECT_PERMISSIONS, rs -> {
+            writer.beginRecord(SessionStoreFile.RECORD_PERMISSION);
+            writer.writeLong(rs.getLong("id"));
+            writer.writeString(rs.getString("code"));
+            endRecord(writer);
+            progress.permission();
+        });
+    }
+
+    private void exportSessions(SessionStoreFile.Writer writer, SessionTransferProgress progress) {
+        // permission links are joined to sessions, so rows of one session are adjacent and grouped on the fly
+        var pending = new PendingSession[1];
+        jdbcTemplate.query(SELECT_SESSIONS, rs -> {
+            var uid = rs.getString("uid");
+            var session = pending[0];
+            if (session == null || !session.uid.equals(uid)) {
+                if (session != null) {
+                    writeSession(writer, session);
+                    progress.session();
+                }
+                session = new PendingSession(rs);
+                pending[0] = session;
+            }
+            var permissionId = rs.getLong("permission_id");
+            if (!rs.wasNull()) {
+                session.permissionIds.add(permissionId);
+            }
+        });
+        if (pending[0] != null) {
+            writeSession(writer, pending[0]);
+            progress.session();
+        }
+    }
+
+    private void exportSnapshots(SessionStoreFile.Writer writer,
+                                 SessionTransferProgress progress,
+                                 SnapshotExportMode mode) {
+        var query = mode == SnapshotExportMode.ALL ? SELECT_ALL_SNAPSHOTS : SELECT_LATEST_SNAPSHOTS;
+        jdbcTemplate.query(query, rs -> {
+            writer.beginRecord(SessionStoreFile.RECORD_SNAPSHOT);
+            writer.writeString(rs.getString("uid"));
+            writer.writeLong(rs.getLong("version"));
+            writer.writeBytes(rs.getBytes("snapshot"));
+            writer.writeString(rs.getString("snapshot_ser_type"));
+            var baseVersion = rs.getLong("base_version");
+            writer.writeNullableLong(rs.wasNull() ? null : baseVersion);
+            writer.writeInstant(toInstant(rs.getTimestamp("created_at")));
+            endRecord(writer);
+            progress.snapshot();
+        });
+    }
+
+    private void exportSectionSnapshots(SessionStoreFile.Writer writer,
+                                        SessionTransferProgress progress,
+                                        SnapshotExportMode mode) {
+        var query = mode == SnapshotExportMode.ALL ? SELECT_ALL_SECTION_SNAPSHOTS : SELECT_LATEST_SECTION_SNAPSHOTS;
+        jdbcTemplate.query(query, rs -> {
+            writer.beginRecord(SessionStoreFile.RECORD_SECTION_SNAPSHOT);
+            writer.writeString(rs.getString("uid"));
+            writer.writeString(rs.getString("section"));
+            writer.writeLong(rs.getLong("version"));
+            writer.writeBytes(rs.getBytes("snapshot"));
+            writer.writeString(rs.getString("snapshot_ser_type"));
+            writer.writeInstant(toInstant(rs.getTimestamp("created_at")));
+            endRecord(writer);
+            progress.sectionSnapshot();
+        });
+    }
+
+    private static void writeSession(SessionStoreFile.Writer writer, PendingSession session) {
+        writer.beginRecord(SessionStoreFile.RECORD_SESSION);
+        writer.writeString(session.uid);
+        writer.writeString(session.ownerType);
+        writer.writeString(session.ownerId);
+        writer.writeInstant(session.createdAt);
+        writer.writeInstant(session.expiresAt);
+        writer.writeLong(session.latestVersion);
+        writer.writeInt(session.permissionIds.size());
+        for (var permissionId : session.permissionIds) {
+            writer.writeLong(permissionId);
+        }
+        endRecord(writer);
+    }
+
+    private static void endRecord(SessionStoreFile.Writer writer) {
+        try {
+            writer.endRecord();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+
+    private static final class PendingSession {
+        private final String uid;
+        private final String ownerType;
+        private final String ownerId;
+        private final Instant createdAt;
+        private final Instant expiresAt;
+        private final long latestVersion;
+        private final List<Long> permissionIds = new ArrayList<>();
+
+        private PendingSession(ResultSet rs) throws SQLException {
+            this.uid = rs.getString("uid");
+            this.ownerType = rs.getString("owner_type");
+            this.ownerId = rs.getString("owner_id");
+            this.createdAt = toInstant(rs.getTimestamp("created_at"));
+            this.expiresAt = toInstant(rs.getTimestamp("expires_at"));
+            this.latestVersion = rs.getLong("latest_version");
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Format of session store export file.
+ * <p>
+ * File starts with magic bytes and format version, followed by length-prefixed records:
+ * {@code type (1 byte) | payload length (4 bytes) | payload}.
+ * Records are written in order: permissions, sessions, snapshots, section snapshots and single end record
+ * with count of records of each type. Strings and byte arrays are prefixed by length, {@code -1} means null.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+final class SessionStoreFile {
+    static final byte RECORD_PERMISSION = 1;
+    static final byte RECORD_SESSION = 2;
+    static final byte RECORD_SNAPSHOT = 3;
+    static final byte RECORD_SECTION_SNAPSHOT = 4;
+    static final byte RECORD_END = 127;
+
+    private static final byte[] MAGIC = {'S', 'S', 'E'};
+    private static final byte FORMAT_VERSION = 1;
+    private static final int RECORD_HEADER_SIZE = 5;
+
+    private SessionStoreFile() {
+    }
+
+    /**
+     * Buffered writer of export file. Record is built in memory and written with its length on {@link #endRecord()},
+     * so memory usage is bounded by buffer size and the largest record.
+     */
+    static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final byte[] header = new byte[RECORD_HEADER_SIZE];
+        private byte[] record = new byte[256];
+        private byte recordType;
+        private int recordSize;
+        private long bytes;
+
+        private Writer(FileChannel channel, int bufferSize) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, RECORD_HEADER_SIZE));
+        }
+
+        static Writer open(Path path, int bufferSize) throws IOException {
+            var channel = FileChannel.open(
+                    path,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING
+            );
+            var writer = new Writer(channel, bufferSize);
+            writer.write(MAGIC, 0, MAGIC.length);
+            writer.write(new byte[]{FORMAT_VERSION}, 0, 1);
+            return writer;
+        }
+
+        void beginRecord(byte type) {
+            recordType = type;
+            recordSize = 0;
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            record[recordSize++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensure(Integer.BYTES);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                record[recordSize++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeLong(long value) {
+            ensure(Long.BYTES);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                record[recordSize++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeNullableLong(Long value) {
+            writeByte(value == null ? 0 : 1);
+            if (value != null) {
+                writeLong(value);
+            }
+        }
+
+        void writeInstant(Instant value) {
+            writeByte(value == null ? 0 : 1);
+            if (value != null) {
+                writeLong(value.getEpochSecond());
+                writeInt(value.getNano());
+            }
+        }
+
+        void writeString(String value) {
+            writeBytes(value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void writeBytes(byte[] value) {
+            if (value == null) {
+                writeInt(-1);
+                return;
+            }
+            writeInt(value.length);
+            ensure(value.length);
+            System.arraycopy(value, 0, record, recordSize, value.length);
+            recordSize += value.length;
+        }
+
+        void endRecord() throws IOException {
+            header[0] = recordType;
+            for (int i = 0; i < Integer.BYTES; i++) {
+                header[i + 1] = (byte) (recordSize >>> (24 - i * 8));
+            }
+            write(header, 0, header.length);
+            write(record, 0, recordSize);
+        }
+
+        long getBytes() {
+            return bytes + buffer.position();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (channel) {
+                flush();
+                channel.force(false);
+            }
+        }
+
+        private void ensure(int length) {
+            var required = recordSize + length;
+            if (required > record.length) {
+                record = Arrays.copyOf(record, Math.max(required, record.length * 2));
+            }
+        }
+
+        private void write(byte[] source, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                var chunk = Math.min(length, buffer.remaining());
+                buffer.put(source, offset, chunk);
+                offset += chunk;
+                length -= chunk;
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                bytes += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Buffered reader of export file. Buffer grows to the size of the largest record only.
+     */
+    static final class Reader implements Closeable {
+        private final FileChannel channel;
+        private ByteBuffer buffer;
+        private long bytes;
+
+        private Reader(FileChannel channel, int bufferSize) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(Math.max(bufferSize, RECORD_HEADER_SIZE)).flip();
+        }
+
+        static Reader open(Path path, int bufferSize) throws IOException {
+            var reader = new Reader(FileChannel.open(path, StandardOpenOption.READ), bufferSize);
+            try {
+                reader.require(MAGIC.length + 1);
+                var magic = new byte[MAGIC.length];
+                reader.buffer.get(magic);
+                var version = reader.buffer.get();
+                if (!Arrays.equals(magic, MAGIC)) {
+                    throw new IOException("Not a session store file");
+                }
+                if (version != FORMAT_VERSION) {
+                    throw new IOException("Unsupported session store file version: %d".formatted(version));
+                }
+                reader.bytes += MAGIC.length + 1;
+                return reader;
+            } catch (IOException e) {
+                reader.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Read next record header and load record payload into buffer
+         *
+         * @return record type
+         * @throws IOException if file is truncated or can't be read
+         */
+        byte nextRecord() throws IOException {
+            require(RECORD_HEADER_SIZE);
+            var type = buffer.get();
+            var size = buffer.getInt();
+            if (size < 0) {
+                throw new IOException("Negative record size: %d".formatted(size));
+            }
+            require(size);
+            bytes += RECORD_HEADER_SIZE + (long) size;
+            return type;
+        }
+
+        byte readByte() {
+            return buffer.get();
+        }
+
+        int readInt() {
+            return buffer.getInt();
+        }
+
+        long readLong() {
+            return buffer.getLong();
+        }
+
+        Long readNullableLong() {
+            return buffer.get() == 0 ? null : buffer.getLong();
+        }
+
+        Instant readInstant() {
+            if (buffer.get() == 0) {
+                return null;
+            }
+            var seconds = buffer.getLong();
+            return Instant.ofEpochSecond(seconds, buffer.getInt());
+        }
+
+        String readString() {
+            var value = readBytes();
+            return value == null ? null : new String(value, StandardCharsets.UTF_8);
+        }
+
+        byte[] readBytes() {
+            var length = buffer.getInt();
+            if (length < 0) {
+                return null;
+            }
+            var value = new byte[length];
+            buffer.get(value);
+            return value;
+        }
+
+        long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private void require(int length) throws IOException {
+            if (buffer.remaining() >= length) {
+                return;
+            }
+            if (buffer.capacity() < length) {
+                buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2))
+                        .put(buffer);
+            } else {
+                buffer.compact();
+            }
+            while (buffer.position() < length) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Unexpected end of session store file");
+                }
+            }
+            buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedTransferProperties;
+import com.github.sibdevtools.session.embedded.dto.PermissionSet;
+import com.github.sibdevtools.session.embedded.dto.SessionTransferResult;
+import com.github.sibdevtools.session.embedded.entity.*;
+import com.github.sibdevtools.session.embedded.exception.UnexpectedErrorException;
+import com.github.sibdevtools.session.embedded.repository.SessionBatchJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Bulk import of session store from a file, written by {@link SessionStoreExporter}.
+ * <p>
+ * Records are inserted by JDBC batches, each batch of configured size is committed in a separate transaction,
+ * so import is not atomic and failed import leaves already committed batches in place.
+ * Imported sessions must not exist in the store yet. Permissions are matched by code,
+ * missing ones are created, so permission ids of source and target stores may differ.
+ * <p>
+ * If index deferring is enabled and target store has no sessions,
+ * secondary session indexes are dropped before import and built once after it.
+ * Not empty store keeps its indexes, so sessions, already served from it, are not queried without them.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Slf4j
+public class SessionStoreImporter {
+    private static final List<String> DROP_INDEXES = List.of(
+            "DROP INDEX IF EXISTS session_service.session_expires_at_idx",
+            "DROP INDEX IF EXISTS session_service.session_owner_idx"
+    );
+    private static final String SELECT_ANY_SESSION = "SELECT 1 FROM session_service.session FETCH FIRST 1 ROWS ONLY";
+    private static final List<String> CREATE_INDEXES = List.of(
+            "CREATE INDEX IF NOT EXISTS session_service.session_expires_at_idx " +
+                    "ON session_service.session (expires_at)",
+            "CREATE INDEX IF NOT EXISTS session_service.session_owner_idx " +
+                    "ON session_service.session (owner_type, owner_id, uid)"
+    );
+
+    private final SessionBatchJdbcRepository sessionBatchJdbcRepository;
+    private final PermissionRegistry permissionRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SessionServiceEmbeddedTransferProperties transferProperties;
+
+    /**
+     * Construct session store importer
+     *
+     * @param sessionBatchJdbcRepository session batch insert repository
+     * @param permissionRegistry         permission registry
+     * @param dataSource                 data source
+     * @param transactionManager         transaction manager
+     * @param transferProperties         transfer properties
+     */
+    public SessionStoreImporter(SessionBatchJdbcRepository sessionBatchJdbcRepository,
+                                PermissionRegistry permissionRegistry,
+                                DataSource dataSource,
+                                PlatformTransactionManager transactionManager,
+                                SessionServiceEmbeddedTransferProperties transferProperties) {
+        this.sessionBatchJdbcRepository = sessionBatchJdbcRepository;
+        this.permissionRegistry = permissionRegistry;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transferProperties = transferProperties;
+    }
+
+    /**
+     * Import session store from file
+     *
+     * @param path file path
+     * @return import result
+     */
+    public SessionTransferResult importStore(Path path) {
+        return importStore(path, progress -> {
+        });
+    }
+
+    /**
+     * Import session store from file
+     *
+     * @param path             file path
+     * @param progressListener listener of import progress, called every {@code progress-interval} records
+     * @return import result
+     */
+    public SessionTransferResult importStore(Path path, Consumer<SessionTransferResult> progressListener) {
+        try (var reader = SessionStoreFile.Reader.open(path, transferProperties.getBufferSize())) {
+            var progress = new SessionTransferProgress(
+                    "import",
+                    transferProperties.getProgressInterval(),
+                    progressListener,
+                    reader::getBytes
+            );
+            var deferIndexes = transferProperties.isDeferIndexes() && isStoreEmpty();
+            if (deferIndexes) {
+                DROP_INDEXES.forEach(jdbcTemplate::execute);
+            }
+            try {
+                new Import(reader, progress).run();
+            } finally {
+                if (deferIndexes) {
+                    CREATE_INDEXES.forEach(jdbcTemplate::execute);
+                }
+            }
+            var result = progress.toResult();
+            log.info("Session store imported: {}", result);
+            return result;
+        } catch (IOException e) {
+            throw new UnexpectedErrorException("Can't import session store from '%s'".formatted(path), e);
+        }
+    }
+
+    private boolean isStoreEmpty() {
+        var empty = jdbcTemplate.queryForList(SELECT_ANY_SESSION).isEmpty();
+        if (!empty) {
+            log.info("Session store is not empty, indexes are kept during import");
+        }
+        return empty;
+    }
+
+    /**
+     * State of a single import: permission mapping and not inserted records
+     */
+    private final class Import {
+        private final SessionStoreFile.Reader reader;
+        private final SessionTransferProgress progress;
+        private final int batchSize;
+        private final Map<Long, String> permissionCodes = new HashMap<>();
+        private final List<SessionEntity> sessions = new ArrayList<>();
+        private final List<SessionSnapshotEntity> snapshots = new ArrayList<>();
+        private final List<SessionSectionSnapshotEntity> sectionSnapshots = new ArrayList<>();
+        private Map<Long, PermissionEntity> permissions;
+
+        private Import(SessionStoreFile.Reader reader, SessionTransferProgress progress) {
+            this.reader = reader;
+            this.progress = progress;
+            this.batchSize = Math.max(transferProperties.getBatchSize(), 1);
+        }
+
+        private void run() throws IOException {
+            while (true) {
+                var type = reader.nextRecord();
+                switch (type) {
+                    case SessionStoreFile.RECORD_PERMISSION -> readPermission();
+                    case SessionStoreFile.RECORD_SESSION -> readSession();
+                    case SessionStoreFile.RECORD_SNAPSHOT -> readSnapshot();
+                    case SessionStoreFile.RECORD_SECTION_SNAPSHOT -> readSectionSnapshot();
+                    case SessionStoreFile.RECORD_END -> {
+                        flush();
+                        verifyCounts();
+                        return;
+                    }
+                    default -> throw new IOException("Unknown record type: %d".formatted(type));
+                }
+            }
+        }
+
+        private void readPermission() {
+            var id = reader.readLong();
+            permissionCodes.put(id, reader.readString());
+            progress.permission();
+        }
+
+        private void readSession() {
+            if (permissions == null) {
+                permissions = resolvePermissions();
+            }
+            var uid = reader.readString();
+            var ownerType = SessionOwnerType.valueOf(reader.readString());
+            var ownerId = reader.readString();
+            var createdAt = toDateTime(reader.readInstant());
+            var expiresAt = toDateTime(reader.readInstant());
+            var latestVersion = reader.readLong();
+            var permissionCount = reader.readInt();
+            var sessionPermissions = new ArrayList<PermissionEntity>(permissionCount);
+            for (int i = 0; i < permissionCount; i++) {
+                var permissionId = reader.readLong();
+                var permission = permissions.get(permissionId);
+                if (permission == null) {
+                    throw new UnexpectedErrorException(
+                            "Permission %d of session '%s' not found in file".formatted(permissionId, uid)
+                    );
+                }
+                sessionPermissions.add(permission);
+            }
+            sessions.add(
+                    SessionEntity.builder()
+                            .uid(uid)
+                            .ownerType(ownerType)
+                            .ownerId(ownerId)
+                            .createdAt(createdAt)
+                            .expiresAt(expiresAt)
+                            .latestVersion(latestVersion)
+                            .permissions(sessionPermissions)
+                            .permissionIds(PermissionSet.encode(permissionRegistry.toIds(sessionPermissions)))
+                            .build()
+            );
+            progress.session();
+            if (sessions.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private void readSnapshot() {
+            // sessions are written before snapshots, so pending sessions are inserted before referencing rows
+            flushSessions();
+            var uid = reader.readString();
+            var version = reader.readLong();
+            snapshots.add(
+                    SessionSnapshotEntity.builder()
+                            .entityId(
+                                    SessionSnapshotEntityId.builder()
+                                            .uid(uid)
+                                            .version(version)
+                                            .build()
+                            )
+                            .snapshot(reader.readBytes())
+                            .snapshotType(SnapshotCodecType.valueOf(reader.readString()))
+                            .baseVersion(reader.readNullableLong())
+                            .createdAt(toDateTime(reader.readInstant()))
+                            .build()
+            );
+            progress.snapshot();
+            if (snapshots.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private void readSectionSnapshot() {
+            flushSessions();
+            var uid = reader.readString();
+            var section = reader.readString();
+            var version = reader.readLong();
+            var snapshot = reader.readBytes();
+            var snapshotType = reader.readString();
+            sectionSnapshots.add(
+                    SessionSectionSnapshotEntity.builder()
+                            .entityId(
+                                    SessionSectionSnapshotEntityId.builder()
+                                            .uid(uid)
+                                            .section(section)
+                                            .version(version)
+                                            .build()
+                            )
+                            .snapshot(snapshot)
+                            .snapshotType(snapshotType == null ? null : SnapshotCodecType.valueOf(snapshotType))
+                            .createdAt(toDateTime(reader.readInstant()))
+                            .build()
+            );
+            progress.sectionSnapshot();
+            if (sectionSnapshots.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private Map<Long, PermissionEntity> resolvePermissions() {
+            var resolved = permissionRegistry.resolve(permissionCodes.values());
+            var mapped = new HashMap<Long, PermissionEntity>(permissionCodes.size());
+            for (var entry : permissionCodes.entrySet()) {
+                mapped.put(entry.getKey(), resolved.get(entry.getValue()));
+            }
+            return mapped;
+        }
+
+        private void flushSessions() {
+            if (!sessions.isEmpty()) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (sessions.isEmpty() && snapshots.isEmpty() && sectionSnapshots.isEmpty()) {
+                return;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                sessionBatchJdbcRepository.insertSessions(sessions);
+                sessionBatchJdbcRepository.insertSnapshots(snapshots);
+                sessionBatchJdbcRepository.insertSectionSnapshots(sectionSnapshots);
+            });
+            sessions.clear();
+            snapshots.clear();
+            sectionSnapshots.clear();
+        }
+
+        private void verifyCounts() throws IOException {
+            var permissionCount = reader.readLong();
+            var sessionCount = reader.readLong();
+            var snapshotCount = reader.readLong();
+            var sectionSnapshotCount = reader.readLong();
+            if (permissionCount != progress.getPermissions() ||
+                    sessionCount != progress.getSessions() ||
+                    snapshotCount != progress.getSnapshots() ||
+                    sectionSnapshotCount != progress.getSectionSnapshots()) {
+                throw new IOException(
+                        "Session store file is inconsistent, expected %d permissions, %d sessions, %d snapshots and %d section snapshots"
+                                .formatted(permissionCount, sessionCount, snapshotCount, sectionSnapshotCount)
+                );
+            }
+        }
+    }
+
+    private static ZonedDateTime toDateTime(Instant instant) {
+        return instant == null ? null : instant.atZone(ZoneOffset.UTC);
+    }
+}
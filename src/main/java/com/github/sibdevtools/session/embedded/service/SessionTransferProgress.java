@@ -0,0 +1,96 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.embedded.dto.SessionTransferResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Counter of transferred records, which reports progress every {@code interval} records.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Slf4j
+final class SessionTransferProgress {
+    private final String operation;
+    private final long interval;
+    private final Consumer<SessionTransferResult> listener;
+    private final LongSupplier bytes;
+    private final long startedAt = System.nanoTime();
+
+    private long permissions;
+    private long sessions;
+    private long snapshots;
+    private long sectionSnapshots;
+    private long records;
+
+    SessionTransferProgress(String operation,
+                            long interval,
+                            Consumer<SessionTransferResult> listener,
+                            LongSupplier bytes) {
+        this.operation = operation;
+        this.interval = interval;
+        this.listener = listener;
+        this.bytes = bytes;
+    }
+
+    void permission() {
+        permissions++;
+        tick();
+    }
+
+    void session() {
+        sessions++;
+        tick();
+    }
+
+    void snapshot() {
+        snapshots++;
+        tick();
+    }
+
+    void sectionSnapshot() {
+        sectionSnapshots++;
+        tick();
+    }
+
+    long getPermissions() {
+        return permissions;
+    }
+
+    long getSessions() {
+        return sessions;
+    }
+
+    long getSnapshots() {
+        return snapshots;
+    }
+
+    long getSectionSnapshots() {
+        return sectionSnapshots;
+    }
+
+    SessionTransferResult toResult() {
+        return new SessionTransferResult(
+                permissions,
+                sessions,
+                snapshots,
+                sectionSnapshots,
+                bytes.getAsLong(),
+                Duration.ofNanos(System.nanoTime() - startedAt)
+        );
+    }
+
+    private void tick() {
+        records++;
+        if (interval <= 0 || records % interval != 0) {
+            return;
+        }
+        var progress = toResult();
+        log.info("Session store {} progress: {}", operation, progress);
+        listener.accept(progress);
+    }
+}
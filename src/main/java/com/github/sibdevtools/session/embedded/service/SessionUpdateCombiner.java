@@ -0,0 +1,202 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.api.dto.SessionId;
+import com.github.sibdevtools.session.api.rq.UpdateSessionRq;
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedUpdateProperties;
+import com.github.sibdevtools.session.embedded.exception.UnexpectedErrorException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BiConsumer;
+
+/**
+ * Combiner of concurrent updates of the same session.
+ * <p>
+ * Updates are queued by session uid. The first caller becomes a combiner: it takes queued updates
+ * and passes them into batch updater in a single transaction, then wakes up waiting callers
+ * and hands combining over to the next queued caller, if any.
+ * Waiting callers don't hold a transaction, so a queue of any length needs a single connection.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public class SessionUpdateCombiner {
+    private final Map<String, List<Update>> queues = new ConcurrentHashMap<>();
+    private final SessionServiceEmbeddedUpdateProperties updateProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Construct session update combiner
+     *
+     * @param updateProperties   session update properties
+     * @param transactionManager transaction manager
+     */
+    public SessionUpdateCombiner(SessionServiceEmbeddedUpdateProperties updateProperties,
+                                 PlatformTransactionManager transactionManager) {
+        this.updateProperties = updateProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Is update coalescing enabled
+     *
+     * @return true if concurrent updates should be combined
+     */
+    public boolean isEnabled() {
+        return updateProperties.isCoalescingEnabled();
+    }
+
+    /**
+     * Queue update and wait for its result.
+     * <p>
+     * Batch updater is called with session uid and queued updates in order of arrival,
+     * it should set result or error of every update.
+     *
+     * @param rq           update session request
+     * @param batchUpdater batch updater
+     * @return identifier of session version, containing the update
+     */
+    public SessionId update(UpdateSessionRq rq, BiConsumer<String, List<Update>> batchUpdater) {
+        var uid = rq.sessionId().getUID();
+        var update = new Update(rq);
+        var combiner = new boolean[1];
+        queues.compute(uid, (key, queue) -> {
+            var actualQueue = queue;
+            if (actualQueue == null) {
+                combiner[0] = true;
+                actualQueue = new ArrayList<>();
+            }
+            actualQueue.add(update);
+            return actualQueue;
+        });
+        if (combiner[0] || update.await()) {
+            combine(uid, update, batchUpdater);
+        }
+        if (update.error != null) {
+            throw update.error;
+        }
+        return update.result;
+    }
+
+    private void combine(String uid, Update self, BiConsumer<String, List<Update>> batchUpdater) {
+        var batch = takeBatch(uid);
+        try {
+            transactionTemplate.executeWithoutResult(status -> batchUpdater.accept(uid, batch));
+        } catch (RuntimeException e) {
+            for (var update : batch) {
+                if (update.error == null) {
+                    update.result = null;
+                    update.error = e;
+                }
+            }
+        } finally {
+            var next = handOver(uid);
+            for (var update : batch) {
+                if (update.result == null && update.error == null) {
+                    update.error = new UnexpectedErrorException("Session %s update is not completed".formatted(uid));
+                }
+                if (update != self) {
+                    update.done.countDown();
+                }
+            }
+            if (next != null) {
+                next.promoted = true;
+                next.done.countDown();
+            }
+        }
+    }
+
+    private List<Update> takeBatch(String uid) {
+        var maxBatchSize = Math.max(updateProperties.getCoalescingMaxBatchSize(), 1);
+        var batch = new ArrayList<Update>();
+        queues.compute(uid, (key, queue) -> {
+            var head = queue.subList(0, Math.min(queue.size(), maxBatchSize));
+            batch.addAll(head);
+            head.clear();
+            return queue;
+        });
+        return batch;
+    }
+
+    private Update handOver(String uid) {
+        var next = new Update[1];
+        queues.compute(uid, (key, queue) -> {
+            if (queue.isEmpty()) {
+                return null;
+            }
+            next[0] = queue.getFirst();
+            return queue;
+        });
+        return next[0];
+    }
+
+    /**
+     * Queued session update
+     */
+    public static final class Update {
+        private final UpdateSessionRq rq;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile boolean promoted;
+        private SessionId result;
+        private RuntimeException error;
+
+        private Update(UpdateSessionRq rq) {
+            this.rq = rq;
+        }
+
+        /**
+         * Get update request
+         *
+         * @return update session request
+         */
+        public UpdateSessionRq getRq() {
+            return rq;
+        }
+
+        /**
+         * Set identifier of session version, containing the update
+         *
+         * @param sessionId session identifier
+         */
+        public void complete(SessionId sessionId) {
+            this.result = sessionId;
+        }
+
+        /**
+         * Set update error
+         *
+         * @param error update error
+         */
+        public void fail(RuntimeException error) {
+            this.error = error;
+        }
+
+        /**
+         * Wait till update is done or caller is promoted to combiner
+         *
+         * @return true if caller became combiner
+         */
+        private boolean await() {
+            var interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return promoted;
+        }
+    }
+}
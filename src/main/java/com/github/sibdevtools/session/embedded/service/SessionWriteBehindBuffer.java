@@ -0,0 +1,407 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.api.dto.SessionId;
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedWriteBehindProperties;
+import com.github.sibdevtools.session.embedded.dto.CachedSession;
+import com.github.sibdevtools.session.embedded.dto.PendingSnapshot;
+import com.github.sibdevtools.session.embedded.entity.SessionSnapshotEntityId;
+import com.github.sibdevtools.session.embedded.exception.SessionWriteBufferOverflowException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Write-behind buffer of session versions.
+ * <p>
+ * Buffered version is visible to readers right after {@link #write(String, Function)} returns
+ * and is persisted later by background writer, in batches, each batch in a separate transaction.
+ * Versions of the same session are built one by one under a session lock, so buffered latest version
+ * always has all previous versions buffered or persisted.
+ * When buffer is full, writer waits for a free place up to configured timeout, then update is rejected.
+ * Version, which couldn't be persisted, stays buffered and is retried with backoff,
+ * later versions of the same session wait for it, so persisted versions never have gaps.
+ * Buffer is drained on shutdown.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Slf4j
+public class SessionWriteBehindBuffer {
+    private static final int LOCK_STRIPES = 64;
+
+    private final SessionStorage sessionStorage;
+    private final SessionHeaderStorage sessionHeaderStorage;
+    private final SessionSnapshotCache sessionSnapshotCache;
+    private final SessionServiceEmbeddedWriteBehindProperties writeBehindProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<SessionSnapshotEntityId, PendingSnapshot> pendingSnapshots = new ConcurrentHashMap<>();
+    private final Map<String, Long> latestVersions = new ConcurrentHashMap<>();
+    private final Queue<PendingSnapshot> queue = new ConcurrentLinkedQueue<>();
+    private final List<PendingSnapshot> retryQueue = new ArrayList<>();
+    private final Semaphore queuePermits;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    private final AtomicLong totalFlushed = new AtomicLong();
+    private final AtomicLong totalDropped = new AtomicLong();
+
+    private long retryAt;
+    private long retryBackoff;
+
+    private volatile boolean closed;
+    private ScheduledExecutorService executorService;
+
+    /**
+     * Construct session write-behind buffer
+     *
+     * @param sessionStorage        session storage
+     * @param sessionHeaderStorage  session header storage
+     * @param sessionSnapshotCache  decoded session snapshots cache
+     * @param writeBehindProperties write-behind properties
+     * @param transactionManager    transaction manager
+     */
+    public SessionWriteBehindBuffer(SessionStorage sessionStorage,
+                                    SessionHeaderStorage sessionHeaderStorage,
+                                    SessionSnapshotCache sessionSnapshotCache,
+                                    SessionServiceEmbeddedWriteBehindProperties writeBehindProperties,
+                                    PlatformTransactionManager transactionManager) {
+        this.sessionStorage = sessionStorage;
+        this.sessionHeaderStorage = sessionHeaderStorage;
+        this.sessionSnapshotCache = sessionSnapshotCache;
+        this.writeBehindProperties = writeBehindProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queuePermits = new Semaphore(Math.max(writeBehindProperties.getMaxQueueSize(), 1));
+        this.retryBackoff = getInitialRetryBackoff();
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Start scheduled flush, if write-behind is enabled
+     */
+    @PostConstruct
+    public void start() {
+        if (!writeBehindProperties.isEnabled()) {
+            return;
+        }
+        var interval = writeBehindProperties.getFlushInterval().toMillis();
+        executorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "session-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executorService.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop scheduled flush and persist all buffered versions
+     */
+    @PreDestroy
+    public void stop() {
+        // wait for writers, which passed closed check, so their versions are enqueued before the final flush
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        if (executorService == null) {
+            return;
+        }
+        executorService.shutdown();
+        var flushed = flush(true);
+        if (flushed > 0) {
+            log.info("Session write-behind buffer drained: {} versions", flushed);
+        }
+        dropNotFlushed();
+    }
+
+    /**
+     * Is write-behind mode enabled
+     *
+     * @return true if session updates should be buffered
+     */
+    public boolean isEnabled() {
+        return writeBehindProperties.isEnabled();
+    }
+
+    /**
+     * Buffer a new session version.
+     * <p>
+     * Version builder is called under session lock and receives the latest buffered version of session,
+     * or null if session has no buffered versions.
+     * Builder is called after a free place in buffer is acquired, so it may open a transaction without holding
+     * connection while waiting.
+     *
+     * @param uid     session uid
+     * @param builder new version builder
+     * @return identifier of buffered version
+     */
+    public SessionId write(String uid, Function<Long, PendingSnapshot> builder) {
+        acquireQueuePermit(uid);
+        var enqueued = false;
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new SessionWriteBufferOverflowException(uid);
+            }
+            var lock = locks[Math.floorMod(uid.hashCode(), locks.length)];
+            lock.lock();
+            try {
+                var pendingSnapshot = builder.apply(latestVersions.get(uid));
+                var snapshotId = pendingSnapshot.getSnapshot().getEntityId();
+                pendingSnapshots.put(snapshotId, pendingSnapshot);
+                latestVersions.put(uid, snapshotId.getVersion());
+                queue.add(pendingSnapshot);
+                enqueued = true;
+                return pendingSnapshot.getSession().getSession().getId();
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            closeLock.readLock().unlock();
+            if (!enqueued) {
+                queuePermits.release();
+            }
+        }
+    }
+
+    /**
+     * Get buffered session version
+     *
+     * @param snapshotId snapshot identifier
+     * @return buffered session or empty
+     */
+    public Optional<CachedSession> find(SessionSnapshotEntityId snapshotId) {
+        if (pendingSnapshots.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(pendingSnapshots.get(snapshotId))
+                .map(PendingSnapshot::getSession);
+    }
+
+    /**
+     * Get latest buffered version of session
+     *
+     * @param uid session uid
+     * @return latest buffered version or empty, if all session versions are persisted
+     */
+    public Optional<Long> findLatestVersion(String uid) {
+        if (latestVersions.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(latestVersions.get(uid));
+    }
+
+    /**
+     * Persist all buffered versions.
+     * <p>
+     * Versions, which couldn't be persisted before, are retried only if retry backoff is elapsed,
+     * until then later versions of the same sessions stay buffered.
+     *
+     * @return count of flushed versions
+     */
+    public int flush() {
+        return flush(false);
+    }
+
+    private synchronized int flush(boolean force) {
+        var batchSize = Math.max(writeBehindProperties.getBatchSize(), 1);
+        var retrying = !retryQueue.isEmpty() && (force || System.nanoTime() - retryAt >= 0);
+        var failedUids = new HashSet<String>();
+        var deferred = new ArrayList<PendingSnapshot>();
+        var retries = new ArrayList<>(retryQueue).iterator();
+        retryQueue.clear();
+        if (!retrying) {
+            retries.forEachRemaining(it -> {
+                failedUids.add(getUid(it));
+                deferred.add(it);
+            });
+        }
+        var flushed = 0;
+        var failed = false;
+        while (true) {
+            var batch = new ArrayList<PendingSnapshot>(batchSize);
+            PendingSnapshot pendingSnapshot;
+            while (batch.size() < batchSize &&
+                    (pendingSnapshot = retries.hasNext() ? retries.next() : queue.poll()) != null) {
+                if (failedUids.contains(getUid(pendingSnapshot))) {
+                    deferred.add(pendingSnapshot);
+                } else {
+                    batch.add(pendingSnapshot);
+                }
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+            var persisted = flushBatch(batch, failedUids, deferred);
+            failed |= persisted < batch.size();
+            flushed += persisted;
+        }
+        retryQueue.addAll(deferred);
+        if (failed) {
+            retryAt = System.nanoTime() + retryBackoff;
+            retryBackoff = Math.min(retryBackoff * 2, Math.max(writeBehindProperties.getMaxRetryBackoff().toNanos(), 1));
+        } else if (retrying || retryQueue.isEmpty()) {
+            retryBackoff = getInitialRetryBackoff();
+        }
+        return flushed;
+    }
+
+    /**
+     * Get count of buffered, not flushed versions
+     *
+     * @return count of versions
+     */
+    public int getQueueSize() {
+        return pendingSnapshots.size();
+    }
+
+    /**
+     * Get count of versions, flushed since start
+     *
+     * @return count of versions
+     */
+    public long getTotalFlushed() {
+        return totalFlushed.get();
+    }
+
+    /**
+     * Get count of versions, dropped on shutdown because they couldn't be persisted
+     *
+     * @return count of versions
+     */
+    public long getTotalDropped() {
+        return totalDropped.get();
+    }
+
+    private void acquireQueuePermit(String uid) {
+        if (closed) {
+            throw new SessionWriteBufferOverflowException(uid);
+        }
+        try {
+            var offerTimeout = writeBehindProperties.getOfferTimeout().toNanos();
+            if (!queuePermits.tryAcquire(offerTimeout, TimeUnit.NANOSECONDS)) {
+                throw new SessionWriteBufferOverflowException(uid);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SessionWriteBufferOverflowException(uid);
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Session write-behind flush failed", e);
+        }
+    }
+
+    /**
+     * Persist batch of versions in a single transaction, or one by one, if batch couldn't be persisted.
+     * <p>
+     * Version, which couldn't be persisted, and all later versions of the same session are deferred to retry.
+     *
+     * @param batch      versions to persist
+     * @param failedUids uids of sessions with deferred versions
+     * @param deferred   deferred versions
+     * @return count of persisted versions
+     */
+    private int flushBatch(List<PendingSnapshot> batch,
+                           Set<String> failedUids,
+                           List<PendingSnapshot> deferred) {
+        try {
+            persist(batch);
+            batch.forEach(this::complete);
+            return batch.size();
+        } catch (RuntimeException e) {
+            log.warn("Session write-behind batch flush failed, versions are flushed one by one", e);
+        }
+        var persisted = 0;
+        for (var pendingSnapshot : batch) {
+            var uid = getUid(pendingSnapshot);
+            if (failedUids.contains(uid)) {
+                deferred.add(pendingSnapshot);
+                continue;
+            }
+            try {
+                persist(List.of(pendingSnapshot));
+                complete(pendingSnapshot);
+                persisted++;
+            } catch (RuntimeException e) {
+                log.error("Session version {} flush failed, version is retried later",
+                        pendingSnapshot.getSnapshot().getEntityId(), e);
+                failedUids.add(uid);
+                deferred.add(pendingSnapshot);
+            }
+        }
+        return persisted;
+    }
+
+    private void persist(List<PendingSnapshot> batch) {
+        var snapshots = batch.stream()
+                .map(PendingSnapshot::getSnapshot)
+                .toList();
+        var latestVersions = new HashMap<String, Long>();
+        for (var snapshot : snapshots) {
+            var snapshotId = snapshot.getEntityId();
+            latestVersions.merge(snapshotId.getUid(), snapshotId.getVersion(), Math::max);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            sessionStorage.appendSnapshots(snapshots);
+            sessionHeaderStorage.updateLatestVersions(latestVersions);
+        });
+    }
+
+    private void complete(PendingSnapshot pendingSnapshot) {
+        var snapshotId = pendingSnapshot.getSnapshot().getEntityId();
+        sessionSnapshotCache.put(snapshotId, pendingSnapshot.getSession());
+        totalFlushed.incrementAndGet();
+        release(pendingSnapshot);
+    }
+
+    private synchronized void dropNotFlushed() {
+        var notFlushed = new ArrayList<>(retryQueue);
+        retryQueue.clear();
+        PendingSnapshot pendingSnapshot;
+        while ((pendingSnapshot = queue.poll()) != null) {
+            notFlushed.add(pendingSnapshot);
+        }
+        if (notFlushed.isEmpty()) {
+            return;
+        }
+        log.error("Session write-behind buffer is closed with {} not flushed versions, versions are dropped",
+                notFlushed.size());
+        for (var it : notFlushed) {
+            totalDropped.incrementAndGet();
+            release(it);
+        }
+    }
+
+    private void release(PendingSnapshot pendingSnapshot) {
+        var snapshotId = pendingSnapshot.getSnapshot().getEntityId();
+        pendingSnapshots.remove(snapshotId);
+        latestVersions.remove(snapshotId.getUid(), snapshotId.getVersion());
+        queuePermits.release();
+    }
+
+    private long getInitialRetryBackoff() {
+        return Math.max(writeBehindProperties.getRetryBackoff().toNanos(), 1);
+    }
+
+    private static String getUid(PendingSnapshot pendingSnapshot) {
+        return pendingSnapshot.getSnapshot().getEntityId().getUid();
+    }
+}
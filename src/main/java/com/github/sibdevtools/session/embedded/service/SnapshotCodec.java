@@ -3,7 +3,11 @@ package com.github.sibdevtools.session.embedded.service;
 import com.github.sibdevtools.session.embedded.entity.SnapshotCodecType;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author sibmaks
@@ -27,6 +31,109 @@ public interface SnapshotCodec {
      */
    byte[] serialize(Map<String, Map<String, Serializable>> snapshot);
 
+    /**
+     * Method should serialize session snapshot content, produced by modification of the source snapshot.
+     * Default implementation serializes the whole content,
+     * codecs with indexed layout may reuse encoded bytes of unchanged sections.
+     *
+     * @param snapshot        source snapshot
+     * @param sourceSnapshot  serialized snapshot, content is derived from, may be null
+     * @param changedSections names of sections, which are changed or added comparing to source snapshot
+     * @return serialized session content
+     */
+    default byte[] serialize(Map<String, Map<String, Serializable>> snapshot,
+                             byte[] sourceSnapshot,
+                             Set<String> changedSections) {
+        return serialize(snapshot);
+    }
+
+    /**
+     * Check codec reuses encoded bytes of unchanged sections on serialization of modified snapshot
+     *
+     * @return true if source snapshot is used by serialization, false otherwise
+     */
+    default boolean isSectionReuseSupported() {
+        return false;
+    }
+
+    /**
+     * Method should return attribute names of snapshot section.
+     * Default implementation deserializes the whole snapshot,
+     * codecs with indexed layout should read only the section names.
+     *
+     * @param snapshot source snapshot
+     * @param section  section name
+     * @return section attribute names or empty set if section not exists
+     */
+    default Set<String> getAttributeNames(byte[] snapshot, String section) {
+        var attributes = deserialize(snapshot).get(section);
+        if (attributes == null) {
+            return Collections.emptySet();
+        }
+        return attributes.keySet();
+    }
+
+    /**
+     * Method should return attribute value of snapshot section.
+     * Default implementation deserializes the whole snapshot,
+     * codecs with indexed layout should decode only the requested value.
+     *
+     * @param snapshot  source snapshot
+     * @param section   section name
+     * @param attribute attribute name
+     * @return attribute value or null if attribute not exists
+     */
+    default Serializable getAttribute(byte[] snapshot, String section, String attribute) {
+        var attributes = deserialize(snapshot).get(section);
+        if (attributes == null) {
+            return null;
+        }
+        return attributes.get(attribute);
+    }
+
+    /**
+     * Method should return attribute values of multiple snapshot sections.
+     * Default implementation deserializes the whole snapshot once,
+     * codecs with indexed layout should decode only the requested values.
+     *
+     * @param snapshot       source snapshot
+     * @param attributeNames attribute names, grouped by section
+     * @return attribute values, grouped by section, not existing attributes are absent
+     */
+    default Map<String, Map<String, Serializable>> getAttributes(byte[] snapshot,
+                                                                 Map<String, ? extends Collection<String>> attributeNames) {
+        return selectAttributes(deserialize(snapshot), attributeNames);
+    }
+
+    /**
+     * Select attribute values of multiple sections from decoded session content
+     *
+     * @param attributes     decoded session content
+     * @param attributeNames attribute names, grouped by section
+     * @return attribute values, grouped by section, not existing attributes are absent
+     */
+    static Map<String, Map<String, Serializable>> selectAttributes(Map<String, Map<String, Serializable>> attributes,
+                                                                   Map<String, ? extends Collection<String>> attributeNames) {
+        var selected = new HashMap<String, Map<String, Serializable>>(attributeNames.size());
+        for (var entry : attributeNames.entrySet()) {
+            var sectionAttributes = attributes.get(entry.getKey());
+            if (sectionAttributes == null) {
+                continue;
+            }
+            var selectedAttributes = new HashMap<String, Serializable>(entry.getValue().size());
+            for (var attributeName : entry.getValue()) {
+                var value = sectionAttributes.get(attributeName);
+                if (value != null) {
+                    selectedAttributes.put(attributeName, value);
+                }
+            }
+            if (!selectedAttributes.isEmpty()) {
+                selected.put(entry.getKey(), selectedAttributes);
+            }
+        }
+        return selected;
+    }
+
     /**
      * Get a codec type
      *
@@ -0,0 +1,120 @@
+package com.github.sibdevtools.session.embedded.service.impl;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes of a storage without own transactions, deferred till commit of the current Spring transaction.
+ * <p>
+ * Writes are applied before commit in order of registration, so a failed write rolls the transaction back,
+ * and nothing is applied on rollback. Without active transaction synchronization writes are applied immediately.
+ * Flush callback is called once after writes of a transaction are applied.
+ * Batch of writes is found among synchronizations of the current transaction,
+ * so writes of a suspended outer transaction are not mixed with writes of an inner one.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+final class DeferredWrites {
+    private final Object owner;
+    private final Runnable flush;
+
+    /**
+     * Construct deferred writes
+     *
+     * @param owner storage, which writes are deferred
+     * @param flush callback, called after writes are applied
+     */
+    DeferredWrites(Object owner, Runnable flush) {
+        this.owner = owner;
+        this.flush = flush;
+    }
+
+    /**
+     * Apply write on commit of the current transaction or immediately, if there is no transaction
+     *
+     * @param write write to apply
+     */
+    void write(Runnable write) {
+        var batch = currentBatch();
+        if (batch == null) {
+            write.run();
+            flush.run();
+            return;
+        }
+        batch.writes.add(write);
+    }
+
+    /**
+     * Run callback after completion of the current transaction, either commit or rollback
+     *
+     * @param callback callback
+     * @return true if callback is registered, false if there is no transaction
+     */
+    boolean afterCompletion(Runnable callback) {
+        var batch = currentBatch();
+        if (batch == null) {
+            return false;
+        }
+        batch.completions.add(callback);
+        return true;
+    }
+
+    /**
+     * Get token of the current transaction, the same during the whole transaction
+     *
+     * @return transaction token or null, if there is no transaction
+     */
+    Object currentTransaction() {
+        return currentBatch();
+    }
+
+    private Batch currentBatch() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        for (var synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof Batch batch && batch.owner == owner) {
+                return batch;
+            }
+        }
+        var batch = new Batch(owner, flush);
+        TransactionSynchronizationManager.registerSynchronization(batch);
+        return batch;
+    }
+
+    private static final class Batch implements TransactionSynchronization {
+        private final Object owner;
+        private final Runnable flush;
+        private final List<Runnable> writes = new ArrayList<>();
+        private final List<Runnable> completions = new ArrayList<>();
+
+        private Batch(Object owner, Runnable flush) {
+            this.owner = owner;
+            this.flush = flush;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (writes.isEmpty()) {
+                return;
+            }
+            for (var write : writes) {
+                write.run();
+            }
+            writes.clear();
+            flush.run();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            for (var completion : completions) {
+                completion.run();
+            }
+            completions.clear();
+        }
+    }
+}
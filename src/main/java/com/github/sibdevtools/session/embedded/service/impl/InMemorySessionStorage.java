@@ -0,0 +1,811 @@
+package com.github.sibdevtools.session.embedded.service.impl;
+
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedMemoryStorageProperties;
+import com.github.sibdevtools.session.embedded.dto.SessionVersions;
+import com.github.sibdevtools.session.embedded.dto.SnapshotContent;
+import com.github.sibdevtools.session.embedded.entity.*;
+import com.github.sibdevtools.session.embedded.service.SessionChainStorage;
+import com.github.sibdevtools.session.embedded.service.SessionHeaderStorage;
+import com.github.sibdevtools.session.embedded.service.SessionOwnerStorage;
+import com.github.sibdevtools.session.embedded.service.SessionSectionStorage;
+import com.github.sibdevtools.session.embedded.service.SessionStorage;
+import jakarta.annotation.Nullable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Session storage in process memory. Sessions are lost on restart, so it is suitable for tests
+ * and ephemeral deployments only.
+ * <p>
+ * Sessions are spread among stripes by uid, each stripe is an access ordered map of session version chains
+ * under its own lock. Lookup takes the stripe lock only to find a chain, snapshots are read from the chain without it.
+ * Write locks all stripes of the written sessions in ascending order, checks all written rows and then applies them,
+ * so failed write doesn't leave a part of rows.
+ * <p>
+ * Writes are applied on commit of the current Spring transaction. Latest version change holds the session
+ * till the end of transaction, so concurrent change of the same session fails fast.
+ * Memory is bounded: only {@code max-versions} newest versions of a session are kept, with base snapshots
+ * of their delta chains, and sessions of a stripe are removed above stripe share of {@code max-sessions}
+ * and {@code max-bytes}: expired sessions first, then the least recently used ones.
+ * Evicted session is not found, the same as a purged one.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public class InMemorySessionStorage implements SessionStorage,
+        SessionHeaderStorage,
+        SessionOwnerStorage,
+        SessionChainStorage,
+        SessionSectionStorage {
+    private final Stripe[] stripes;
+    private final int maxStripeSessions;
+    private final long maxStripeBytes;
+    private final int maxVersions;
+    private final DeferredWrites deferredWrites;
+
+    private final Map<Long, PermissionEntity> permissionsById = new ConcurrentHashMap<>();
+    private final Map<String, PermissionEntity> permissionsByCode = new ConcurrentHashMap<>();
+    private final Map<OwnerKey, ConcurrentSkipListMap<String, SessionChain>> owners = new ConcurrentHashMap<>();
+    private final AtomicLong evictions = new AtomicLong();
+    private long lastPermissionId;
+
+    /**
+     * Construct in-memory session storage
+     *
+     * @param storageProperties in-memory storage properties
+     */
+    public InMemorySessionStorage(SessionServiceEmbeddedMemoryStorageProperties storageProperties) {
+        var stripeCount = Math.max(Integer.highestOneBit(Math.max(storageProperties.getStripes(), 1) - 1) << 1, 1);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        var maxSessions = (long) storageProperties.getMaxSessions();
+        this.maxStripeSessions = (int) Math.max((maxSessions + stripeCount - 1) / stripeCount, 1);
+        this.maxStripeBytes = Math.max(storageProperties.getMaxBytes() / stripeCount, 1);
+        this.maxVersions = Math.max(storageProperties.getMaxVersions(), 1);
+        this.deferredWrites = new DeferredWrites(this, () -> {
+            // writes are applied to memory, so there is nothing to flush
+        });
+    }
+
+    @Override
+    public List<PermissionEntity> findAllPermissions() {
+        return List.copyOf(permissionsById.values());
+    }
+
+    @Override
+    public List<PermissionEntity> findAllPermissionsById(Collection<Long> ids) {
+        return ids.stream()
+                .map(permissionsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public synchronized List<PermissionEntity> createPermissions(Collection<String> codes) {
+        // permissions are committed independently, so they are stored immediately
+        var permissions = new ArrayList<PermissionEntity>(codes.size());
+        for (var code : codes) {
+            var key = code.toLowerCase(Locale.ROOT);
+            var permission = permissionsByCode.get(key);
+            if (permission == null) {
+                permission = new PermissionEntity(++lastPermissionId, code);
+                permissionsById.put(permission.getId(), permission);
+                permissionsByCode.put(key, permission);
+            }
+            permissions.add(permission);
+        }
+        return permissions;
+    }
+
+    @Override
+    public void createSessions(List<SessionEntity> sessions,
+                               List<SessionSnapshotEntity> snapshots,
+                               List<SessionSectionSnapshotEntity> sectionSnapshots) {
+        var uids = new HashSet<String>();
+        sessions.forEach(it -> uids.add(it.getUid()));
+        snapshots.forEach(it -> uids.add(it.getUid()));
+        sectionSnapshots.forEach(it -> uids.add(it.getEntityId().getUid()));
+        write(uids, () -> {
+            var created = new HashMap<String, SessionChain>();
+            for (var session : sessions) {
+                if (findChain(session.getUid()) != null || created.containsKey(session.getUid())) {
+                    throw new DuplicateKeyException("Session already exists: " + session.getUid());
+                }
+                created.put(session.getUid(), new SessionChain(session));
+            }
+            var chains = checkSnapshots(snapshots, created);
+            var sectionChains = checkSectionSnapshots(sectionSnapshots, created);
+            created.values().forEach(this::addSession);
+            putSnapshots(snapshots, chains);
+            putSectionSnapshots(sectionSnapshots, sectionChains);
+        });
+    }
+
+    @Override
+    public Optional<Long> findLatestVersion(String uid) {
+        var chain = touchChain(uid);
+        if (chain == null) {
+            return Optional.empty();
+        }
+        return Optional.of(chain.getVisibleVersion(deferredWrites.currentTransaction()));
+    }
+
+    @Override
+    public boolean compareAndSetLatestVersion(String uid, long expectedVersion, long version) {
+        var chain = touchChain(uid);
+        if (chain == null) {
+            return false;
+        }
+        var transaction = deferredWrites.currentTransaction();
+        synchronized (chain) {
+            if (chain.lockOwner != null && chain.lockOwner != transaction) {
+                return false;
+            }
+            if (chain.getVisibleVersion(transaction) != expectedVersion) {
+                return false;
+            }
+            if (transaction != null && chain.lockOwner == null) {
+                chain.lockOwner = transaction;
+                deferredWrites.afterCompletion(() -> chain.unlock(transaction));
+            }
+            chain.lockedVersion = version;
+        }
+        write(Set.of(uid), () -> chain.advanceVersion(version));
+        return true;
+    }
+
+    @Override
+    public void updateLatestVersions(Map<String, Long> latestVersions) {
+        write(latestVersions.keySet(), () -> latestVersions.forEach((uid, version) -> {
+            var chain = findChain(uid);
+            if (chain != null) {
+                chain.advanceVersion(version);
+            }
+        }));
+    }
+
+    @Override
+    public void prolongExpiresAt(String uid, ZonedDateTime expiresAt, ZonedDateTime now) {
+        write(Set.of(uid), () -> {
+            var chain = findChain(uid);
+            if (chain != null && chain.expiresAt != null && chain.expiresAt.isBefore(expiresAt) &&
+                    chain.isAliveAt(now)) {
+                chain.expiresAt = expiresAt;
+            }
+        });
+    }
+
+    @Override
+    public List<SessionVersions> findAllVersionsByOwner(SessionOwnerType ownerType,
+                                                        String ownerId,
+                                                        String afterUid,
+                                                        ZonedDateTime now,
+                                                        int limit) {
+        return findAllByOwner(ownerType, ownerId, afterUid, now)
+                .limit(Math.max(limit, 1))
+                .map(it -> (SessionVersions) new StoredVersions(it.uid, it.latestVersion))
+                .toList();
+    }
+
+    @Override
+    public long countByOwner(SessionOwnerType ownerType, String ownerId, ZonedDateTime now) {
+        return findAllByOwner(ownerType, ownerId, "", now).count();
+    }
+
+    @Override
+    public int expireAllByOwner(SessionOwnerType ownerType, String ownerId, ZonedDateTime now) {
+        var chains = findAllByOwner(ownerType, ownerId, "", now).toList();
+        var uids = new HashSet<String>();
+        chains.forEach(it -> uids.add(it.uid));
+        write(uids, () -> {
+            for (var chain : chains) {
+                if (chain.isAliveAt(now)) {
+                    chain.expiresAt = now;
+                    stripes[stripeIndex(chain.uid)].expiresAt(now);
+                }
+            }
+        });
+        return chains.size();
+    }
+
+    @Override
+    public Optional<SessionSnapshotEntity> findSnapshot(String uid, long version) {
+        var chain = touchChain(uid);
+        if (chain == null) {
+            return Optional.empty();
+        }
+        var snapshotVersion = chain.versions.get(version);
+        if (snapshotVersion == null) {
+            return Optional.empty();
+        }
+        var snapshot = snapshotVersion.toEntity(uid, version);
+        snapshot.setSession(chain.toEntity());
+        return Optional.of(snapshot);
+    }
+
+    @Override
+    public Optional<SnapshotContent> findSnapshotContent(String uid, long version) {
+        var chain = touchChain(uid);
+        if (chain == null) {
+            return Optional.empty();
+        }
+        var snapshotVersion = chain.versions.get(version);
+        if (snapshotVersion == null) {
+            return Optional.empty();
+        }
+        return Optional.of(
+                new SnapshotContent(
+                        uid,
+                        version,
+                        snapshotVersion.snapshot,
+                        snapshotVersion.snapshotType,
+                        snapshotVersion.baseVersion,
+                        chain.ownerType,
+                        chain.expiresAt
+                )
+        );
+    }
+
+    @Override
+    public Optional<SessionSnapshotEntity> findLatestSnapshot(String uid) {
+        return findLatestVersion(uid)
+                .flatMap(version -> findSnapshot(uid, version));
+    }
+
+    @Override
+    public List<SessionSnapshotEntity> findAllSnapshots(Collection<SessionSnapshotEntityId> snapshotIds) {
+        var snapshots = new ArrayList<SessionSnapshotEntity>(snapshotIds.size());
+        for (var snapshotId : snapshotIds) {
+            findSnapshot(snapshotId.getUid(), snapshotId.getVersion())
+                    .ifPresent(snapshots::add);
+        }
+        return snapshots;
+    }
+
+    @Override
+    public List<SessionSnapshotEntity> findAllLatestSnapshotsByOwner(SessionOwnerType ownerType,
+                                                                     String ownerId,
+                                                                     String afterUid,
+                                                                     ZonedDateTime now,
+                                                                     int limit) {
+        return findAllByOwner(ownerType, ownerId, afterUid, now)
+                .limit(Math.max(limit, 1))
+                .map(it -> findSnapshot(it.uid, it.latestVersion))
+                .flatMap(Optional::stream)
+                .toList();
+    }
+
+    @Override
+    public List<SessionSnapshotEntity> findSnapshotChain(String uid, long fromVersion, long toVersion) {
+        var chain = touchChain(uid);
+        if (chain == null || fromVersion > toVersion) {
+            return List.of();
+        }
+        return chain.versions.subMap(fromVersion, true, toVersion, true)
+                .entrySet()
+                .stream()
+                .map(it -> it.getValue().toEntity(uid, it.getKey()))
+                .toList();
+    }
+
+    @Override
+    public Optional<Long> findChainBaseVersion(String uid, long version) {
+        return findSnapshotVersion(uid, version)
+                .map(it -> it.baseVersion == null ? version : it.baseVersion);
+    }
+
+    @Override
+    public Optional<SnapshotCodecType> findSnapshotType(String uid, long version) {
+        return findSnapshotVersion(uid, version)
+                .map(it -> it.snapshotType);
+    }
+
+    @Override
+    public void appendSnapshot(SessionSnapshotEntity snapshot) {
+        appendSnapshots(List.of(snapshot));
+    }
+
+    @Override
+    public void appendSnapshots(List<SessionSnapshotEntity> snapshots) {
+        var uids = new HashSet<String>();
+        snapshots.forEach(it -> uids.add(it.getUid()));
+        write(uids, () -> putSnapshots(snapshots, checkSnapshots(snapshots, Map.of())));
+    }
+
+    @Override
+    public List<SessionSectionSnapshotEntity> findActualSectionSnapshots(String uid,
+                                                                         @Nullable Collection<String> sections,
+                                                                         long version) {
+        var chain = touchChain(uid);
+        if (chain == null) {
+            return List.of();
+        }
+        var names = sections == null ? chain.sections.keySet() : sections;
+        var sectionSnapshots = new ArrayList<SessionSectionSnapshotEntity>(names.size());
+        for (var section : names) {
+            var entry = findActualSection(chain, section, version);
+            if (entry != null) {
+                sectionSnapshots.add(entry.getValue().toEntity(uid, section, entry.getKey()));
+            }
+        }
+        return sectionSnapshots;
+    }
+
+    @Override
+    public Optional<SessionSectionSnapshotEntity> findActualSectionSnapshot(String uid, String section, long version) {
+        var chain = touchChain(uid);
+        if (chain == null) {
+            return Optional.empty();
+        }
+        var entry = findActualSection(chain, section, version);
+        return entry == null ? Optional.empty() : Optional.of(entry.getValue().toEntity(uid, section, entry.getKey()));
+    }
+
+    @Override
+    public List<String> findActualSectionNames(String uid, long version) {
+        return findActualSectionSnapshots(uid, null, version)
+                .stream()
+                .filter(it -> !it.isRemoved())
+                .map(it -> it.getEntityId().getSection())
+                .toList();
+    }
+
+    @Override
+    public void appendSectionSnapshots(List<SessionSectionSnapshotEntity> sectionSnapshots) {
+        var uids = new HashSet<String>();
+        sectionSnapshots.forEach(it -> uids.add(it.getEntityId().getUid()));
+        write(uids, () -> putSectionSnapshots(sectionSnapshots, checkSectionSnapshots(sectionSnapshots, Map.of())));
+    }
+
+    /**
+     * Get count of stored sessions
+     *
+     * @return count of sessions
+     */
+    public int getSessionCount() {
+        var count = 0;
+        for (var stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                count += stripe.sessions.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get size of stored snapshots
+     *
+     * @return size in bytes
+     */
+    public long getSize() {
+        var size = 0L;
+        for (var stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.bytes;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Get count of sessions, evicted since start
+     *
+     * @return count of sessions
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private void write(Set<String> uids, Runnable write) {
+        deferredWrites.write(() -> {
+            var locked = new ArrayList<Stripe>();
+            try {
+                for (var index : stripeIndexes(uids)) {
+                    var stripe = stripes[index];
+                    stripe.lock.lock();
+                    locked.add(stripe);
+                }
+                write.run();
+                for (var stripe : locked) {
+                    evict(stripe, uids);
+                }
+            } finally {
+                for (int i = locked.size() - 1; i >= 0; i--) {
+                    locked.get(i).lock.unlock();
+                }
+            }
+        });
+    }
+
+    private SortedSet<Integer> stripeIndexes(Set<String> uids) {
+        // stripes are always locked in ascending order, so concurrent writes don't deadlock
+        var indexes = new TreeSet<Integer>();
+        for (var uid : uids) {
+            indexes.add(stripeIndex(uid));
+        }
+        return indexes;
+    }
+
+    private int stripeIndex(String uid) {
+        var hash = uid.hashCode();
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+
+    private SessionChain touchChain(String uid) {
+        var stripe = stripes[stripeIndex(uid)];
+        stripe.lock.lock();
+        try {
+            return stripe.sessions.get(uid);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private SessionChain findChain(String uid) {
+        // called under stripe lock
+        return stripes[stripeIndex(uid)].sessions.get(uid);
+    }
+
+    private Optional<SnapshotVersion> findSnapshotVersion(String uid, long version) {
+        var chain = touchChain(uid);
+        if (chain == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(chain.versions.get(version));
+    }
+
+    private Stream<SessionChain> findAllByOwner(SessionOwnerType ownerType,
+                                                String ownerId,
+                                                String afterUid,
+                                                ZonedDateTime now) {
+        var ownerSessions = owners.get(new OwnerKey(ownerType, ownerId));
+        if (ownerSessions == null) {
+            return Stream.empty();
+        }
+        return ownerSessions.tailMap(afterUid, false)
+                .values()
+                .stream()
+                .filter(it -> it.isAliveAt(now));
+    }
+
+    private List<SessionChain> checkSnapshots(List<SessionSnapshotEntity> snapshots, Map<String, SessionChain> created) {
+        var chains = new ArrayList<SessionChain>(snapshots.size());
+        var versions = new HashSet<SessionSnapshotEntityId>();
+        for (var snapshot : snapshots) {
+            var chain = created.getOrDefault(snapshot.getUid(), findChain(snapshot.getUid()));
+            if (chain == null) {
+                throw new DataIntegrityViolationException("Session not found: " + snapshot.getUid());
+            }
+            if (chain.versions.containsKey(snapshot.getVersion()) || !versions.add(snapshot.getEntityId())) {
+                throw new DuplicateKeyException(
+                        "Session snapshot already exists: %s, version %d".formatted(snapshot.getUid(), snapshot.getVersion())
+                );
+            }
+            chains.add(chain);
+        }
+        return chains;
+    }
+
+    private List<SessionChain> checkSectionSnapshots(List<SessionSectionSnapshotEntity> sectionSnapshots,
+                                                     Map<String, SessionChain> created) {
+        var chains = new ArrayList<SessionChain>(sectionSnapshots.size());
+        for (var sectionSnapshot : sectionSnapshots) {
+            var uid = sectionSnapshot.getEntityId().getUid();
+            var chain = created.getOrDefault(uid, findChain(uid));
+            if (chain == null) {
+                throw new DataIntegrityViolationException("Session not found: " + uid);
+            }
+            chains.add(chain);
+        }
+        return chains;
+    }
+
+    private void putSnapshots(List<SessionSnapshotEntity> snapshots, List<SessionChain> chains) {
+        for (int i = 0; i < snapshots.size(); i++) {
+            var snapshot = snapshots.get(i);
+            var chain = chains.get(i);
+            var snapshotVersion = new SnapshotVersion(
+                    snapshot.getSnapshot(),
+                    snapshot.getSnapshotType(),
+                    snapshot.getBaseVersion(),
+                    snapshot.getCreatedAt()
+            );
+            chain.versions.put(snapshot.getVersion(), snapshotVersion);
+            addBytes(chain, snapshotVersion.size());
+            chain.advanceVersion(snapshot.getVersion());
+        }
+        for (var chain : new HashSet<>(chains)) {
+            trim(chain);
+        }
+    }
+
+    private void putSectionSnapshots(List<SessionSectionSnapshotEntity> sectionSnapshots, List<SessionChain> chains) {
+        for (int i = 0; i < sectionSnapshots.size(); i++) {
+            var sectionSnapshot = sectionSnapshots.get(i);
+            var chain = chains.get(i);
+            var entityId = sectionSnapshot.getEntityId();
+            var sectionVersion = new SectionVersion(
+                    sectionSnapshot.getSnapshot(),
+                    sectionSnapshot.getSnapshotType(),
+                    sectionSnapshot.getCreatedAt()
+            );
+            var replaced = chain.sections.computeIfAbsent(entityId.getSection(), it -> new ConcurrentSkipListMap<>())
+                    .put(entityId.getVersion(), sectionVersion);
+            addBytes(chain, sectionVersion.size() - (replaced == null ? 0 : replaced.size()));
+        }
+    }
+
+    private void trim(SessionChain chain) {
+        if (chain.versions.size() <= maxVersions) {
+            return;
+        }
+        var retainFrom = chain.versions.lastKey() - maxVersions + 1;
+        // delta versions need their base snapshot, so retained range is extended to it
+        var retained = chain.versions.get(retainFrom);
+        if (retained != null && retained.baseVersion != null) {
+            retainFrom = Math.min(retainFrom, retained.baseVersion);
+        }
+        var removed = chain.versions.headMap(retainFrom, false);
+        for (var snapshotVersion : removed.values()) {
+            addBytes(chain, -snapshotVersion.size());
+        }
+        removed.clear();
+
+        // section snapshot stays, while it is the actual one at the oldest retained version
+        for (var iterator = chain.sections.values().iterator(); iterator.hasNext(); ) {
+            var versions = iterator.next();
+            var actual = versions.floorEntry(retainFrom);
+            if (actual == null) {
+                continue;
+            }
+            var overridden = versions.headMap(actual.getKey(), false);
+            for (var sectionVersion : overridden.values()) {
+                addBytes(chain, -sectionVersion.size());
+            }
+            overridden.clear();
+            if (actual.getValue().snapshot == null && actual.getKey() < retainFrom) {
+                versions.remove(actual.getKey());
+            }
+            if (versions.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void evict(Stripe stripe, Set<String> written) {
+        if (stripe.sessions.size() <= maxStripeSessions && stripe.bytes <= maxStripeBytes) {
+            return;
+        }
+        var now = ZonedDateTime.now();
+        if (stripe.nextExpiresAt != null && !stripe.nextExpiresAt.isAfter(now)) {
+            removeExpired(stripe, written, now);
+        }
+        for (var iterator = stripe.sessions.values().iterator(); iterator.hasNext(); ) {
+            if (stripe.sessions.size() <= maxStripeSessions && stripe.bytes <= maxStripeBytes) {
+                return;
+            }
+            var chain = iterator.next();
+            // changed in not completed transaction or just written, so it is not the least recently used one
+            if (chain.isLocked() || written.contains(chain.uid)) {
+                continue;
+            }
+            iterator.remove();
+            stripe.bytes -= chain.bytes;
+            removeOwnerSession(chain);
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void removeExpired(Stripe stripe, Set<String> written, ZonedDateTime now) {
+        ZonedDateTime nextExpiresAt = null;
+        for (var iterator = stripe.sessions.values().iterator(); iterator.hasNext(); ) {
+            var chain = iterator.next();
+            var expiresAt = chain.expiresAt;
+            if (expiresAt == null) {
+                continue;
+            }
+            if (expiresAt.isAfter(now) || chain.isLocked() || written.contains(chain.uid)) {
+                if (nextExpiresAt == null || expiresAt.isBefore(nextExpiresAt)) {
+                    nextExpiresAt = expiresAt;
+                }
+                continue;
+            }
+            iterator.remove();
+            stripe.bytes -= chain.bytes;
+            removeOwnerSession(chain);
+        }
+        stripe.nextExpiresAt = nextExpiresAt;
+    }
+
+    private void addSession(SessionChain chain) {
+        var stripe = stripes[stripeIndex(chain.uid)];
+        stripe.sessions.put(chain.uid, chain);
+        if (chain.expiresAt != null) {
+            stripe.expiresAt(chain.expiresAt);
+        }
+        owners.computeIfAbsent(new OwnerKey(chain.ownerType, chain.ownerId), it -> new ConcurrentSkipListMap<>())
+                .put(chain.uid, chain);
+    }
+
+    private void removeOwnerSession(SessionChain chain) {
+        var ownerKey = new OwnerKey(chain.ownerType, chain.ownerId);
+        var ownerSessions = owners.get(ownerKey);
+        if (ownerSessions != null) {
+            ownerSessions.remove(chain.uid);
+            if (ownerSessions.isEmpty()) {
+                owners.remove(ownerKey, ownerSessions);
+            }
+        }
+    }
+
+    private void addBytes(SessionChain chain, long bytes) {
+        chain.bytes += bytes;
+        stripes[stripeIndex(chain.uid)].bytes += bytes;
+    }
+
+    private static Map.Entry<Long, SectionVersion> findActualSection(SessionChain chain, String section, long version) {
+        var versions = chain.sections.get(section);
+        return versions == null ? null : versions.floorEntry(version);
+    }
+
+    private record OwnerKey(SessionOwnerType ownerType, String ownerId) {
+    }
+
+    private record StoredVersions(String uid, long latestVersion) implements SessionVersions {
+
+        @Override
+        public String getUid() {
+            return uid;
+        }
+
+        @Override
+        public long getLatestVersion() {
+            return latestVersion;
+        }
+    }
+
+    private record SnapshotVersion(byte[] snapshot,
+                                   SnapshotCodecType snapshotType,
+                                   Long baseVersion,
+                                   ZonedDateTime createdAt) {
+
+        private long size() {
+            return snapshot == null ? 0 : snapshot.length;
+        }
+
+        private SessionSnapshotEntity toEntity(String uid, long version) {
+            return SessionSnapshotEntity.builder()
+                    .entityId(
+                            SessionSnapshotEntityId.builder()
+                                    .uid(uid)
+                                    .version(version)
+                                    .build()
+                    )
+                    .snapshot(snapshot)
+                    .snapshotType(snapshotType)
+                    .baseVersion(baseVersion)
+                    .createdAt(createdAt)
+                    .build();
+        }
+    }
+
+    private record SectionVersion(byte[] snapshot,
+                                  SnapshotCodecType snapshotType,
+                                  ZonedDateTime createdAt) {
+
+        private long size() {
+            return snapshot == null ? 0 : snapshot.length;
+        }
+
+        private SessionSectionSnapshotEntity toEntity(String uid, String section, long version) {
+            return SessionSectionSnapshotEntity.builder()
+                    .entityId(
+                            SessionSectionSnapshotEntityId.builder()
+                                    .uid(uid)
+                                    .section(section)
+                                    .version(version)
+                                    .build()
+                    )
+                    .snapshot(snapshot)
+                    .snapshotType(snapshotType)
+                    .createdAt(createdAt)
+                    .build();
+        }
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        // access ordered, so the least recently used session is the first one
+        private final LinkedHashMap<String, SessionChain> sessions = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes;
+        // not later than the earliest expiration time of stripe sessions, prolongation doesn't move it
+        private ZonedDateTime nextExpiresAt;
+
+        private void expiresAt(ZonedDateTime expiresAt) {
+            if (nextExpiresAt == null || expiresAt.isBefore(nextExpiresAt)) {
+                nextExpiresAt = expiresAt;
+            }
+        }
+    }
+
+    private static final class SessionChain {
+        private final String uid;
+        private final SessionOwnerType ownerType;
+        private final String ownerId;
+        private final ZonedDateTime createdAt;
+        private final byte[] permissionIds;
+        private final ConcurrentSkipListMap<Long, SnapshotVersion> versions = new ConcurrentSkipListMap<>();
+        private final Map<String, ConcurrentSkipListMap<Long, SectionVersion>> sections = new ConcurrentHashMap<>();
+        private volatile ZonedDateTime expiresAt;
+        private volatile long latestVersion = -1;
+        // size of snapshots, guarded by stripe lock
+        private long bytes;
+        // transaction, which changed latest version and not completed yet, guarded by chain
+        private Object lockOwner;
+        private long lockedVersion;
+
+        private SessionChain(SessionEntity session) {
+            this.uid = session.getUid();
+            this.ownerType = session.getOwnerType();
+            this.ownerId = session.getOwnerId();
+            this.createdAt = session.getCreatedAt();
+            this.expiresAt = session.getExpiresAt();
+            this.permissionIds = session.getPermissionIds();
+        }
+
+        private synchronized long getVisibleVersion(Object transaction) {
+            return lockOwner != null && lockOwner == transaction ? lockedVersion : latestVersion;
+        }
+
+        private synchronized void advanceVersion(long version) {
+            if (version > latestVersion) {
+                latestVersion = version;
+            }
+        }
+
+        private synchronized boolean isLocked() {
+            return lockOwner != null;
+        }
+
+        private synchronized void unlock(Object transaction) {
+            if (lockOwner == transaction) {
+                lockOwner = null;
+            }
+        }
+
+        private boolean isAliveAt(ZonedDateTime now) {
+            var expiresAt = this.expiresAt;
+            return expiresAt == null || expiresAt.isAfter(now);
+        }
+
+        private SessionEntity toEntity() {
+            return SessionEntity.builder()
+                    .uid(uid)
+                    .ownerType(ownerType)
+                    .ownerId(ownerId)
+                    .createdAt(createdAt)
+                    .expiresAt(expiresAt)
+                    .latestVersion(latestVersion)
+                    .permissionIds(permissionIds)
+                    .permissions(List.of())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.sibdevtools.session.embedded.service.impl;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.SmartTransactionObject;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Transaction manager without transactional resource, used by in-memory session storage.
+ * <p>
+ * It only demarcates transactions: synchronizations are run on commit and rollback,
+ * propagation and rollback-only marks of participating transactions behave the same as with a database,
+ * so writes, deferred till commit by the storage, are applied or discarded together with the transaction.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public class InMemoryTransactionManager extends AbstractPlatformTransactionManager {
+
+    @Override
+    protected Object doGetTransaction() {
+        return new InMemoryTransaction((TransactionState) TransactionSynchronizationManager.getResource(this));
+    }
+
+    @Override
+    protected boolean isExistingTransaction(Object transaction) {
+        return ((InMemoryTransaction) transaction).state != null;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        var state = new TransactionState();
+        ((InMemoryTransaction) transaction).state = state;
+        TransactionSynchronizationManager.bindResource(this, state);
+    }
+
+    @Override
+    protected Object doSuspend(Object transaction) {
+        ((InMemoryTransaction) transaction).state = null;
+        return TransactionSynchronizationManager.unbindResource(this);
+    }
+
+    @Override
+    protected void doResume(Object transaction, Object suspendedResources) {
+        TransactionSynchronizationManager.bindResource(this, suspendedResources);
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+        // nothing to commit, deferred writes are applied by synchronizations
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+        // nothing to roll back, deferred writes are discarded by synchronizations
+    }
+
+    @Override
+    protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+        ((InMemoryTransaction) status.getTransaction()).state.rollbackOnly = true;
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        TransactionSynchronizationManager.unbindResource(this);
+    }
+
+    private static final class TransactionState {
+        private volatile boolean rollbackOnly;
+    }
+
+    private static final class InMemoryTransaction implements SmartTransactionObject {
+        private TransactionState state;
+
+        private InMemoryTransaction(TransactionState state) {
+            this.state = state;
+        }
+
+        @Override
+        public boolean isRollbackOnly() {
+            return state != null && state.rollbackOnly;
+        }
+
+        @Override
+        public void flush() {
+            // nothing to flush
+        }
+    }
+}
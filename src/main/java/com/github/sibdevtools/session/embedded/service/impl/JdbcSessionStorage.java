@@ -0,0 +1,504 @@
+package com.github.sibdevtools.session.embedded.service.impl;
+
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.embedded.dto.SessionVersions;
+import com.github.sibdevtools.session.embedded.dto.SnapshotContent;
+import com.github.sibdevtools.session.embedded.entity.*;
+import com.github.sibdevtools.session.embedded.repository.SessionBatchJdbcRepository;
+import com.github.sibdevtools.session.embedded.service.SessionChainStorage;
+import com.github.sibdevtools.session.embedded.service.SessionHeaderStorage;
+import com.github.sibdevtools.session.embedded.service.SessionOwnerStorage;
+import com.github.sibdevtools.session.embedded.service.SessionSectionStorage;
+import com.github.sibdevtools.session.embedded.service.SessionStorage;
+import jakarta.annotation.Nullable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.*;
+
+/**
+ * Session storage, backed by plain JDBC.
+ * <p>
+ * Rows are mapped directly into detached entities, so there is no persistence context, dirty checking and lazy loading.
+ * Snapshot lookups fetch session columns by the same query, session permissions are loaded by one separate query
+ * for all found sessions, created before compact permissions were introduced.
+ * Statements are executed on the connection of current transaction,
+ * new permissions are inserted in a separate transaction, the same as {@link JpaSessionStorage} does.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public class JdbcSessionStorage implements SessionStorage,
+        SessionHeaderStorage,
+        SessionOwnerStorage,
+        SessionChainStorage,
+        SessionSectionStorage {
+    private static final String SNAPSHOT_COLUMNS = "ss.uid, ss.version, ss.snapshot, ss.snapshot_ser_type, " +
+            "ss.base_version, ss.created_at";
+    private static final String SESSION_COLUMNS = "s.owner_type, s.owner_id, s.created_at AS session_created_at, " +
+            "s.expires_at, s.latest_version, s.permission_ids";
+    private static final String SECTION_SNAPSHOT_COLUMNS = "ss.uid, ss.section, ss.version, ss.snapshot, " +
+            "ss.snapshot_ser_type, ss.created_at";
+    private static final String ACTUAL_SECTION_VERSION = "ss.version = (SELECT MAX(ls.version) " +
+            "FROM session_service.session_section_snapshot ls " +
+            "WHERE ls.uid = ss.uid AND ls.section = ss.section AND ls.version <= :version)";
+
+    private static final String SELECT_PERMISSIONS = "SELECT id, code FROM session_service.permission";
+    private static final String SELECT_PERMISSIONS_BY_ID = "SELECT id, code FROM session_service.permission " +
+            "WHERE id IN (:ids)";
+    private static final String SELECT_PERMISSIONS_BY_LOWER_CODE = "SELECT id, code FROM session_service.permission " +
+            "WHERE LOWER(code) IN (:codes)";
+    private static final String SELECT_SESSION_PERMISSIONS = "SELECT sp.session_uid, p.id, p.code " +
+            "FROM session_service.permission p " +
+            "JOIN session_service.session_permission sp ON sp.permission_id = p.id WHERE sp.session_uid IN (:uids)";
+    private static final String SELECT_LATEST_VERSION = "SELECT latest_version FROM session_service.session " +
+            "WHERE uid = ?";
+    private static final String COMPARE_AND_SET_LATEST_VERSION = "UPDATE session_service.session " +
+            "SET latest_version = ? WHERE uid = ? AND latest_version = ?";
+    private static final String PROLONG_EXPIRES_AT = "UPDATE session_service.session SET expires_at = ? " +
+            "WHERE uid = ? AND expires_at < ? AND expires_at > ?";
+    private static final String OWNER_SESSIONS = "FROM session_service.session s " +
+            "WHERE s.owner_type = ? AND s.owner_id = ? AND (s.expires_at IS NULL OR s.expires_at > ?)";
+    private static final String SELECT_VERSIONS_BY_OWNER = "SELECT s.uid, s.latest_version " + OWNER_SESSIONS +
+            " AND s.uid > ? ORDER BY s.uid FETCH FIRST ? ROWS ONLY";
+    private static final String COUNT_BY_OWNER = "SELECT COUNT(*) " + OWNER_SESSIONS;
+    private static final String EXPIRE_ALL_BY_OWNER = "UPDATE session_service.session SET expires_at = ? " +
+            "WHERE owner_type = ? AND owner_id = ? AND (expires_at IS NULL OR expires_at > ?)";
+    private static final String SELECT_SNAPSHOT = "SELECT " + SNAPSHOT_COLUMNS + ", " + SESSION_COLUMNS + " " +
+            "FROM session_service.session_snapshot ss JOIN session_service.session s ON s.uid = ss.uid " +
+            "WHERE ss.uid = ? AND ss.version = ?";
+    private static final String SELECT_LATEST_SNAPSHOT = "SELECT " + SNAPSHOT_COLUMNS + ", " + SESSION_COLUMNS + " " +
+            "FROM session_service.session s JOIN session_service.session_snapshot ss " +
+            "ON ss.uid = s.uid AND ss.version = s.latest_version WHERE s.uid = ?";
+    private static final String SELECT_SNAPSHOTS = "SELECT " + SNAPSHOT_COLUMNS + ", " + SESSION_COLUMNS + " " +
+            "FROM session_service.session_snapshot ss JOIN session_service.session s ON s.uid = ss.uid " +
+            "WHERE ss.uid IN (:uids) AND (ss.uid, ss.version) IN (:ids)";
+    private static final String SELECT_LATEST_SNAPSHOTS_BY_OWNER = "SELECT " + SNAPSHOT_COLUMNS + ", " +
+            SESSION_COLUMNS + " " +
+            "FROM session_service.session s JOIN session_service.session_snapshot ss " +
+            "ON ss.uid = s.uid AND ss.version = s.latest_version " +
+            "WHERE s.owner_type = ? AND s.owner_id = ? AND (s.expires_at IS NULL OR s.expires_at > ?) " +
+            "AND s.uid > ? ORDER BY s.uid FETCH FIRST ? ROWS ONLY";
+    private static final String SELECT_SNAPSHOT_CONTENT = "SELECT ss.snapshot, ss.snapshot_ser_type, ss.base_version, " +
+            "s.owner_type, s.expires_at " +
+            "FROM session_service.session_snapshot ss JOIN session_service.session s ON s.uid = ss.uid " +
+            "WHERE ss.uid = ? AND ss.version = ?";
+    private static final String SELECT_SNAPSHOT_CHAIN = "SELECT " + SNAPSHOT_COLUMNS + " " +
+            "FROM session_service.session_snapshot ss WHERE ss.uid = ? AND ss.version BETWEEN ? AND ? " +
+            "ORDER BY ss.version";
+    private static final String SELECT_CHAIN_BASE_VERSION = "SELECT COALESCE(base_version, version) " +
+            "FROM session_service.session_snapshot WHERE uid = ? AND version = ?";
+    private static final String SELECT_SNAPSHOT_TYPE = "SELECT snapshot_ser_type " +
+            "FROM session_service.session_snapshot WHERE uid = ? AND version = ?";
+    private static final String SELECT_ACTUAL_SECTION_SNAPSHOTS = "SELECT " + SECTION_SNAPSHOT_COLUMNS + " " +
+            "FROM session_service.session_section_snapshot ss WHERE ss.uid = :uid AND " + ACTUAL_SECTION_VERSION;
+    private static final String SELECT_ACTUAL_SECTION_SNAPSHOTS_BY_SECTION = SELECT_ACTUAL_SECTION_SNAPSHOTS +
+            " AND ss.section IN (:sections)";
+    private static final String SELECT_ACTUAL_SECTION_SNAPSHOT = "SELECT " + SECTION_SNAPSHOT_COLUMNS + " " +
+            "FROM session_service.session_section_snapshot ss " +
+            "WHERE ss.uid = ? AND ss.section = ? AND ss.version <= ? ORDER BY ss.version DESC FETCH FIRST 1 ROWS ONLY";
+    private static final String SELECT_ACTUAL_SECTION_NAMES = "SELECT ss.section " +
+            "FROM session_service.session_section_snapshot ss " +
+            "WHERE ss.uid = :uid AND ss.snapshot IS NOT NULL AND " + ACTUAL_SECTION_VERSION;
+
+    private static final RowMapper<PermissionEntity> PERMISSION_MAPPER = (rs, rowNum) -> new PermissionEntity(
+            rs.getLong("id"),
+            rs.getString("code")
+    );
+    private static final RowMapper<SessionSnapshotEntity> SESSION_SNAPSHOT_MAPPER = JdbcSessionStorage::mapSessionSnapshot;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final SessionBatchJdbcRepository sessionBatchJdbcRepository;
+    private final TransactionTemplate permissionTransactionTemplate;
+
+    /**
+     * Construct JDBC session storage
+     *
+     * @param dataSource                 data source
+     * @param sessionBatchJdbcRepository session batch insert repository
+     * @param transactionManager         transaction manager
+     */
+    public JdbcSessionStorage(DataSource dataSource,
+                              SessionBatchJdbcRepository sessionBatchJdbcRepository,
+                              PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.sessionBatchJdbcRepository = sessionBatchJdbcRepository;
+        this.permissionTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.permissionTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public List<PermissionEntity> findAllPermissions() {
+        return jdbcTemplate.query(SELECT_PERMISSIONS, PERMISSION_MAPPER);
+    }
+
+    @Override
+    public List<PermissionEntity> findAllPermissionsById(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return namedParameterJdbcTemplate.query(SELECT_PERMISSIONS_BY_ID, Map.of("ids", ids), PERMISSION_MAPPER);
+    }
+
+    @Override
+    public List<PermissionEntity> createPermissions(Collection<String> codes) {
+        var keys = codes.stream()
+                .map(it -> it.toLowerCase(Locale.ROOT))
+                .toList();
+        try {
+            return insertAndLoadPermissions(codes, keys);
+        } catch (DataIntegrityViolationException e) {
+            // the same code was inserted by a concurrent transaction, it is visible after commit
+            return insertAndLoadPermissions(codes, keys);
+        }
+    }
+
+    @Override
+    public void createSessions(List<SessionEntity> sessions,
+                               List<SessionSnapshotEntity> snapshots,
+                               List<SessionSectionSnapshotEntity> sectionSnapshots) {
+        sessionBatchJdbcRepository.insertSessions(sessions);
+        sessionBatchJdbcRepository.insertSnapshots(snapshots);
+        if (!sectionSnapshots.isEmpty()) {
+            sessionBatchJdbcRepository.insertSectionSnapshots(sectionSnapshots);
+        }
+    }
+
+    @Override
+    public Optional<Long> findLatestVersion(String uid) {
+        return jdbcTemplate.query(SELECT_LATEST_VERSION, (rs, rowNum) -> rs.getLong(1), uid)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public boolean compareAndSetLatestVersion(String uid, long expectedVersion, long version) {
+        return jdbcTemplate.update(COMPARE_AND_SET_LATEST_VERSION, version, uid, expectedVersion) == 1;
+    }
+
+    @Override
+    public void updateLatestVersions(Map<String, Long> latestVersions) {
+        sessionBatchJdbcRepository.updateLatestVersions(latestVersions);
+    }
+
+    @Override
+    public void prolongExpiresAt(String uid, ZonedDateTime expiresAt, ZonedDateTime now) {
+        var timestamp = toTimestamp(expiresAt);
+        jdbcTemplate.update(PROLONG_EXPIRES_AT, timestamp, uid, timestamp, toTimestamp(now));
+    }
+
+    @Override
+    public List<SessionVersions> findAllVersionsByOwner(SessionOwnerType ownerType,
+                                                        String ownerId,
+                                                        String afterUid,
+                                                        ZonedDateTime now,
+                                                        int limit) {
+        return jdbcTemplate.query(
+                SELECT_VERSIONS_BY_OWNER,
+                (rs, rowNum) -> new StoredVersions(rs.getString("uid"), rs.getLong("latest_version")),
+                ownerType.name(),
+                ownerId,
+                toTimestamp(now),
+                afterUid,
+                Math.max(limit, 1)
+        );
+    }
+
+    @Override
+    public long countByOwner(SessionOwnerType ownerType, String ownerId, ZonedDateTime now) {
+        var count = jdbcTemplate.queryForObject(COUNT_BY_OWNER, Long.class, ownerType.name(), ownerId, toTimestamp(now));
+        return count == null ? 0 : count;
+    }
+
+    @Override
+    public int expireAllByOwner(SessionOwnerType ownerType, String ownerId, ZonedDateTime now) {
+        var timestamp = toTimestamp(now);
+        return jdbcTemplate.update(EXPIRE_ALL_BY_OWNER, timestamp, ownerType.name(), ownerId, timestamp);
+    }
+
+    @Override
+    public Optional<SessionSnapshotEntity> findSnapshot(String uid, long version) {
+        return loadSessionPermissions(jdbcTemplate.query(SELECT_SNAPSHOT, SESSION_SNAPSHOT_MAPPER, uid, version))
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public Optional<SnapshotContent> findSnapshotContent(String uid, long version) {
+        return jdbcTemplate.query(
+                        SELECT_SNAPSHOT_CONTENT,
+                        (rs, rowNum) -> new SnapshotContent(
+                                uid,
+                                version,
+                                rs.getBytes("snapshot"),
+                                SnapshotCodecType.valueOf(rs.getString("snapshot_ser_type")),
+                                getNullableLong(rs, "base_version"),
+                                SessionOwnerType.valueOf(rs.getString("owner_type")),
+                                toZonedDateTime(rs.getTimestamp("expires_at"))
+                        ),
+                        uid,
+                        version
+                )
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public Optional<SessionSnapshotEntity> findLatestSnapshot(String uid) {
+        return loadSessionPermissions(jdbcTemplate.query(SELECT_LATEST_SNAPSHOT, SESSION_SNAPSHOT_MAPPER, uid))
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public List<SessionSnapshotEntity> findAllSnapshots(Collection<SessionSnapshotEntityId> snapshotIds) {
+        if (snapshotIds.isEmpty()) {
+            return List.of();
+        }
+        // uid list narrows the primary key range, (uid, version) pairs select only requested snapshots
+        var uids = new HashSet<String>();
+        var ids = new ArrayList<Object[]>(snapshotIds.size());
+        for (var snapshotId : snapshotIds) {
+            uids.add(snapshotId.getUid());
+            ids.add(new Object[]{snapshotId.getUid(), snapshotId.getVersion()});
+        }
+        var snapshots = namedParameterJdbcTemplate.query(
+                SELECT_SNAPSHOTS,
+                Map.of("uids", uids, "ids", ids),
+                SESSION_SNAPSHOT_MAPPER
+        );
+        return loadSessionPermissions(snapshots);
+    }
+
+    @Override
+    public List<SessionSnapshotEntity> findAllLatestSnapshotsByOwner(SessionOwnerType ownerType,
+                                                                     String ownerId,
+                                                                     String afterUid,
+                                                                     ZonedDateTime now,
+                                                                     int limit) {
+        var snapshots = jdbcTemplate.query(
+                SELECT_LATEST_SNAPSHOTS_BY_OWNER,
+                SESSION_SNAPSHOT_MAPPER,
+                ownerType.name(),
+                ownerId,
+                toTimestamp(now),
+                afterUid,
+                Math.max(limit, 1)
+        );
+        return loadSessionPermissions(snapshots);
+    }
+
+    @Override
+    public List<SessionSnapshotEntity> findSnapshotChain(String uid, long fromVersion, long toVersion) {
+        return jdbcTemplate.query(
+                SELECT_SNAPSHOT_CHAIN,
+                (rs, rowNum) -> mapSnapshot(rs),
+                uid,
+                fromVersion,
+                toVersion
+        );
+    }
+
+    @Override
+    public Optional<Long> findChainBaseVersion(String uid, long version) {
+        return jdbcTemplate.query(SELECT_CHAIN_BASE_VERSION, (rs, rowNum) -> rs.getLong(1), uid, version)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public Optional<SnapshotCodecType> findSnapshotType(String uid, long version) {
+        return jdbcTemplate.query(
+                        SELECT_SNAPSHOT_TYPE,
+                        (rs, rowNum) -> SnapshotCodecType.valueOf(rs.getString(1)),
+                        uid,
+                        version
+                )
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public void appendSnapshot(SessionSnapshotEntity snapshot) {
+        sessionBatchJdbcRepository.insertSnapshots(List.of(snapshot));
+    }
+
+    @Override
+    public void appendSnapshots(List<SessionSnapshotEntity> snapshots) {
+        sessionBatchJdbcRepository.insertSnapshots(snapshots);
+    }
+
+    @Override
+    public List<SessionSectionSnapshotEntity> findActualSectionSnapshots(String uid,
+                                                                         @Nullable Collection<String> sections,
+                                                                         long version) {
+        if (sections == null) {
+            return namedParameterJdbcTemplate.query(
+                    SELECT_ACTUAL_SECTION_SNAPSHOTS,
+                    Map.of("uid", uid, "version", version),
+                    (rs, rowNum) -> mapSectionSnapshot(rs)
+            );
+        }
+        if (sections.isEmpty()) {
+            return List.of();
+        }
+        return namedParameterJdbcTemplate.query(
+                SELECT_ACTUAL_SECTION_SNAPSHOTS_BY_SECTION,
+                Map.of("uid", uid, "sections", sections, "version", version),
+                (rs, rowNum) -> mapSectionSnapshot(rs)
+        );
+    }
+
+    @Override
+    public Optional<SessionSectionSnapshotEntity> findActualSectionSnapshot(String uid, String section, long version) {
+        return jdbcTemplate.query(
+                        SELECT_ACTUAL_SECTION_SNAPSHOT,
+                        (rs, rowNum) -> mapSectionSnapshot(rs),
+                        uid,
+                        section,
+                        version
+                )
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public List<String> findActualSectionNames(String uid, long version) {
+        return namedParameterJdbcTemplate.query(
+                SELECT_ACTUAL_SECTION_NAMES,
+                Map.of("uid", uid, "version", version),
+                (rs, rowNum) -> rs.getString(1)
+        );
+    }
+
+    @Override
+    public void appendSectionSnapshots(List<SessionSectionSnapshotEntity> sectionSnapshots) {
+        sessionBatchJdbcRepository.insertSectionSnapshots(sectionSnapshots);
+    }
+
+    private List<PermissionEntity> insertAndLoadPermissions(Collection<String> codes, List<String> keys) {
+        return permissionTransactionTemplate.execute(status -> {
+            sessionBatchJdbcRepository.insertMissingPermissions(codes);
+            return namedParameterJdbcTemplate.query(
+                    SELECT_PERMISSIONS_BY_LOWER_CODE,
+                    Map.of("codes", keys),
+                    PERMISSION_MAPPER
+            );
+        });
+    }
+
+    private List<SessionSnapshotEntity> loadSessionPermissions(List<SessionSnapshotEntity> snapshots) {
+        // sessions created before compact permissions were introduced
+        var sessions = new HashMap<String, List<SessionEntity>>();
+        for (var snapshot : snapshots) {
+            var session = snapshot.getSession();
+            if (session.getPermissionIds() == null) {
+                sessions.computeIfAbsent(session.getUid(), it -> new ArrayList<>()).add(session);
+            }
+        }
+        if (sessions.isEmpty()) {
+            return snapshots;
+        }
+        var permissions = new HashMap<String, List<PermissionEntity>>();
+        namedParameterJdbcTemplate.query(
+                SELECT_SESSION_PERMISSIONS,
+                Map.of("uids", sessions.keySet()),
+                rs -> {
+                    permissions.computeIfAbsent(rs.getString("session_uid"), it -> new ArrayList<>())
+                            .add(PERMISSION_MAPPER.mapRow(rs, 0));
+                }
+        );
+        sessions.forEach((uid, uidSessions) -> {
+            var sessionPermissions = permissions.getOrDefault(uid, List.of());
+            uidSessions.forEach(it -> it.setPermissions(sessionPermissions));
+        });
+        return snapshots;
+    }
+
+    private static SessionSnapshotEntity mapSessionSnapshot(ResultSet rs, int rowNum) throws SQLException {
+        var snapshot = mapSnapshot(rs);
+        snapshot.setSession(
+                SessionEntity.builder()
+                        .uid(snapshot.getUid())
+                        .ownerType(SessionOwnerType.valueOf(rs.getString("owner_type")))
+                        .ownerId(rs.getString("owner_id"))
+                        .createdAt(toZonedDateTime(rs.getTimestamp("session_created_at")))
+                        .expiresAt(toZonedDateTime(rs.getTimestamp("expires_at")))
+                        .latestVersion(rs.getLong("latest_version"))
+                        .permissionIds(rs.getBytes("permission_ids"))
+                        .permissions(List.of())
+                        .build()
+        );
+        return snapshot;
+    }
+
+    private static SessionSnapshotEntity mapSnapshot(ResultSet rs) throws SQLException {
+        return SessionSnapshotEntity.builder()
+                .entityId(
+                        SessionSnapshotEntityId.builder()
+                                .uid(rs.getString("uid"))
+                                .version(rs.getLong("version"))
+                                .build()
+                )
+                .snapshot(rs.getBytes("snapshot"))
+                .snapshotType(SnapshotCodecType.valueOf(rs.getString("snapshot_ser_type")))
+                .baseVersion(getNullableLong(rs, "base_version"))
+                .createdAt(toZonedDateTime(rs.getTimestamp("created_at")))
+                .build();
+    }
+
+    private static SessionSectionSnapshotEntity mapSectionSnapshot(ResultSet rs) throws SQLException {
+        var snapshotType = rs.getString("snapshot_ser_type");
+        return SessionSectionSnapshotEntity.builder()
+                .entityId(
+                        SessionSectionSnapshotEntityId.builder()
+                                .uid(rs.getString("uid"))
+                                .section(rs.getString("section"))
+                                .version(rs.getLong("version"))
+                                .build()
+                )
+                .snapshot(rs.getBytes("snapshot"))
+                .snapshotType(snapshotType == null ? null : SnapshotCodecType.valueOf(snapshotType))
+                .createdAt(toZonedDateTime(rs.getTimestamp("created_at")))
+                .build();
+    }
+
+    private static Long getNullableLong(ResultSet rs, String column) throws SQLException {
+        var value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Timestamp toTimestamp(ZonedDateTime dateTime) {
+        return dateTime == null ? null : Timestamp.from(dateTime.toInstant());
+    }
+
+    private static ZonedDateTime toZonedDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : ZonedDateTime.ofInstant(timestamp.toInstant(), ZoneId.systemDefault());
+    }
+
+    private record StoredVersions(String uid, long latestVersion) implements SessionVersions {
+
+        @Override
+        public String getUid() {
+            return uid;
+        }
+
+        @Override
+        public long getLatestVersion() {
+            return latestVersion;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.github.sibdevtools.session.embedded.service.impl;
+
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.embedded.dto.SessionVersions;
+import com.github.sibdevtools.session.embedded.dto.SnapshotContent;
+import com.github.sibdevtools.session.embedded.entity.*;
+import com.github.sibdevtools.session.embedded.repository.PermissionEntityRepository;
+import com.github.sibdevtools.session.embedded.repository.SessionBatchJdbcRepository;
+import com.github.sibdevtools.session.embedded.repository.SessionEntityRepository;
+import com.github.sibdevtools.session.embedded.repository.SessionSectionSnapshotEntityRepository;
+import com.github.sibdevtools.session.embedded.repository.SessionSnapshotEntityRepository;
+import com.github.sibdevtools.session.embedded.service.SessionChainStorage;
+import com.github.sibdevtools.session.embedded.service.SessionHeaderStorage;
+import com.github.sibdevtools.session.embedded.service.SessionOwnerStorage;
+import com.github.sibdevtools.session.embedded.service.SessionSectionStorage;
+import com.github.sibdevtools.session.embedded.service.SessionStorage;
+import jakarta.annotation.Nullable;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZonedDateTime;
+import java.util.*;
+
+/**
+ * Session storage, backed by Spring Data JPA repositories. Default storage.
+ * <p>
+ * Reads are done by JPA queries, inserts of new rows are done by JDBC batches of {@link SessionBatchJdbcRepository}.
+ * New permissions are inserted in a separate transaction. If the same code is inserted concurrently,
+ * the insert is repeated once and finds the committed row.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public class JpaSessionStorage implements SessionStorage,
+        SessionHeaderStorage,
+        SessionOwnerStorage,
+        SessionChainStorage,
+        SessionSectionStorage {
+    private final SessionEntityRepository sessionEntityRepository;
+    private final SessionSnapshotEntityRepository sessionSnapshotEntityRepository;
+    private final SessionSectionSnapshotEntityRepository sectionSnapshotEntityRepository;
+    private final PermissionEntityRepository permissionEntityRepository;
+    private final SessionBatchJdbcRepository sessionBatchJdbcRepository;
+    private final TransactionTemplate permissionTransactionTemplate;
+
+    /**
+     * Construct JPA session storage
+     *
+     * @param sessionEntityRepository         session entity repository
+     * @param sessionSnapshotEntityRepository session snapshot entity repository
+     * @param sectionSnapshotEntityRepository session section snapshot entity repository
+     * @param permissionEntityRepository      permission entity repository
+     * @param sessionBatchJdbcRepository      session batch insert repository
+     * @param transactionManager              transaction manager
+     */
+    public JpaSessionStorage(SessionEntityRepository sessionEntityRepository,
+                             SessionSnapshotEntityRepository sessionSnapshotEntityRepository,
+                             SessionSectionSnapshotEntityRepository sectionSnapshotEntityRepository,
+                             PermissionEntityRepository permissionEntityRepository,
+                             SessionBatchJdbcRepository sessionBatchJdbcRepository,
+                             PlatformTransactionManager transactionManager) {
+        this.sessionEntityRepository = sessionEntityRepository;
+        this.sessionSnapshotEntityRepository = sessionSnapshotEntityRepository;
+        this.sectionSnapshotEntityRepository = sectionSnapshotEntityRepository;
+        this.permissionEntityRepository = permissionEntityRepository;
+        this.sessionBatchJdbcRepository = sessionBatchJdbcRepository;
+        this.permissionTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.permissionTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public List<PermissionEntity> findAllPermissions() {
+        return permissionEntityRepository.findAll();
+    }
+
+    @Override
+    public List<PermissionEntity> findAllPermissionsById(Collection<Long> ids) {
+        return permissionEntityRepository.findAllById(ids);
+    }
+
+    @Override
+    public List<PermissionEntity> createPermissions(Collection<String> codes) {
+        var keys = codes.stream()
+                .map(it -> it.toLowerCase(Locale.ROOT))
+                .toList();
+        try {
+            return insertAndLoadPermissions(codes, keys);
+        } catch (DataIntegrityViolationException e) {
+            // the same code was inserted by a concurrent transaction, it is visible after commit
+            return insertAndLoadPermissions(codes, keys);
+        }
+    }
+
+    @Override
+    public void createSessions(List<SessionEntity> sessions,
+                               List<SessionSnapshotEntity> snapshots,
+                               List<SessionSectionSnapshotEntity> sectionSnapshots) {
+        sessionBatchJdbcRepository.insertSessions(sessions);
+        sessionBatchJdbcRepository.insertSnapshots(snapshots);
+        if (!sectionSnapshots.isEmpty()) {
+            sessionBatchJdbcRepository.insertSectionSnapshots(sectionSnapshots);
+        }
+    }
+
+    @Override
+    public Optional<Long> findLatestVersion(String uid) {
+        return sessionEntityRepository.findLatestVersion(uid);
+    }
+
+    @Override
+    public boolean compareAndSetLatestVersion(String uid, long expectedVersion, long version) {
+        return sessionEntityRepository.compareAndSetLatestVersion(uid, expectedVersion, version) == 1;
+    }
+
+    @Override
+    public void updateLatestVersions(Map<String, Long> latestVersions) {
+        sessionBatchJdbcRepository.updateLatestVersions(latestVersions);
+    }
+
+    @Override
+    public void prolongExpiresAt(String uid, ZonedDateTime expiresAt, ZonedDateTime now) {
+        sessionEntityRepository.prolongExpiresAt(uid, expiresAt, now);
+    }
+
+    @Override
+    public List<SessionVersions> findAllVersionsByOwner(SessionOwnerType ownerType,
+                                                        String ownerId,
+                                                        String afterUid,
+                                                        ZonedDateTime now,
+                                                        int limit) {
+        return sessionEntityRepository.findAllVersionsByOwner(
+                ownerType,
+                ownerId,
+                afterUid,
+                now,
+                PageRequest.of(0, Math.max(limit, 1))
+        );
+    }
+
+    @Override
+    public long countByOwner(SessionOwnerType ownerType, String ownerId, ZonedDateTime now) {
+        return sessionEntityRepository.countByOwner(ownerType, ownerId, now);
+    }
+
+    @Override
+    public int expireAllByOwner(SessionOwnerType ownerType, String ownerId, ZonedDateTime now) {
+        return sessionEntityRepository.expireAllByOwner(ownerType, ownerId, now);
+    }
+
+    @Override
+    public Optional<SessionSnapshotEntity> findSnapshot(String uid, long version) {
+        return sessionSnapshotEntityRepository.findByEntityIdUidAndEntityIdVersion(uid, version);
+    }
+
+    @Override
+    public Optional<SnapshotContent> findSnapshotContent(String uid, long version) {
+        return sessionSnapshotEntityRepository.findContentByUidAndVersion(uid, version);
+    }
+
+    @Override
+    public Optional<SessionSnapshotEntity> findLatestSnapshot(String uid) {
+        return sessionSnapshotEntityRepository.findLatestByUid(uid);
+    }
+
+    @Override
+    public List<SessionSnapshotEntity> findAllSnapshots(Collection<SessionSnapshotEntityId> snapshotIds) {
+        if (snapshotIds.isEmpty()) {
+            return List.of();
+        }
+        return sessionSnapshotEntityRepository.findAll(snapshotIdsIn(snapshotIds));
+    }
+
+    /**
+     * Build specification of snapshots with exactly passed ids, with sessions.
+     * Uid list narrows the primary key range, pairs of uid and version select only requested snapshots.
+     *
+     * @param snapshotIds snapshot identifiers
+     * @return snapshots specification
+     */
+    private static Specification<SessionSnapshotEntity> snapshotIdsIn(Collection<SessionSnapshotEntityId> snapshotIds) {
+        return (root, query, criteriaBuilder) -> {
+            root.fetch("session", JoinType.INNER);
+            var entityId = root.get("entityId");
+            var uid = entityId.<String>get("uid");
+            var version = entityId.<Long>get("version");
+            var uids = new HashSet<String>();
+            var pairs = new ArrayList<Predicate>(snapshotIds.size());
+            for (var snapshotId : snapshotIds) {
+                uids.add(snapshotId.getUid());
+                pairs.add(criteriaBuilder.and(
+                        criteriaBuilder.equal(uid, snapshotId.getUid()),
+                        criteriaBuilder.equal(version, snapshotId.getVersion())
+                ));
+            }
+            return criteriaBuilder.and(
+                    uid.in(uids),
+                    criteriaBuilder.or(pairs.toArray(Predicate[]::new))
+            );
+        };
+    }
+
+    @Override
+    public List<SessionSnapshotEntity> findAllLatestSnapshotsByOwner(SessionOwnerType ownerType,
+                                                                     String ownerId,
+                                                                     String afterUid,
+                                                                     ZonedDateTime now,
+                                                                     int limit) {
+        return sessionSnapshotEntityRepository.findAllLatestByOwner(
+                ownerType,
+                ownerId,
+                afterUid,
+                now,
+                PageRequest.of(0, Math.max(limit, 1))
+        );
+    }
+
+    @Override
+    public List<SessionSnapshotEntity> findSnapshotChain(String uid, long fromVersion, long toVersion) {
+        return sessionSnapshotEntityRepository
+                .findAllByEntityIdUidAndEntityIdVersionBetweenOrderByEntityIdVersionAsc(uid, fromVersion, toVersion);
+    }
+
+    @Override
+    public Optional<Long> findChainBaseVersion(String uid, long version) {
+        return sessionSnapshotEntityRepository.findChainBaseVersion(uid, version);
+    }
+
+    @Override
+    public Optional<SnapshotCodecType> findSnapshotType(String uid, long version) {
+        return sessionSnapshotEntityRepository.findSnapshotType(uid, version);
+    }
+
+    @Override
+    public void appendSnapshot(SessionSnapshotEntity snapshot) {
+        snapshot.setSession(sessionEntityRepository.getReferenceById(snapshot.getUid()));
+        sessionSnapshotEntityRepository.save(snapshot);
+    }
+
+    @Override
+    public void appendSnapshots(List<SessionSnapshotEntity> snapshots) {
+        sessionBatchJdbcRepository.insertSnapshots(snapshots);
+    }
+
+    @Override
+    public List<SessionSectionSnapshotEntity> findActualSectionSnapshots(String uid,
+                                                                         @Nullable Collection<String> sections,
+                                                                         long version) {
+        return sections == null ?
+                sectionSnapshotEntityRepository.findAllActual(uid, version) :
+                sectionSnapshotEntityRepository.findAllActualBySectionIn(uid, sections, version);
+    }
+
+    @Override
+    public Optional<SessionSectionSnapshotEntity> findActualSectionSnapshot(String uid, String section, long version) {
+        return sectionSnapshotEntityRepository.findActual(uid, section, version);
+    }
+
+    @Override
+    public List<String> findActualSectionNames(String uid, long version) {
+        return sectionSnapshotEntityRepository.findAllActualSections(uid, version);
+    }
+
+    @Override
+    public void appendSectionSnapshots(List<SessionSectionSnapshotEntity> sectionSnapshots) {
+        sessionBatchJdbcRepository.insertSectionSnapshots(sectionSnapshots);
+    }
+
+    private List<PermissionEntity> insertAndLoadPermissions(Collection<String> codes, List<String> keys) {
+        return permissionTransactionTemplate.execute(status -> {
+            sessionBatchJdbcRepository.insertMissingPermissions(codes);
+            return permissionEntityRepository.findAllByLowerCodeIn(keys);
+        });
+    }
+}
@@ -0,0 +1,490 @@
+package com.github.sibdevtools.session.embedded.service.impl;
+
+import com.github.sibdevtools.session.embedded.exception.UnexpectedErrorException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of records in memory-mapped segment files.
+ * <p>
+ * Segment file is preallocated to segment size and filled by records one after another.
+ * Record is {@code int length, int crc32, byte type, payload}, where length and checksum cover type and payload.
+ * Zero length marks the end of written records. Length is written last, so torn record is never visible
+ * after restart: it either has zero length or fails checksum check, then segment is truncated at this record.
+ * <p>
+ * Record location is {@code segment id << 32 | offset}. Log is not thread safe for writes,
+ * appends and segment removal are expected to be serialized by the caller. Reads are lock-free.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Slf4j
+final class MappedSessionLog {
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{10})\\.log");
+    private static final int HEADER_SIZE = Integer.BYTES * 2;
+    private static final long NULL_TIME = Long.MIN_VALUE;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private Segment active;
+
+    /**
+     * Construct log, segments are not opened till {@link #recover(RecordVisitor)}
+     *
+     * @param directory   directory of segment files
+     * @param segmentSize size of a new segment file in bytes
+     */
+    MappedSessionLog(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Open existing segments and pass all valid records to visitor in order of append.
+     * Segment is truncated at the first torn or corrupted record.
+     *
+     * @param visitor record visitor
+     */
+    void recover(RecordVisitor visitor) {
+        try {
+            Files.createDirectories(directory);
+            try (var files = Files.list(directory)) {
+                for (var file : files.toList()) {
+                    var matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                    if (matcher.matches()) {
+                        var id = Integer.parseInt(matcher.group(1));
+                        segments.put(id, openSegment(id, file, Files.size(file)));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UnexpectedErrorException("Session log open failed", e);
+        }
+        for (var segment : segments.values()) {
+            recoverSegment(segment, visitor);
+        }
+        active = segments.isEmpty() ? null : segments.lastEntry().getValue();
+    }
+
+    /**
+     * Replay all records of opened segments again, used when records depend on records of other types
+     *
+     * @param visitor record visitor
+     */
+    void replay(RecordVisitor visitor) {
+        for (var segment : segments.values()) {
+            var offset = 0;
+            while (offset < segment.position) {
+                var length = segment.buffer.getInt(offset);
+                visitor.visit(location(segment.id, offset), segment.buffer.get(offset + HEADER_SIZE), payload(segment, offset, length));
+                offset += HEADER_SIZE + length;
+            }
+        }
+    }
+
+    /**
+     * Append record to the active segment, new segment is created if record doesn't fit
+     *
+     * @param type    record type
+     * @param payload record payload
+     * @return record location
+     */
+    long append(byte type, RecordWriter payload) {
+        var length = 1 + payload.size();
+        var recordSize = HEADER_SIZE + length;
+        if (active == null || active.position + recordSize > active.buffer.capacity()) {
+            roll(recordSize);
+        }
+        var buffer = active.buffer;
+        var offset = active.position;
+        buffer.put(offset + HEADER_SIZE, type);
+        buffer.put(offset + HEADER_SIZE + 1, payload.bytes, 0, payload.size());
+        var crc = new CRC32();
+        crc.update(buffer.slice(offset + HEADER_SIZE, length));
+        buffer.putInt(offset + Integer.BYTES, (int) crc.getValue());
+        buffer.putInt(offset, length);
+        active.position = offset + recordSize;
+        active.liveBytes.addAndGet(recordSize);
+        return location(active.id, offset);
+    }
+
+    /**
+     * Read record payload
+     *
+     * @param location record location
+     * @return read only payload buffer
+     */
+    ByteBuffer read(long location) {
+        var segment = getSegment(location);
+        var offset = offset(location);
+        return payload(segment, offset, segment.buffer.getInt(offset));
+    }
+
+    /**
+     * Read record type
+     *
+     * @param location record location
+     * @return record type
+     */
+    byte readType(long location) {
+        return getSegment(location).buffer.get(offset(location) + HEADER_SIZE);
+    }
+
+    /**
+     * Mark record as not used anymore, so its segment may be compacted
+     *
+     * @param location record location
+     */
+    void release(long location) {
+        var segment = segments.get(segmentId(location));
+        if (segment != null) {
+            segment.liveBytes.addAndGet(-(HEADER_SIZE + segment.buffer.getInt(offset(location))));
+        }
+    }
+
+    /**
+     * Get ids of sealed segments, which live records take no more than passed ratio of written bytes
+     *
+     * @param threshold live bytes ratio
+     * @return segment ids, oldest first
+     */
+    List<Integer> getSparseSegments(double threshold) {
+        var ids = new ArrayList<Integer>();
+        for (var segment : segments.values()) {
+            if (segment != active && segment.liveBytes.get() <= segment.position * threshold) {
+                ids.add(segment.id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Get locations of all records of segment
+     *
+     * @param segmentId segment id
+     * @return record locations
+     */
+    long[] getLocations(int segmentId) {
+        var segment = segments.get(segmentId);
+        var locations = new long[16];
+        var count = 0;
+        var offset = 0;
+        while (offset < segment.position) {
+            if (count == locations.length) {
+                locations = Arrays.copyOf(locations, count * 2);
+            }
+            locations[count++] = location(segmentId, offset);
+            offset += HEADER_SIZE + segment.buffer.getInt(offset);
+        }
+        return Arrays.copyOf(locations, count);
+    }
+
+    /**
+     * Remove segment file, all its live records should be appended again before
+     *
+     * @param segmentId segment id
+     */
+    void delete(int segmentId) {
+        var segment = segments.remove(segmentId);
+        try {
+            segment.channel.close();
+            Files.deleteIfExists(segment.file);
+        } catch (IOException e) {
+            throw new UnexpectedErrorException("Session log segment delete failed", e);
+        }
+    }
+
+    /**
+     * Flush written records of the active segment to disk
+     */
+    void force() {
+        if (active != null) {
+            active.buffer.force();
+        }
+    }
+
+    /**
+     * Get count of segments
+     *
+     * @return count of segments
+     */
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Get total size of segment files
+     *
+     * @return size in bytes
+     */
+    long getSize() {
+        return segments.values()
+                .stream()
+                .mapToLong(it -> it.buffer.capacity())
+                .sum();
+    }
+
+    /**
+     * Flush and close all segments
+     */
+    void close() {
+        force();
+        for (var segment : segments.values()) {
+            try {
+                segment.channel.close();
+            } catch (IOException e) {
+                log.warn("Session log segment {} close failed", segment.file, e);
+            }
+        }
+        segments.clear();
+        active = null;
+    }
+
+    private void roll(int recordSize) {
+        if (active != null) {
+            // sealed segment is never written again, so it is flushed once
+            active.buffer.force();
+        }
+        var id = active == null ? 0 : active.id + 1;
+        var file = directory.resolve(String.format("segment-%010d.log", id));
+        try {
+            active = openSegment(id, file, Math.max(segmentSize, recordSize + Integer.BYTES));
+        } catch (IOException e) {
+            throw new UnexpectedErrorException("Session log segment create failed", e);
+        }
+        segments.put(id, active);
+    }
+
+    private static Segment openSegment(int id, Path file, long size) throws IOException {
+        var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        return new Segment(id, file, channel, buffer);
+    }
+
+    private static void recoverSegment(Segment segment, RecordVisitor visitor) {
+        var buffer = segment.buffer;
+        var capacity = buffer.capacity();
+        var offset = 0;
+        while (offset + HEADER_SIZE < capacity) {
+            var length = buffer.getInt(offset);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || length > capacity - offset - HEADER_SIZE || !isValid(buffer, offset, length)) {
+                log.warn("Session log segment {} is truncated at corrupted record, offset {}", segment.file, offset);
+                buffer.put(offset, new byte[capacity - offset]);
+                buffer.force();
+                break;
+            }
+            visitor.visit(location(segment.id, offset), buffer.get(offset + HEADER_SIZE), payload(segment, offset, length));
+            offset += HEADER_SIZE + length;
+        }
+        segment.position = offset;
+        segment.liveBytes.set(offset);
+    }
+
+    private static boolean isValid(MappedByteBuffer buffer, int offset, int length) {
+        var crc = new CRC32();
+        crc.update(buffer.slice(offset + HEADER_SIZE, length));
+        return (int) crc.getValue() == buffer.getInt(offset + Integer.BYTES);
+    }
+
+    private static ByteBuffer payload(Segment segment, int offset, int length) {
+        return segment.buffer.slice(offset + HEADER_SIZE + 1, length - 1).asReadOnlyBuffer();
+    }
+
+    private Segment getSegment(long location) {
+        var segment = segments.get(segmentId(location));
+        if (segment == null) {
+            throw new UnexpectedErrorException("Session log segment not found: " + segmentId(location));
+        }
+        return segment;
+    }
+
+    private static long location(int segmentId, int offset) {
+        return (long) segmentId << 32 | offset;
+    }
+
+    static int segmentId(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offset(long location) {
+        return (int) location;
+    }
+
+    /**
+     * Read string, written by {@link RecordWriter#writeString(String)}
+     *
+     * @param buffer payload buffer
+     * @return string or null
+     */
+    static String readString(ByteBuffer buffer) {
+        var bytes = readBytes(buffer);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read bytes, written by {@link RecordWriter#writeBytes(byte[])}
+     *
+     * @param buffer payload buffer
+     * @return bytes or null
+     */
+    static byte[] readBytes(ByteBuffer buffer) {
+        var length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        var bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Read time, written by {@link RecordWriter#writeTime(ZonedDateTime)}
+     *
+     * @param buffer payload buffer
+     * @return time or null
+     */
+    static ZonedDateTime readTime(ByteBuffer buffer) {
+        var seconds = buffer.getLong();
+        if (seconds == NULL_TIME) {
+            return null;
+        }
+        var nanos = buffer.getInt();
+        var zone = readString(buffer);
+        return ZonedDateTime.ofInstant(Instant.ofEpochSecond(seconds, nanos), ZoneId.of(zone));
+    }
+
+    /**
+     * Visitor of log records
+     */
+    @FunctionalInterface
+    interface RecordVisitor {
+
+        /**
+         * Visit record
+         *
+         * @param location record location
+         * @param type     record type
+         * @param payload  read only payload buffer
+         */
+        void visit(long location, byte type, ByteBuffer payload);
+    }
+
+    /**
+     * Growable buffer of record payload, reused between appends
+     */
+    static final class RecordWriter {
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        /**
+         * Clear written payload
+         *
+         * @return this writer
+         */
+        RecordWriter reset() {
+            size = 0;
+            return this;
+        }
+
+        int size() {
+            return size;
+        }
+
+        RecordWriter writeByte(int value) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) value;
+            return this;
+        }
+
+        RecordWriter writeInt(int value) {
+            ensureCapacity(Integer.BYTES);
+            ByteBuffer.wrap(bytes, size, Integer.BYTES).putInt(value);
+            size += Integer.BYTES;
+            return this;
+        }
+
+        RecordWriter writeLong(long value) {
+            ensureCapacity(Long.BYTES);
+            ByteBuffer.wrap(bytes, size, Long.BYTES).putLong(value);
+            size += Long.BYTES;
+            return this;
+        }
+
+        RecordWriter writeBytes(byte[] value) {
+            if (value == null) {
+                return writeInt(-1);
+            }
+            writeInt(value.length);
+            ensureCapacity(value.length);
+            System.arraycopy(value, 0, bytes, size, value.length);
+            size += value.length;
+            return this;
+        }
+
+        RecordWriter writeString(String value) {
+            return writeBytes(value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        RecordWriter writeRaw(ByteBuffer value) {
+            var length = value.remaining();
+            ensureCapacity(length);
+            value.get(bytes, size, length);
+            size += length;
+            return this;
+        }
+
+        RecordWriter writeTime(ZonedDateTime value) {
+            if (value == null) {
+                return writeLong(NULL_TIME);
+            }
+            var instant = value.toInstant();
+            writeLong(instant.getEpochSecond());
+            writeInt(instant.getNano());
+            return writeString(value.getZone().getId());
+        }
+
+        private void ensureCapacity(int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+            }
+        }
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final AtomicLong liveBytes = new AtomicLong();
+        private volatile int position;
+
+        private Segment(int id, Path file, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+}
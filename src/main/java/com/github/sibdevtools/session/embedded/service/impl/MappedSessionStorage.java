@@ -0,0 +1,986 @@
+package com.github.sibdevtools.session.embedded.service.impl;
+
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedMappedStorageProperties;
+import com.github.sibdevtools.session.embedded.dto.SessionVersions;
+import com.github.sibdevtools.session.embedded.dto.SnapshotContent;
+import com.github.sibdevtools.session.embedded.entity.*;
+import com.github.sibdevtools.session.embedded.service.SessionChainStorage;
+import com.github.sibdevtools.session.embedded.service.SessionHeaderStorage;
+import com.github.sibdevtools.session.embedded.service.SessionOwnerStorage;
+import com.github.sibdevtools.session.embedded.service.SessionSectionStorage;
+import com.github.sibdevtools.session.embedded.service.SessionStorage;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Session storage, backed by append-only log in local memory-mapped files. Suitable for single instance deployments only.
+ * <p>
+ * Every session, snapshot, section snapshot, permission and expiration change is a record in {@link MappedSessionLog}.
+ * Session headers and section versions are kept on heap, snapshot locations are kept in {@link OffHeapSnapshotIndex},
+ * so snapshot content is read directly from the mapped file.
+ * On start all segments are replayed, the latest record wins, segment is truncated at the first torn record.
+ * Session without any snapshot and section snapshots of not stored versions are left from not completed commits and skipped.
+ * <p>
+ * Writes are applied on commit of the current Spring transaction. Latest version change holds the session
+ * till the end of transaction, so concurrent change of the same session fails fast.
+ * <p>
+ * Compaction drops expired sessions and rewrites sealed segments with small ratio of live records.
+ * All versions of live sessions are kept. Dropped session is marked by a removal record, which is kept
+ * till the segment of session record is deleted, so dropped session is never restored on restart.
+ * Rewritten records are flushed to disk before the source segment is deleted.
+ * <p>
+ * Only sessions are stored in the log, the rest of session service, e.g. Flyway migrations, still requires database.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@Slf4j
+public class MappedSessionStorage implements SessionStorage,
+        SessionHeaderStorage,
+        SessionOwnerStorage,
+        SessionChainStorage,
+        SessionSectionStorage {
+    private static final byte RECORD_PERMISSION = 1;
+    private static final byte RECORD_SESSION = 2;
+    private static final byte RECORD_SNAPSHOT = 3;
+    private static final byte RECORD_SECTION_SNAPSHOT = 4;
+    private static final byte RECORD_EXPIRY = 5;
+    private static final byte RECORD_REMOVED = 6;
+
+    private final SessionServiceEmbeddedMappedStorageProperties storageProperties;
+    private final MappedSessionLog sessionLog;
+    private final OffHeapSnapshotIndex snapshotIndex;
+    private final DeferredWrites deferredWrites;
+    // appends are done under read lock, compaction moves records under write lock
+    private final ReentrantReadWriteLock compactionLock = new ReentrantReadWriteLock();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final MappedSessionLog.RecordWriter recordWriter = new MappedSessionLog.RecordWriter();
+
+    private final Map<Long, PermissionEntity> permissionsById = new ConcurrentHashMap<>();
+    private final Map<String, PermissionEntity> permissionsByCode = new ConcurrentHashMap<>();
+    private final Map<String, SessionHeader> sessions = new ConcurrentHashMap<>();
+    private final Map<OwnerKey, ConcurrentSkipListMap<String, SessionHeader>> owners = new ConcurrentHashMap<>();
+    // removal records of dropped sessions, which session records are not deleted yet, guarded by compaction lock
+    private final Map<String, Removal> removals = new HashMap<>();
+    private long lastPermissionId;
+
+    private ScheduledExecutorService executorService;
+
+    /**
+     * Construct memory-mapped session storage
+     *
+     * @param storageProperties memory-mapped storage properties
+     */
+    public MappedSessionStorage(SessionServiceEmbeddedMappedStorageProperties storageProperties) {
+        this.storageProperties = storageProperties;
+        this.sessionLog = new MappedSessionLog(Path.of(storageProperties.getDirectory()), storageProperties.getSegmentSize());
+        this.snapshotIndex = new OffHeapSnapshotIndex(storageProperties.getIndexCapacity());
+        this.deferredWrites = new DeferredWrites(this, this::flush);
+    }
+
+    /**
+     * Recover stored records and start scheduled compaction
+     */
+    @PostConstruct
+    public void start() {
+        var startTime = System.nanoTime();
+        sessionLog.recover(this::recoverHeader);
+        // snapshots of a session may be placed before its header, after header is moved by compaction
+        sessionLog.replay(this::recoverContent);
+        for (var header : List.copyOf(sessions.values())) {
+            if (header.latestVersion < 0) {
+                removeSession(header);
+                continue;
+            }
+            for (var versions : header.sections.values()) {
+                var notStored = versions.tailMap(header.latestVersion, false);
+                notStored.values().forEach(sessionLog::release);
+                notStored.clear();
+            }
+        }
+        log.info("Session log recovered in {} ms: {} sessions, {} snapshots, {} segments",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime),
+                sessions.size(),
+                snapshotIndex.size(),
+                sessionLog.getSegmentCount());
+
+        var interval = storageProperties.getCompactionInterval().toMillis();
+        executorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "session-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executorService.scheduleWithFixedDelay(this::compactSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop scheduled compaction and close log
+     */
+    @PreDestroy
+    public void stop() {
+        executorService.shutdownNow();
+        compactionLock.writeLock().lock();
+        try {
+            sessionLog.close();
+        } finally {
+            compactionLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<PermissionEntity> findAllPermissions() {
+        return List.copyOf(permissionsById.values());
+    }
+
+    @Override
+    public List<PermissionEntity> findAllPermissionsById(Collection<Long> ids) {
+        return ids.stream()
+                .map(permissionsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public List<PermissionEntity> createPermissions(Collection<String> codes) {
+        // permissions are committed independently, so they are appended immediately
+        return append(() -> {
+            var permissions = new ArrayList<PermissionEntity>(codes.size());
+            for (var code : codes) {
+                var key = code.toLowerCase(Locale.ROOT);
+                var permission = permissionsByCode.get(key);
+                if (permission == null) {
+                    permission = new PermissionEntity(lastPermissionId + 1, code);
+                    sessionLog.append(RECORD_PERMISSION, recordWriter.reset()
+                            .writeLong(permission.getId())
+                            .writeString(code));
+                    addPermission(permission);
+                }
+                permissions.add(permission);
+            }
+            if (storageProperties.isSyncOnCommit()) {
+                sessionLog.force();
+            }
+            return permissions;
+        });
+    }
+
+    @Override
+    public void createSessions(List<SessionEntity> sessions,
+                               List<SessionSnapshotEntity> snapshots,
+                               List<SessionSectionSnapshotEntity> sectionSnapshots) {
+        write(() -> {
+            for (var session : sessions) {
+                if (this.sessions.containsKey(session.getUid())) {
+                    throw new DuplicateKeyException("Session already exists: " + session.getUid());
+                }
+            }
+            for (var session : sessions) {
+                var location = sessionLog.append(RECORD_SESSION, recordWriter.reset()
+                        .writeString(session.getUid())
+                        .writeString(session.getOwnerType().name())
+                        .writeString(session.getOwnerId())
+                        .writeTime(session.getCreatedAt())
+                        .writeTime(session.getExpiresAt())
+                        .writeBytes(session.getPermissionIds()));
+                addSession(new SessionHeader(session, location));
+            }
+            appendSnapshotRecords(snapshots);
+            appendSectionSnapshotRecords(sectionSnapshots);
+        });
+    }
+
+    @Override
+    public Optional<Long> findLatestVersion(String uid) {
+        var header = sessions.get(uid);
+        if (header == null) {
+            return Optional.empty();
+        }
+        return Optional.of(header.getVisibleVersion(deferredWrites.currentTransaction()));
+    }
+
+    @Override
+    public boolean compareAndSetLatestVersion(String uid, long expectedVersion, long version) {
+        var header = sessions.get(uid);
+        if (header == null) {
+            return false;
+        }
+        var transaction = deferredWrites.currentTransaction();
+        synchronized (header) {
+            if (header.lockOwner != null && header.lockOwner != transaction) {
+                return false;
+            }
+            if (header.getVisibleVersion(transaction) != expectedVersion) {
+                return false;
+            }
+            if (transaction != null && header.lockOwner == null) {
+                header.lockOwner = transaction;
+                deferredWrites.afterCompletion(() -> header.unlock(transaction));
+            }
+            header.lockedVersion = version;
+        }
+        write(() -> header.advanceVersion(version));
+        return true;
+    }
+
+    @Override
+    public void updateLatestVersions(Map<String, Long> latestVersions) {
+        write(() -> latestVersions.forEach((uid, version) -> {
+            var header = sessions.get(uid);
+            if (header != null) {
+                header.advanceVersion(version);
+            }
+        }));
+    }
+
+    @Override
+    public void prolongExpiresAt(String uid, ZonedDateTime expiresAt, ZonedDateTime now) {
+        write(() -> {
+            var header = sessions.get(uid);
+            if (header != null && header.expiresAt != null && header.expiresAt.isBefore(expiresAt) &&
+                    header.isAliveAt(now)) {
+                appendExpiry(header, expiresAt);
+            }
+        });
+    }
+
+    @Override
+    public List<SessionVersions> findAllVersionsByOwner(SessionOwnerType ownerType,
+                                                        String ownerId,
+                                                        String afterUid,
+                                                        ZonedDateTime now,
+                                                        int limit) {
+        return findAllByOwner(ownerType, ownerId, afterUid, now)
+                .limit(Math.max(limit, 1))
+                .map(it -> (SessionVersions) new StoredVersions(it.uid, it.latestVersion))
+                .toList();
+    }
+
+    @Override
+    public long countByOwner(SessionOwnerType ownerType, String ownerId, ZonedDateTime now) {
+        return findAllByOwner(ownerType, ownerId, "", now).count();
+    }
+
+    @Override
+    public int expireAllByOwner(SessionOwnerType ownerType, String ownerId, ZonedDateTime now) {
+        var headers = findAllByOwner(ownerType, ownerId, "", now).toList();
+        write(() -> {
+            for (var header : headers) {
+                if (header.isAliveAt(now)) {
+                    appendExpiry(header, now);
+                }
+            }
+        });
+        return headers.size();
+    }
+
+    @Override
+    public Optional<SessionSnapshotEntity> findSnapshot(String uid, long version) {
+        return read(() -> {
+            var header = sessions.get(uid);
+            if (header == null) {
+                return Optional.empty();
+            }
+            var location = findSnapshotLocation(uid, version);
+            if (location < 0) {
+                return Optional.empty();
+            }
+            var snapshot = readSnapshot(location, true);
+            snapshot.setSession(header.toEntity());
+            return Optional.of(snapshot);
+        });
+    }
+
+    @Override
+    public Optional<SnapshotContent> findSnapshotContent(String uid, long version) {
+        return read(() -> {
+            var header = sessions.get(uid);
+            if (header == null) {
+                return Optional.empty();
+            }
+            var location = findSnapshotLocation(uid, version);
+            if (location < 0) {
+                return Optional.empty();
+            }
+            var snapshot = readSnapshot(location, true);
+            return Optional.of(
+                    new SnapshotContent(
+                            uid,
+                            version,
+                            snapshot.getSnapshot(),
+                            snapshot.getSnapshotType(),
+                            snapshot.getBaseVersion(),
+                            header.ownerType,
+                            header.expiresAt
+                    )
+            );
+        });
+    }
+
+    @Override
+    public Optional<SessionSnapshotEntity> findLatestSnapshot(String uid) {
+        return findLatestVersion(uid)
+                .flatMap(version -> findSnapshot(uid, version));
+    }
+
+    @Override
+    public List<SessionSnapshotEntity> findAllSnapshots(Collection<SessionSnapshotEntityId> snapshotIds) {
+        var snapshots = new ArrayList<SessionSnapshotEntity>(snapshotIds.size());
+        for (var snapshotId : snapshotIds) {
+            findSnapshot(snapshotId.getUid(), snapshotId.getVersion())
+                    .ifPresent(snapshots::add);
+        }
+        return snapshots;
+    }
+
+    @Override
+    public List<SessionSnapshotEntity> findAllLatestSnapshotsByOwner(SessionOwnerType ownerType,
+                                                                     String ownerId,
+                                                                     String afterUid,
+                                                                     ZonedDateTime now,
+                                                                     int limit) {
+        return findAllByOwner(ownerType, ownerId, afterUid, now)
+                .limit(Math.max(limit, 1))
+                .map(it -> findSnapshot(it.uid, it.latestVersion))
+                .flatMap(Optional::stream)
+                .toList();
+    }
+
+    @Override
+    public List<SessionSnapshotEntity> findSnapshotChain(String uid, long fromVersion, long toVersion) {
+        return read(() -> {
+            var snapshots = new ArrayList<SessionSnapshotEntity>();
+            for (var version = fromVersion; version <= toVersion; version++) {
+                var location = findSnapshotLocation(uid, version);
+                if (location >= 0) {
+                    snapshots.add(readSnapshot(location, true));
+                }
+            }
+            return snapshots;
+        });
+    }
+
+    @Override
+    public Optional<Long> findChainBaseVersion(String uid, long version) {
+        return read(() -> {
+            var location = findSnapshotLocation(uid, version);
+            if (location < 0) {
+                return Optional.empty();
+            }
+            var baseVersion = readSnapshot(location, false).getBaseVersion();
+            return Optional.of(baseVersion == null ? version : baseVersion);
+        });
+    }
+
+    @Override
+    public Optional<SnapshotCodecType> findSnapshotType(String uid, long version) {
+        return read(() -> {
+            var location = findSnapshotLocation(uid, version);
+            if (location < 0) {
+                return Optional.empty();
+            }
+            return Optional.of(readSnapshot(location, false).getSnapshotType());
+        });
+    }
+
+    @Override
+    public void appendSnapshot(SessionSnapshotEntity snapshot) {
+        appendSnapshots(List.of(snapshot));
+    }
+
+    @Override
+    public void appendSnapshots(List<SessionSnapshotEntity> snapshots) {
+        write(() -> appendSnapshotRecords(snapshots));
+    }
+
+    @Override
+    public List<SessionSectionSnapshotEntity> findActualSectionSnapshots(String uid,
+                                                                         @Nullable Collection<String> sections,
+                                                                         long version) {
+        return read(() -> {
+            var header = sessions.get(uid);
+            if (header == null) {
+                return List.of();
+            }
+            var names = sections == null ? header.sections.keySet() : sections;
+            var sectionSnapshots = new ArrayList<SessionSectionSnapshotEntity>(names.size());
+            for (var section : names) {
+                var location = findSectionLocation(header, section, version);
+                if (location >= 0) {
+                    sectionSnapshots.add(readSectionSnapshot(location));
+                }
+            }
+            return sectionSnapshots;
+        });
+    }
+
+    @Override
+    public Optional<SessionSectionSnapshotEntity> findActualSectionSnapshot(String uid, String section, long version) {
+        return read(() -> {
+            var header = sessions.get(uid);
+            if (header == null) {
+                return Optional.empty();
+            }
+            var location = findSectionLocation(header, section, version);
+            return location < 0 ? Optional.empty() : Optional.of(readSectionSnapshot(location));
+        });
+    }
+
+    @Override
+    public List<String> findActualSectionNames(String uid, long version) {
+        return findActualSectionSnapshots(uid, null, version)
+                .stream()
+                .filter(it -> !it.isRemoved())
+                .map(it -> it.getEntityId().getSection())
+                .toList();
+    }
+
+    @Override
+    public void appendSectionSnapshots(List<SessionSectionSnapshotEntity> sectionSnapshots) {
+        write(() -> appendSectionSnapshotRecords(sectionSnapshots));
+    }
+
+    /**
+     * Drop expired sessions and rewrite sparse sealed segments
+     */
+    public void compact() {
+        var startTime = System.nanoTime();
+        compactionLock.writeLock().lock();
+        try {
+            var now = ZonedDateTime.now();
+            var expired = 0;
+            for (var header : List.copyOf(sessions.values())) {
+                if (!header.isAliveAt(now) && !header.isLocked()) {
+                    removeSession(header);
+                    appendRemoval(header);
+                    expired++;
+                }
+            }
+            var segmentIds = sessionLog.getSparseSegments(storageProperties.getCompactionThreshold());
+            for (var segmentId : segmentIds) {
+                for (var location : sessionLog.getLocations(segmentId)) {
+                    relocate(location);
+                }
+                // moved records have to be durable before their source is gone
+                sessionLog.force();
+                sessionLog.delete(segmentId);
+                releaseRemovals(segmentId);
+            }
+            log.info("Session log compacted in {} ms: {} expired sessions, {} segments",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime),
+                    expired,
+                    segmentIds.size());
+        } finally {
+            compactionLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get count of stored sessions
+     *
+     * @return count of sessions
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Get count of indexed snapshots
+     *
+     * @return count of snapshots
+     */
+    public int getSnapshotCount() {
+        return read(snapshotIndex::size);
+    }
+
+    /**
+     * Get count of log segments
+     *
+     * @return count of segments
+     */
+    public int getSegmentCount() {
+        return read(sessionLog::getSegmentCount);
+    }
+
+    private void compactSafely() {
+        try {
+            compact();
+        } catch (Exception e) {
+            log.error("Session log compaction failed", e);
+        }
+    }
+
+    private <T> T read(Supplier<T> read) {
+        compactionLock.readLock().lock();
+        try {
+            return read.get();
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+    }
+
+    private <T> T append(Supplier<T> append) {
+        compactionLock.readLock().lock();
+        appendLock.lock();
+        try {
+            return append.get();
+        } finally {
+            appendLock.unlock();
+            compactionLock.readLock().unlock();
+        }
+    }
+
+    private void write(Runnable write) {
+        deferredWrites.write(() -> append(() -> {
+            write.run();
+            return null;
+        }));
+    }
+
+    private void flush() {
+        if (!storageProperties.isSyncOnCommit()) {
+            return;
+        }
+        append(() -> {
+            sessionLog.force();
+            return null;
+        });
+    }
+
+    private Stream<SessionHeader> findAllByOwner(SessionOwnerType ownerType,
+                                                                  String ownerId,
+                                                                  String afterUid,
+                                                                  ZonedDateTime now) {
+        var ownerSessions = owners.get(new OwnerKey(ownerType, ownerId));
+        if (ownerSessions == null) {
+            return Stream.empty();
+        }
+        return ownerSessions.tailMap(afterUid, false)
+                .values()
+                .stream()
+                .filter(it -> it.isAliveAt(now));
+    }
+
+    private void appendSnapshotRecords(List<SessionSnapshotEntity> snapshots) {
+        // all checks are done before the first append, so failed write doesn't leave a part of records
+        for (var snapshot : snapshots) {
+            if (!sessions.containsKey(snapshot.getUid())) {
+                throw new DataIntegrityViolationException("Session not found: " + snapshot.getUid());
+            }
+            if (findSnapshotLocation(snapshot.getUid(), snapshot.getVersion()) >= 0) {
+                throw new DuplicateKeyException(
+                        "Session snapshot already exists: %s, version %d".formatted(snapshot.getUid(), snapshot.getVersion())
+                );
+            }
+        }
+        for (var snapshot : snapshots) {
+            var header = sessions.get(snapshot.getUid());
+            var baseVersion = snapshot.getBaseVersion();
+            var location = sessionLog.append(RECORD_SNAPSHOT, recordWriter.reset()
+                    .writeString(snapshot.getUid())
+                    .writeLong(snapshot.getVersion())
+                    .writeString(snapshot.getSnapshotType().name())
+                    .writeLong(baseVersion == null ? -1 : baseVersion)
+                    .writeTime(snapshot.getCreatedAt())
+                    .writeBytes(snapshot.getSnapshot()));
+            putSnapshotLocation(snapshot.getUid(), snapshot.getVersion(), location);
+            header.advanceVersion(snapshot.getVersion());
+        }
+    }
+
+    private void appendSectionSnapshotRecords(List<SessionSectionSnapshotEntity> sectionSnapshots) {
+        for (var sectionSnapshot : sectionSnapshots) {
+            if (!sessions.containsKey(sectionSnapshot.getEntityId().getUid())) {
+                throw new DataIntegrityViolationException("Session not found: " + sectionSnapshot.getEntityId().getUid());
+            }
+        }
+        for (var sectionSnapshot : sectionSnapshots) {
+            var entityId = sectionSnapshot.getEntityId();
+            var snapshotType = sectionSnapshot.getSnapshotType();
+            var location = sessionLog.append(RECORD_SECTION_SNAPSHOT, recordWriter.reset()
+                    .writeString(entityId.getUid())
+                    .writeLong(entityId.getVersion())
+                    .writeString(entityId.getSection())
+                    .writeString(snapshotType == null ? null : snapshotType.name())
+                    .writeTime(sectionSnapshot.getCreatedAt())
+                    .writeBytes(sectionSnapshot.getSnapshot()));
+            putSectionLocation(sessions.get(entityId.getUid()), entityId.getSection(), entityId.getVersion(), location);
+        }
+    }
+
+    private void appendExpiry(SessionHeader header, ZonedDateTime expiresAt) {
+        var location = sessionLog.append(RECORD_EXPIRY, recordWriter.reset()
+                .writeString(header.uid)
+                .writeTime(expiresAt));
+        setExpiry(header, expiresAt, location);
+    }
+
+    private void appendRemoval(SessionHeader header) {
+        var location = sessionLog.append(RECORD_REMOVED, recordWriter.reset()
+                .writeString(header.uid));
+        removals.put(header.uid, new Removal(header.location, location));
+    }
+
+    /**
+     * Release removal records of sessions, which session records were placed in deleted segment
+     *
+     * @param segmentId deleted segment id
+     */
+    private void releaseRemovals(int segmentId) {
+        var iterator = removals.values().iterator();
+        while (iterator.hasNext()) {
+            var removal = iterator.next();
+            if (MappedSessionLog.segmentId(removal.sessionLocation()) == segmentId) {
+                sessionLog.release(removal.location());
+                iterator.remove();
+            }
+        }
+    }
+
+    private void addPermission(PermissionEntity permission) {
+        permissionsById.put(permission.getId(), permission);
+        permissionsByCode.put(permission.getCode().toLowerCase(Locale.ROOT), permission);
+        lastPermissionId = Math.max(lastPermissionId, permission.getId());
+    }
+
+    private void addSession(SessionHeader header) {
+        sessions.put(header.uid, header);
+        owners.computeIfAbsent(new OwnerKey(header.ownerType, header.ownerId), it -> new ConcurrentSkipListMap<>())
+                .put(header.uid, header);
+    }
+
+    private void removeSession(SessionHeader header) {
+        for (var version = 0L; version <= header.latestVersion; version++) {
+            var location = snapshotIndex.remove(header.uid, version, snapshotMatcher(header.uid, version));
+            if (location >= 0) {
+                sessionLog.release(location);
+            }
+        }
+        for (var versions : header.sections.values()) {
+            versions.values().forEach(sessionLog::release);
+        }
+        if (header.expiryLocation >= 0) {
+            sessionLog.release(header.expiryLocation);
+        }
+        sessionLog.release(header.location);
+        removeHeader(header);
+    }
+
+    private void removeHeader(SessionHeader header) {
+        sessions.remove(header.uid);
+        var ownerKey = new OwnerKey(header.ownerType, header.ownerId);
+        var ownerSessions = owners.get(ownerKey);
+        if (ownerSessions != null) {
+            ownerSessions.remove(header.uid);
+            if (ownerSessions.isEmpty()) {
+                owners.remove(ownerKey, ownerSessions);
+            }
+        }
+    }
+
+    private void setExpiry(SessionHeader header, ZonedDateTime expiresAt, long location) {
+        if (header.expiryLocation >= 0) {
+            sessionLog.release(header.expiryLocation);
+        }
+        header.expiryLocation = location;
+        header.expiresAt = expiresAt;
+    }
+
+    private long findSnapshotLocation(String uid, long version) {
+        return snapshotIndex.get(uid, version, snapshotMatcher(uid, version));
+    }
+
+    private void putSnapshotLocation(String uid, long version, long location) {
+        var replaced = snapshotIndex.put(uid, version, location, snapshotMatcher(uid, version));
+        if (replaced >= 0) {
+            sessionLog.release(replaced);
+        }
+    }
+
+    private void putSectionLocation(SessionHeader header, String section, long version, long location) {
+        var replaced = header.sections.computeIfAbsent(section, it -> new ConcurrentSkipListMap<>())
+                .put(version, location);
+        if (replaced != null) {
+            sessionLog.release(replaced);
+        }
+    }
+
+    private LongPredicate snapshotMatcher(String uid, long version) {
+        return location -> {
+            var payload = sessionLog.read(location);
+            return uid.equals(MappedSessionLog.readString(payload)) && payload.getLong() == version;
+        };
+    }
+
+    private static long findSectionLocation(SessionHeader header, String section, long version) {
+        var versions = header.sections.get(section);
+        if (versions == null) {
+            return -1;
+        }
+        var entry = versions.floorEntry(version);
+        return entry == null ? -1 : entry.getValue();
+    }
+
+    private SessionSnapshotEntity readSnapshot(long location, boolean withContent) {
+        var payload = sessionLog.read(location);
+        var uid = MappedSessionLog.readString(payload);
+        var version = payload.getLong();
+        var snapshotType = SnapshotCodecType.valueOf(MappedSessionLog.readString(payload));
+        var baseVersion = payload.getLong();
+        var createdAt = MappedSessionLog.readTime(payload);
+        return SessionSnapshotEntity.builder()
+                .entityId(
+                        SessionSnapshotEntityId.builder()
+                                .uid(uid)
+                                .version(version)
+                                .build()
+                )
+                .snapshotType(snapshotType)
+                .baseVersion(baseVersion < 0 ? null : baseVersion)
+                .createdAt(createdAt)
+                .snapshot(withContent ? MappedSessionLog.readBytes(payload) : null)
+                .build();
+    }
+
+    private SessionSectionSnapshotEntity readSectionSnapshot(long location) {
+        var payload = sessionLog.read(location);
+        var uid = MappedSessionLog.readString(payload);
+        var version = payload.getLong();
+        var section = MappedSessionLog.readString(payload);
+        var snapshotType = MappedSessionLog.readString(payload);
+        var createdAt = MappedSessionLog.readTime(payload);
+        return SessionSectionSnapshotEntity.builder()
+                .entityId(
+                        SessionSectionSnapshotEntityId.builder()
+                                .uid(uid)
+                                .section(section)
+                                .version(version)
+                                .build()
+                )
+                .snapshotType(snapshotType == null ? null : SnapshotCodecType.valueOf(snapshotType))
+                .createdAt(createdAt)
+                .snapshot(MappedSessionLog.readBytes(payload))
+                .build();
+    }
+
+    private void recoverHeader(long location, byte type, ByteBuffer payload) {
+        if (type == RECORD_PERMISSION) {
+            var id = payload.getLong();
+            addPermission(new PermissionEntity(id, MappedSessionLog.readString(payload)));
+        } else if (type == RECORD_SESSION) {
+            var uid = MappedSessionLog.readString(payload);
+            var existing = sessions.get(uid);
+            if (existing != null) {
+                // header was moved by compaction
+                sessionLog.release(existing.location);
+                existing.location = location;
+                return;
+            }
+            var ownerType = SessionOwnerType.valueOf(MappedSessionLog.readString(payload));
+            var ownerId = MappedSessionLog.readString(payload);
+            var createdAt = MappedSessionLog.readTime(payload);
+            var expiresAt = MappedSessionLog.readTime(payload);
+            var permissionIds = MappedSessionLog.readBytes(payload);
+            addSession(new SessionHeader(uid, ownerType, ownerId, createdAt, expiresAt, permissionIds, location));
+        } else if (type == RECORD_REMOVED) {
+            var header = sessions.get(MappedSessionLog.readString(payload));
+            if (header == null) {
+                // session record is deleted already
+                sessionLog.release(location);
+                return;
+            }
+            sessionLog.release(header.location);
+            removeHeader(header);
+            removals.put(header.uid, new Removal(header.location, location));
+        }
+    }
+
+    private void recoverContent(long location, byte type, ByteBuffer payload) {
+        if (type == RECORD_PERMISSION || type == RECORD_SESSION || type == RECORD_REMOVED) {
+            return;
+        }
+        var header = sessions.get(MappedSessionLog.readString(payload));
+        if (header == null) {
+            // session is dropped by compaction
+            sessionLog.release(location);
+            return;
+        }
+        if (type == RECORD_SNAPSHOT) {
+            var version = payload.getLong();
+            putSnapshotLocation(header.uid, version, location);
+            header.advanceVersion(version);
+        } else if (type == RECORD_SECTION_SNAPSHOT) {
+            var version = payload.getLong();
+            putSectionLocation(header, MappedSessionLog.readString(payload), version, location);
+        } else if (type == RECORD_EXPIRY) {
+            setExpiry(header, MappedSessionLog.readTime(payload), location);
+        }
+    }
+
+    private void relocate(long location) {
+        var type = sessionLog.readType(location);
+        var payload = sessionLog.read(location);
+        if (type == RECORD_PERMISSION) {
+            copy(type, payload);
+            return;
+        }
+        var uid = MappedSessionLog.readString(payload);
+        if (type == RECORD_REMOVED) {
+            var removal = removals.get(uid);
+            if (removal != null && removal.location() == location) {
+                removals.put(uid, new Removal(removal.sessionLocation(), copy(type, payload)));
+            }
+            return;
+        }
+        var header = sessions.get(uid);
+        if (header == null) {
+            return;
+        }
+        if (type == RECORD_SESSION && header.location == location) {
+            header.location = copy(type, payload);
+        } else if (type == RECORD_SNAPSHOT) {
+            var version = payload.getLong();
+            if (findSnapshotLocation(header.uid, version) == location) {
+                putSnapshotLocation(header.uid, version, copy(type, payload));
+            }
+        } else if (type == RECORD_SECTION_SNAPSHOT) {
+            var version = payload.getLong();
+            var section = MappedSessionLog.readString(payload);
+            if (findSectionLocation(header, section, version) == location) {
+                putSectionLocation(header, section, version, copy(type, payload));
+            }
+        } else if (type == RECORD_EXPIRY && header.expiryLocation == location) {
+            header.expiryLocation = copy(type, payload);
+        }
+    }
+
+    private long copy(byte type, ByteBuffer payload) {
+        return sessionLog.append(type, recordWriter.reset().writeRaw(payload.rewind()));
+    }
+
+    private record OwnerKey(SessionOwnerType ownerType, String ownerId) {
+    }
+
+    /**
+     * Removal record of dropped session
+     *
+     * @param sessionLocation location of session record
+     * @param location        location of removal record
+     */
+    private record Removal(long sessionLocation, long location) {
+    }
+
+    private record StoredVersions(String uid, long latestVersion) implements SessionVersions {
+
+        @Override
+        public String getUid() {
+            return uid;
+        }
+
+        @Override
+        public long getLatestVersion() {
+            return latestVersion;
+        }
+    }
+
+    private static final class SessionHeader {
+        private final String uid;
+        private final SessionOwnerType ownerType;
+        private final String ownerId;
+        private final ZonedDateTime createdAt;
+        private final byte[] permissionIds;
+        private final Map<String, ConcurrentSkipListMap<Long, Long>> sections = new ConcurrentHashMap<>();
+        private volatile long location;
+        private volatile ZonedDateTime expiresAt;
+        private volatile long expiryLocation = -1;
+        private volatile long latestVersion = -1;
+        // transaction, which changed latest version and not completed yet, guarded by header
+        private Object lockOwner;
+        private long lockedVersion;
+
+        private SessionHeader(String uid,
+                              SessionOwnerType ownerType,
+                              String ownerId,
+                              ZonedDateTime createdAt,
+                              ZonedDateTime expiresAt,
+                              byte[] permissionIds,
+                              long location) {
+            this.uid = uid;
+            this.ownerType = ownerType;
+            this.ownerId = ownerId;
+            this.createdAt = createdAt;
+            this.expiresAt = expiresAt;
+            this.permissionIds = permissionIds;
+            this.location = location;
+        }
+
+        private SessionHeader(SessionEntity session, long location) {
+            this(
+                    session.getUid(),
+                    session.getOwnerType(),
+                    session.getOwnerId(),
+                    session.getCreatedAt(),
+                    session.getExpiresAt(),
+                    session.getPermissionIds(),
+                    location
+            );
+        }
+
+        private synchronized long getVisibleVersion(Object transaction) {
+            return lockOwner != null && lockOwner == transaction ? lockedVersion : latestVersion;
+        }
+
+        private synchronized void advanceVersion(long version) {
+            if (version > latestVersion) {
+                latestVersion = version;
+            }
+        }
+
+        private synchronized boolean isLocked() {
+            return lockOwner != null;
+        }
+
+        private synchronized void unlock(Object transaction) {
+            if (lockOwner == transaction) {
+                lockOwner = null;
+            }
+        }
+
+        private boolean isAliveAt(ZonedDateTime now) {
+            var expiresAt = this.expiresAt;
+            return expiresAt == null || expiresAt.isAfter(now);
+        }
+
+        private SessionEntity toEntity() {
+            return SessionEntity.builder()
+                    .uid(uid)
+                    .ownerType(ownerType)
+                    .ownerId(ownerId)
+                    .createdAt(createdAt)
+                    .expiresAt(expiresAt)
+                    .latestVersion(latestVersion)
+                    .permissionIds(permissionIds)
+                    .permissions(List.of())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.github.sibdevtools.session.embedded.service.impl;
+
+import com.github.sibdevtools.session.embedded.entity.SnapshotCodecType;
+import com.github.sibdevtools.session.embedded.service.SessionExpiryPurger;
+import com.github.sibdevtools.session.embedded.service.SessionMetrics;
+import com.github.sibdevtools.session.embedded.service.SessionSnapshotCache;
+import com.github.sibdevtools.session.embedded.service.SessionSnapshotCompactor;
+import com.github.sibdevtools.session.embedded.service.SessionWriteBehindBuffer;
+import io.micrometer.core.instrument.*;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Session metrics, backed by Micrometer meter registry.
+ * <p>
+ * Meters are registered once and reused, so recording is a map lookup and a meter update.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public class MicrometerSessionMetrics implements SessionMetrics {
+    private static final String PREFIX = "session.service.";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> operationTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> phaseTimers = new ConcurrentHashMap<>();
+    private final Map<SnapshotCodecType, DistributionSummary> encodedSizes = new EnumMap<>(SnapshotCodecType.class);
+    private final Map<SnapshotCodecType, DistributionSummary> decodedSizes = new EnumMap<>(SnapshotCodecType.class);
+    private final Map<SnapshotCodecType, Counter> encodedBytes = new EnumMap<>(SnapshotCodecType.class);
+    private final Map<SnapshotCodecType, Counter> decodedBytes = new EnumMap<>(SnapshotCodecType.class);
+    private final DistributionSummary chainDepth;
+    private final DistributionSummary versions;
+    private final AtomicLong maxVersion = new AtomicLong();
+
+    /**
+     * Construct session metrics
+     *
+     * @param meterRegistry meter registry
+     */
+    public MicrometerSessionMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (var codecType : SnapshotCodecType.values()) {
+            encodedSizes.put(codecType, snapshotSize(codecType, "encode"));
+            decodedSizes.put(codecType, snapshotSize(codecType, "decode"));
+            encodedBytes.put(codecType, codecBytes(codecType, "encode"));
+            decodedBytes.put(codecType, codecBytes(codecType, "decode"));
+        }
+        this.chainDepth = DistributionSummary.builder(PREFIX + "snapshot.chain.depth")
+                .description("Count of snapshots, decoded to restore a session version")
+                .register(meterRegistry);
+        this.versions = DistributionSummary.builder(PREFIX + "snapshot.version")
+                .description("Written session versions")
+                .register(meterRegistry);
+        Gauge.builder(PREFIX + "snapshot.version.max", maxVersion, AtomicLong::get)
+                .description("Max written session version")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Register snapshot cache statistics
+     *
+     * @param cache snapshot cache
+     */
+    public void bindCache(SessionSnapshotCache cache) {
+        FunctionCounter.builder(PREFIX + "cache.hits", cache, it -> it.getStats().hitCount())
+                .register(meterRegistry);
+        FunctionCounter.builder(PREFIX + "cache.misses", cache, it -> it.getStats().missCount())
+                .register(meterRegistry);
+        FunctionCounter.builder(PREFIX + "cache.evictions", cache, it -> it.getStats().evictionCount())
+                .register(meterRegistry);
+        FunctionCounter.builder(PREFIX + "cache.eviction.weight", cache, it -> it.getStats().evictionWeight())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Register write-behind buffer statistics
+     *
+     * @param buffer write-behind buffer
+     */
+    public void bindWriteBehindBuffer(SessionWriteBehindBuffer buffer) {
+        Gauge.builder(PREFIX + "write-behind.queue.size", buffer, SessionWriteBehindBuffer::getQueueSize)
+                .register(meterRegistry);
+        FunctionCounter.builder(PREFIX + "write-behind.flushed", buffer, SessionWriteBehindBuffer::getTotalFlushed)
+                .register(meterRegistry);
+        FunctionCounter.builder(PREFIX + "write-behind.dropped", buffer, SessionWriteBehindBuffer::getTotalDropped)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Register snapshot compactor statistics
+     *
+     * @param compactor snapshot compactor
+     */
+    public void bindCompactor(SessionSnapshotCompactor compactor) {
+        FunctionCounter.builder(PREFIX + "compaction.rows", compactor, SessionSnapshotCompactor::getTotalRows)
+                .register(meterRegistry);
+        FunctionCounter.builder(PREFIX + "compaction.bytes", compactor, SessionSnapshotCompactor::getTotalBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Register expired sessions purger statistics
+     *
+     * @param purger expired sessions purger
+     */
+    public void bindPurger(SessionExpiryPurger purger) {
+        FunctionCounter.builder(PREFIX + "purge.sessions", purger, SessionExpiryPurger::getTotalSessions)
+                .register(meterRegistry);
+        FunctionCounter.builder(PREFIX + "purge.snapshots", purger, SessionExpiryPurger::getTotalSnapshots)
+                .register(meterRegistry);
+        FunctionTimer.builder(
+                        PREFIX + "purge",
+                        purger,
+                        SessionExpiryPurger::getTotalSessions,
+                        it -> it.getTotalDuration().toNanos(),
+                        TimeUnit.NANOSECONDS
+                )
+                .register(meterRegistry);
+    }
+
+    @Override
+    public long startTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void recordOperation(String operation, long startTime) {
+        var timer = operationTimers.computeIfAbsent(
+                operation,
+                it -> Timer.builder(PREFIX + "operation")
+                        .tag("operation", it)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+        );
+        timer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordPhase(String phase, long startTime) {
+        var timer = phaseTimers.computeIfAbsent(
+                phase,
+                it -> Timer.builder(PREFIX + "phase")
+                        .tag("phase", it)
+                        .register(meterRegistry)
+        );
+        timer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordEncoded(SnapshotCodecType codecType, int size) {
+        encodedSizes.get(codecType).record(size);
+        encodedBytes.get(codecType).increment(size);
+    }
+
+    @Override
+    public void recordDecoded(SnapshotCodecType codecType, int size) {
+        decodedSizes.get(codecType).record(size);
+        decodedBytes.get(codecType).increment(size);
+    }
+
+    @Override
+    public void recordChainDepth(int depth) {
+        chainDepth.record(depth);
+    }
+
+    @Override
+    public void recordVersion(long version) {
+        versions.record(version);
+        maxVersion.accumulateAndGet(version, Math::max);
+    }
+
+    private DistributionSummary snapshotSize(SnapshotCodecType codecType, String direction) {
+        return DistributionSummary.builder(PREFIX + "snapshot.size")
+                .baseUnit("bytes")
+                .tag("codec", codecType.name())
+                .tag("direction", direction)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Counter codecBytes(SnapshotCodecType codecType, String direction) {
+        return Counter.builder(PREFIX + "codec.bytes")
+                .baseUnit("bytes")
+                .tag("codec", codecType.name())
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,204 @@
+package com.github.sibdevtools.session.embedded.service.impl;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.LongPredicate;
+
+/**
+ * Off-heap open addressing hash index of {@code (uid, version) -> log location}.
+ * <p>
+ * Slot is a pair of longs: 64-bit hash of the key and location. Key itself is not stored,
+ * so on hash match the caller verifies the record at location. Readers don't take locks:
+ * location is published before hash with release semantic and read after hash with acquire semantic.
+ * Writes are expected to be serialized by the caller. Table is doubled, when load factor exceeds 0.75,
+ * the new table is published by a volatile write after it is filled.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+final class OffHeapSnapshotIndex {
+    private static final VarHandle SLOTS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final int SLOT_SIZE = Long.BYTES * 2;
+    private static final long EMPTY = 0;
+    private static final long REMOVED = 1;
+
+    private volatile ByteBuffer table;
+    private int capacity;
+    private int used;
+    private int size;
+
+    /**
+     * Construct index
+     *
+     * @param initialCapacity initial count of slots, rounded up to power of 2
+     */
+    OffHeapSnapshotIndex(int initialCapacity) {
+        this.capacity = Integer.highestOneBit(Math.max(initialCapacity, 16) - 1) << 1;
+        this.table = ByteBuffer.allocateDirect(capacity * SLOT_SIZE).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Find location of snapshot
+     *
+     * @param uid     session uid
+     * @param version snapshot version
+     * @param matches check, that record at location has passed uid and version
+     * @return location or -1 if not found
+     */
+    long get(String uid, long version, LongPredicate matches) {
+        var table = this.table;
+        var mask = table.capacity() / SLOT_SIZE - 1;
+        var hash = hash(uid, version);
+        for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+            var offset = slot * SLOT_SIZE;
+            var slotHash = (long) SLOTS.getAcquire(table, offset);
+            if (slotHash == EMPTY) {
+                return -1;
+            }
+            if (slotHash == hash) {
+                var location = (long) SLOTS.get(table, offset + Long.BYTES);
+                if (matches.test(location)) {
+                    return location;
+                }
+            }
+        }
+    }
+
+    /**
+     * Put location of snapshot, location of the same snapshot is replaced
+     *
+     * @param uid      session uid
+     * @param version  snapshot version
+     * @param location record location
+     * @param matches  check, that record at location has passed uid and version
+     * @return replaced location or -1
+     */
+    long put(String uid, long version, long location, LongPredicate matches) {
+        if ((used + 1) * 4L > capacity * 3L) {
+            resize();
+        }
+        var table = this.table;
+        var mask = capacity - 1;
+        var hash = hash(uid, version);
+        var freeSlot = -1;
+        for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+            var offset = slot * SLOT_SIZE;
+            var slotHash = (long) SLOTS.getAcquire(table, offset);
+            if (slotHash == EMPTY) {
+                if (freeSlot < 0) {
+                    freeSlot = slot;
+                    used++;
+                }
+                break;
+            }
+            if (slotHash == REMOVED) {
+                if (freeSlot < 0) {
+                    freeSlot = slot;
+                }
+                continue;
+            }
+            if (slotHash == hash) {
+                var existing = (long) SLOTS.get(table, offset + Long.BYTES);
+                if (matches.test(existing)) {
+                    SLOTS.setRelease(table, offset + Long.BYTES, location);
+                    return existing;
+                }
+            }
+        }
+        var offset = freeSlot * SLOT_SIZE;
+        SLOTS.set(table, offset + Long.BYTES, location);
+        SLOTS.setRelease(table, offset, hash);
+        size++;
+        return -1;
+    }
+
+    /**
+     * Remove location of snapshot
+     *
+     * @param uid     session uid
+     * @param version snapshot version
+     * @param matches check, that record at location has passed uid and version
+     * @return removed location or -1
+     */
+    long remove(String uid, long version, LongPredicate matches) {
+        var table = this.table;
+        var mask = capacity - 1;
+        var hash = hash(uid, version);
+        for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+            var offset = slot * SLOT_SIZE;
+            var slotHash = (long) SLOTS.getAcquire(table, offset);
+            if (slotHash == EMPTY) {
+                return -1;
+            }
+            if (slotHash == hash) {
+                var location = (long) SLOTS.get(table, offset + Long.BYTES);
+                if (matches.test(location)) {
+                    SLOTS.setRelease(table, offset, REMOVED);
+                    size--;
+                    return location;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get count of indexed snapshots
+     *
+     * @return count of snapshots
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get size of off-heap table
+     *
+     * @return size in bytes
+     */
+    long getTableSize() {
+        return (long) capacity * SLOT_SIZE;
+    }
+
+    private void resize() {
+        var source = table;
+        // removed slots are dropped, so table is not grown if it is mostly filled by them
+        var newCapacity = size * 4L > capacity ? capacity * 2 : capacity;
+        if (newCapacity > Integer.MAX_VALUE / SLOT_SIZE) {
+            throw new IllegalStateException("Snapshot index is full");
+        }
+        var target = ByteBuffer.allocateDirect(newCapacity * SLOT_SIZE).order(ByteOrder.nativeOrder());
+        var mask = newCapacity - 1;
+        for (int offset = 0; offset < source.capacity(); offset += SLOT_SIZE) {
+            var hash = (long) SLOTS.get(source, offset);
+            if (hash == EMPTY || hash == REMOVED) {
+                continue;
+            }
+            var slot = (int) hash & mask;
+            while ((long) SLOTS.get(target, slot * SLOT_SIZE) != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            SLOTS.set(target, slot * SLOT_SIZE + Long.BYTES, (long) SLOTS.get(source, offset + Long.BYTES));
+            SLOTS.set(target, slot * SLOT_SIZE, hash);
+        }
+        this.capacity = newCapacity;
+        this.used = size;
+        this.table = target;
+    }
+
+    private static long hash(String uid, long version) {
+        var hash = 1125899906842597L;
+        for (int i = 0; i < uid.length(); i++) {
+            hash = 31 * hash + uid.charAt(i);
+        }
+        hash = hash * 0x9E3779B97F4A7C15L + version;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        // 0 and 1 mark empty and removed slots
+        return hash == EMPTY || hash == REMOVED ? hash + 2 : hash;
+    }
+}
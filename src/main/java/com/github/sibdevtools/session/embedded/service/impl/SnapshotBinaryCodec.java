@@ -0,0 +1,762 @@
+package com.github.sibdevtools.session.embedded.service.impl;
+
+import com.github.sibdevtools.session.embedded.entity.SnapshotCodecType;
+import com.github.sibdevtools.session.embedded.exception.AttributeTypeNotAllowedException;
+import com.github.sibdevtools.session.embedded.exception.UnexpectedErrorException;
+import com.github.sibdevtools.session.embedded.service.SnapshotCodec;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Compact binary snapshot codec.
+ * <p>
+ * Snapshot is written in the indexed layout (format version 2):
+ * <pre>
+ * magic (2 bytes) | format version (1 byte) | section count (4 bytes)
+ * section table: section count * [name offset (4 bytes) | attribute table offset (4 bytes)]
+ * attribute table: attribute count (4 bytes) | attribute count * [name offset (4 bytes) | value offset (4 bytes)]
+ * data: names and values, referenced by offsets from the snapshot start
+ * value: type tag (1 byte) | payload
+ * </pre>
+ * Section and attribute tables are sorted by name, so a single attribute or section attribute names
+ * are found by binary search without decoding other values.
+ * <p>
+ * Sequential layout (format version 1) is still supported on read:
+ * <pre>
+ * magic (2 bytes) | format version (1 byte) | section count (varint)
+ * section: name (string) | attribute count (varint)
+ * attribute: name (string) | value length (4 bytes) | value
+ * </pre>
+ * Strings are stored as varint length of UTF-8 bytes followed by the bytes.
+ * Common value types are stored natively, so their java types are kept on read,
+ * other {@link Serializable} values are stored using java serialization.
+ * Java serialized values are read through {@link ObjectInputFilter}, only allowed classes are deserialized.
+ * The same filter is checked on write, so value, which can't be read back, is rejected before it is stored.
+ * Lengths and counts are checked against the remaining snapshot bytes before allocation.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+public class SnapshotBinaryCodec implements SnapshotCodec {
+    private static final byte MAGIC_0 = 'S';
+    private static final byte MAGIC_1 = 'B';
+    private static final byte FORMAT_VERSION_SEQUENTIAL = 1;
+    private static final byte FORMAT_VERSION_INDEXED = 2;
+    private static final int SECTION_TABLE_OFFSET = 3 + Integer.BYTES;
+    private static final int TABLE_ENTRY_SIZE = 2 * Integer.BYTES;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_INTEGER = 2;
+    private static final byte TAG_LONG = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_FLOAT = 5;
+    private static final byte TAG_BOOLEAN = 6;
+    private static final byte TAG_SHORT = 7;
+    private static final byte TAG_BYTE = 8;
+    private static final byte TAG_CHARACTER = 9;
+    private static final byte TAG_BYTES = 10;
+    private static final byte TAG_BIG_DECIMAL = 11;
+    private static final byte TAG_BIG_INTEGER = 12;
+    private static final byte TAG_LIST = 13;
+    private static final byte TAG_MAP = 14;
+    private static final byte TAG_SERIALIZED = 15;
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    /**
+     * Default filter of java serialized values: java core value types only
+     */
+    public static final String DEFAULT_SERIAL_FILTER =
+            "java.lang.*;java.math.*;java.time.*;java.util.*;java.util.concurrent.*;!*";
+
+    private final ObjectInputFilter serialFilter;
+
+    /**
+     * Create codec with default filter of java serialized values
+     */
+    public SnapshotBinaryCodec() {
+        this(DEFAULT_SERIAL_FILTER);
+    }
+
+    /**
+     * Create codec
+     *
+     * @param serialFilter {@link ObjectInputFilter} pattern, applied to java serialized values
+     */
+    public SnapshotBinaryCodec(String serialFilter) {
+        var filter = serialFilter == null ? null : ObjectInputFilter.Config.createFilter(serialFilter);
+        if (filter == null) {
+            throw new IllegalArgumentException("Serial filter pattern is empty");
+        }
+        this.serialFilter = filter;
+    }
+
+    @Override
+    public Map<String, Map<String, Serializable>> deserialize(byte[] snapshot) {
+        try {
+            var buffer = ByteBuffer.wrap(snapshot);
+            var formatVersion = readHeader(buffer);
+            if (formatVersion == FORMAT_VERSION_SEQUENTIAL) {
+                return deserializeSequential(buffer);
+            }
+
+            var sectionCount = readTableSize(buffer, SECTION_TABLE_OFFSET - Integer.BYTES);
+            var sections = new HashMap<String, Map<String, Serializable>>(capacity(sectionCount), 1);
+            for (int i = 0; i < sectionCount; i++) {
+                var sectionEntry = SECTION_TABLE_OFFSET + i * TABLE_ENTRY_SIZE;
+                var sectionName = readStringAt(buffer, buffer.getInt(sectionEntry));
+                var attributeTableOffset = buffer.getInt(sectionEntry + Integer.BYTES);
+                var attributeCount = readTableSize(buffer, attributeTableOffset);
+                var attributes = new HashMap<String, Serializable>(capacity(attributeCount), 1);
+                for (int j = 0; j < attributeCount; j++) {
+                    var attributeEntry = attributeTableOffset + Integer.BYTES + j * TABLE_ENTRY_SIZE;
+                    var attributeName = readStringAt(buffer, buffer.getInt(attributeEntry));
+                    buffer.position(buffer.getInt(attributeEntry + Integer.BYTES));
+                    attributes.put(attributeName, readValue(buffer));
+                }
+                sections.put(sectionName, attributes);
+            }
+            return sections;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new UnexpectedErrorException("Can't deserialize snapshot", e);
+        }
+    }
+
+    @Override
+    public Set<String> getAttributeNames(byte[] snapshot, String section) {
+        try {
+            var buffer = ByteBuffer.wrap(snapshot);
+            if (readHeader(buffer) == FORMAT_VERSION_SEQUENTIAL) {
+                return SnapshotCodec.super.getAttributeNames(snapshot, section);
+            }
+            var attributeTableOffset = findAttributeTable(buffer, section);
+            if (attributeTableOffset < 0) {
+                return Collections.emptySet();
+            }
+            var attributeCount = readTableSize(buffer, attributeTableOffset);
+            var attributeNames = new HashSet<String>(capacity(attributeCount));
+            for (int i = 0; i < attributeCount; i++) {
+                var attributeEntry = attributeTableOffset + Integer.BYTES + i * TABLE_ENTRY_SIZE;
+                attributeNames.add(readStringAt(buffer, buffer.getInt(attributeEntry)));
+            }
+            return attributeNames;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new UnexpectedErrorException("Can't read snapshot attribute names", e);
+        }
+    }
+
+    @Override
+    public Serializable getAttribute(byte[] snapshot, String section, String attribute) {
+        try {
+            var buffer = ByteBuffer.wrap(snapshot);
+            if (readHeader(buffer) == FORMAT_VERSION_SEQUENTIAL) {
+                return SnapshotCodec.super.getAttribute(snapshot, section, attribute);
+            }
+            var attributeTableOffset = findAttributeTable(buffer, section);
+            if (attributeTableOffset < 0) {
+                return null;
+            }
+            var attributeCount = readTableSize(buffer, attributeTableOffset);
+            var attributeIndex = findEntry(buffer, attributeTableOffset + Integer.BYTES, attributeCount, attribute);
+            if (attributeIndex < 0) {
+                return null;
+            }
+            var attributeEntry = attributeTableOffset + Integer.BYTES + attributeIndex * TABLE_ENTRY_SIZE;
+            buffer.position(buffer.getInt(attributeEntry + Integer.BYTES));
+            return readValue(buffer);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new UnexpectedErrorException("Can't read snapshot attribute", e);
+        }
+    }
+
+    @Override
+    public Map<String, Map<String, Serializable>> getAttributes(byte[] snapshot,
+                                                                Map<String, ? extends Collection<String>> attributeNames) {
+        try {
+            var buffer = ByteBuffer.wrap(snapshot);
+            if (readHeader(buffer) == FORMAT_VERSION_SEQUENTIAL) {
+                return SnapshotCodec.super.getAttributes(snapshot, attributeNames);
+            }
+            var selected = new HashMap<String, Map<String, Serializable>>(capacity(attributeNames.size()));
+            for (var entry : attributeNames.entrySet()) {
+                var attributeTableOffset = findAttributeTable(buffer, entry.getKey());
+                if (attributeTableOffset < 0) {
+                    continue;
+                }
+                var attributeCount = readTableSize(buffer, attributeTableOffset);
+                var selectedAttributes = new HashMap<String, Serializable>(capacity(entry.getValue().size()));
+                for (var attributeName : entry.getValue()) {
+                    var attributeIndex = findEntry(buffer, attributeTableOffset + Integer.BYTES, attributeCount, attributeName);
+                    if (attributeIndex < 0) {
+                        continue;
+                    }
+                    var attributeEntry = attributeTableOffset + Integer.BYTES + attributeIndex * TABLE_ENTRY_SIZE;
+                    buffer.position(buffer.getInt(attributeEntry + Integer.BYTES));
+                    var value = readValue(buffer);
+                    if (value != null) {
+                        selectedAttributes.put(attributeName, value);
+                    }
+                }
+                if (!selectedAttributes.isEmpty()) {
+                    selected.put(entry.getKey(), selectedAttributes);
+                }
+            }
+            return selected;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new UnexpectedErrorException("Can't read snapshot attributes", e);
+        }
+    }
+
+    @Override
+    public byte[] serialize(Map<String, Map<String, Serializable>> snapshot) {
+        return serialize(snapshot, null, Collections.emptySet());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Data of unchanged sections is copied from indexed source snapshot as is,
+     * only offsets in its attribute table are shifted to the new position.
+     */
+    @Override
+    public byte[] serialize(Map<String, Map<String, Serializable>> snapshot,
+                            byte[] sourceSnapshot,
+                            Set<String> changedSections) {
+        var sections = new ArrayList<>(snapshot.entrySet());
+        sections.sort(Map.Entry.comparingByKey());
+
+        var source = wrapIndexed(sourceSnapshot);
+        var sourceSectionCount = source == null ? 0 : source.getInt(SECTION_TABLE_OFFSET - Integer.BYTES);
+
+        var output = new BinaryOutput(sourceSnapshot == null ? INITIAL_BUFFER_SIZE : sourceSnapshot.length);
+        output.writeByte(MAGIC_0);
+        output.writeByte(MAGIC_1);
+        output.writeByte(FORMAT_VERSION_INDEXED);
+        output.writeInt(sections.size());
+
+        var sectionTableOffset = output.reserve(sections.size() * TABLE_ENTRY_SIZE);
+        var attributeTableOffsets = new int[sections.size()];
+        for (int i = 0; i < sections.size(); i++) {
+            var attributeCount = sections.get(i).getValue().size();
+            attributeTableOffsets[i] = output.reserve(Integer.BYTES + attributeCount * TABLE_ENTRY_SIZE);
+        }
+
+        for (int i = 0; i < sections.size(); i++) {
+            var section = sections.get(i);
+            var sectionEntry = sectionTableOffset + i * TABLE_ENTRY_SIZE;
+            var attributeTableOffset = attributeTableOffsets[i];
+            output.writeIntAt(sectionEntry + Integer.BYTES, attributeTableOffset);
+
+            var sourceSectionIndex = source == null || changedSections.contains(section.getKey()) ?
+                    -1 :
+                    findEntry(source, SECTION_TABLE_OFFSET, sourceSectionCount, section.getKey());
+            if (sourceSectionIndex < 0 ||
+                    !copySection(output, sectionEntry, attributeTableOffset, section.getValue().size(),
+                            source, sourceSectionCount, sourceSectionIndex)) {
+                writeSection(output, sectionEntry, attributeTableOffset, section);
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private void writeSection(BinaryOutput output,
+                                     int sectionEntry,
+                                     int attributeTableOffset,
+                                     Map.Entry<String, Map<String, Serializable>> section) {
+        output.writeIntAt(sectionEntry, output.size());
+        output.writeString(section.getKey());
+
+        var attributes = new ArrayList<>(section.getValue().entrySet());
+        attributes.sort(Map.Entry.comparingByKey());
+        output.writeIntAt(attributeTableOffset, attributes.size());
+        for (int j = 0; j < attributes.size(); j++) {
+            var attribute = attributes.get(j);
+            var attributeEntry = attributeTableOffset + Integer.BYTES + j * TABLE_ENTRY_SIZE;
+            output.writeIntAt(attributeEntry, output.size());
+            output.writeString(attribute.getKey());
+            output.writeIntAt(attributeEntry + Integer.BYTES, output.size());
+            writeValue(output, attribute.getValue());
+        }
+    }
+
+    /**
+     * Copy section data from the source snapshot.
+     * Section data is stored sequentially, so it lasts till the name of the next section or the snapshot end.
+     *
+     * @return true if section is copied, false if source section doesn't match and should be written from scratch
+     */
+    private static boolean copySection(BinaryOutput output,
+                                       int sectionEntry,
+                                       int attributeTableOffset,
+                                       int attributeCount,
+                                       ByteBuffer source,
+                                       int sourceSectionCount,
+                                       int sourceSectionIndex) {
+        var sourceSectionEntry = SECTION_TABLE_OFFSET + sourceSectionIndex * TABLE_ENTRY_SIZE;
+        var sourceAttributeTableOffset = source.getInt(sourceSectionEntry + Integer.BYTES);
+        if (source.getInt(sourceAttributeTableOffset) != attributeCount) {
+            return false;
+        }
+        var dataStart = source.getInt(sourceSectionEntry);
+        var dataEnd = sourceSectionIndex + 1 < sourceSectionCount ?
+                source.getInt(sourceSectionEntry + TABLE_ENTRY_SIZE) :
+                source.limit();
+
+        var shift = output.size() - dataStart;
+        output.writeIntAt(sectionEntry, output.size());
+        output.writeIntAt(attributeTableOffset, attributeCount);
+        for (int j = 0; j < attributeCount; j++) {
+            var sourceAttributeEntry = sourceAttributeTableOffset + Integer.BYTES + j * TABLE_ENTRY_SIZE;
+            var attributeEntry = attributeTableOffset + Integer.BYTES + j * TABLE_ENTRY_SIZE;
+            output.writeIntAt(attributeEntry, source.getInt(sourceAttributeEntry) + shift);
+            output.writeIntAt(attributeEntry + Integer.BYTES, source.getInt(sourceAttributeEntry + Integer.BYTES) + shift);
+        }
+        output.writeBytes(source.array(), dataStart, dataEnd - dataStart);
+        return true;
+    }
+
+    private static ByteBuffer wrapIndexed(byte[] snapshot) {
+        if (snapshot == null || snapshot.length < SECTION_TABLE_OFFSET) {
+            return null;
+        }
+        var buffer = ByteBuffer.wrap(snapshot);
+        try {
+            return readHeader(buffer) == FORMAT_VERSION_INDEXED ? buffer : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean isSectionReuseSupported() {
+        return true;
+    }
+
+    @Override
+    public SnapshotCodecType getType() {
+        return SnapshotCodecType.BINARY;
+    }
+
+    private Map<String, Map<String, Serializable>> deserializeSequential(ByteBuffer buffer) {
+        var sectionCount = readLength(buffer);
+        var sections = new HashMap<String, Map<String, Serializable>>(capacity(sectionCount), 1);
+        for (int i = 0; i < sectionCount; i++) {
+            var sectionName = readString(buffer);
+            var attributeCount = readLength(buffer);
+            var attributes = new HashMap<String, Serializable>(capacity(attributeCount), 1);
+            for (int j = 0; j < attributeCount; j++) {
+                var attributeName = readString(buffer);
+                buffer.getInt();
+                attributes.put(attributeName, readValue(buffer));
+            }
+            sections.put(sectionName, attributes);
+        }
+        return sections;
+    }
+
+    private static byte readHeader(ByteBuffer buffer) {
+        if (buffer.get() != MAGIC_0 || buffer.get() != MAGIC_1) {
+            throw new IllegalArgumentException("Invalid snapshot magic");
+        }
+        var formatVersion = buffer.get();
+        if (formatVersion != FORMAT_VERSION_SEQUENTIAL && formatVersion != FORMAT_VERSION_INDEXED) {
+            throw new IllegalArgumentException("Unsupported snapshot format version: %d".formatted(formatVersion));
+        }
+        return formatVersion;
+    }
+
+    private static int findAttributeTable(ByteBuffer buffer, String section) {
+        var sectionCount = readTableSize(buffer, SECTION_TABLE_OFFSET - Integer.BYTES);
+        var sectionIndex = findEntry(buffer, SECTION_TABLE_OFFSET, sectionCount, section);
+        if (sectionIndex < 0) {
+            return -1;
+        }
+        return buffer.getInt(SECTION_TABLE_OFFSET + sectionIndex * TABLE_ENTRY_SIZE + Integer.BYTES);
+    }
+
+    private static int findEntry(ByteBuffer buffer, int tableOffset, int count, String name) {
+        var low = 0;
+        var high = count - 1;
+        while (low <= high) {
+            var middle = (low + high) >>> 1;
+            var entryName = readStringAt(buffer, buffer.getInt(tableOffset + middle * TABLE_ENTRY_SIZE));
+            var compared = entryName.compareTo(name);
+            if (compared < 0) {
+                low = middle + 1;
+            } else if (compared > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private void writeValue(BinaryOutput output, Object value) {
+        switch (value) {
+            case null -> output.writeByte(TAG_NULL);
+            case String string -> {
+                output.writeByte(TAG_STRING);
+                output.writeString(string);
+            }
+            case Integer integer -> {
+                output.writeByte(TAG_INTEGER);
+                output.writeVarLong(zigZag(integer));
+            }
+            case Long longValue -> {
+                output.writeByte(TAG_LONG);
+                output.writeVarLong(zigZag(longValue));
+            }
+            case Double doubleValue -> {
+                output.writeByte(TAG_DOUBLE);
+                output.writeLong(Double.doubleToRawLongBits(doubleValue));
+            }
+            case Float floatValue -> {
+                output.writeByte(TAG_FLOAT);
+                output.writeInt(Float.floatToRawIntBits(floatValue));
+            }
+            case Boolean booleanValue -> {
+                output.writeByte(TAG_BOOLEAN);
+                output.writeByte(booleanValue ? 1 : 0);
+            }
+            case Short shortValue -> {
+                output.writeByte(TAG_SHORT);
+                output.writeVarLong(zigZag(shortValue));
+            }
+            case Byte byteValue -> {
+                output.writeByte(TAG_BYTE);
+                output.writeByte(byteValue);
+            }
+            case Character character -> {
+                output.writeByte(TAG_CHARACTER);
+                output.writeVarInt(character);
+            }
+            case byte[] bytes -> {
+                output.writeByte(TAG_BYTES);
+                output.writeVarInt(bytes.length);
+                output.writeBytes(bytes);
+            }
+            case BigDecimal bigDecimal -> {
+                output.writeByte(TAG_BIG_DECIMAL);
+                output.writeVarLong(zigZag(bigDecimal.scale()));
+                var unscaled = bigDecimal.unscaledValue().toByteArray();
+                output.writeVarInt(unscaled.length);
+                output.writeBytes(unscaled);
+            }
+            case BigInteger bigInteger -> {
+                output.writeByte(TAG_BIG_INTEGER);
+                var bytes = bigInteger.toByteArray();
+                output.writeVarInt(bytes.length);
+                output.writeBytes(bytes);
+            }
+            case ArrayList<?> list -> {
+                output.writeByte(TAG_LIST);
+                output.writeVarInt(list.size());
+                for (var item : list) {
+                    writeValue(output, item);
+                }
+            }
+            case HashMap<?, ?> map -> {
+                output.writeByte(TAG_MAP);
+                output.writeByte(map instanceof LinkedHashMap<?, ?> ? 1 : 0);
+                output.writeVarInt(map.size());
+                for (var entry : map.entrySet()) {
+                    writeValue(output, entry.getKey());
+                    writeValue(output, entry.getValue());
+                }
+            }
+            default -> {
+                output.writeByte(TAG_SERIALIZED);
+                var bytes = javaSerialize(value);
+                output.writeVarInt(bytes.length);
+                output.writeBytes(bytes);
+            }
+        }
+    }
+
+    private Serializable readValue(ByteBuffer buffer) {
+        var tag = buffer.get();
+        return switch (tag) {
+            case TAG_NULL -> null;
+            case TAG_STRING -> readString(buffer);
+            case TAG_INTEGER -> (int) unZigZag(readVarLong(buffer));
+            case TAG_LONG -> unZigZag(readVarLong(buffer));
+            case TAG_DOUBLE -> Double.longBitsToDouble(buffer.getLong());
+            case TAG_FLOAT -> Float.intBitsToFloat(buffer.getInt());
+            case TAG_BOOLEAN -> buffer.get() != 0;
+            case TAG_SHORT -> (short) unZigZag(readVarLong(buffer));
+            case TAG_BYTE -> buffer.get();
+            case TAG_CHARACTER -> (char) readVarInt(buffer);
+            case TAG_BYTES -> readBytes(buffer);
+            case TAG_BIG_DECIMAL -> {
+                var scale = (int) unZigZag(readVarLong(buffer));
+                yield new BigDecimal(new BigInteger(readBytes(buffer)), scale);
+            }
+            case TAG_BIG_INTEGER -> new BigInteger(readBytes(buffer));
+            case TAG_LIST -> {
+                var size = readLength(buffer);
+                var list = new ArrayList<Serializable>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(buffer));
+                }
+                yield list;
+            }
+            case TAG_MAP -> {
+                var linked = buffer.get() != 0;
+                var size = readLength(buffer);
+                var map = linked ?
+                        new LinkedHashMap<Serializable, Serializable>(capacity(size), 1) :
+                        new HashMap<Serializable, Serializable>(capacity(size), 1);
+                for (int i = 0; i < size; i++) {
+                    var key = readValue(buffer);
+                    map.put(key, readValue(buffer));
+                }
+                yield map;
+            }
+            case TAG_SERIALIZED -> javaDeserialize(readBytes(buffer));
+            default -> throw new IllegalArgumentException("Unknown value tag: %d".formatted(tag));
+        };
+    }
+
+    private byte[] javaSerialize(Object value) {
+        var outputStream = new ByteArrayOutputStream();
+        try (var objectOutputStream = new FilteredObjectOutputStream(outputStream, serialFilter)) {
+            objectOutputStream.writeObject(value);
+        } catch (IOException e) {
+            throw new UnexpectedErrorException("Can't serialize snapshot value of %s".formatted(value.getClass()), e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private Serializable javaDeserialize(byte[] bytes) {
+        try (var objectInputStream = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            objectInputStream.setObjectInputFilter(serialFilter);
+            return (Serializable) objectInputStream.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            throw new UnexpectedErrorException("Can't deserialize snapshot value", e);
+        }
+    }
+
+    private static int capacity(int size) {
+        return Math.max(size, 1);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        var bytes = new byte[readLength(buffer)];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static String readStringAt(ByteBuffer buffer, int offset) {
+        buffer.position(offset);
+        return readString(buffer);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        var length = readLength(buffer);
+        var string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+
+    /**
+     * Read length or count of items, each item takes at least one byte, so it can't exceed the remaining bytes
+     */
+    private static int readLength(ByteBuffer buffer) {
+        var length = readVarInt(buffer);
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("Length %d exceeds remaining %d bytes".formatted(length, buffer.remaining()));
+        }
+        return length;
+    }
+
+    /**
+     * Read entry count of section or attribute table, stored at the given offset
+     */
+    private static int readTableSize(ByteBuffer buffer, int offset) {
+        var size = buffer.getInt(offset);
+        var maxSize = (buffer.limit() - offset - Integer.BYTES) / TABLE_ENTRY_SIZE;
+        if (size < 0 || size > maxSize) {
+            throw new IllegalArgumentException("Invalid table size: %d".formatted(size));
+        }
+        return size;
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        var value = readVarLong(buffer);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid length: %d".formatted(value));
+        }
+        return (int) value;
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            var b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    /**
+     * Object output stream, which checks class of every written class descriptor by the filter used on read.
+     */
+    private static final class FilteredObjectOutputStream extends ObjectOutputStream {
+        private final ObjectInputFilter serialFilter;
+
+        private FilteredObjectOutputStream(OutputStream outputStream, ObjectInputFilter serialFilter) throws IOException {
+            super(outputStream);
+            this.serialFilter = serialFilter;
+        }
+
+        @Override
+        protected void annotateClass(Class<?> type) {
+            check(type);
+        }
+
+        @Override
+        protected void annotateProxyClass(Class<?> type) {
+            check(type);
+            for (var proxyInterface : type.getInterfaces()) {
+                check(proxyInterface);
+            }
+        }
+
+        private void check(Class<?> type) {
+            if (serialFilter.checkInput(new ClassFilterInfo(type)) == ObjectInputFilter.Status.REJECTED) {
+                throw new AttributeTypeNotAllowedException(type.getName());
+            }
+        }
+    }
+
+    /**
+     * Filter info of a single class descriptor, stream limits are not checked on write
+     */
+    private record ClassFilterInfo(Class<?> serialClass) implements ObjectInputFilter.FilterInfo {
+
+        @Override
+        public long arrayLength() {
+            return -1;
+        }
+
+        @Override
+        public long depth() {
+            return 1;
+        }
+
+        @Override
+        public long references() {
+            return 0;
+        }
+
+        @Override
+        public long streamBytes() {
+            return 0;
+        }
+    }
+
+    /**
+     * Growable byte array output without synchronization and stream overhead.
+     */
+    private static final class BinaryOutput {
+        private byte[] buffer;
+        private int size;
+
+        private BinaryOutput(int initialSize) {
+            this.buffer = new byte[initialSize];
+        }
+
+        private void ensureCapacity(int additional) {
+            var required = size + additional;
+            if (required > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length << 1));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[size++] = (byte) value;
+        }
+
+        private void writeBytes(byte[] bytes) {
+            writeBytes(bytes, 0, bytes.length);
+        }
+
+        private void writeBytes(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, buffer, size, length);
+            size += length;
+        }
+
+        private void writeInt(int value) {
+            ensureCapacity(Integer.BYTES);
+            writeIntAt(size, value);
+            size += Integer.BYTES;
+        }
+
+        private void writeIntAt(int position, int value) {
+            buffer[position] = (byte) (value >>> 24);
+            buffer[position + 1] = (byte) (value >>> 16);
+            buffer[position + 2] = (byte) (value >>> 8);
+            buffer[position + 3] = (byte) value;
+        }
+
+        private int reserve(int length) {
+            ensureCapacity(length);
+            var position = size;
+            size += length;
+            return position;
+        }
+
+        private void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        private void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        private void writeString(String value) {
+            var bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            writeBytes(bytes);
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.sibdevtools.session.embedded.service.impl;
+
+import com.github.sibdevtools.session.embedded.entity.SnapshotCodecType;
+import com.github.sibdevtools.session.embedded.exception.UnexpectedErrorException;
+import com.github.sibdevtools.session.embedded.service.SnapshotCodec;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Codec wrapper, which compresses snapshot content of delegate codec with Deflate.
+ * <p>
+ * Compressed snapshot starts with 4 bytes of uncompressed content length followed by zlib stream.
+ * Content length is checked against the max deflate ratio before the content buffer is allocated.
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@AllArgsConstructor
+public class SnapshotDeflateCodec implements SnapshotCodec {
+    private static final int HEADER_SIZE = Integer.BYTES;
+    /**
+     * Max ratio of content to deflate stream length, deflate can't compress better than ~1032:1
+     */
+    private static final int MAX_COMPRESSION_RATIO = 1032;
+
+    private final SnapshotCodecType type;
+    @Getter
+    private final SnapshotCodec delegate;
+
+    @Override
+    public Map<String, Map<String, Serializable>> deserialize(byte[] snapshot) {
+        return delegate.deserialize(decompress(snapshot));
+    }
+
+    @Override
+    public byte[] serialize(Map<String, Map<String, Serializable>> snapshot) {
+        return compress(delegate.serialize(snapshot));
+    }
+
+    @Override
+    public Set<String> getAttributeNames(byte[] snapshot, String section) {
+        return delegate.getAttributeNames(decompress(snapshot), section);
+    }
+
+    @Override
+    public Serializable getAttribute(byte[] snapshot, String section, String attribute) {
+        return delegate.getAttribute(decompress(snapshot), section, attribute);
+    }
+
+    @Override
+    public Map<String, Map<String, Serializable>> getAttributes(byte[] snapshot,
+                                                                Map<String, ? extends Collection<String>> attributeNames) {
+        return delegate.getAttributes(decompress(snapshot), attributeNames);
+    }
+
+    @Override
+    public SnapshotCodecType getType() {
+        return type;
+    }
+
+    /**
+     * Compress snapshot, encoded by delegate codec
+     *
+     * @param snapshot encoded snapshot
+     * @return compressed snapshot
+     */
+    public byte[] compress(byte[] snapshot) {
+        var deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(snapshot);
+            deflater.finish();
+
+            var compressed = new byte[HEADER_SIZE + Math.max(64, snapshot.length / 2)];
+            ByteBuffer.wrap(compressed).putInt(snapshot.length);
+            var size = HEADER_SIZE;
+            while (!deflater.finished()) {
+                if (size == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length << 1);
+                }
+                size += deflater.deflate(compressed, size, compressed.length - size);
+            }
+            return Arrays.copyOf(compressed, size);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Decompress snapshot into content, encoded by delegate codec
+     *
+     * @param snapshot compressed snapshot
+     * @return encoded snapshot
+     */
+    public byte[] decompress(byte[] snapshot) {
+        if (snapshot.length < HEADER_SIZE) {
+            throw new UnexpectedErrorException("Can't decompress snapshot: header is missing");
+        }
+        var length = ByteBuffer.wrap(snapshot).getInt();
+        if (length < 0 || length > (long) (snapshot.length - HEADER_SIZE) * MAX_COMPRESSION_RATIO) {
+            throw new UnexpectedErrorException("Can't decompress snapshot: invalid content length");
+        }
+        var inflater = new Inflater();
+        try {
+            inflater.setInput(snapshot, HEADER_SIZE, snapshot.length - HEADER_SIZE);
+
+            var decompressed = new byte[length];
+            var size = 0;
+            while (size < length && !inflater.finished()) {
+                var inflated = inflater.inflate(decompressed, size, length - size);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                size += inflated;
+            }
+            if (size != length || !inflater.finished()) {
+                throw new UnexpectedErrorException("Can't decompress snapshot: content is truncated");
+            }
+            return decompressed;
+        } catch (DataFormatException e) {
+            throw new UnexpectedErrorException("Can't decompress snapshot", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
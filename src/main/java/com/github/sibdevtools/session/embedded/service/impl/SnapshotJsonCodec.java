@@ -9,7 +9,6 @@ import lombok.AllArgsConstructor;
 
 import java.io.IOException;
 import java.io.Serializable;
-import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 /**
@@ -32,8 +31,7 @@ public class SnapshotJsonCodec implements SnapshotCodec {
     @Override
     public byte[] serialize(Map<String, Map<String, Serializable>> snapshot) {
         try {
-            var json = objectMapper.writeValueAsString(snapshot);
-            return json.getBytes(StandardCharsets.UTF_8);
+            return objectMapper.writeValueAsBytes(snapshot);
         } catch (JsonProcessingException e) {
             throw new UnexpectedErrorException("Can't serialize snapshot", e);
         }
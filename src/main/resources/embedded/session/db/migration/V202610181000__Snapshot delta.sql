@@ -0,0 +1,4 @@
+SET SCHEMA session_service;
+
+ALTER TABLE session_snapshot
+    ADD COLUMN IF NOT EXISTS base_version INTEGER NULL;
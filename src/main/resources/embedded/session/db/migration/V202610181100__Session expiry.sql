@@ -0,0 +1,6 @@
+SET SCHEMA session_service;
+
+ALTER TABLE session
+    ADD COLUMN IF NOT EXISTS expires_at timestamp NULL;
+
+CREATE INDEX IF NOT EXISTS session_expires_at_idx ON session (expires_at);
@@ -0,0 +1,8 @@
+SET SCHEMA session_service;
+
+ALTER TABLE session
+    ADD COLUMN IF NOT EXISTS latest_version INTEGER DEFAULT 0 NOT NULL;
+
+UPDATE session s
+SET latest_version = (SELECT MAX(ss.version) FROM session_snapshot ss WHERE ss.uid = s.uid)
+WHERE EXISTS(SELECT 1 FROM session_snapshot ss WHERE ss.uid = s.uid);
@@ -0,0 +1,4 @@
+SET SCHEMA session_service;
+
+ALTER TABLE session
+    ADD COLUMN IF NOT EXISTS permission_ids VARBINARY NULL;
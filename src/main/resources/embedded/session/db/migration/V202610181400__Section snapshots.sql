@@ -0,0 +1,13 @@
+SET SCHEMA session_service;
+
+CREATE TABLE IF NOT EXISTS session_section_snapshot
+(
+    uid               varchar(255) NOT NULL,
+    section           varchar(512) NOT NULL,
+    version           INTEGER      NOT NULL,
+    snapshot          BLOB         NULL,
+    snapshot_ser_type varchar(16)  NULL,
+    created_at        timestamp    NOT NULL,
+    CONSTRAINT session_section_snapshot_pk PRIMARY KEY (uid, section, version),
+    FOREIGN KEY (uid) REFERENCES session (uid)
+);
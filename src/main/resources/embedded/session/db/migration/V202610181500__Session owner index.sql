@@ -0,0 +1,3 @@
+SET SCHEMA session_service;
+
+CREATE INDEX IF NOT EXISTS session_owner_idx ON session (owner_type, owner_id, uid);
@@ -0,0 +1,108 @@
+package com.github.sibdevtools.session.embedded;
+
+import com.github.sibdevtools.session.api.ModificationQueryBuilder;
+import com.github.sibdevtools.session.api.dto.SessionId;
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.api.rq.CreateSessionRq;
+import com.github.sibdevtools.session.api.rq.GetSessionAttributeRq;
+import com.github.sibdevtools.session.api.rq.UpdateSessionRq;
+import com.github.sibdevtools.session.embedded.exception.SessionNotFoundException;
+import com.github.sibdevtools.session.embedded.service.AsyncSessionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@ActiveProfiles("startup-test")
+@SpringBootTest(
+        properties = {
+                "service.session.embedded.async.enabled=true",
+                "service.session.embedded.async.virtual-threads=true",
+                "service.session.embedded.async.max-concurrency=4"
+        }
+)
+class AsyncSessionServiceIntegrationTest {
+    @Autowired
+    private AsyncSessionService asyncSessionService;
+
+    @Test
+    void testCreateUpdateGet() throws Exception {
+        var sectionId = UUID.randomUUID().toString();
+
+        var sessionId = asyncSessionService.create(createRq(sectionId))
+                .get(10, TimeUnit.SECONDS)
+                .getBody();
+
+        var updatedSessionId = asyncSessionService.update(
+                        UpdateSessionRq.builder()
+                                .sessionId(sessionId)
+                                .modificationQuery(
+                                        ModificationQueryBuilder.builder()
+                                                .change(sectionId, "key", "new-value")
+                                                .build()
+                                )
+                                .build()
+                )
+                .get(10, TimeUnit.SECONDS)
+                .getBody();
+        assertEquals(1, updatedSessionId.getVersion());
+
+        var attributeRs = asyncSessionService.getAttribute(
+                        GetSessionAttributeRq.builder()
+                                .sessionId(updatedSessionId)
+                                .section(sectionId)
+                                .attribute("key")
+                                .build()
+                )
+                .get(10, TimeUnit.SECONDS);
+        assertEquals("new-value", attributeRs.getBody());
+    }
+
+    @Test
+    void testManyOperationsInFlight() {
+        var sectionId = UUID.randomUUID().toString();
+
+        var futures = new ArrayList<CompletableFuture<SessionId>>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(asyncSessionService.create(createRq(sectionId)).thenApply(it -> it.getBody()));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        var sessionIds = futures.stream()
+                .map(CompletableFuture::join)
+                .toList();
+        var sessions = asyncSessionService.getAll(sessionIds).join();
+        assertEquals(200, sessions.size());
+    }
+
+    @Test
+    void testErrorCompletesFuture() {
+        var future = asyncSessionService.get(UUID.randomUUID().toString());
+
+        var exception = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(SessionNotFoundException.class, exception.getCause());
+    }
+
+    private static CreateSessionRq createRq(String sectionId) {
+        return CreateSessionRq.builder()
+                .ownerId(UUID.randomUUID().toString())
+                .ownerType(SessionOwnerType.USER)
+                .permissions(List.of())
+                .sections(Map.of(sectionId, Map.of("key", "value")))
+                .build();
+    }
+}
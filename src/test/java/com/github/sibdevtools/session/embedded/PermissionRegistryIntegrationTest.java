@@ -0,0 +1,92 @@
+package com.github.sibdevtools.session.embedded;
+
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.api.rq.CreateSessionRq;
+import com.github.sibdevtools.session.api.service.SessionService;
+import com.github.sibdevtools.session.embedded.service.PermissionRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@ActiveProfiles("startup-test")
+@SpringBootTest
+class PermissionRegistryIntegrationTest {
+    @Autowired
+    private SessionService sessionService;
+    @Autowired
+    private PermissionRegistry permissionRegistry;
+
+    @Test
+    void testResolveIsCaseInsensitive() {
+        var code = "permission:" + UUID.randomUUID();
+
+        var first = permissionRegistry.resolve(List.of(code));
+        var second = permissionRegistry.resolve(List.of(code.toUpperCase()));
+
+        assertEquals(1, first.size());
+        assertEquals(
+                first.get(code).getId(),
+                second.get(code.toUpperCase()).getId()
+        );
+    }
+
+    @Test
+    void testPermissionSet() {
+        var first = "permission:" + UUID.randomUUID();
+        var second = "permission:" + UUID.randomUUID();
+
+        var permissions = permissionRegistry.resolve(List.of(first, second));
+        var ids = permissionRegistry.toIds(List.of(permissions.get(first)));
+        var permissionSet = permissionRegistry.toPermissionSet(ids);
+
+        assertEquals(Set.of(first), permissionSet);
+        assertTrue(permissionSet.contains(first));
+        assertFalse(permissionSet.contains(second));
+        assertFalse(permissionSet.contains("permission:" + UUID.randomUUID()));
+        // codes are matched exactly, as by a plain set of codes, even though registry resolves them case-insensitively
+        assertFalse(permissionSet.contains(first.toUpperCase()));
+        assertThrows(UnsupportedOperationException.class, () -> permissionSet.add(second));
+    }
+
+    @Test
+    void testConcurrentCreateWithNewPermission() throws Exception {
+        var code = "permission:" + UUID.randomUUID();
+
+        var tasks = new ArrayList<Callable<String>>();
+        for (int i = 0; i < 8; i++) {
+            tasks.add(() -> {
+                var sessionId = sessionService.create(
+                        CreateSessionRq.builder()
+                                .ownerId(UUID.randomUUID().toString())
+                                .ownerType(SessionOwnerType.USER)
+                                .permissions(List.of(code))
+                                .sections(Map.of())
+                                .build()
+                ).getBody();
+                return sessionId.getUID();
+            });
+        }
+
+        try (var executorService = Executors.newFixedThreadPool(tasks.size())) {
+            for (var future : executorService.invokeAll(tasks)) {
+                var session = sessionService.get(future.get()).getBody();
+                assertEquals(Set.of(code), session.getPermissions());
+            }
+        }
+    }
+}
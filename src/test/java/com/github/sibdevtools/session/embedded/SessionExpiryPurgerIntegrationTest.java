@@ -0,0 +1,63 @@
+package com.github.sibdevtools.session.embedded;
+
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.api.rq.CreateSessionRq;
+import com.github.sibdevtools.session.api.service.SessionService;
+import com.github.sibdevtools.session.embedded.exception.SessionNotFoundException;
+import com.github.sibdevtools.session.embedded.service.SessionExpiryPurger;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@ActiveProfiles("startup-test")
+@SpringBootTest(
+        properties = {
+                "service.session.embedded.expiry.ttl=PT1S",
+                "service.session.embedded.expiry.purge-enabled=true",
+                "service.session.embedded.expiry.purge-interval=PT1H"
+        }
+)
+class SessionExpiryPurgerIntegrationTest {
+    @Autowired
+    private SessionService sessionService;
+    @Autowired
+    private SessionExpiryPurger sessionExpiryPurger;
+
+    @Test
+    void testExpiredSessionIsNotFoundAndPurged() throws InterruptedException {
+        var sectionId = UUID.randomUUID().toString();
+
+        var sessionId = sessionService.create(
+                CreateSessionRq.builder()
+                        .ownerId(UUID.randomUUID().toString())
+                        .ownerType(SessionOwnerType.USER)
+                        .permissions(List.of(UUID.randomUUID().toString()))
+                        .sections(Map.of(sectionId, Map.of("key", "value")))
+                        .build()
+        ).getBody();
+
+        var session = sessionService.get(sessionId).getBody();
+        assertEquals("value", session.getAttributes().get(sectionId).get("key"));
+
+        Thread.sleep(1500);
+
+        assertThrows(SessionNotFoundException.class, () -> sessionService.get(sessionId));
+
+        var result = sessionExpiryPurger.purge();
+        assertTrue(result.getSessions() >= 1);
+        assertTrue(result.getSnapshots() >= 1);
+
+        assertThrows(SessionNotFoundException.class, () -> sessionService.get(sessionId.getUID()));
+    }
+}
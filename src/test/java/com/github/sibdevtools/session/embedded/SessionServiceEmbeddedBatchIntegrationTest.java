@@ -0,0 +1,126 @@
+package com.github.sibdevtools.session.embedded;
+
+import com.github.sibdevtools.session.api.dto.SessionId;
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.api.rq.CreateSessionRq;
+import com.github.sibdevtools.session.embedded.exception.SessionNotFoundException;
+import com.github.sibdevtools.session.embedded.service.BatchSessionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@ActiveProfiles("startup-test")
+@SpringBootTest(
+        properties = {
+                "service.session.embedded.batch.jdbc-batch-size=2",
+                "service.session.embedded.batch.lookup-size=2"
+        }
+)
+class SessionServiceEmbeddedBatchIntegrationTest {
+    @Autowired
+    private BatchSessionService sessionService;
+
+    @Test
+    void testCreateAllAndGetAll() {
+        var sectionId = UUID.randomUUID().toString();
+        var sharedPermission = UUID.randomUUID().toString();
+
+        var rqs = new ArrayList<CreateSessionRq>();
+        for (int i = 0; i < 5; i++) {
+            rqs.add(
+                    CreateSessionRq.builder()
+                            .ownerId(UUID.randomUUID().toString())
+                            .ownerType(SessionOwnerType.USER)
+                            .permissions(List.of(sharedPermission, sharedPermission.toUpperCase(), "permission:" + i))
+                            .sections(Map.of(sectionId, Map.of("index", i)))
+                            .build()
+            );
+        }
+
+        var sessionIds = sessionService.createAll(rqs);
+        assertEquals(rqs.size(), sessionIds.size());
+
+        var sessions = sessionService.getAll(sessionIds.reversed());
+        assertEquals(sessionIds.size(), sessions.size());
+        for (int i = 0; i < sessions.size(); i++) {
+            var session = sessions.get(i);
+            var index = sessionIds.size() - 1 - i;
+            assertEquals(sessionIds.get(index).getUID(), session.getId().getUID());
+            assertEquals(index, session.getAttributes().get(sectionId).get("index"));
+            assertTrue(session.getPermissions().contains("permission:" + index));
+        }
+
+        var single = sessionService.get(sessionIds.getFirst()).getBody();
+        assertEquals(rqs.getFirst().ownerId(), single.getOwnerId());
+    }
+
+    @Test
+    void testGetAllWithNotExistingSession() {
+        var sessionIds = sessionService.createAll(
+                List.of(
+                        CreateSessionRq.builder()
+                                .ownerId(UUID.randomUUID().toString())
+                                .ownerType(SessionOwnerType.USER)
+                                .permissions(List.of())
+                                .sections(Map.of())
+                                .build()
+                )
+        );
+        var notExisting = SessionId.of(UUID.randomUUID().toString(), 0);
+
+        assertThrows(
+                SessionNotFoundException.class,
+                () -> sessionService.getAll(List.of(sessionIds.getFirst(), notExisting))
+        );
+    }
+
+    @Test
+    void testGetAttributes() {
+        var firstSection = UUID.randomUUID().toString();
+        var secondSection = UUID.randomUUID().toString();
+
+        var sessionId = sessionService.create(
+                CreateSessionRq.builder()
+                        .ownerId(UUID.randomUUID().toString())
+                        .ownerType(SessionOwnerType.USER)
+                        .permissions(List.of())
+                        .sections(
+                                Map.of(
+                                        firstSection, Map.of("a", "1", "b", "2"),
+                                        secondSection, Map.of("c", 3)
+                                )
+                        )
+                        .build()
+        ).getBody();
+
+        var attributes = sessionService.getAttributes(
+                sessionId,
+                Map.of(
+                        firstSection, Set.of("a", "missing"),
+                        secondSection, Set.of("c"),
+                        "missing", Set.of("a")
+                )
+        );
+
+        assertEquals(
+                Map.of(
+                        firstSection, Map.of("a", "1"),
+                        secondSection, Map.of("c", 3)
+                ),
+                attributes
+        );
+    }
+}
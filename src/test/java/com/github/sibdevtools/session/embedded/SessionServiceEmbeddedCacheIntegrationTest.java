@@ -0,0 +1,116 @@
+package com.github.sibdevtools.session.embedded;
+
+import com.github.sibdevtools.session.api.ModificationQueryBuilder;
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.api.rq.CreateSessionRq;
+import com.github.sibdevtools.session.api.rq.GetSessionAttributeRq;
+import com.github.sibdevtools.session.api.rq.UpdateSessionRq;
+import com.github.sibdevtools.session.api.service.SessionService;
+import com.github.sibdevtools.session.embedded.exception.SessionNotFoundException;
+import com.github.sibdevtools.session.embedded.service.OwnerSessionService;
+import com.github.sibdevtools.session.embedded.service.SessionSnapshotCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@ActiveProfiles("startup-test")
+@SpringBootTest(
+        properties = {
+                "service.session.embedded.cache.enabled=true"
+        }
+)
+class SessionServiceEmbeddedCacheIntegrationTest {
+    @Autowired
+    private SessionService sessionService;
+    @Autowired
+    private SessionSnapshotCache sessionSnapshotCache;
+    @Autowired
+    private OwnerSessionService ownerSessionService;
+
+    @Test
+    void testWrittenVersionsAreServedFromCache() {
+        var sectionId = UUID.randomUUID().toString();
+        var permission = UUID.randomUUID().toString();
+
+        var sessionId = sessionService.create(
+                CreateSessionRq.builder()
+                        .ownerId(UUID.randomUUID().toString())
+                        .ownerType(SessionOwnerType.USER)
+                        .permissions(List.of(permission))
+                        .sections(Map.of(sectionId, Map.of("key", "value")))
+                        .build()
+        ).getBody();
+
+        var missCount = sessionSnapshotCache.getStats().missCount();
+
+        var session = sessionService.get(sessionId).getBody();
+        assertEquals(Set.of(permission), session.getPermissions());
+        assertEquals(Map.of("key", "value"), session.getAttributes().get(sectionId));
+
+        var updatedSessionId = sessionService.update(
+                UpdateSessionRq.builder()
+                        .sessionId(sessionId)
+                        .modificationQuery(
+                                ModificationQueryBuilder.builder()
+                                        .change(sectionId, "key", "new-value")
+                                        .build()
+                        )
+                        .build()
+        ).getBody();
+
+        var attributeRs = sessionService.getAttribute(
+                GetSessionAttributeRq.builder()
+                        .sessionId(updatedSessionId)
+                        .section(sectionId)
+                        .attribute("key")
+                        .build()
+        );
+        assertEquals("new-value", attributeRs.getBody());
+
+        var stats = sessionSnapshotCache.getStats();
+        assertEquals(missCount, stats.missCount());
+        assertTrue(stats.hitCount() >= 3);
+    }
+
+    @Test
+    void testConcurrentReadDoesNotReviveInvalidatedSession() {
+        for (int i = 0; i < 20; i++) {
+            var ownerId = UUID.randomUUID().toString();
+            var sessionId = sessionService.create(
+                    CreateSessionRq.builder()
+                            .ownerId(ownerId)
+                            .ownerType(SessionOwnerType.USER)
+                            .permissions(List.of())
+                            .sections(Map.of("section", Map.of("key", "value")))
+                            .build()
+            ).getBody();
+
+            var reader = CompletableFuture.runAsync(() -> {
+                try {
+                    for (int j = 0; j < 100; j++) {
+                        sessionService.get(sessionId);
+                    }
+                } catch (SessionNotFoundException e) {
+                    // session is invalidated
+                }
+            });
+            assertEquals(1, ownerSessionService.invalidateOwnerSessions(SessionOwnerType.USER, ownerId));
+            reader.join();
+
+            assertThrows(SessionNotFoundException.class, () -> sessionService.get(sessionId));
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.github.sibdevtools.session.embedded;
+
+import com.github.sibdevtools.session.api.ModificationQueryBuilder;
+import com.github.sibdevtools.session.api.dto.SessionId;
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.api.dto.query.ModificationQuery;
+import com.github.sibdevtools.session.api.rq.CreateSessionRq;
+import com.github.sibdevtools.session.api.rq.UpdateSessionRq;
+import com.github.sibdevtools.session.api.service.SessionService;
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedUpdateProperties;
+import com.github.sibdevtools.session.embedded.exception.AttributeNotExistsException;
+import com.github.sibdevtools.session.embedded.exception.SessionNotFoundException;
+import com.github.sibdevtools.session.embedded.exception.SessionVersionConflictException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@ActiveProfiles("startup-test")
+@SpringBootTest(
+        properties = {
+                "service.session.embedded.update.coalescing-enabled=true",
+                "service.session.embedded.update.coalescing-max-batch-size=64",
+                "service.session.embedded.update.rebase-enabled=true"
+        }
+)
+class SessionServiceEmbeddedCoalescingIntegrationTest {
+    @Autowired
+    private SessionService sessionService;
+    @Autowired
+    private SessionServiceEmbeddedUpdateProperties updateProperties;
+
+    @Test
+    void testConcurrentUpdatesAreMerged() throws Exception {
+        var sectionId = UUID.randomUUID().toString();
+        var sessionId = createSession(sectionId);
+
+        var threads = 16;
+        var start = new CountDownLatch(1);
+        var executorService = Executors.newFixedThreadPool(threads);
+        try {
+            var futures = new ArrayList<Future<SessionId>>();
+            for (int i = 0; i < threads; i++) {
+                var attributeName = "attribute-" + i;
+                futures.add(executorService.submit(() -> {
+                    start.await();
+                    return update(
+                            sessionId,
+                            ModificationQueryBuilder.builder()
+                                    .create(sectionId, attributeName, attributeName)
+                                    .build()
+                    );
+                }));
+            }
+            start.countDown();
+
+            long maxVersion = 0;
+            for (var future : futures) {
+                var updatedSessionId = future.get(30, TimeUnit.SECONDS);
+                maxVersion = Math.max(maxVersion, updatedSessionId.getVersion());
+            }
+            assertTrue(maxVersion >= 1);
+            assertTrue(maxVersion <= threads);
+
+            var session = sessionService.get(sessionId.getUID()).getBody();
+            assertEquals(maxVersion, session.getId().getVersion());
+            var attributes = session.getAttributes().get(sectionId);
+            for (int i = 0; i < threads; i++) {
+                assertEquals("attribute-" + i, attributes.get("attribute-" + i));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFailedUpdateIsIsolated() {
+        var sectionId = UUID.randomUUID().toString();
+        var sessionId = createSession(sectionId);
+
+        var modificationQuery = ModificationQueryBuilder.builder()
+                .change(sectionId, "counter", 1)
+                .remove(sectionId, "unknown")
+                .build();
+        assertThrows(AttributeNotExistsException.class, () -> update(sessionId, modificationQuery));
+
+        var updatedSessionId = update(
+                sessionId,
+                ModificationQueryBuilder.builder()
+                        .change(sectionId, "counter", 2)
+                        .build()
+        );
+        assertEquals(1, updatedSessionId.getVersion());
+
+        var session = sessionService.get(updatedSessionId).getBody();
+        assertEquals(Map.of("counter", 2), session.getAttributes().get(sectionId));
+    }
+
+    @Test
+    void testUnknownVersionIsRejected() {
+        var sectionId = UUID.randomUUID().toString();
+        var sessionId = createSession(sectionId);
+
+        var unknownSessionId = SessionId.of(sessionId.getUID(), 5);
+        var modificationQuery = ModificationQueryBuilder.builder()
+                .change(sectionId, "counter", 1)
+                .build();
+        assertThrows(SessionNotFoundException.class, () -> update(unknownSessionId, modificationQuery));
+    }
+
+    @Test
+    void testOutdatedVersionIsRejectedWithoutRebaseAttempts() {
+        var sectionId = UUID.randomUUID().toString();
+        var sessionId = createSession(sectionId);
+        var updatedSessionId = update(
+                sessionId,
+                ModificationQueryBuilder.builder()
+                        .change(sectionId, "counter", 1)
+                        .build()
+        );
+        assertEquals(1, updatedSessionId.getVersion());
+
+        var modificationQuery = ModificationQueryBuilder.builder()
+                .change(sectionId, "counter", 2)
+                .build();
+        var rebaseMaxAttempts = updateProperties.getRebaseMaxAttempts();
+        updateProperties.setRebaseMaxAttempts(0);
+        try {
+            assertThrows(SessionVersionConflictException.class, () -> update(sessionId, modificationQuery));
+        } finally {
+            updateProperties.setRebaseMaxAttempts(rebaseMaxAttempts);
+        }
+
+        var session = sessionService.get(sessionId.getUID()).getBody();
+        assertEquals(1, session.getId().getVersion());
+        assertEquals(Map.of("counter", 1), session.getAttributes().get(sectionId));
+    }
+
+    private SessionId createSession(String sectionId) {
+        return sessionService.create(
+                CreateSessionRq.builder()
+                        .ownerId(UUID.randomUUID().toString())
+                        .ownerType(SessionOwnerType.USER)
+                        .permissions(List.of())
+                        .sections(Map.of(sectionId, Map.of("counter", 0)))
+                        .build()
+        ).getBody();
+    }
+
+    private SessionId update(SessionId sessionId, ModificationQuery modificationQuery) {
+        return sessionService.update(
+                UpdateSessionRq.builder()
+                        .sessionId(sessionId)
+                        .modificationQuery(modificationQuery)
+                        .build()
+        ).getBody();
+    }
+}
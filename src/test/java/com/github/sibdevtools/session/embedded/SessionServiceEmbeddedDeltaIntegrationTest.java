@@ -0,0 +1,123 @@
+package com.github.sibdevtools.session.embedded;
+
+import com.github.sibdevtools.session.api.ModificationQueryBuilder;
+import com.github.sibdevtools.session.api.dto.SessionId;
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.api.rq.CreateSessionRq;
+import com.github.sibdevtools.session.api.rq.GetSessionAttributeNamesRq;
+import com.github.sibdevtools.session.api.rq.GetSessionAttributeRq;
+import com.github.sibdevtools.session.api.rq.UpdateSessionRq;
+import com.github.sibdevtools.session.api.service.SessionService;
+import com.github.sibdevtools.session.embedded.service.BatchSessionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@ActiveProfiles("startup-test")
+@SpringBootTest(
+        properties = {
+                "service.session.embedded.snapshot.delta-enabled=true",
+                "service.session.embedded.snapshot.delta-base-interval=3",
+                "service.session.embedded.snapshot.codec=BINARY"
+        }
+)
+class SessionServiceEmbeddedDeltaIntegrationTest {
+    @Autowired
+    private SessionService sessionService;
+    @Autowired
+    private BatchSessionService batchSessionService;
+
+    @Test
+    void testUpdateChainRestoresEveryVersion() {
+        var sectionId = UUID.randomUUID().toString();
+        var otherSectionId = UUID.randomUUID().toString();
+
+        var createSessionRs = sessionService.create(
+                CreateSessionRq.builder()
+                        .ownerId(UUID.randomUUID().toString())
+                        .ownerType(SessionOwnerType.USER)
+                        .permissions(List.of())
+                        .sections(
+                                Map.of(
+                                        sectionId, Map.of("counter", 0, "removable", "value"),
+                                        otherSectionId, Map.of("static", "value")
+                                )
+                        )
+                        .build()
+        );
+        var sessionId = createSessionRs.getBody();
+
+        var sessionIds = new ArrayList<SessionId>();
+        sessionIds.add(sessionId);
+        for (int i = 1; i <= 7; i++) {
+            var modificationQuery = i == 2 ?
+                    ModificationQueryBuilder.builder()
+                            .change(sectionId, "counter", i)
+                            .remove(sectionId, "removable")
+                            .build() :
+                    ModificationQueryBuilder.builder()
+                            .change(sectionId, "counter", i)
+                            .build();
+            var updateSessionRs = sessionService.update(
+                    UpdateSessionRq.builder()
+                            .sessionId(sessionId)
+                            .modificationQuery(modificationQuery)
+                            .build()
+            );
+            sessionId = updateSessionRs.getBody();
+            sessionIds.add(sessionId);
+        }
+
+        for (int i = 0; i < sessionIds.size(); i++) {
+            var versionId = sessionIds.get(i);
+            assertEquals(i, versionId.getVersion());
+            assertAttribute(versionId, sectionId, "counter", i);
+            assertAttribute(versionId, sectionId, "removable", i < 2 ? "value" : null);
+            assertAttribute(versionId, otherSectionId, "static", "value");
+
+            var attributeNames = sessionService.getAttributeNames(
+                    GetSessionAttributeNamesRq.builder()
+                            .sessionId(versionId)
+                            .section(sectionId)
+                            .build()
+            ).getBody();
+            assertEquals(i < 2 ? Set.of("counter", "removable") : Set.of("counter"), attributeNames);
+
+            var attributes = batchSessionService.getAttributes(
+                    versionId,
+                    Map.of(sectionId, List.of("counter", "removable"), otherSectionId, List.of("static"))
+            );
+            var expectedSection = i < 2 ? Map.of("counter", i, "removable", "value") : Map.of("counter", i);
+            assertEquals(Map.of(sectionId, expectedSection, otherSectionId, Map.of("static", "value")), attributes);
+        }
+    }
+
+    private void assertAttribute(SessionId sessionId,
+                                 String sectionId,
+                                 String attributeKey,
+                                 Serializable excepted) {
+        var attributeRs = sessionService.getAttribute(
+                GetSessionAttributeRq.builder()
+                        .sessionId(sessionId)
+                        .section(sectionId)
+                        .attribute(attributeKey)
+                        .build()
+        );
+        assertNotNull(attributeRs);
+        assertEquals(excepted, attributeRs.getBody());
+    }
+}
@@ -0,0 +1,23 @@
+package com.github.sibdevtools.session.embedded;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Session service scenarios, running in memory without data source
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@ActiveProfiles("startup-test")
+@SpringBootTest(
+        properties = {
+                "service.session.mode=IN_MEMORY",
+                "spring.autoconfigure.exclude=" +
+                        "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration," +
+                        "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration," +
+                        "org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration"
+        }
+)
+class SessionServiceEmbeddedInMemoryIntegrationTest extends SessionServiceEmbeddedIntegrationTest {
+}
@@ -8,6 +8,7 @@ import com.github.sibdevtools.session.api.rq.GetSessionAttributeNamesRq;
 import com.github.sibdevtools.session.api.rq.GetSessionAttributeRq;
 import com.github.sibdevtools.session.api.rq.UpdateSessionRq;
 import com.github.sibdevtools.session.api.service.SessionService;
+import com.github.sibdevtools.session.embedded.exception.SessionVersionConflictException;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -195,6 +196,72 @@ class SessionServiceEmbeddedIntegrationTest {
         assertAttribute(sessionService, sessionId, sectionId, toChangeAttributeKey, toChangeAttributeValue);
     }
 
+    @ParameterizedTest
+    @EnumSource(SessionOwnerType.class)
+    void testGetByUidReturnsLatestVersion(SessionOwnerType ownerType) {
+        var sectionId = UUID.randomUUID().toString();
+
+        var sessionId = sessionService.create(
+                CreateSessionRq.builder()
+                        .ownerId(UUID.randomUUID().toString())
+                        .ownerType(ownerType)
+                        .permissions(List.of())
+                        .sections(Map.of(sectionId, Map.of("counter", 0)))
+                        .build()
+        ).getBody();
+
+        for (int i = 1; i <= 3; i++) {
+            sessionId = sessionService.update(
+                    UpdateSessionRq.builder()
+                            .sessionId(sessionId)
+                            .modificationQuery(
+                                    ModificationQueryBuilder.builder()
+                                            .change(sectionId, "counter", i)
+                                            .build()
+                            )
+                            .build()
+            ).getBody();
+        }
+
+        var session = sessionService.get(sessionId.getUID()).getBody();
+        assertNotNull(session);
+        assertEquals(sessionId.getUID(), session.getId().getUID());
+        assertEquals(3, session.getId().getVersion());
+        assertEquals(3, session.getAttributes().get(sectionId).get("counter"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SessionOwnerType.class)
+    void testUpdateOutdatedVersionIsConflict(SessionOwnerType ownerType) {
+        var sectionId = UUID.randomUUID().toString();
+
+        var sessionId = sessionService.create(
+                CreateSessionRq.builder()
+                        .ownerId(UUID.randomUUID().toString())
+                        .ownerType(ownerType)
+                        .permissions(List.of())
+                        .sections(Map.of(sectionId, Map.of("counter", 0)))
+                        .build()
+        ).getBody();
+
+        var updateRq = UpdateSessionRq.builder()
+                .sessionId(sessionId)
+                .modificationQuery(
+                        ModificationQueryBuilder.builder()
+                                .change(sectionId, "counter", 1)
+                                .build()
+                )
+                .build();
+
+        var updatedSessionId = sessionService.update(updateRq).getBody();
+        assertEquals(1, updatedSessionId.getVersion());
+
+        assertThrows(SessionVersionConflictException.class, () -> sessionService.update(updateRq));
+
+        var session = sessionService.get(sessionId.getUID()).getBody();
+        assertEquals(1, session.getId().getVersion());
+    }
+
     private static void assertAttribute(SessionService sessionService,
                                         SessionId sessionId,
                                         String sectionId,
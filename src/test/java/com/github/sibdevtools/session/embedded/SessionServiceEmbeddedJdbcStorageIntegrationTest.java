@@ -0,0 +1,83 @@
+package com.github.sibdevtools.session.embedded;
+
+import com.github.sibdevtools.session.api.dto.SessionId;
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.api.rq.CreateSessionRq;
+import com.github.sibdevtools.session.embedded.service.BatchSessionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Session service scenarios, running over plain JDBC session storage
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@ActiveProfiles("startup-test")
+@SpringBootTest(
+        properties = {
+                "service.session.embedded.storage.type=JDBC"
+        }
+)
+class SessionServiceEmbeddedJdbcStorageIntegrationTest extends SessionServiceEmbeddedIntegrationTest {
+    @Autowired
+    private BatchSessionService batchSessionService;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void testGetAllSessionsWithLegacyPermissions() {
+        var jdbcTemplate = new JdbcTemplate(dataSource);
+        var sessionIds = new ArrayList<SessionId>();
+        for (int i = 0; i < 3; i++) {
+            var permission = "legacy:" + UUID.randomUUID();
+            var sessionId = batchSessionService.create(
+                    CreateSessionRq.builder()
+                            .ownerId(UUID.randomUUID().toString())
+                            .ownerType(SessionOwnerType.USER)
+                            .permissions(List.of(permission))
+                            .sections(Map.of("section", Map.of("index", i)))
+                            .build()
+            ).getBody();
+            // move session to permission layout, used before compact permissions were introduced
+            jdbcTemplate.update(
+                    "INSERT INTO session_service.session_permission (session_uid, permission_id) " +
+                            "SELECT ?, id FROM session_service.permission WHERE code = ?",
+                    sessionId.getUID(),
+                    permission
+            );
+            jdbcTemplate.update(
+                    "UPDATE session_service.session SET permission_ids = NULL WHERE uid = ?",
+                    sessionId.getUID()
+            );
+            sessionIds.add(sessionId);
+        }
+
+        var sessions = batchSessionService.getAll(sessionIds);
+
+        assertEquals(sessionIds.size(), sessions.size());
+        for (var session : sessions) {
+            var permissions = jdbcTemplate.queryForList(
+                    "SELECT p.code FROM session_service.permission p " +
+                            "JOIN session_service.session_permission sp ON sp.permission_id = p.id " +
+                            "WHERE sp.session_uid = ?",
+                    String.class,
+                    session.getId().getUID()
+            );
+            assertEquals(Set.copyOf(permissions), session.getPermissions());
+            assertEquals(1, permissions.size());
+        }
+    }
+}
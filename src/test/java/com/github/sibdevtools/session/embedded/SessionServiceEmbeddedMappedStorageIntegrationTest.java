@@ -0,0 +1,75 @@
+package com.github.sibdevtools.session.embedded;
+
+import com.github.sibdevtools.session.embedded.service.SessionStoreExporter;
+import com.github.sibdevtools.session.embedded.service.SessionStoreImporter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Session service scenarios, running over memory-mapped session storage
+ *
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@ActiveProfiles("startup-test")
+@SpringBootTest(
+        properties = {
+                "service.session.embedded.storage.type=MAPPED",
+                "service.session.embedded.storage.mapped.segment-size=65536"
+        }
+)
+class SessionServiceEmbeddedMappedStorageIntegrationTest extends SessionServiceEmbeddedIntegrationTest {
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @DynamicPropertySource
+    static void storageProperties(DynamicPropertyRegistry registry) throws IOException {
+        var directory = Files.createTempDirectory("embedded-session");
+        registry.add("service.session.embedded.storage.mapped.directory", directory::toString);
+    }
+
+    @Test
+    void testDatabaseTransferIsNotCreated() {
+        assertTrue(applicationContext.getBeansOfType(SessionStoreExporter.class).isEmpty());
+        assertTrue(applicationContext.getBeansOfType(SessionStoreImporter.class).isEmpty());
+    }
+
+    @Test
+    void testStartupFailsWithRetention() throws IOException {
+        assertStartupFails("service.session.embedded.retention.enabled=true");
+    }
+
+    @Test
+    void testStartupFailsWithExpiryPurge() throws IOException {
+        assertStartupFails("service.session.embedded.expiry.purge-enabled=true");
+    }
+
+    private static void assertStartupFails(String property) throws IOException {
+        var directory = Files.createTempDirectory("embedded-session");
+        var application = new SpringApplicationBuilder(TestApplication.class)
+                .profiles("startup-test")
+                .properties(
+                        "service.session.embedded.storage.type=MAPPED",
+                        "service.session.embedded.storage.mapped.directory=" + directory,
+                        property
+                );
+
+        var exception = assertThrows(RuntimeException.class, application::run);
+
+        var cause = NestedExceptionUtils.getMostSpecificCause(exception);
+        assertInstanceOf(IllegalStateException.class, cause);
+        assertTrue(cause.getMessage().contains(property.substring(0, property.indexOf('='))));
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.sibdevtools.session.embedded;
+
+import com.github.sibdevtools.session.api.ModificationQueryBuilder;
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.api.rq.CreateSessionRq;
+import com.github.sibdevtools.session.api.rq.UpdateSessionRq;
+import com.github.sibdevtools.session.api.service.SessionService;
+import com.github.sibdevtools.session.embedded.service.SessionMetrics;
+import com.github.sibdevtools.session.embedded.service.impl.MicrometerSessionMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@ActiveProfiles("startup-test")
+@SpringBootTest(
+        properties = {
+                "service.session.embedded.metrics.enabled=true"
+        }
+)
+class SessionServiceEmbeddedMetricsIntegrationTest {
+    @Autowired
+    private SessionService sessionService;
+    @Autowired
+    private SessionMetrics sessionMetrics;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testOperationsAreMeasured() {
+        assertInstanceOf(MicrometerSessionMetrics.class, sessionMetrics);
+
+        var sectionId = UUID.randomUUID().toString();
+        var sessionId = sessionService.create(
+                CreateSessionRq.builder()
+                        .ownerId(UUID.randomUUID().toString())
+                        .ownerType(SessionOwnerType.USER)
+                        .permissions(List.of(UUID.randomUUID().toString()))
+                        .sections(Map.of(sectionId, Map.of("key", "value")))
+                        .build()
+        ).getBody();
+
+        sessionService.update(
+                UpdateSessionRq.builder()
+                        .sessionId(sessionId)
+                        .modificationQuery(
+                                ModificationQueryBuilder.builder()
+                                        .change(sectionId, "key", "new-value")
+                                        .build()
+                        )
+                        .build()
+        );
+
+        var createTimer = meterRegistry.find("session.service.operation")
+                .tag("operation", SessionMetrics.OPERATION_CREATE)
+                .timer();
+        assertNotNull(createTimer);
+        assertTrue(createTimer.count() >= 1);
+
+        var updateTimer = meterRegistry.find("session.service.operation")
+                .tag("operation", SessionMetrics.OPERATION_UPDATE)
+                .timer();
+        assertNotNull(updateTimer);
+        assertTrue(updateTimer.count() >= 1);
+
+        var encodeTimer = meterRegistry.find("session.service.phase")
+                .tag("phase", SessionMetrics.PHASE_ENCODE)
+                .timer();
+        assertNotNull(encodeTimer);
+        assertTrue(encodeTimer.count() >= 2);
+
+        var encodedSize = meterRegistry.find("session.service.snapshot.size")
+                .tag("direction", "encode")
+                .summaries()
+                .stream()
+                .mapToLong(it -> it.count())
+                .sum();
+        assertTrue(encodedSize >= 2);
+
+        var maxVersion = meterRegistry.find("session.service.snapshot.version.max")
+                .gauge();
+        assertNotNull(maxVersion);
+        assertTrue(maxVersion.value() >= 1);
+
+        assertNotNull(meterRegistry.find("session.service.cache.hits").functionCounter());
+    }
+
+    @TestConfiguration
+    static class MeterRegistryConfig {
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.sibdevtools.session.embedded;
+
+import com.github.sibdevtools.session.api.ModificationQueryBuilder;
+import com.github.sibdevtools.session.api.dto.Session;
+import com.github.sibdevtools.session.api.dto.SessionId;
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.api.rq.CreateSessionRq;
+import com.github.sibdevtools.session.api.rq.UpdateSessionRq;
+import com.github.sibdevtools.session.api.service.SessionService;
+import com.github.sibdevtools.session.embedded.exception.SessionNotFoundException;
+import com.github.sibdevtools.session.embedded.service.OwnerSessionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@ActiveProfiles("startup-test")
+@SpringBootTest(
+        properties = {
+                "service.session.embedded.cache.enabled=true",
+                "service.session.embedded.batch.lookup-size=2"
+        }
+)
+class SessionServiceEmbeddedOwnerIntegrationTest {
+    @Autowired
+    private SessionService sessionService;
+    @Autowired
+    private OwnerSessionService ownerSessionService;
+
+    @Test
+    void testOwnerSessionsArePagedByUid() {
+        var ownerId = UUID.randomUUID().toString();
+        var sessionIds = new ArrayList<SessionId>();
+        for (int i = 0; i < 3; i++) {
+            sessionIds.add(createSession(ownerId));
+        }
+        sessionIds.set(1, update(sessionIds.get(1)));
+        createSession(UUID.randomUUID().toString());
+        sessionIds.sort(Comparator.comparing(SessionId::getUID));
+
+        var firstPage = ownerSessionService.getOwnerSessionIds(SessionOwnerType.USER, ownerId, null, 2);
+        assertEquals(2, firstPage.size());
+        var lastPage = ownerSessionService.getOwnerSessionIds(
+                SessionOwnerType.USER,
+                ownerId,
+                firstPage.getLast().getUID(),
+                2
+        );
+        assertEquals(1, lastPage.size());
+
+        var pagedIds = new ArrayList<>(firstPage);
+        pagedIds.addAll(lastPage);
+        assertVersions(sessionIds, pagedIds);
+        assertVersions(
+                sessionIds,
+                ownerSessionService.streamOwnerSessionIds(SessionOwnerType.USER, ownerId).toList()
+        );
+
+        var sessions = ownerSessionService.getOwnerSessions(SessionOwnerType.USER, ownerId, null, 10);
+        assertVersions(sessionIds, sessions.stream().map(Session::getId).toList());
+        assertEquals(3, ownerSessionService.countOwnerSessions(SessionOwnerType.USER, ownerId));
+        assertEquals(0, ownerSessionService.countOwnerSessions(SessionOwnerType.SERVICE, ownerId));
+    }
+
+    @Test
+    void testInvalidateOwnerSessions() {
+        var ownerId = UUID.randomUUID().toString();
+        var sessionId = createSession(ownerId);
+        var otherSessionId = createSession(UUID.randomUUID().toString());
+
+        // read to put session into cache
+        sessionService.get(sessionId);
+
+        assertEquals(1, ownerSessionService.invalidateOwnerSessions(SessionOwnerType.USER, ownerId));
+
+        assertThrows(SessionNotFoundException.class, () -> sessionService.get(sessionId));
+        assertThrows(SessionNotFoundException.class, () -> sessionService.get(sessionId.getUID()));
+        assertEquals(0, ownerSessionService.countOwnerSessions(SessionOwnerType.USER, ownerId));
+        assertTrue(ownerSessionService.getOwnerSessionIds(SessionOwnerType.USER, ownerId, null, 10).isEmpty());
+        assertEquals(0, ownerSessionService.invalidateOwnerSessions(SessionOwnerType.USER, ownerId));
+
+        assertEquals(otherSessionId.getVersion(), sessionService.get(otherSessionId).getBody().getId().getVersion());
+    }
+
+    private static void assertVersions(List<SessionId> expected, List<SessionId> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getUID(), actual.get(i).getUID());
+            assertEquals(expected.get(i).getVersion(), actual.get(i).getVersion());
+        }
+    }
+
+    private SessionId createSession(String ownerId) {
+        return sessionService.create(
+                CreateSessionRq.builder()
+                        .ownerId(ownerId)
+                        .ownerType(SessionOwnerType.USER)
+                        .permissions(List.of())
+                        .sections(Map.of("section", Map.of("counter", 0)))
+                        .build()
+        ).getBody();
+    }
+
+    private SessionId update(SessionId sessionId) {
+        return sessionService.update(
+                UpdateSessionRq.builder()
+                        .sessionId(sessionId)
+                        .modificationQuery(
+                                ModificationQueryBuilder.builder()
+                                        .change("section", "counter", 1)
+                                        .build()
+                        )
+                        .build()
+        ).getBody();
+    }
+}
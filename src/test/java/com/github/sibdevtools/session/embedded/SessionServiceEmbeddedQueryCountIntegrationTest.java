@@ -0,0 +1,87 @@
+package com.github.sibdevtools.session.embedded;
+
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.api.rq.CreateSessionRq;
+import com.github.sibdevtools.session.api.rq.GetSessionAttributeNamesRq;
+import com.github.sibdevtools.session.api.rq.GetSessionAttributeRq;
+import com.github.sibdevtools.session.api.service.SessionService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@ActiveProfiles("startup-test")
+@SpringBootTest(
+        properties = {
+                "spring.jpa.properties.hibernate.generate_statistics=true"
+        }
+)
+class SessionServiceEmbeddedQueryCountIntegrationTest {
+    @Autowired
+    private SessionService sessionService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void testReadsUseSingleStatement() {
+        var sectionId = UUID.randomUUID().toString();
+        var permission = UUID.randomUUID().toString();
+
+        var sessionId = sessionService.create(
+                CreateSessionRq.builder()
+                        .ownerId(UUID.randomUUID().toString())
+                        .ownerType(SessionOwnerType.USER)
+                        .permissions(List.of(permission))
+                        .sections(Map.of(sectionId, Map.of("key", "value")))
+                        .build()
+        ).getBody();
+
+        statistics.clear();
+        var session = sessionService.get(sessionId).getBody();
+        assertEquals(Set.of(permission), session.getPermissions());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        var attribute = sessionService.getAttribute(
+                GetSessionAttributeRq.builder()
+                        .sessionId(sessionId)
+                        .section(sectionId)
+                        .attribute("key")
+                        .build()
+        ).getBody();
+        assertEquals("value", attribute);
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        var attributeNames = sessionService.getAttributeNames(
+                GetSessionAttributeNamesRq.builder()
+                        .sessionId(sessionId)
+                        .section(sectionId)
+                        .build()
+        ).getBody();
+        assertEquals(Set.of("key"), attributeNames);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
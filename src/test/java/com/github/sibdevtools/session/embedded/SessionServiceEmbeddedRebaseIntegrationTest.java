@@ -0,0 +1,76 @@
+package com.github.sibdevtools.session.embedded;
+
+import com.github.sibdevtools.session.api.ModificationQueryBuilder;
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.api.rq.CreateSessionRq;
+import com.github.sibdevtools.session.api.rq.UpdateSessionRq;
+import com.github.sibdevtools.session.api.service.SessionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@ActiveProfiles("startup-test")
+@SpringBootTest(
+        properties = {
+                "service.session.embedded.update.rebase-enabled=true",
+                "service.session.embedded.update.rebase-max-attempts=1"
+        }
+)
+class SessionServiceEmbeddedRebaseIntegrationTest {
+    @Autowired
+    private SessionService sessionService;
+
+    @Test
+    void testUpdateOutdatedVersionIsRebased() {
+        var sectionId = UUID.randomUUID().toString();
+
+        var sessionId = sessionService.create(
+                CreateSessionRq.builder()
+                        .ownerId(UUID.randomUUID().toString())
+                        .ownerType(SessionOwnerType.USER)
+                        .permissions(List.of())
+                        .sections(Map.of(sectionId, Map.of("first", 0)))
+                        .build()
+        ).getBody();
+
+        var firstSessionId = sessionService.update(
+                UpdateSessionRq.builder()
+                        .sessionId(sessionId)
+                        .modificationQuery(
+                                ModificationQueryBuilder.builder()
+                                        .change(sectionId, "first", 1)
+                                        .build()
+                        )
+                        .build()
+        ).getBody();
+        assertEquals(1, firstSessionId.getVersion());
+
+        var secondSessionId = sessionService.update(
+                UpdateSessionRq.builder()
+                        .sessionId(sessionId)
+                        .modificationQuery(
+                                ModificationQueryBuilder.builder()
+                                        .create(sectionId, "second", 2)
+                                        .build()
+                        )
+                        .build()
+        ).getBody();
+        assertEquals(2, secondSessionId.getVersion());
+
+        var session = sessionService.get(secondSessionId).getBody();
+        var attributes = session.getAttributes().get(sectionId);
+        assertEquals(1, attributes.get("first"));
+        assertEquals(2, attributes.get("second"));
+    }
+}
@@ -0,0 +1,168 @@
+package com.github.sibdevtools.session.embedded;
+
+import com.github.sibdevtools.session.api.ModificationQueryBuilder;
+import com.github.sibdevtools.session.api.dto.SessionId;
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.api.rq.CreateSessionRq;
+import com.github.sibdevtools.session.api.rq.GetSessionAttributeNamesRq;
+import com.github.sibdevtools.session.api.rq.GetSessionAttributeRq;
+import com.github.sibdevtools.session.api.rq.UpdateSessionRq;
+import com.github.sibdevtools.session.api.service.SessionService;
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedSnapshotProperties;
+import com.github.sibdevtools.session.embedded.entity.SessionSectionSnapshotEntity;
+import com.github.sibdevtools.session.embedded.entity.SessionSectionSnapshotEntityId;
+import com.github.sibdevtools.session.embedded.entity.SnapshotCodecType;
+import com.github.sibdevtools.session.embedded.repository.SessionSectionSnapshotEntityRepository;
+import com.github.sibdevtools.session.embedded.repository.SessionSnapshotEntityRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@ActiveProfiles("startup-test")
+@SpringBootTest(
+        properties = {
+                "service.session.embedded.snapshot.codec=BINARY",
+                "service.session.embedded.snapshot.section-split-enabled=true"
+        }
+)
+class SessionServiceEmbeddedSectionSplitIntegrationTest {
+    @Autowired
+    private SessionService sessionService;
+    @Autowired
+    private SessionServiceEmbeddedSnapshotProperties snapshotProperties;
+    @Autowired
+    private SessionSnapshotEntityRepository sessionSnapshotEntityRepository;
+    @Autowired
+    private SessionSectionSnapshotEntityRepository sectionSnapshotEntityRepository;
+
+    @Test
+    void testUpdateWritesOnlyChangedSections() {
+        var sessionId = createSession();
+        var uid = sessionId.getUID();
+        assertEquals(
+                Optional.of(SnapshotCodecType.SECTIONS),
+                sessionSnapshotEntityRepository.findSnapshotType(uid, 0)
+        );
+
+        var updatedSessionId = update(sessionId, "cache", "key", "new-value");
+
+        assertEquals(
+                Map.of("auth", 0L, "cache", 1L),
+                getSectionVersions(uid, updatedSessionId.getVersion())
+        );
+
+        var session = sessionService.get(updatedSessionId).getBody();
+        assertEquals(Map.of("token", "secret"), session.getAttributes().get("auth"));
+        assertEquals(Map.of("key", "new-value"), session.getAttributes().get("cache"));
+
+        var sourceSession = sessionService.get(sessionId).getBody();
+        assertEquals(Map.of("key", "value"), sourceSession.getAttributes().get("cache"));
+    }
+
+    @Test
+    void testAttributeReadsRequestedSection() {
+        var sessionId = createSession();
+        var updatedSessionId = update(sessionId, "cache", "key", "new-value");
+
+        var attributeRs = sessionService.getAttribute(
+                GetSessionAttributeRq.builder()
+                        .sessionId(updatedSessionId)
+                        .section("auth")
+                        .attribute("token")
+                        .build()
+        );
+        assertEquals("secret", attributeRs.getBody());
+
+        var attributeNamesRs = sessionService.getAttributeNames(
+                GetSessionAttributeNamesRq.builder()
+                        .sessionId(updatedSessionId)
+                        .section("cache")
+                        .build()
+        );
+        assertEquals(Set.of("key"), attributeNamesRs.getBody());
+
+        var missingRs = sessionService.getAttributeNames(
+                GetSessionAttributeNamesRq.builder()
+                        .sessionId(updatedSessionId)
+                        .section("missing")
+                        .build()
+        );
+        assertTrue(missingRs.getBody().isEmpty());
+    }
+
+    @Test
+    void testUpdateOfSingleSnapshotVersionWritesAllSections() {
+        SessionId sessionId;
+        snapshotProperties.setSectionSplitEnabled(false);
+        try {
+            sessionId = createSession();
+        } finally {
+            snapshotProperties.setSectionSplitEnabled(true);
+        }
+        var uid = sessionId.getUID();
+        assertEquals(Optional.of(SnapshotCodecType.BINARY), sessionSnapshotEntityRepository.findSnapshotType(uid, 0));
+
+        var updatedSessionId = update(sessionId, "cache", "key", "new-value");
+
+        assertEquals(
+                Map.of("auth", 1L, "cache", 1L),
+                getSectionVersions(uid, updatedSessionId.getVersion())
+        );
+        var session = sessionService.get(updatedSessionId).getBody();
+        assertEquals(Map.of("token", "secret"), session.getAttributes().get("auth"));
+        assertEquals(Map.of("key", "new-value"), session.getAttributes().get("cache"));
+
+        var sourceSession = sessionService.get(sessionId).getBody();
+        assertEquals(Map.of("key", "value"), sourceSession.getAttributes().get("cache"));
+    }
+
+    private Map<String, Long> getSectionVersions(String uid, long version) {
+        return sectionSnapshotEntityRepository.findAllActual(uid, version)
+                .stream()
+                .map(SessionSectionSnapshotEntity::getEntityId)
+                .collect(Collectors.toMap(
+                        SessionSectionSnapshotEntityId::getSection,
+                        SessionSectionSnapshotEntityId::getVersion
+                ));
+    }
+
+    private SessionId createSession() {
+        return sessionService.create(
+                CreateSessionRq.builder()
+                        .ownerId(UUID.randomUUID().toString())
+                        .ownerType(SessionOwnerType.USER)
+                        .permissions(List.of())
+                        .sections(
+                                Map.of(
+                                        "auth", Map.of("token", "secret"),
+                                        "cache", Map.of("key", "value")
+                                )
+                        )
+                        .build()
+        ).getBody();
+    }
+
+    private SessionId update(SessionId sessionId, String section, String attribute, Serializable value) {
+        return sessionService.update(
+                UpdateSessionRq.builder()
+                        .sessionId(sessionId)
+                        .modificationQuery(
+                                ModificationQueryBuilder.builder()
+                                        .change(section, attribute, value)
+                                        .build()
+                        )
+                        .build()
+        ).getBody();
+    }
+}
@@ -0,0 +1,149 @@
+package com.github.sibdevtools.session.embedded;
+
+import com.github.sibdevtools.session.api.ModificationQueryBuilder;
+import com.github.sibdevtools.session.api.dto.SessionId;
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.api.rq.CreateSessionRq;
+import com.github.sibdevtools.session.api.rq.GetSessionAttributeRq;
+import com.github.sibdevtools.session.api.rq.UpdateSessionRq;
+import com.github.sibdevtools.session.api.service.SessionService;
+import com.github.sibdevtools.session.embedded.exception.SessionVersionConflictException;
+import com.github.sibdevtools.session.embedded.exception.SessionWriteBufferOverflowException;
+import com.github.sibdevtools.session.embedded.repository.SessionEntityRepository;
+import com.github.sibdevtools.session.embedded.repository.SessionSnapshotEntityRepository;
+import com.github.sibdevtools.session.embedded.service.SessionWriteBehindBuffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@ActiveProfiles("startup-test")
+@SpringBootTest(
+        properties = {
+                "service.session.embedded.write-behind.enabled=true",
+                "service.session.embedded.write-behind.flush-interval=PT1H",
+                "service.session.embedded.write-behind.max-queue-size=2",
+                "service.session.embedded.write-behind.offer-timeout=PT0.01S"
+        }
+)
+class SessionServiceEmbeddedWriteBehindIntegrationTest {
+    @Autowired
+    private SessionService sessionService;
+    @Autowired
+    private SessionWriteBehindBuffer sessionWriteBehindBuffer;
+    @Autowired
+    private SessionEntityRepository sessionEntityRepository;
+    @Autowired
+    private SessionSnapshotEntityRepository sessionSnapshotEntityRepository;
+
+    @AfterEach
+    void flush() {
+        sessionWriteBehindBuffer.flush();
+    }
+
+    @Test
+    void testBufferedVersionIsVisibleBeforeFlush() {
+        var sectionId = UUID.randomUUID().toString();
+        var sessionId = createSession(sectionId);
+
+        var updatedSessionId = update(sessionId, sectionId, 1);
+        assertEquals(1, updatedSessionId.getVersion());
+
+        var uid = updatedSessionId.getUID();
+        assertTrue(sessionSnapshotEntityRepository.findByEntityIdUidAndEntityIdVersion(uid, 1).isEmpty());
+        assertEquals(Optional.of(0L), sessionEntityRepository.findLatestVersion(uid));
+
+        var attributeRs = sessionService.getAttribute(
+                GetSessionAttributeRq.builder()
+                        .sessionId(updatedSessionId)
+                        .section(sectionId)
+                        .attribute("counter")
+                        .build()
+        );
+        assertEquals(1, attributeRs.getBody());
+
+        var latestSession = sessionService.get(uid).getBody();
+        assertEquals(1, latestSession.getId().getVersion());
+
+        assertEquals(1, sessionWriteBehindBuffer.flush());
+
+        assertTrue(sessionSnapshotEntityRepository.findByEntityIdUidAndEntityIdVersion(uid, 1).isPresent());
+        assertEquals(Optional.of(1L), sessionEntityRepository.findLatestVersion(uid));
+
+        var flushedSession = sessionService.get(updatedSessionId).getBody();
+        assertEquals(Map.of("counter", 1), flushedSession.getAttributes().get(sectionId));
+    }
+
+    @Test
+    void testBufferedVersionsAreChained() {
+        var sectionId = UUID.randomUUID().toString();
+        var sessionId = createSession(sectionId);
+
+        var firstSessionId = update(sessionId, sectionId, 1);
+        var secondSessionId = update(firstSessionId, sectionId, 2);
+        assertEquals(2, secondSessionId.getVersion());
+
+        assertThrows(SessionVersionConflictException.class, () -> update(firstSessionId, sectionId, 3));
+
+        sessionWriteBehindBuffer.flush();
+
+        var uid = secondSessionId.getUID();
+        assertEquals(Optional.of(2L), sessionEntityRepository.findLatestVersion(uid));
+        var session = sessionService.get(uid).getBody();
+        assertEquals(2, session.getId().getVersion());
+        assertEquals(Map.of("counter", 2), session.getAttributes().get(sectionId));
+    }
+
+    @Test
+    void testFullBufferRejectsUpdate() {
+        var sectionId = UUID.randomUUID().toString();
+        var sessionId = createSession(sectionId);
+
+        var firstSessionId = update(sessionId, sectionId, 1);
+        var secondSessionId = update(firstSessionId, sectionId, 2);
+
+        assertThrows(SessionWriteBufferOverflowException.class, () -> update(secondSessionId, sectionId, 3));
+
+        sessionWriteBehindBuffer.flush();
+
+        var thirdSessionId = update(secondSessionId, sectionId, 3);
+        assertEquals(3, thirdSessionId.getVersion());
+    }
+
+    private SessionId createSession(String sectionId) {
+        return sessionService.create(
+                CreateSessionRq.builder()
+                        .ownerId(UUID.randomUUID().toString())
+                        .ownerType(SessionOwnerType.USER)
+                        .permissions(List.of())
+                        .sections(Map.of(sectionId, Map.of("counter", 0)))
+                        .build()
+        ).getBody();
+    }
+
+    private SessionId update(SessionId sessionId, String sectionId, Serializable value) {
+        return sessionService.update(
+                UpdateSessionRq.builder()
+                        .sessionId(sessionId)
+                        .modificationQuery(
+                                ModificationQueryBuilder.builder()
+                                        .change(sectionId, "counter", value)
+                                        .build()
+                        )
+                        .build()
+        ).getBody();
+    }
+}
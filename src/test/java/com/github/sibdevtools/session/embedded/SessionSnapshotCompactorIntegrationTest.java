@@ -0,0 +1,94 @@
+package com.github.sibdevtools.session.embedded;
+
+import com.github.sibdevtools.session.api.ModificationQueryBuilder;
+import com.github.sibdevtools.session.api.dto.SessionId;
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.api.rq.CreateSessionRq;
+import com.github.sibdevtools.session.api.rq.UpdateSessionRq;
+import com.github.sibdevtools.session.api.service.SessionService;
+import com.github.sibdevtools.session.embedded.exception.SessionNotFoundException;
+import com.github.sibdevtools.session.embedded.service.SessionSnapshotCompactor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@ActiveProfiles("startup-test")
+@SpringBootTest(
+        properties = {
+                "service.session.embedded.snapshot.delta-enabled=true",
+                "service.session.embedded.snapshot.delta-base-interval=4",
+                "service.session.embedded.retention.enabled=true",
+                "service.session.embedded.retention.keep-last=1",
+                "service.session.embedded.retention.interval=PT1H",
+                "service.session.embedded.cache.enabled=true"
+        }
+)
+class SessionSnapshotCompactorIntegrationTest {
+    @Autowired
+    private SessionService sessionService;
+    @Autowired
+    private SessionSnapshotCompactor sessionSnapshotCompactor;
+
+    @Test
+    void testCompactionKeepsNewestVersionAndItsBase() {
+        var sectionId = UUID.randomUUID().toString();
+
+        var sessionId = sessionService.create(
+                CreateSessionRq.builder()
+                        .ownerId(UUID.randomUUID().toString())
+                        .ownerType(SessionOwnerType.USER)
+                        .permissions(List.of())
+                        .sections(Map.of(sectionId, Map.of("counter", 0)))
+                        .build()
+        ).getBody();
+
+        var sessionIds = new ArrayList<SessionId>();
+        sessionIds.add(sessionId);
+        for (int i = 1; i <= 5; i++) {
+            sessionId = sessionService.update(
+                    UpdateSessionRq.builder()
+                            .sessionId(sessionId)
+                            .modificationQuery(
+                                    ModificationQueryBuilder.builder()
+                                            .change(sectionId, "counter", i)
+                                            .build()
+                            )
+                            .build()
+            ).getBody();
+            sessionIds.add(sessionId);
+        }
+
+        // written versions are cached, removed ones should be evicted from cache by compaction
+        for (var cachedSessionId : sessionIds) {
+            sessionService.get(cachedSessionId);
+        }
+
+        var result = sessionSnapshotCompactor.compact();
+        assertTrue(result.getRows() >= 4);
+        assertTrue(result.getBytes() > 0);
+
+        for (int i = 0; i < 4; i++) {
+            var removedId = sessionIds.get(i);
+            assertThrows(SessionNotFoundException.class, () -> sessionService.get(removedId));
+        }
+        for (int i = 4; i <= 5; i++) {
+            var session = sessionService.get(sessionIds.get(i)).getBody();
+            assertEquals(i, session.getAttributes().get(sectionId).get("counter"));
+        }
+
+        var repeatedResult = sessionSnapshotCompactor.compact();
+        assertEquals(0, repeatedResult.getRows());
+    }
+}
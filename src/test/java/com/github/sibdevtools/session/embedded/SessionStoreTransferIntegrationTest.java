@@ -0,0 +1,151 @@
+package com.github.sibdevtools.session.embedded;
+
+import com.github.sibdevtools.session.api.ModificationQueryBuilder;
+import com.github.sibdevtools.session.api.dto.SessionId;
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.api.rq.CreateSessionRq;
+import com.github.sibdevtools.session.api.rq.UpdateSessionRq;
+import com.github.sibdevtools.session.api.service.SessionService;
+import com.github.sibdevtools.session.embedded.dto.SessionTransferResult;
+import com.github.sibdevtools.session.embedded.dto.SnapshotExportMode;
+import com.github.sibdevtools.session.embedded.exception.SessionNotFoundException;
+import com.github.sibdevtools.session.embedded.exception.UnexpectedErrorException;
+import com.github.sibdevtools.session.embedded.service.SessionStoreExporter;
+import com.github.sibdevtools.session.embedded.service.SessionStoreImporter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+@ActiveProfiles("startup-test")
+@SpringBootTest(
+        properties = {
+                "service.session.embedded.transfer.batch-size=2",
+                "service.session.embedded.transfer.buffer-size=16",
+                "service.session.embedded.transfer.progress-interval=2",
+                "service.session.embedded.transfer.defer-indexes=true"
+        }
+)
+class SessionStoreTransferIntegrationTest {
+    @Autowired
+    private SessionService sessionService;
+    @Autowired
+    private SessionStoreExporter sessionStoreExporter;
+    @Autowired
+    private SessionStoreImporter sessionStoreImporter;
+    @Autowired
+    private DataSource dataSource;
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testExportAndImportRestoreStore() throws IOException {
+        var sessionId = createSession();
+        for (int i = 1; i <= 3; i++) {
+            sessionId = update(sessionId, i);
+        }
+        var exportFile = tempDir.resolve("export.bin");
+        var progress = new ArrayList<SessionTransferResult>();
+        var exported = sessionStoreExporter.exportStore(exportFile, SnapshotExportMode.ALL, progress::add);
+        assertFalse(progress.isEmpty());
+        assertTrue(exported.getSessions() >= 1);
+        assertTrue(exported.getSnapshots() >= 4);
+        assertEquals(Files.size(exportFile), exported.getBytes());
+
+        var uid = sessionId.getUID();
+        clearStore();
+        assertThrows(SessionNotFoundException.class, () -> sessionService.get(uid));
+
+        var imported = sessionStoreImporter.importStore(exportFile);
+        assertEquals(exported.getPermissions(), imported.getPermissions());
+        assertEquals(exported.getSessions(), imported.getSessions());
+        assertEquals(exported.getSnapshots(), imported.getSnapshots());
+        assertEquals(exported.getSectionSnapshots(), imported.getSectionSnapshots());
+        assertEquals(exported.getBytes(), imported.getBytes());
+
+        var session = sessionService.get(sessionId).getBody();
+        assertEquals(sessionId.getVersion(), session.getId().getVersion());
+        assertEquals(3, session.getAttributes().get("section").get("counter"));
+        assertTrue(session.getPermissions().contains("TRANSFER_PERMISSION"));
+
+        var reexportFile = tempDir.resolve("reexport.bin");
+        sessionStoreExporter.exportStore(reexportFile, SnapshotExportMode.ALL);
+        assertEquals(-1, Files.mismatch(exportFile, reexportFile));
+    }
+
+    @Test
+    void testExportLatestVersions() {
+        var sessionId = createSession();
+        for (int i = 1; i <= 3; i++) {
+            sessionId = update(sessionId, i);
+        }
+
+        var allFile = tempDir.resolve("all.bin");
+        var latestFile = tempDir.resolve("latest.bin");
+        var all = sessionStoreExporter.exportStore(allFile, SnapshotExportMode.ALL);
+        var latest = sessionStoreExporter.exportStore(latestFile, SnapshotExportMode.LATEST);
+
+        assertEquals(all.getSessions(), latest.getSessions());
+        assertTrue(latest.getSnapshots() >= latest.getSessions());
+        assertTrue(all.getSnapshots() > latest.getSnapshots());
+        assertTrue(all.getBytes() > latest.getBytes());
+    }
+
+    @Test
+    void testImportOfCorruptedFileFails() throws IOException {
+        var file = tempDir.resolve("corrupted.bin");
+        Files.write(file, new byte[]{'S', 'S', 'E', 1, 2, 0, 0, 0, 100});
+
+        assertThrows(UnexpectedErrorException.class, () -> sessionStoreImporter.importStore(file));
+    }
+
+    private void clearStore() {
+        var jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM session_service.session_section_snapshot");
+        jdbcTemplate.update("DELETE FROM session_service.session_snapshot");
+        jdbcTemplate.update("DELETE FROM session_service.session_permission");
+        jdbcTemplate.update("DELETE FROM session_service.session");
+    }
+
+    private SessionId createSession() {
+        return sessionService.create(
+                CreateSessionRq.builder()
+                        .ownerId(UUID.randomUUID().toString())
+                        .ownerType(SessionOwnerType.USER)
+                        .permissions(List.of("TRANSFER_PERMISSION"))
+                        .sections(Map.of("section", Map.of("counter", 0)))
+                        .build()
+        ).getBody();
+    }
+
+    private SessionId update(SessionId sessionId, int counter) {
+        return sessionService.update(
+                UpdateSessionRq.builder()
+                        .sessionId(sessionId)
+                        .modificationQuery(
+                                ModificationQueryBuilder.builder()
+                                        .change("section", "counter", counter)
+                                        .build()
+                        )
+                        .build()
+        ).getBody();
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.sibdevtools.session.embedded.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+class PermissionSetTest {
+
+    @Test
+    void testEncodeDecode() {
+        var ids = new long[]{1, 300, 301, 1_000_000_000_000L};
+
+        var encoded = PermissionSet.encode(ids);
+
+        assertArrayEquals(ids, PermissionSet.decode(encoded));
+        assertArrayEquals(new long[0], PermissionSet.decode(PermissionSet.encode(new long[0])));
+    }
+
+    @Test
+    void testEncodedSizeDoesNotDependOnHighestId() {
+        var encoded = PermissionSet.encode(new long[]{1_000_000, 1_000_001});
+
+        assertEquals(4, encoded.length);
+    }
+
+    @Test
+    void testDecodeMalformed() {
+        var encoded = new byte[]{(byte) 0x81};
+
+        assertThrows(IllegalArgumentException.class, () -> PermissionSet.decode(encoded));
+    }
+
+    @Test
+    void testContainsIsExact() {
+        var codes = Map.of(1L, "Read", 2L, "write");
+        var permissionSet = new PermissionSet(
+                new long[]{1},
+                code -> codes.entrySet()
+                        .stream()
+                        .filter(it -> it.getValue().equalsIgnoreCase(code))
+                        .mapToLong(Map.Entry::getKey)
+                        .findFirst()
+                        .orElse(-1),
+                codes::get
+        );
+
+        assertEquals(Set.of("Read"), permissionSet);
+        assertTrue(permissionSet.contains("Read"));
+        assertFalse(permissionSet.contains("read"));
+        assertFalse(permissionSet.contains("write"));
+        assertFalse(permissionSet.contains("unknown"));
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.api.ModificationQueryBuilder;
+import com.github.sibdevtools.session.embedded.exception.AttributeNotExistsException;
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+class SessionAttributesUpdaterTest {
+
+    @Test
+    void testApplyAttributesInPlace() {
+        var attributes = SessionAttributesUpdater.makeMutableAttributes(
+                Map.of("section", Map.of("key", "value", "removed", "value"))
+        );
+
+        SessionAttributesUpdater.applyAttributes(
+                ModificationQueryBuilder.builder()
+                        .change("section", "key", "new-value")
+                        .remove("section", "removed")
+                        .create("new-section", "key", "value")
+                        .build(),
+                attributes
+        );
+
+        assertEquals(
+                Map.of(
+                        "section", Map.of("key", "new-value"),
+                        "new-section", Map.of("key", "value")
+                ),
+                attributes
+        );
+    }
+
+    @Test
+    void testFailedQueryIsRolledBack() {
+        var attributes = SessionAttributesUpdater.makeMutableAttributes(
+                Map.of("section", Map.of("key", "value", "removed", "value"))
+        );
+        var expected = new HashMap<String, Map<String, Serializable>>(attributes);
+
+        var modificationQuery = ModificationQueryBuilder.builder()
+                .change("section", "key", "new-value")
+                .remove("section", "removed")
+                .create("new-section", "key", "value")
+                .remove("section", "unknown")
+                .build();
+        assertThrows(
+                AttributeNotExistsException.class,
+                () -> SessionAttributesUpdater.applyAttributes(modificationQuery, attributes)
+        );
+
+        assertEquals(expected, attributes);
+    }
+
+    @Test
+    void testUpdateAttributesSharesUntouchedSections() {
+        var untouched = Map.<String, Serializable>of("key", "value");
+        var touched = Map.<String, Serializable>of("key", "value");
+        var source = Map.<String, Map<String, Serializable>>of(
+                "untouched", untouched,
+                "touched", touched
+        );
+
+        var attributes = SessionAttributesUpdater.updateAttributes(
+                ModificationQueryBuilder.builder()
+                        .change("touched", "key", "new-value")
+                        .build(),
+                source
+        );
+
+        assertSame(untouched, attributes.get("untouched"));
+        assertNotSame(touched, attributes.get("touched"));
+        assertEquals(Map.of("key", "new-value"), attributes.get("touched"));
+        assertEquals(Map.of("key", "value"), touched);
+    }
+}
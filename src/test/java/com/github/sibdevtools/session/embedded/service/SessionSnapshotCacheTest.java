@@ -0,0 +1,97 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.api.dto.SessionId;
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedCacheProperties;
+import com.github.sibdevtools.session.embedded.dto.CachedSession;
+import com.github.sibdevtools.session.embedded.dto.LocalSession;
+import com.github.sibdevtools.session.embedded.entity.SessionSnapshotEntityId;
+import com.github.sibdevtools.session.embedded.service.impl.InMemoryTransactionManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+class SessionSnapshotCacheTest {
+
+    @Test
+    void testSessionReadBeforeOwnerInvalidationIsNotCached() {
+        var cache = new SessionSnapshotCache(new SessionServiceEmbeddedCacheProperties(true, 1 << 20));
+        var transactionTemplate = new TransactionTemplate(new InMemoryTransactionManager());
+        var snapshotId = SessionSnapshotEntityId.builder()
+                .uid("uid-1")
+                .version(0)
+                .build();
+        var session = buildSession(snapshotId);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            cache.startRead();
+            // owner is invalidated after session read, but before reader commit
+            runInThread(() -> transactionTemplate.executeWithoutResult(
+                    it -> cache.evictOwnerAfterCommit(SessionOwnerType.USER, "owner")
+            ));
+            cache.putAfterCommit(snapshotId, session);
+        });
+        assertTrue(cache.find(snapshotId).isEmpty());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            cache.startRead();
+            cache.putAfterCommit(snapshotId, session);
+        });
+        assertTrue(cache.find(snapshotId).isPresent());
+    }
+
+    @Test
+    void testSessionIsNotCachedWhileOwnerInvalidationIsRunning() {
+        var cache = new SessionSnapshotCache(new SessionServiceEmbeddedCacheProperties(true, 1 << 20));
+        var transactionTemplate = new TransactionTemplate(new InMemoryTransactionManager());
+        var snapshotId = SessionSnapshotEntityId.builder()
+                .uid("uid-1")
+                .version(0)
+                .build();
+        var session = buildSession(snapshotId);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            cache.evictOwnerAfterCommit(SessionOwnerType.USER, "owner");
+            runInThread(() -> transactionTemplate.executeWithoutResult(it -> {
+                cache.startRead();
+                cache.putAfterCommit(snapshotId, session);
+            }));
+            assertTrue(cache.find(snapshotId).isEmpty());
+        });
+        assertTrue(cache.find(snapshotId).isEmpty());
+
+        cache.putAfterCommit(snapshotId, session);
+        assertTrue(cache.find(snapshotId).isPresent());
+    }
+
+    private static CachedSession buildSession(SessionSnapshotEntityId snapshotId) {
+        var session = LocalSession.builder()
+                .id(SessionId.of(snapshotId.getUid(), snapshotId.getVersion()))
+                .ownerType(SessionOwnerType.USER)
+                .ownerId("owner")
+                .attributes(Map.of())
+                .permissions(Set.of())
+                .build();
+        return new CachedSession(session, ZonedDateTime.now().plusMinutes(5));
+    }
+
+    private static void runInThread(Runnable runnable) {
+        var thread = new Thread(runnable);
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.github.sibdevtools.session.embedded.service;
+
+import com.github.sibdevtools.session.api.dto.SessionId;
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedCacheProperties;
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedMemoryStorageProperties;
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedWriteBehindProperties;
+import com.github.sibdevtools.session.embedded.dto.CachedSession;
+import com.github.sibdevtools.session.embedded.dto.LocalSession;
+import com.github.sibdevtools.session.embedded.dto.PendingSnapshot;
+import com.github.sibdevtools.session.embedded.entity.SessionEntity;
+import com.github.sibdevtools.session.embedded.entity.SessionSnapshotEntity;
+import com.github.sibdevtools.session.embedded.entity.SessionSnapshotEntityId;
+import com.github.sibdevtools.session.embedded.entity.SnapshotCodecType;
+import com.github.sibdevtools.session.embedded.exception.SessionWriteBufferOverflowException;
+import com.github.sibdevtools.session.embedded.service.impl.InMemorySessionStorage;
+import com.github.sibdevtools.session.embedded.service.impl.InMemoryTransactionManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+class SessionWriteBehindBufferTest {
+
+    @Test
+    void testFailedVersionIsRetried() {
+        var failing = new AtomicBoolean(true);
+        var storage = buildStorage(failing);
+        var buffer = buildBuffer(storage, Duration.ZERO);
+
+        write(buffer, "uid-1");
+        write(buffer, "uid-1");
+        write(buffer, "uid-2");
+
+        assertEquals(1, buffer.flush());
+        assertEquals(Optional.of(0L), storage.findLatestVersion("uid-1"));
+        assertEquals(Optional.of(1L), storage.findLatestVersion("uid-2"));
+        assertEquals(Optional.of(2L), buffer.findLatestVersion("uid-1"));
+        assertEquals(2, buffer.getQueueSize());
+
+        failing.set(false);
+
+        assertEquals(2, buffer.flush());
+        assertEquals(Optional.of(2L), storage.findLatestVersion("uid-1"));
+        assertTrue(storage.findSnapshot("uid-1", 1).isPresent());
+        assertEquals(0, buffer.getQueueSize());
+        assertEquals(0, buffer.getTotalDropped());
+    }
+
+    @Test
+    void testLaterVersionsWaitForRetryBackoff() {
+        var failing = new AtomicBoolean(true);
+        var storage = buildStorage(failing);
+        var buffer = buildBuffer(storage, Duration.ofHours(1));
+        buffer.start();
+
+        write(buffer, "uid-1");
+        assertEquals(0, buffer.flush());
+
+        failing.set(false);
+        write(buffer, "uid-1");
+        write(buffer, "uid-2");
+
+        assertEquals(1, buffer.flush());
+        assertEquals(Optional.of(0L), storage.findLatestVersion("uid-1"));
+        assertEquals(Optional.of(2L), buffer.findLatestVersion("uid-1"));
+
+        buffer.stop();
+
+        assertEquals(Optional.of(2L), storage.findLatestVersion("uid-1"));
+        assertEquals(0, buffer.getQueueSize());
+        assertEquals(0, buffer.getTotalDropped());
+    }
+
+    @Test
+    void testNotFlushedVersionsAreDroppedOnStop() {
+        var storage = buildStorage(new AtomicBoolean(true));
+        var buffer = buildBuffer(storage, Duration.ZERO);
+        buffer.start();
+
+        write(buffer, "uid-1");
+        write(buffer, "uid-1");
+
+        buffer.stop();
+
+        assertEquals(Optional.of(0L), storage.findLatestVersion("uid-1"));
+        assertTrue(buffer.findLatestVersion("uid-1").isEmpty());
+        assertEquals(0, buffer.getQueueSize());
+        assertEquals(2, buffer.getTotalDropped());
+    }
+
+    @Test
+    void testStopWaitsForStartedWrite() throws InterruptedException {
+        var storage = buildStorage(new AtomicBoolean(false));
+        var buffer = buildBuffer(storage, Duration.ZERO);
+        buffer.start();
+
+        var building = new CountDownLatch(1);
+        var built = new CountDownLatch(1);
+        var writer = new Thread(() -> buffer.write("uid-2", latestVersion -> {
+            building.countDown();
+            try {
+                built.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return buildPendingSnapshot("uid-2", 1);
+        }));
+        writer.start();
+        assertTrue(building.await(5, TimeUnit.SECONDS));
+
+        var stopper = new Thread(buffer::stop);
+        stopper.start();
+        while (stopper.getState() != Thread.State.WAITING && stopper.isAlive()) {
+            Thread.onSpinWait();
+        }
+        built.countDown();
+        writer.join(5000);
+        stopper.join(5000);
+
+        assertEquals(Optional.of(1L), storage.findLatestVersion("uid-2"));
+        assertEquals(0, buffer.getTotalDropped());
+        assertThrows(SessionWriteBufferOverflowException.class, () -> write(buffer, "uid-2"));
+    }
+
+    private static InMemorySessionStorage buildStorage(AtomicBoolean failing) {
+        var storage = new InMemorySessionStorage(new SessionServiceEmbeddedMemoryStorageProperties(4, 64, 1 << 20, 16)) {
+            @Override
+            public void appendSnapshots(List<SessionSnapshotEntity> snapshots) {
+                var failed = snapshots.stream()
+                        .anyMatch(it -> "uid-1".equals(it.getUid()) && it.getVersion() == 1);
+                if (failing.get() && failed) {
+                    throw new DataAccessResourceFailureException("Storage is not available");
+                }
+                super.appendSnapshots(snapshots);
+            }
+        };
+        for (var uid : List.of("uid-1", "uid-2")) {
+            storage.createSessions(
+                    List.of(
+                            SessionEntity.builder()
+                                    .uid(uid)
+                                    .ownerType(SessionOwnerType.USER)
+                                    .ownerId("owner")
+                                    .createdAt(ZonedDateTime.now())
+                                    .permissionIds(new byte[0])
+                                    .build()
+                    ),
+                    List.of(buildSnapshot(uid, 0)),
+                    List.of()
+            );
+        }
+        return storage;
+    }
+
+    private static SessionWriteBehindBuffer buildBuffer(InMemorySessionStorage storage, Duration retryBackoff) {
+        return new SessionWriteBehindBuffer(
+                storage,
+                storage,
+                new SessionSnapshotCache(new SessionServiceEmbeddedCacheProperties(false, 0)),
+                new SessionServiceEmbeddedWriteBehindProperties(
+                        true,
+                        Duration.ofHours(1),
+                        16,
+                        Duration.ZERO,
+                        16,
+                        retryBackoff,
+                        Duration.ofHours(1)
+                ),
+                new InMemoryTransactionManager()
+        );
+    }
+
+    private static void write(SessionWriteBehindBuffer buffer, String uid) {
+        buffer.write(uid, latestVersion -> buildPendingSnapshot(uid, latestVersion == null ? 1 : latestVersion + 1));
+    }
+
+    private static PendingSnapshot buildPendingSnapshot(String uid, long version) {
+        var session = LocalSession.builder()
+                .id(SessionId.of(uid, version))
+                .ownerType(SessionOwnerType.USER)
+                .ownerId("owner")
+                .attributes(Map.of())
+                .permissions(Set.of())
+                .build();
+        return new PendingSnapshot(buildSnapshot(uid, version), new CachedSession(session, null));
+    }
+
+    private static SessionSnapshotEntity buildSnapshot(String uid, long version) {
+        return SessionSnapshotEntity.builder()
+                .entityId(
+                        SessionSnapshotEntityId.builder()
+                                .uid(uid)
+                                .version(version)
+                                .build()
+                )
+                .snapshot(new byte[16])
+                .snapshotType(SnapshotCodecType.BINARY)
+                .createdAt(ZonedDateTime.now())
+                .build();
+    }
+}
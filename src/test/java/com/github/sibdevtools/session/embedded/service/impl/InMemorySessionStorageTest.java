@@ -0,0 +1,168 @@
+package com.github.sibdevtools.session.embedded.service.impl;
+
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedMemoryStorageProperties;
+import com.github.sibdevtools.session.embedded.entity.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+class InMemorySessionStorageTest {
+
+    @Test
+    void testWritesAppliedOnCommit() {
+        var storage = new InMemorySessionStorage(new SessionServiceEmbeddedMemoryStorageProperties(4, 64, 1 << 20, 16));
+        var transactionTemplate = new TransactionTemplate(new InMemoryTransactionManager());
+        createSession(storage, "uid-1");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(storage.compareAndSetLatestVersion("uid-1", 0, 1));
+            storage.appendSnapshot(buildSnapshot("uid-1", 1, null));
+            assertEquals(1L, storage.findLatestVersion("uid-1").orElseThrow());
+            assertTrue(storage.findSnapshot("uid-1", 1).isEmpty());
+            status.setRollbackOnly();
+        });
+        assertEquals(0L, storage.findLatestVersion("uid-1").orElseThrow());
+        assertTrue(storage.findSnapshot("uid-1", 1).isEmpty());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(storage.compareAndSetLatestVersion("uid-1", 0, 1));
+            storage.appendSnapshot(buildSnapshot("uid-1", 1, null));
+        });
+        assertEquals(1L, storage.findLatestVersion("uid-1").orElseThrow());
+        assertTrue(storage.findSnapshot("uid-1", 1).isPresent());
+        assertThrows(DuplicateKeyException.class, () -> storage.appendSnapshot(buildSnapshot("uid-1", 1, null)));
+        assertThrows(DataIntegrityViolationException.class, () -> storage.appendSnapshot(buildSnapshot("uid-2", 0, null)));
+        assertThrows(DuplicateKeyException.class, () -> createSession(storage, "uid-1"));
+    }
+
+    @Test
+    void testTrimKeepsDeltaBase() {
+        var storage = new InMemorySessionStorage(new SessionServiceEmbeddedMemoryStorageProperties(4, 64, 1 << 20, 4));
+        createSession(storage, "uid-1");
+        for (int version = 1; version <= 10; version++) {
+            assertTrue(storage.compareAndSetLatestVersion("uid-1", version - 1, version));
+            storage.appendSnapshot(buildSnapshot("uid-1", version, version < 6 ? null : 5L));
+        }
+
+        assertTrue(storage.findSnapshot("uid-1", 4).isEmpty());
+        assertEquals(6, storage.findSnapshotChain("uid-1", 0, 10).size());
+        assertEquals(5L, storage.findChainBaseVersion("uid-1", 10).orElseThrow());
+        assertEquals(6 * 128L, storage.getSize());
+    }
+
+    @Test
+    void testEvictLeastRecentlyUsedSessions() {
+        var storage = new InMemorySessionStorage(new SessionServiceEmbeddedMemoryStorageProperties(1, 8, 1 << 20, 16));
+        for (int i = 0; i < 8; i++) {
+            createSession(storage, "uid-" + i);
+        }
+        assertTrue(storage.findLatestSnapshot("uid-0").isPresent());
+
+        createSession(storage, "uid-8");
+
+        assertEquals(8, storage.getSessionCount());
+        assertEquals(1, storage.getEvictionCount());
+        assertTrue(storage.findLatestSnapshot("uid-0").isPresent());
+        assertTrue(storage.findLatestSnapshot("uid-1").isEmpty());
+        assertEquals(8, storage.countByOwner(SessionOwnerType.USER, "owner", ZonedDateTime.now()));
+    }
+
+    @Test
+    void testExpiredSessionsAreRemovedBeforeLiveOnes() {
+        var storage = new InMemorySessionStorage(new SessionServiceEmbeddedMemoryStorageProperties(1, 8, 1 << 20, 16));
+        for (int i = 0; i < 6; i++) {
+            createSession(storage, "uid-" + i);
+        }
+        createSession(storage, "uid-6", ZonedDateTime.now().minusMinutes(1));
+        createSession(storage, "uid-7", ZonedDateTime.now().minusMinutes(1));
+
+        createSession(storage, "uid-8");
+
+        assertEquals(7, storage.getSessionCount());
+        assertEquals(0, storage.getEvictionCount());
+        assertTrue(storage.findLatestSnapshot("uid-0").isPresent());
+        assertTrue(storage.findLatestSnapshot("uid-6").isEmpty());
+        assertTrue(storage.findLatestSnapshot("uid-7").isEmpty());
+
+        createSession(storage, "uid-9");
+        createSession(storage, "uid-10");
+
+        assertEquals(8, storage.getSessionCount());
+        assertEquals(1, storage.getEvictionCount());
+        assertTrue(storage.findLatestSnapshot("uid-1").isEmpty());
+    }
+
+    @Test
+    void testInvalidatedSessionIsNotProlonged() {
+        var storage = new InMemorySessionStorage(new SessionServiceEmbeddedMemoryStorageProperties(4, 64, 1 << 20, 16));
+        var now = ZonedDateTime.now();
+        storage.createSessions(
+                List.of(
+                        SessionEntity.builder()
+                                .uid("uid-1")
+                                .ownerType(SessionOwnerType.USER)
+                                .ownerId("owner")
+                                .createdAt(now)
+                                .expiresAt(now.plusMinutes(1))
+                                .permissionIds(new byte[]{3})
+                                .build()
+                ),
+                List.of(buildSnapshot("uid-1", 0, null)),
+                List.of()
+        );
+
+        storage.prolongExpiresAt("uid-1", now.plusMinutes(2), now);
+        assertEquals(1, storage.countByOwner(SessionOwnerType.USER, "owner", now.plusSeconds(90)));
+
+        assertEquals(1, storage.expireAllByOwner(SessionOwnerType.USER, "owner", now));
+        storage.prolongExpiresAt("uid-1", now.plusMinutes(3), now.plusSeconds(1));
+        assertEquals(0, storage.countByOwner(SessionOwnerType.USER, "owner", now));
+    }
+
+    private static void createSession(InMemorySessionStorage storage, String uid) {
+        createSession(storage, uid, null);
+    }
+
+    private static void createSession(InMemorySessionStorage storage, String uid, ZonedDateTime expiresAt) {
+        storage.createSessions(
+                List.of(
+                        SessionEntity.builder()
+                                .uid(uid)
+                                .ownerType(SessionOwnerType.USER)
+                                .ownerId("owner")
+                                .createdAt(ZonedDateTime.now())
+                                .expiresAt(expiresAt)
+                                .permissionIds(new byte[]{3})
+                                .build()
+                ),
+                List.of(buildSnapshot(uid, 0, null)),
+                List.of()
+        );
+    }
+
+    private static SessionSnapshotEntity buildSnapshot(String uid, long version, Long baseVersion) {
+        return SessionSnapshotEntity.builder()
+                .entityId(
+                        SessionSnapshotEntityId.builder()
+                                .uid(uid)
+                                .version(version)
+                                .build()
+                )
+                .snapshot(new byte[128])
+                .snapshotType(SnapshotCodecType.BINARY)
+                .baseVersion(baseVersion)
+                .createdAt(ZonedDateTime.now())
+                .build();
+    }
+}
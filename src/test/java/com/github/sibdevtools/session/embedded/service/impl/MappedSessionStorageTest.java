@@ -0,0 +1,219 @@
+package com.github.sibdevtools.session.embedded.service.impl;
+
+import com.github.sibdevtools.session.api.dto.SessionOwnerType;
+import com.github.sibdevtools.session.embedded.conf.SessionServiceEmbeddedMappedStorageProperties;
+import com.github.sibdevtools.session.embedded.entity.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+class MappedSessionStorageTest {
+    @TempDir
+    private Path directory;
+
+    @Test
+    void testRecoverAfterRestart() {
+        var storage = start();
+        var permissions = storage.createPermissions(List.of("Read", "write"));
+        createSession(storage, "uid-1", null);
+        for (int version = 1; version <= 10; version++) {
+            assertTrue(storage.compareAndSetLatestVersion("uid-1", version - 1, version));
+            storage.appendSnapshot(buildSnapshot("uid-1", version, new byte[version]));
+        }
+        storage.stop();
+
+        var recovered = start();
+        assertEquals(1, recovered.getSessionCount());
+        assertEquals(11, recovered.getSnapshotCount());
+        assertEquals(10L, recovered.findLatestVersion("uid-1").orElseThrow());
+        var snapshot = recovered.findLatestSnapshot("uid-1").orElseThrow();
+        assertArrayEquals(new byte[10], snapshot.getSnapshot());
+        assertEquals("owner", snapshot.getSession().getOwnerId());
+        assertEquals(5, recovered.findSnapshotChain("uid-1", 3, 7).size());
+        assertEquals(
+                permissions.stream().map(PermissionEntity::getId).toList(),
+                recovered.createPermissions(List.of("READ", "Write")).stream().map(PermissionEntity::getId).toList()
+        );
+        assertThrows(DuplicateKeyException.class, () -> recovered.appendSnapshot(buildSnapshot("uid-1", 5, new byte[1])));
+        recovered.stop();
+    }
+
+    @Test
+    void testTruncateTornRecord() throws IOException {
+        var storage = start();
+        createSession(storage, "uid-1", null);
+        storage.appendSnapshot(buildSnapshot("uid-1", 1, "snapshot".repeat(8).getBytes(StandardCharsets.UTF_8)));
+        storage.stop();
+
+        var segment = directory.resolve("segment-0000000000.log");
+        var content = Files.readAllBytes(segment);
+        var lastRecordEnd = content.length;
+        while (content[lastRecordEnd - 1] == 0) {
+            lastRecordEnd--;
+        }
+        // corrupt the last byte of the second snapshot
+        try (var channel = Files.newByteChannel(segment, StandardOpenOption.WRITE)) {
+            channel.position(lastRecordEnd - 1);
+            channel.write(ByteBuffer.wrap(new byte[]{1}));
+        }
+
+        var recovered = start();
+        assertEquals(0L, recovered.findLatestVersion("uid-1").orElseThrow());
+        assertTrue(recovered.findSnapshot("uid-1", 1).isEmpty());
+        createSession(recovered, "uid-2", null);
+        recovered.stop();
+
+        var restarted = start();
+        assertEquals(2, restarted.getSessionCount());
+        restarted.stop();
+    }
+
+    @Test
+    void testCompactDropsExpiredSessions() {
+        var storage = start();
+        for (int i = 0; i < 64; i++) {
+            var expiresAt = i % 2 == 0 ? ZonedDateTime.now().minusMinutes(1) : null;
+            createSession(storage, "uid-" + i, expiresAt);
+        }
+        var segments = storage.getSegmentCount();
+        assertTrue(segments > 1);
+
+        storage.compact();
+
+        assertEquals(32, storage.getSessionCount());
+        assertTrue(storage.getSegmentCount() < segments);
+        assertTrue(storage.findSnapshot("uid-0", 0).isEmpty());
+        assertTrue(storage.findSnapshot("uid-1", 0).isPresent());
+        storage.stop();
+
+        var restarted = start();
+        assertTrue(restarted.findSnapshot("uid-63", 0).isPresent());
+        restarted.stop();
+    }
+
+    @Test
+    void testExpiredSessionIsNotRestoredAfterCompaction() throws IOException {
+        var storage = start();
+        var now = ZonedDateTime.now();
+        for (int i = 0; i < 16; i++) {
+            createSession(storage, "live-" + i, "other", null, new byte[1024]);
+            createSession(storage, "uid-" + i, "owner", now.plusHours(1), new byte[16]);
+        }
+        // expiry records are placed in a segment without live records, so compaction deletes it
+        rollSegment(storage, "expired-before-", now.minusMinutes(1));
+        assertEquals(16, storage.expireAllByOwner(SessionOwnerType.USER, "owner", now));
+        rollSegment(storage, "expired-after-", now.minusMinutes(1));
+
+        storage.compact();
+        createSession(storage, "tail", "other", null, new byte[1024]);
+        storage.stop();
+
+        var segment = Files.list(directory)
+                .max(Path::compareTo)
+                .orElseThrow();
+        tearLastRecord(segment);
+
+        var restarted = start();
+        assertEquals(0, restarted.countByOwner(SessionOwnerType.USER, "owner", now));
+        assertTrue(restarted.findSnapshot("uid-0", 0).isEmpty());
+        assertEquals(16, restarted.countByOwner(SessionOwnerType.USER, "other", now));
+        assertTrue(restarted.findLatestVersion("tail").isEmpty());
+        assertEquals(16, restarted.getSessionCount());
+        restarted.compact();
+        restarted.stop();
+
+        var recompacted = start();
+        assertEquals(0, recompacted.countByOwner(SessionOwnerType.USER, "owner", now));
+        assertEquals(16, recompacted.getSessionCount());
+        recompacted.stop();
+    }
+
+    private static void rollSegment(MappedSessionStorage storage, String uidPrefix, ZonedDateTime expiresAt) {
+        var segments = storage.getSegmentCount();
+        for (int i = 0; storage.getSegmentCount() == segments; i++) {
+            createSession(storage, uidPrefix + i, "other", expiresAt, new byte[1024]);
+        }
+    }
+
+    private static void tearLastRecord(Path segment) throws IOException {
+        var content = Files.readAllBytes(segment);
+        var lastRecordEnd = content.length;
+        while (content[lastRecordEnd - 1] == 0) {
+            lastRecordEnd--;
+        }
+        try (var channel = Files.newByteChannel(segment, StandardOpenOption.WRITE)) {
+            channel.position(lastRecordEnd - 1);
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) (content[lastRecordEnd - 1] + 1)}));
+        }
+    }
+
+    private MappedSessionStorage start() {
+        var storage = new MappedSessionStorage(
+                new SessionServiceEmbeddedMappedStorageProperties(
+                        directory.toString(),
+                        4096,
+                        16,
+                        true,
+                        Duration.ofHours(1),
+                        0.5
+                )
+        );
+        storage.start();
+        return storage;
+    }
+
+    private static void createSession(MappedSessionStorage storage, String uid, ZonedDateTime expiresAt) {
+        createSession(storage, uid, "owner", expiresAt, new byte[128]);
+    }
+
+    private static void createSession(MappedSessionStorage storage,
+                                      String uid,
+                                      String ownerId,
+                                      ZonedDateTime expiresAt,
+                                      byte[] content) {
+        storage.createSessions(
+                List.of(
+                        SessionEntity.builder()
+                                .uid(uid)
+                                .ownerType(SessionOwnerType.USER)
+                                .ownerId(ownerId)
+                                .createdAt(ZonedDateTime.now())
+                                .expiresAt(expiresAt)
+                                .permissionIds(new byte[]{3})
+                                .build()
+                ),
+                List.of(buildSnapshot(uid, 0, content)),
+                List.of()
+        );
+    }
+
+    private static SessionSnapshotEntity buildSnapshot(String uid, long version, byte[] content) {
+        return SessionSnapshotEntity.builder()
+                .entityId(
+                        SessionSnapshotEntityId.builder()
+                                .uid(uid)
+                                .version(version)
+                                .build()
+                )
+                .snapshot(content)
+                .snapshotType(SnapshotCodecType.BINARY)
+                .createdAt(ZonedDateTime.now())
+                .build();
+    }
+}
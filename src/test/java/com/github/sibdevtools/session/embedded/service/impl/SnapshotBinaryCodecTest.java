@@ -0,0 +1,152 @@
+package com.github.sibdevtools.session.embedded.service.impl;
+
+import com.github.sibdevtools.session.embedded.exception.AttributeTypeNotAllowedException;
+import com.github.sibdevtools.session.embedded.exception.UnexpectedErrorException;
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+class SnapshotBinaryCodecTest {
+    private final SnapshotBinaryCodec codec = new SnapshotBinaryCodec();
+
+    @Test
+    void testRoundTripKeepsValueTypes() {
+        var attributes = new HashMap<String, Serializable>();
+        attributes.put("string", "value-ж");
+        attributes.put("int", -42);
+        attributes.put("long", Long.MAX_VALUE);
+        attributes.put("double", 4.2d);
+        attributes.put("float", 4.2f);
+        attributes.put("boolean", true);
+        attributes.put("short", (short) -7);
+        attributes.put("byte", (byte) 7);
+        attributes.put("char", 'x');
+        attributes.put("bigDecimal", new BigDecimal("-12345.6789"));
+        attributes.put("bigInteger", new BigInteger("123456789012345678901234567890"));
+        attributes.put("list", new ArrayList<>(List.of("a", 1, 2L)));
+        attributes.put("map", new LinkedHashMap<>(Map.of("key", 1)));
+        attributes.put("date", LocalDate.of(2024, 4, 24));
+        attributes.put("null", null);
+
+        var snapshot = Map.<String, Map<String, Serializable>>of(
+                "section", attributes,
+                "empty", Map.of()
+        );
+
+        var decoded = codec.deserialize(codec.serialize(snapshot));
+
+        assertEquals(snapshot, decoded);
+        var decodedAttributes = decoded.get("section");
+        for (var entry : attributes.entrySet()) {
+            var expected = entry.getValue();
+            var actual = decodedAttributes.get(entry.getKey());
+            if (expected != null) {
+                assertEquals(expected.getClass(), actual.getClass(), entry.getKey());
+            }
+        }
+        assertTrue(decodedAttributes.containsKey("null"));
+    }
+
+    @Test
+    void testRoundTripBytes() {
+        var bytes = new byte[]{1, 2, 3};
+        var snapshot = Map.<String, Map<String, Serializable>>of("section", Map.of("bytes", bytes));
+
+        var decoded = codec.deserialize(codec.serialize(snapshot));
+
+        assertArrayEquals(bytes, (byte[]) decoded.get("section").get("bytes"));
+    }
+
+    @Test
+    void testIndexedAttributeReads() {
+        var attributes = new HashMap<String, Serializable>();
+        for (int i = 0; i < 100; i++) {
+            attributes.put("attribute-" + i, i);
+        }
+        var snapshot = Map.<String, Map<String, Serializable>>of(
+                "section", attributes,
+                "other", Map.of("key", "value")
+        );
+        var encoded = codec.serialize(snapshot);
+
+        assertEquals(attributes.keySet(), codec.getAttributeNames(encoded, "section"));
+        assertEquals(Set.of(), codec.getAttributeNames(encoded, "missing"));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, codec.getAttribute(encoded, "section", "attribute-" + i));
+        }
+        assertEquals("value", codec.getAttribute(encoded, "other", "key"));
+        assertNull(codec.getAttribute(encoded, "section", "missing"));
+        assertNull(codec.getAttribute(encoded, "missing", "key"));
+    }
+
+    @Test
+    void testSerializeReusesUnchangedSections() {
+        var source = Map.<String, Map<String, Serializable>>of(
+                "a-section", Map.of("key", "value", "number", 42),
+                "b-section", Map.of("key", "old-value"),
+                "c-section", Map.of("removed", "value"),
+                "d-section", Map.of("list", new ArrayList<>(List.of("a", "b")), "long", 7L)
+        );
+        var sourceSnapshot = codec.serialize(source);
+
+        var snapshot = Map.<String, Map<String, Serializable>>of(
+                "a-section", source.get("a-section"),
+                "b-section", Map.of("key", "new-value-which-is-longer", "added", true),
+                "bb-section", Map.of("key", "value"),
+                "d-section", source.get("d-section")
+        );
+        var encoded = codec.serialize(snapshot, sourceSnapshot, Set.of("b-section", "bb-section"));
+
+        assertArrayEquals(codec.serialize(snapshot), encoded);
+        assertEquals(snapshot, codec.deserialize(encoded));
+        assertEquals(42, codec.getAttribute(encoded, "a-section", "number"));
+        assertEquals(7L, codec.getAttribute(encoded, "d-section", "long"));
+    }
+
+    @Test
+    void testSerializedValueRejectedByFilter() {
+        var snapshot = Map.<String, Map<String, Serializable>>of("section", Map.of("custom", new CustomValue("value")));
+
+        assertThrows(AttributeTypeNotAllowedException.class, () -> codec.serialize(snapshot));
+
+        var serialFilter = CustomValue.class.getName() + ";" + SnapshotBinaryCodec.DEFAULT_SERIAL_FILTER;
+        var permissiveCodec = new SnapshotBinaryCodec(serialFilter);
+        var encoded = permissiveCodec.serialize(snapshot);
+        assertEquals(snapshot, permissiveCodec.deserialize(encoded));
+        // snapshot, written with a wider filter, is not read by a narrower one
+        assertThrows(UnexpectedErrorException.class, () -> codec.deserialize(encoded));
+    }
+
+    @Test
+    void testNestedSerializedValueRejectedByFilter() {
+        var value = new HashSet<>(Set.of("value", new CustomValue("nested")));
+        var snapshot = Map.<String, Map<String, Serializable>>of("section", Map.of("set", value));
+
+        assertThrows(AttributeTypeNotAllowedException.class, () -> codec.serialize(snapshot));
+    }
+
+    @Test
+    void testDeserializeLengthExceedsSnapshot() {
+        var snapshot = new byte[]{'S', 'B', 1, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        assertThrows(UnexpectedErrorException.class, () -> codec.deserialize(snapshot));
+    }
+
+    @Test
+    void testDeserializeInvalidSnapshot() {
+        var snapshot = "{}".getBytes();
+        assertThrows(UnexpectedErrorException.class, () -> codec.deserialize(snapshot));
+    }
+
+    private record CustomValue(String value) implements Serializable {
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.sibdevtools.session.embedded.service.impl;
+
+import com.github.sibdevtools.session.embedded.entity.SnapshotCodecType;
+import com.github.sibdevtools.session.embedded.exception.UnexpectedErrorException;
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author sibmaks
+ * @since 0.0.11
+ */
+class SnapshotDeflateCodecTest {
+    private final SnapshotBinaryCodec delegate = new SnapshotBinaryCodec();
+    private final SnapshotDeflateCodec codec = new SnapshotDeflateCodec(SnapshotCodecType.BINARY_DEFLATE, delegate);
+
+    @Test
+    void testRoundTripCompressesContent() {
+        var snapshot = Map.<String, Map<String, Serializable>>of(
+                "section", Map.of("text", "compressible text ".repeat(1024))
+        );
+
+        var encoded = delegate.serialize(snapshot);
+        var compressed = codec.serialize(snapshot);
+
+        assertTrue(compressed.length < encoded.length / 5);
+        assertArrayEquals(encoded, codec.decompress(compressed));
+        assertEquals(snapshot, codec.deserialize(compressed));
+        assertEquals(SnapshotCodecType.BINARY_DEFLATE, codec.getType());
+    }
+
+    @Test
+    void testDecompressRejectsInvalidContentLength() {
+        var compressed = codec.compress(new byte[]{1, 2, 3});
+        ByteBuffer.wrap(compressed).putInt(Integer.MAX_VALUE);
+
+        assertThrows(UnexpectedErrorException.class, () -> codec.decompress(compressed));
+    }
+}